@@ -0,0 +1,192 @@
+package io.github.tky0065.spring_boot_migration_maven_plugin;
+
+import io.github.tky0065.spring_boot_migration_starter.config.MigrationProperties;
+import io.github.tky0065.spring_boot_migration_starter.service.DatabaseDialect;
+import io.github.tky0065.spring_boot_migration_starter.service.EntityChangeDetectorService;
+import io.github.tky0065.spring_boot_migration_starter.service.FlywayMigrationService;
+import io.github.tky0065.spring_boot_migration_starter.service.LiquibaseMigrationService;
+import io.github.tky0065.spring_boot_migration_starter.service.MigrationService;
+import io.github.tky0065.spring_boot_migration_starter.service.MigrationTemplateGenerator;
+import org.apache.maven.artifact.DependencyResolutionRequiredException;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.plugins.annotations.ResolutionScope;
+import org.apache.maven.project.MavenProject;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.util.StringUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Generates the migrations for the entity changes of the project at build time: the compiled entity
+ * classes are compared with a local stand-in database brought up to date with the existing migrations,
+ * and the resulting scripts are written to the project sources.
+ * <p>
+ * Runs after compilation, so the entities and the migrations copied to the output directory are current.
+ * The application can then disable runtime generation with
+ * {@code db.migration.runtime-generation-enabled=false}.
+ */
+@Mojo(name = "generate-migrations", defaultPhase = LifecyclePhase.PROCESS_CLASSES,
+        requiresDependencyResolution = ResolutionScope.COMPILE_PLUS_RUNTIME, threadSafe = true)
+public class GenerateMigrationsMojo extends AbstractMojo {
+
+    @Parameter(defaultValue = "${project}", readonly = true, required = true)
+    private MavenProject project;
+
+    /**
+     * Migration tool, flyway or liquibase
+     */
+    @Parameter(property = "migration.type", defaultValue = "flyway")
+    private String type;
+
+    /**
+     * Packages scanned for JPA entities
+     */
+    @Parameter(property = "migration.basePackages", required = true)
+    private List<String> basePackages;
+
+    /**
+     * Directory the generated migrations are written to
+     */
+    @Parameter(property = "migration.outputDirectory", defaultValue = "${project.basedir}/src/main/resources/db/migration")
+    private File outputDirectory;
+
+    /**
+     * Locations of the existing Flyway migrations, resolved against the project classpath
+     */
+    @Parameter(property = "migration.locations")
+    private List<String> locations;
+
+    /**
+     * Master changelog of the existing Liquibase migrations, on the project classpath
+     */
+    @Parameter(property = "migration.changeLogPath")
+    private String changeLogPath;
+
+    /**
+     * JDBC URL of the stand-in database. Its driver must be added to the plugin dependencies unless it is H2.
+     */
+    @Parameter(property = "migration.jdbcUrl", defaultValue = "jdbc:h2:mem:migration-generation;DB_CLOSE_DELAY=-1")
+    private String jdbcUrl;
+
+    @Parameter(property = "migration.username")
+    private String username;
+
+    @Parameter(property = "migration.password")
+    private String password;
+
+    @Parameter(property = "migration.schema")
+    private String schema;
+
+    /**
+     * Database the scripts are generated for: POSTGRESQL, MYSQL, MARIADB, ORACLE, SQLSERVER or H2.
+     * Inferred from the {@code MODE} of an H2 stand-in when empty, H2 otherwise.
+     */
+    @Parameter(property = "migration.targetDialect")
+    private DatabaseDialect targetDialect;
+
+    /**
+     * Whether migrations creating the indexes missing from the schema are generated
+     */
+    @Parameter(property = "migration.indexAdvisorEnabled", defaultValue = "true")
+    private boolean indexAdvisorEnabled;
+
+    /**
+     * Release of the generated Liquibase changelogs, the current month when empty
+     */
+    @Parameter(property = "migration.release")
+    private String release;
+
+    @Parameter(property = "migration.skip", defaultValue = "false")
+    private boolean skip;
+
+    @Override
+    public void execute() throws MojoExecutionException {
+        if (skip) {
+            getLog().info("Migration generation is skipped");
+            return;
+        }
+
+        MigrationProperties properties = createProperties();
+        Thread thread = Thread.currentThread();
+        ClassLoader previousClassLoader = thread.getContextClassLoader();
+        try (URLClassLoader classLoader = createProjectClassLoader()) {
+            // Flyway and Liquibase resolve the existing migrations through the context class loader
+            thread.setContextClassLoader(classLoader);
+
+            DriverManagerDataSource dataSource = new DriverManagerDataSource(jdbcUrl, username, password);
+            applyExistingMigrations(classLoader, dataSource, properties);
+
+            EntityChangeDetectorService detector = new EntityChangeDetectorService(classLoader, basePackages,
+                    new MigrationTemplateGenerator(null, properties), properties, dataSource);
+            if (detector.detectChangesAndGenerateMigration()) {
+                getLog().info("Migrations generated in " + outputDirectory);
+            } else {
+                getLog().info("No migration to generate");
+            }
+        } catch (DependencyResolutionRequiredException | IOException | RuntimeException e) {
+            throw new MojoExecutionException("Migration generation failed", e);
+        } finally {
+            thread.setContextClassLoader(previousClassLoader);
+        }
+    }
+
+    private MigrationProperties createProperties() {
+        MigrationProperties properties = new MigrationProperties();
+        properties.setType(type);
+        properties.setAutoGenerateMigrations(true);
+        properties.setGeneratedMigrationsPath(outputDirectory.getAbsolutePath());
+        properties.setSchema(schema);
+        properties.setTargetDialect(targetDialect);
+        properties.setIndexAdvisorEnabled(indexAdvisorEnabled);
+        properties.getChangelog().setRelease(release);
+        if (locations != null && !locations.isEmpty()) {
+            properties.setLocations(new ArrayList<>(locations));
+        }
+        if (StringUtils.hasText(changeLogPath)) {
+            properties.setChangeLogPath(changeLogPath);
+        }
+        return properties;
+    }
+
+    /**
+     * Bring the stand-in database to the state described by the migrations already in the project
+     */
+    private void applyExistingMigrations(ClassLoader classLoader, DriverManagerDataSource dataSource,
+                                         MigrationProperties properties) {
+        MigrationService migrationService;
+        if ("liquibase".equalsIgnoreCase(type)) {
+            String changeLog = StringUtils.hasText(properties.getChangeLogPath())
+                    ? properties.getChangeLogPath() : "db/changelog/db.changelog-master.yaml";
+            if (classLoader.getResource(changeLog) == null) {
+                getLog().info("No Liquibase changelog found at " + changeLog + ", starting from an empty schema");
+                return;
+            }
+            migrationService = new LiquibaseMigrationService(dataSource, properties);
+        } else {
+            // Resolve the classpath locations in the project rather than in the plugin
+            migrationService = new FlywayMigrationService(dataSource, properties, classLoader);
+        }
+        getLog().info("Applying the existing migrations to " + jdbcUrl);
+        migrationService.migrate();
+    }
+
+    // Parent-first, so that the entity classes see the same JPA annotations as the starter
+    private URLClassLoader createProjectClassLoader() throws DependencyResolutionRequiredException,
+            MalformedURLException {
+        List<URL> urls = new ArrayList<>();
+        for (String element : project.getRuntimeClasspathElements()) {
+            urls.add(new File(element).toURI().toURL());
+        }
+        return new URLClassLoader(urls.toArray(new URL[0]), getClass().getClassLoader());
+    }
+}
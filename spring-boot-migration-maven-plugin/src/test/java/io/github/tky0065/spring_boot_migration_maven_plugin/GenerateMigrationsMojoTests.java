@@ -0,0 +1,75 @@
+package io.github.tky0065.spring_boot_migration_maven_plugin;
+
+import io.github.tky0065.spring_boot_migration_starter.service.DatabaseDialect;
+import org.apache.maven.project.MavenProject;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GenerateMigrationsMojoTests {
+
+    @TempDir
+    Path outputDirectory;
+
+    @Test
+    void generatesTheScriptsForTheTargetDialect() throws Exception {
+        GenerateMigrationsMojo mojo = mojo("jdbc:h2:mem:mojo-target;DB_CLOSE_DELAY=-1");
+        ReflectionTestUtils.setField(mojo, "targetDialect", DatabaseDialect.MYSQL);
+
+        mojo.execute();
+
+        assertThat(generatedScript()).contains("""
+                ALTER TABLE customer
+                    ADD COLUMN email VARCHAR(255),
+                    MODIFY COLUMN name VARCHAR(50)""");
+    }
+
+    @Test
+    void infersTheTargetDialectFromTheH2Mode() throws Exception {
+        GenerateMigrationsMojo mojo = mojo("jdbc:h2:mem:mojo-mode;MODE=PostgreSQL;DB_CLOSE_DELAY=-1");
+
+        mojo.execute();
+
+        assertThat(generatedScript()).contains("ALTER COLUMN name TYPE VARCHAR(50)");
+    }
+
+    private GenerateMigrationsMojo mojo(String jdbcUrl) {
+        // The fixture entity and migrations are compiled with the tests
+        File testClasses = new File(getClass().getProtectionDomain().getCodeSource().getLocation().getPath());
+        MavenProject project = new MavenProject() {
+            @Override
+            public List<String> getRuntimeClasspathElements() {
+                return List.of(testClasses.getAbsolutePath());
+            }
+        };
+        GenerateMigrationsMojo mojo = new GenerateMigrationsMojo();
+        ReflectionTestUtils.setField(mojo, "project", project);
+        ReflectionTestUtils.setField(mojo, "type", "flyway");
+        ReflectionTestUtils.setField(mojo, "basePackages",
+                List.of("io.github.tky0065.spring_boot_migration_maven_plugin.fixture"));
+        ReflectionTestUtils.setField(mojo, "outputDirectory", outputDirectory.toFile());
+        ReflectionTestUtils.setField(mojo, "locations", List.of("classpath:fixture/db/migration"));
+        ReflectionTestUtils.setField(mojo, "jdbcUrl", jdbcUrl);
+        ReflectionTestUtils.setField(mojo, "username", "sa");
+        ReflectionTestUtils.setField(mojo, "password", "");
+        ReflectionTestUtils.setField(mojo, "indexAdvisorEnabled", false);
+        return mojo;
+    }
+
+    private String generatedScript() throws Exception {
+        try (Stream<Path> files = Files.list(outputDirectory)) {
+            Path script = files.filter(file -> file.getFileName().toString().startsWith("V"))
+                    .findFirst()
+                    .orElseThrow();
+            return Files.readString(script);
+        }
+    }
+}
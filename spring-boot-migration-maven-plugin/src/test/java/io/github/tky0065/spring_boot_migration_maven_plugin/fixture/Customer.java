@@ -0,0 +1,16 @@
+package io.github.tky0065.spring_boot_migration_maven_plugin.fixture;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+
+@Entity
+public class Customer {
+    @Id
+    private Long id;
+
+    @Column(length = 50)
+    private String name;
+
+    private String email;
+}
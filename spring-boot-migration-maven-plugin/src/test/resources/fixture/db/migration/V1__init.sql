@@ -0,0 +1 @@
+CREATE TABLE customer (id BIGINT PRIMARY KEY, name VARCHAR(20));
@@ -1,22 +1,56 @@
 package io.github.tky0065.spring_boot_migration_starter.config;
 
+import io.github.tky0065.spring_boot_migration_starter.endpoint.MigrationEndpoint;
+import io.github.tky0065.spring_boot_migration_starter.service.BackgroundMigration;
+import io.github.tky0065.spring_boot_migration_starter.service.ConnectionRetry;
 import io.github.tky0065.spring_boot_migration_starter.service.EntityChangeDetectorService;
+import io.github.tky0065.spring_boot_migration_starter.service.EntityScanner;
+import io.github.tky0065.spring_boot_migration_starter.service.FlightRecorderFlywayCallback;
 import io.github.tky0065.spring_boot_migration_starter.service.FlywayMigrationService;
 import io.github.tky0065.spring_boot_migration_starter.service.LiquibaseMigrationService;
+import io.github.tky0065.spring_boot_migration_starter.service.LiquibaseStartupPostProcessor;
+import io.github.tky0065.spring_boot_migration_starter.service.ManagedTypesCache;
+import io.github.tky0065.spring_boot_migration_starter.service.MigrationFlightRecorder;
+import io.github.tky0065.spring_boot_migration_starter.service.MigrationJobService;
+import io.github.tky0065.spring_boot_migration_starter.service.MigrationRunHistory;
 import io.github.tky0065.spring_boot_migration_starter.service.MigrationService;
+import io.github.tky0065.spring_boot_migration_starter.service.MigrationShard;
 import io.github.tky0065.spring_boot_migration_starter.service.MigrationTemplateGenerator;
+import io.github.tky0065.spring_boot_migration_starter.service.PostMigrationStage;
+import io.github.tky0065.spring_boot_migration_starter.service.SchemaDriftDetector;
+import io.github.tky0065.spring_boot_migration_starter.service.SchemaDriftMetrics;
+import io.github.tky0065.spring_boot_migration_starter.service.SeedDataLoader;
+import io.github.tky0065.spring_boot_migration_starter.service.ShardDataSourceRegistry;
+import io.github.tky0065.spring_boot_migration_starter.service.ShardedMigrationService;
+import io.github.tky0065.spring_boot_migration_starter.service.StartupFlywayMigrationStrategy;
+import io.github.tky0065.spring_boot_migration_starter.service.StreamingFlywayConfigurationCustomizer;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.boot.actuate.autoconfigure.endpoint.condition.ConditionalOnAvailableEndpoint;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
 import org.springframework.boot.autoconfigure.AutoConfiguration;
-import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnSingleCandidate;
 import org.springframework.boot.autoconfigure.flyway.FlywayAutoConfiguration;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
 import org.springframework.boot.autoconfigure.liquibase.LiquibaseAutoConfiguration;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration;
 import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.sql.init.dependency.DependsOnDatabaseInitialization;
 import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.ImportRuntimeHints;
 import org.springframework.context.event.EventListener;
 import org.springframework.core.io.ResourceLoader;
+import org.springframework.orm.jpa.persistenceunit.ManagedClassNameFilter;
+import org.springframework.orm.jpa.persistenceunit.PersistenceManagedTypes;
 import org.springframework.context.annotation.Primary;
 
 import jakarta.annotation.PostConstruct;
@@ -24,9 +58,14 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.sql.DataSource;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
-@AutoConfiguration(before = {FlywayAutoConfiguration.class, LiquibaseAutoConfiguration.class})
+@AutoConfiguration(before = {FlywayAutoConfiguration.class, LiquibaseAutoConfiguration.class,
+        HibernateJpaAutoConfiguration.class})
 @EnableConfigurationProperties(MigrationProperties.class)
+@ImportRuntimeHints(MigrationRuntimeHints.class)
 public class DatabaseMigrationAutoConfiguration {
 
     private static final Logger logger = LoggerFactory.getLogger(DatabaseMigrationAutoConfiguration.class);
@@ -38,50 +77,54 @@ public class DatabaseMigrationAutoConfiguration {
     }
 
     @PostConstruct
+    @SuppressWarnings("try") // The span only times the block
     public void init() {
-        logger.info("Initializing Database Migration Starter with type: {}", properties.getType());
-        if (properties.getLocations().isEmpty() && properties.getLocation() != null) {
-            properties.getLocations().add(properties.getLocation());
-        }
+        try (MigrationFlightRecorder.Span span = MigrationFlightRecorder.phase(
+                MigrationFlightRecorder.AUTO_CONFIGURATION, properties.getType())) {
+            logger.info("Initializing Database Migration Starter with type: {}", properties.getType());
+            if (properties.getLocations().isEmpty() && properties.getLocation() != null) {
+                properties.getLocations().add(properties.getLocation());
+            }
 
-        // Configure Hibernate quote identifiers if needed
-        if (properties.isQuoteIdentifiers()) {
-            logger.info("Enabling quoted SQL identifiers to handle reserved keywords");
-            System.setProperty("spring.jpa.properties.hibernate.globally_quoted_identifiers", "true");
-        }
+            // Configure Hibernate quote identifiers if needed
+            if (properties.isQuoteIdentifiers()) {
+                logger.info("Enabling quoted SQL identifiers to handle reserved keywords");
+                System.setProperty("spring.jpa.properties.hibernate.globally_quoted_identifiers", "true");
+            }
 
-        // Configure proper spring.flyway.enabled or spring.liquibase.enabled based on selection
-        if ("liquibase".equalsIgnoreCase(properties.getType())) {
-            System.setProperty("spring.flyway.enabled", "false");
-            System.setProperty("spring.liquibase.enabled", String.valueOf(properties.isEnabled()));
+            // Configure proper spring.flyway.enabled or spring.liquibase.enabled based on selection
+            if ("liquibase".equalsIgnoreCase(properties.getType())) {
+                System.setProperty("spring.flyway.enabled", "false");
+                System.setProperty("spring.liquibase.enabled", String.valueOf(properties.isEnabled()));
 
-            // Propager les configurations Liquibase si besoin
-            if (properties.getChangeLogPath() != null) {
-                System.setProperty("spring.liquibase.change-log", properties.getChangeLogPath());
-            }
-        } else {
-            // Configuration pour Flyway
-            System.setProperty("spring.liquibase.enabled", "false");
-            System.setProperty("spring.flyway.enabled", String.valueOf(properties.isEnabled()));
-
-            // Propager les paramètres critiques de Flyway
-            logger.info("Setting Flyway baselineOnMigrate to: {}", properties.isBaselineOnMigrate());
-            System.setProperty("spring.flyway.baseline-on-migrate", String.valueOf(properties.isBaselineOnMigrate()));
-            System.setProperty("spring.flyway.validate-on-migrate", String.valueOf(properties.isValidateOnMigrate()));
-            System.setProperty("spring.flyway.clean-disabled", String.valueOf(properties.isCleanDisabled()));
-
-            // Propager les locations si définies
-            if (!properties.getLocations().isEmpty()) {
-                String locations = String.join(",", properties.getLocations());
-                logger.info("Setting Flyway locations to: {}", locations);
-                System.setProperty("spring.flyway.locations", locations);
-            }
+                // Propager les configurations Liquibase si besoin
+                if (properties.getChangeLogPath() != null) {
+                    System.setProperty("spring.liquibase.change-log", properties.getChangeLogPath());
+                }
+            } else {
+                // Configuration pour Flyway
+                System.setProperty("spring.liquibase.enabled", "false");
+                System.setProperty("spring.flyway.enabled", String.valueOf(properties.isEnabled()));
 
-            // Configurer les SQL quotes pour Flyway si nécessaire
-            if (properties.isQuoteIdentifiers()) {
-                logger.info("Setting Flyway SQL quotes for identifiers");
-                System.setProperty("spring.flyway.sql-migration-prefix-separator", "__");
-                System.setProperty("spring.flyway.sql-quote-identifier", "true");
+                // Propager les paramètres critiques de Flyway
+                logger.info("Setting Flyway baselineOnMigrate to: {}", properties.isBaselineOnMigrate());
+                System.setProperty("spring.flyway.baseline-on-migrate", String.valueOf(properties.isBaselineOnMigrate()));
+                System.setProperty("spring.flyway.validate-on-migrate", String.valueOf(properties.isValidateOnMigrate()));
+                System.setProperty("spring.flyway.clean-disabled", String.valueOf(properties.isCleanDisabled()));
+
+                // Propager les locations si définies
+                if (!properties.getLocations().isEmpty()) {
+                    String locations = String.join(",", properties.getLocations());
+                    logger.info("Setting Flyway locations to: {}", locations);
+                    System.setProperty("spring.flyway.locations", locations);
+                }
+
+                // Configurer les SQL quotes pour Flyway si nécessaire
+                if (properties.isQuoteIdentifiers()) {
+                    logger.info("Setting Flyway SQL quotes for identifiers");
+                    System.setProperty("spring.flyway.sql-migration-prefix-separator", "__");
+                    System.setProperty("spring.flyway.sql-quote-identifier", "true");
+                }
             }
         }
     }
@@ -91,7 +134,7 @@ public class DatabaseMigrationAutoConfiguration {
     public MigrationTemplateGenerator migrationTemplateGenerator(ResourceLoader resourceLoader) {
         logger.info("Configuring MigrationTemplateGenerator");
         MigrationTemplateGenerator generator = new MigrationTemplateGenerator(resourceLoader, properties);
-        if (properties.isEnabled()) {
+        if (properties.isEnabled() && properties.isRuntimeGenerationEnabled()) {
             generator.generateInitialMigrations(properties.getType());
         } else {
             logger.info("Migration template generation is disabled");
@@ -119,11 +162,138 @@ public class DatabaseMigrationAutoConfiguration {
      * after the application is fully initialized
      */
     @EventListener(ApplicationReadyEvent.class)
-    @ConditionalOnBean(EntityChangeDetectorService.class)
     public void onApplicationReady(ApplicationReadyEvent event) {
-        logger.info("ApplicationReadyEvent received, checking for entity changes");
-        EntityChangeDetectorService detector = event.getApplicationContext().getBean(EntityChangeDetectorService.class);
-        detector.detectChangesAndGenerateMigration();
+        if (!properties.isRuntimeGenerationEnabled()) {
+            logger.debug("Runtime migration generation is disabled");
+            return;
+        }
+        event.getApplicationContext().getBeanProvider(EntityChangeDetectorService.class).ifAvailable(detector -> {
+            logger.info("ApplicationReadyEvent received, checking for entity changes");
+            detector.detectChangesAndGenerateMigration();
+        });
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = "db.migration.startup", name = "deferred", havingValue = "true")
+    public BackgroundMigration backgroundMigration(ApplicationEventPublisher publisher) {
+        logger.info("Startup migrations will run in the background");
+        return new BackgroundMigration(publisher);
+    }
+
+    /**
+     * Retry, deferral, seed data and post-migration stage of the startup migration run by Spring Boot's Flyway auto-configuration
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    public FlywayMigrationStrategy startupFlywayMigrationStrategy(ObjectProvider<BackgroundMigration> backgroundMigration,
+                                                                  ObjectProvider<SeedDataLoader> seedDataLoader) {
+        return new StartupFlywayMigrationStrategy(new ConnectionRetry(properties.getStartup()),
+                backgroundMigration.getIfAvailable(), new PostMigrationStage(properties), seedDataLoader.getIfAvailable());
+    }
+
+    /**
+     * Flight recorder events for the checksum validation and the scripts of the startup Flyway migration
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    public FlightRecorderFlywayCallback flightRecorderFlywayCallback() {
+        return new FlightRecorderFlywayCallback();
+    }
+
+    /**
+     * Streamed scripts of the startup Flyway migration
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = "db.migration.streaming", name = "enabled", havingValue = "true", matchIfMissing = true)
+    public StreamingFlywayConfigurationCustomizer streamingFlywayConfigurationCustomizer() {
+        return new StreamingFlywayConfigurationCustomizer(properties);
+    }
+
+    /**
+     * Retry, deferral and seed data of the startup migration run by Spring Boot's Liquibase auto-configuration
+     */
+    @Bean
+    public static LiquibaseStartupPostProcessor liquibaseStartupPostProcessor(
+            ObjectProvider<MigrationProperties> properties,
+            ObjectProvider<BackgroundMigration> backgroundMigration,
+            ObjectProvider<SeedDataLoader> seedDataLoader) {
+        return new LiquibaseStartupPostProcessor(properties, backgroundMigration, seedDataLoader);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = "db.migration.seed-data", name = "enabled", havingValue = "true")
+    public SeedDataLoader seedDataLoader() {
+        logger.info("Configuring SeedDataLoader");
+        return new SeedDataLoader(properties);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = "db.migration.drift", name = "enabled", havingValue = "true")
+    public SchemaDriftDetector schemaDriftDetector(DataSource dataSource, ApplicationEventPublisher publisher) {
+        logger.info("Configuring SchemaDriftDetector");
+        return new SchemaDriftDetector(dataSource, properties, publisher);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = "db.migration.run-history", name = "enabled", havingValue = "true")
+    public MigrationRunHistory migrationRunHistory(DataSource dataSource, ApplicationEventPublisher publisher) {
+        logger.info("Recording migration runs in {}", properties.getRunHistory().getTable());
+        return new MigrationRunHistory(dataSource, properties, publisher);
+    }
+
+    /**
+     * Drift metrics, only registered when Micrometer is on the classpath
+     */
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnClass(name = "io.micrometer.core.instrument.binder.MeterBinder")
+    @ConditionalOnProperty(prefix = "db.migration.drift", name = "enabled", havingValue = "true")
+    static class SchemaDriftMetricsConfiguration {
+
+        @Bean
+        @ConditionalOnMissingBean
+        public SchemaDriftMetrics schemaDriftMetrics(SchemaDriftDetector schemaDriftDetector) {
+            return new SchemaDriftMetrics(schemaDriftDetector);
+        }
+    }
+
+    /**
+     * Replaces the entity scan of Spring Boot's JPA auto-configuration with a cached one. Created once
+     * the startup migration has run, so that the cache is keyed by the migrated schema version. Left out
+     * of AOT processing, where Spring Boot already resolves the managed types at build time.
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnExpression("${db.migration.metadata-cache.enabled:false} and !${spring.aot.processing:false}")
+    @DependsOnDatabaseInitialization
+    public PersistenceManagedTypes cachedPersistenceManagedTypes(BeanFactory beanFactory, ResourceLoader resourceLoader,
+                                                                 DataSource dataSource,
+                                                                 ObjectProvider<ManagedClassNameFilter> managedClassNameFilter,
+                                                                 ObjectProvider<BackgroundMigration> backgroundMigration) {
+        List<String> packages = EntityScanner.entityPackages(beanFactory);
+        return new ManagedTypesCache(properties, dataSource, resourceLoader, managedClassNameFilter.getIfAvailable(),
+                backgroundMigration.getIfAvailable())
+                .resolve(packages.toArray(new String[0]));
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = "db.migration.shards", name = "enabled", havingValue = "true")
+    public ShardedMigrationService shardedMigrationService(ConfigurableListableBeanFactory beanFactory,
+                                                           ObjectProvider<ShardDataSourceRegistry> registries) {
+        Map<String, DataSource> shards = new TreeMap<>();
+        for (String beanName : beanFactory.getBeanNamesForType(DataSource.class)) {
+            if (beanFactory.findAnnotationOnBean(beanName, MigrationShard.class) != null) {
+                shards.put(beanName, beanFactory.getBean(beanName, DataSource.class));
+            }
+        }
+        registries.orderedStream().forEach(registry -> shards.putAll(registry.getShards()));
+        logger.info("Configuring ShardedMigrationService for shards {}", shards.keySet());
+        return new ShardedMigrationService(shards, properties);
     }
 
     @Bean
@@ -142,5 +312,30 @@ public class DatabaseMigrationAutoConfiguration {
         logger.info("Configuring Liquibase migration service");
         return new LiquibaseMigrationService();
     }
-}
 
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnSingleCandidate(MigrationService.class)
+    public MigrationJobService migrationJobService(MigrationService migrationService) {
+        logger.info("Configuring MigrationJobService");
+        return new MigrationJobService(migrationService);
+    }
+
+    /**
+     * Actuator endpoint, only registered when actuator is on the classpath and the endpoint is exposed.
+     * Nested configurations are loaded before the beans of the enclosing class, so the job service is
+     * injected rather than checked with {@code @ConditionalOnBean}.
+     */
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnClass(Endpoint.class)
+    static class MigrationEndpointConfiguration {
+
+        @Bean
+        @ConditionalOnMissingBean
+        @ConditionalOnAvailableEndpoint
+        public MigrationEndpoint migrationEndpoint(MigrationJobService migrationJobService) {
+            logger.info("Configuring migration actuator endpoint");
+            return new MigrationEndpoint(migrationJobService);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package io.github.tky0065.spring_boot_migration_starter.config;
+
+import io.github.tky0065.spring_boot_migration_starter.service.EntityScanner;
+import io.github.tky0065.spring_boot_migration_starter.service.MigrationIndex;
+import io.github.tky0065.spring_boot_migration_starter.service.MigrationLocations;
+import jakarta.persistence.Embedded;
+import jakarta.persistence.EmbeddedId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.beans.factory.aot.BeanFactoryInitializationAotContribution;
+import org.springframework.beans.factory.aot.BeanFactoryInitializationAotProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Resolves the entities and the classpath migration resources at build time. The resulting
+ * {@link MigrationIndex} is added to the generated resources, and the runtime hints needed to
+ * read them are registered, so that a native application migrates without scanning the classpath.
+ */
+public class MigrationAotProcessor implements BeanFactoryInitializationAotProcessor {
+
+    private static final Logger logger = LoggerFactory.getLogger(MigrationAotProcessor.class);
+
+    private static final String DEFAULT_CHANGELOG_LOCATION = "classpath:db/changelog";
+
+    @Override
+    public BeanFactoryInitializationAotContribution processAheadOfTime(ConfigurableListableBeanFactory beanFactory) {
+        if (beanFactory.getBeanNamesForType(MigrationProperties.class, false, false).length == 0) {
+            return null;
+        }
+
+        ClassLoader classLoader = beanFactory.getBeanClassLoader();
+        Environment environment = beanFactory.getBean(Environment.class);
+        MigrationProperties properties = Binder.get(environment)
+                .bind("db.migration", MigrationProperties.class)
+                .orElseGet(MigrationProperties::new);
+
+        MigrationIndex index;
+        try {
+            index = MigrationIndex.build(classLoader, entityPackages(beanFactory), locations(properties));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not index the migration resources", e);
+        }
+        logger.info("Indexed {} entities and {} migration resources", index.getEntityClassNames().size(),
+                index.getResources().size());
+
+        return (generationContext, beanFactoryInitializationCode) -> {
+            generationContext.getGeneratedFiles().addResourceFile(MigrationIndex.LOCATION,
+                    new ByteArrayResource(index.write().getBytes(StandardCharsets.UTF_8)));
+            registerHints(generationContext.getRuntimeHints(), index, classLoader);
+        };
+    }
+
+    private void registerHints(RuntimeHints hints, MigrationIndex index, ClassLoader classLoader) {
+        hints.resources().registerPattern(MigrationIndex.LOCATION);
+        index.getResources().forEach(resource -> hints.resources().registerPattern(resource));
+
+        // Mappings are read reflectively by the index advisor, including superclasses and embeddables
+        for (String className : index.getEntityClassNames()) {
+            try {
+                Class<?> entityClass = ClassUtils.forName(className, classLoader);
+                for (Class<?> type = entityClass; type != null && type != Object.class; type = type.getSuperclass()) {
+                    registerMapping(hints, type);
+                    for (Field field : type.getDeclaredFields()) {
+                        if (field.isAnnotationPresent(Embedded.class) || field.isAnnotationPresent(EmbeddedId.class)) {
+                            registerMapping(hints, field.getType());
+                        }
+                    }
+                }
+            } catch (ClassNotFoundException | LinkageError e) {
+                logger.warn("Could not register the mapping of entity class {}", className, e);
+            }
+        }
+    }
+
+    private void registerMapping(RuntimeHints hints, Class<?> type) {
+        hints.reflection().registerType(type, MemberCategory.DECLARED_FIELDS,
+                MemberCategory.INTROSPECT_DECLARED_METHODS, MemberCategory.INTROSPECT_DECLARED_CONSTRUCTORS);
+    }
+
+    private Set<String> entityPackages(ConfigurableListableBeanFactory beanFactory) {
+        return new LinkedHashSet<>(EntityScanner.entityPackages(beanFactory));
+    }
+
+    private List<String> locations(MigrationProperties properties) {
+        List<String> locations = new ArrayList<>(MigrationLocations.of(properties).getLocations());
+        String changeLogPath = properties.getChangeLogPath();
+        if (StringUtils.hasText(changeLogPath) && changeLogPath.contains("/")) {
+            locations.add(changeLogPath.substring(0, changeLogPath.lastIndexOf('/')));
+        } else {
+            locations.add(DEFAULT_CHANGELOG_LOCATION);
+        }
+        return locations;
+    }
+}
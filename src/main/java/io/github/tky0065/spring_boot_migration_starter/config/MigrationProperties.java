@@ -1,8 +1,10 @@
 package io.github.tky0065.spring_boot_migration_starter.config;
 
+import io.github.tky0065.spring_boot_migration_starter.service.DatabaseDialect;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -96,4 +98,353 @@ public class MigrationProperties {
      * Directory where to save generated migrations
      */
     private String generatedMigrationsPath = "src/main/resources/db/migration";
+
+    /**
+     * Whether the running application generates migration templates and entity change migrations.
+     * Disable when migrations are generated at build time by the Maven plugin.
+     */
+    private boolean runtimeGenerationEnabled = true;
+
+    /**
+     * Database the generated migrations are written for. Detected from the database the entities are
+     * compared with when empty, an H2 database in compatibility mode standing for the emulated one.
+     */
+    private DatabaseDialect targetDialect;
+
+    /**
+     * Whether to generate missing indexes (join columns, declared and unique indexes)
+     * along with the entity change migrations
+     */
+    private boolean indexAdvisorEnabled = true;
+
+    /**
+     * Behaviour of the migrations run at application startup
+     */
+    private Startup startup = new Startup();
+
+    @Data
+    public static class Startup {
+        /**
+         * Maximum number of attempts to obtain a database connection before migrating, 1 to disable retries
+         */
+        private int maxAttempts = 10;
+
+        /**
+         * Backoff before the second attempt
+         */
+        private Duration initialBackoff = Duration.ofMillis(500);
+
+        /**
+         * Upper bound of the backoff between two attempts
+         */
+        private Duration maxBackoff = Duration.ofSeconds(30);
+
+        /**
+         * Factor applied to the backoff after each failed attempt
+         */
+        private double multiplier = 2.0;
+
+        /**
+         * Whether startup migrations run in the background while the context finishes starting.
+         * The application reports itself as not ready until they complete.
+         */
+        private boolean deferred = false;
+    }
+
+    /**
+     * Layout of the generated Liquibase changelogs
+     */
+    private Changelog changelog = new Changelog();
+
+    @Data
+    public static class Changelog {
+        /**
+         * Whether generated changelogs are written in per-release directories referenced through
+         * includeAll and an append-only index, instead of one include per file in the master changelog
+         */
+        private boolean sharded = true;
+
+        /**
+         * Release the generated changelogs belong to, the current month (yyyy.MM) when empty
+         */
+        private String release;
+
+        /**
+         * Whether Liquibase only parses the changelog of the current release on databases already
+         * under Liquibase control. Requires every earlier release to be deployed.
+         */
+        private boolean activeReleaseOnly = false;
+    }
+
+    /**
+     * Reference data loading from CSV / JSON Lines files
+     */
+    private SeedData seedData = new SeedData();
+
+    @Data
+    public static class SeedData {
+        /**
+         * Whether seed files (S<version>__<table>.csv or .jsonl) found in the locations
+         * are loaded after each migration
+         */
+        private boolean enabled = false;
+
+        /**
+         * Number of rows sent per JDBC batch
+         */
+        private int batchSize = 1000;
+
+        /**
+         * Whether rows are upserted on the primary key instead of inserted.
+         * Required to reload a file whose content changed.
+         */
+        private boolean upsert = false;
+
+        /**
+         * Table recording the checksum of each loaded file
+         */
+        private String historyTable = "seed_data_history";
+    }
+
+    /**
+     * Execution of very large SQL scripts with constant memory
+     */
+    private Streaming streaming = new Streaming();
+
+    @Data
+    public static class Streaming {
+        /**
+         * Whether Flyway scripts named V<version>__<description><script-suffix> are executed
+         * by the streaming executor
+         */
+        private boolean enabled = true;
+
+        /**
+         * Suffix of the scripts to stream. Must differ from Flyway's own SQL suffix.
+         */
+        private String scriptSuffix = ".bigsql";
+
+        /**
+         * Number of statements per JDBC batch
+         */
+        private int batchSize = 100;
+
+        /**
+         * Number of statements between commits, 0 to run each script in a single transaction
+         */
+        private int commitInterval = 0;
+    }
+
+    /**
+     * Profiling of the pending migrations against a throwaway clone
+     */
+    private DryRun dryRun = new DryRun();
+
+    @Data
+    public static class DryRun {
+        /**
+         * JDBC URL of the clone, e.g. a restored snapshot of production. When empty, an in-memory
+         * H2 database in the compatibility mode of the target is created and migrated up to the
+         * target's current version.
+         */
+        private String url;
+
+        /**
+         * Username for the clone
+         */
+        private String username;
+
+        /**
+         * Password for the clone
+         */
+        private String password;
+
+        /**
+         * File the JSON report is written to
+         */
+        private String reportPath = "migration-dry-run.json";
+
+        /**
+         * Estimated migration time above which the dry run fails, 0 for no limit
+         */
+        private long maxEstimatedMillis = 0;
+    }
+
+    /**
+     * Periodic comparison of the live schema with the schema left by the last migration
+     */
+    private Drift drift = new Drift();
+
+    @Data
+    public static class Drift {
+        /**
+         * Whether schema drift detection is enabled
+         */
+        private boolean enabled = false;
+
+        /**
+         * Delay between two checks
+         */
+        private Duration interval = Duration.ofMinutes(5);
+    }
+
+    /**
+     * Work done once the migrations are applied, before the application reports ready
+     */
+    private PostMigration postMigration = new PostMigration();
+
+    @Data
+    public static class PostMigration {
+        /**
+         * Whether the planner statistics of the tables touched by the applied migrations are refreshed
+         */
+        private boolean analyzeTouchedTables = true;
+
+        /**
+         * Connections opened at once to fill the pool, 0 to skip
+         */
+        private int warmUpConnections = 0;
+
+        /**
+         * Critical queries executed to warm the plan and data caches
+         */
+        private List<String> warmUpQueries = new ArrayList<>();
+
+        /**
+         * Executions of each warm-up query
+         */
+        private int warmUpIterations = 3;
+    }
+
+    /**
+     * Cache of the JPA managed types found at startup, reused while the schema and the entities do not change
+     */
+    private MetadataCache metadataCache = new MetadataCache();
+
+    @Data
+    public static class MetadataCache {
+        /**
+         * Whether the JPA managed types are cached
+         */
+        private boolean enabled = false;
+
+        /**
+         * Cache file, on a volume kept across restarts
+         */
+        private String path = "migration-cache/managed-types.json";
+    }
+
+    /**
+     * Migration of the shards declared with {@code @MigrationShard} or a {@code ShardDataSourceRegistry}
+     */
+    private Shards shards = new Shards();
+
+    @Data
+    public static class Shards {
+        /**
+         * Whether shard migration is enabled
+         */
+        private boolean enabled = false;
+
+        /**
+         * Whether the shards are migrated once the application context is initialized
+         */
+        private boolean migrateOnStartup = true;
+
+        /**
+         * Maximum duration of the operation on a single shard
+         */
+        private Duration timeout = Duration.ofMinutes(30);
+
+        /**
+         * Maximum number of shards migrated at once, 0 for all of them
+         */
+        private int parallelism = 0;
+    }
+
+    /**
+     * Execution history of the {@code MigrationService} runs, compared with a rolling baseline
+     */
+    private RunHistory runHistory = new RunHistory();
+
+    @Data
+    public static class RunHistory {
+        /**
+         * Whether each run is recorded in the history table
+         */
+        private boolean enabled = false;
+
+        /**
+         * Name of the history table, created when missing
+         */
+        private String table = "migration_run_history";
+
+        /**
+         * Identity of this node in the history, the host name by default
+         */
+        private String node;
+
+        /**
+         * Number of previous successful runs the baseline is computed from
+         */
+        private int baselineRuns = 10;
+
+        /**
+         * Ratio of the baseline above which a run is reported as a regression
+         */
+        private double regressionThreshold = 1.5;
+
+        /**
+         * Minimum slowdown for a run to be reported as a regression
+         */
+        private Duration minRegression = Duration.ofSeconds(1);
+    }
+
+    /**
+     * Inspection of the locks held on the tables of the pending migrations before {@code migrate()}
+     */
+    private Preflight preflight = new Preflight();
+
+    @Data
+    public static class Preflight {
+        /**
+         * Whether {@code migrate()} looks for sessions holding locks on the tables it is about to change
+         */
+        private boolean enabled = false;
+
+        /**
+         * What to do when such sessions are found
+         */
+        private Policy policy = Policy.WAIT;
+
+        /**
+         * Minimum age of the holder's transaction, shorter transactions are regular application traffic
+         */
+        private Duration minTransactionAge = Duration.ofSeconds(5);
+
+        /**
+         * Maximum time to wait for the holders with the WAIT policy before aborting
+         */
+        private Duration maxWait = Duration.ofMinutes(2);
+
+        /**
+         * Delay between two inspections with the WAIT policy
+         */
+        private Duration pollInterval = Duration.ofSeconds(2);
+
+        public enum Policy {
+            /**
+             * Wait until the holders are gone, abort after {@code max-wait}
+             */
+            WAIT,
+            /**
+             * Fail the migration without applying anything
+             */
+            ABORT,
+            /**
+             * Log the holders and migrate anyway
+             */
+            REPORT
+        }
+    }
 }
@@ -0,0 +1,33 @@
+package io.github.tky0065.spring_boot_migration_starter.config;
+
+import io.github.tky0065.spring_boot_migration_starter.service.ManagedTypesCache;
+import io.github.tky0065.spring_boot_migration_starter.service.MigrationDryRunReport;
+import io.github.tky0065.spring_boot_migration_starter.service.MigrationIndex;
+import io.github.tky0065.spring_boot_migration_starter.service.MigrationJob;
+import io.github.tky0065.spring_boot_migration_starter.service.SchemaDrift;
+import io.github.tky0065.spring_boot_migration_starter.service.ShardMigrationReport;
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+
+/**
+ * Runtime hints of the starter for native images: the migration index, the default migration
+ * locations and the types serialized to JSON. The configured locations and the entities are
+ * registered by {@link MigrationAotProcessor}.
+ */
+public class MigrationRuntimeHints implements RuntimeHintsRegistrar {
+
+    private final BindingReflectionHintsRegistrar bindingRegistrar = new BindingReflectionHintsRegistrar();
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        hints.resources()
+                .registerPattern(MigrationIndex.LOCATION)
+                .registerPattern("db/migration/**")
+                .registerPattern("db/changelog/**");
+
+        // Written with Jackson to reports, caches and Actuator responses
+        bindingRegistrar.registerReflectionHints(hints.reflection(), ManagedTypesCache.Entry.class,
+                MigrationDryRunReport.class, MigrationJob.Snapshot.class, SchemaDrift.class, ShardMigrationReport.class);
+    }
+}
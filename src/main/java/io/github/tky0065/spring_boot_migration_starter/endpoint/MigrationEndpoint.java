@@ -0,0 +1,62 @@
+package io.github.tky0065.spring_boot_migration_starter.endpoint;
+
+import io.github.tky0065.spring_boot_migration_starter.service.MigrationJob;
+import io.github.tky0065.spring_boot_migration_starter.service.MigrationJobService;
+import io.github.tky0065.spring_boot_migration_starter.service.MigrationOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Actuator endpoint starting migrate/validate/repair as background jobs.
+ * <p>
+ * {@code POST /actuator/migration} with {@code {"operation": "migrate"}} starts a job and returns its id,
+ * {@code GET /actuator/migration/{jobId}} is polled for per-script progress and timing.
+ */
+@Endpoint(id = "migration")
+public class MigrationEndpoint {
+
+    private static final int STATUS_CONFLICT = 409;
+
+    private final MigrationJobService jobService;
+
+    public MigrationEndpoint(MigrationJobService jobService) {
+        this.jobService = jobService;
+    }
+
+    @ReadOperation
+    public List<MigrationJob.Snapshot> jobs() {
+        return jobService.getJobs().stream().map(MigrationJob::snapshot).toList();
+    }
+
+    @ReadOperation
+    public WebEndpointResponse<MigrationJob.Snapshot> job(@Selector String jobId) {
+        return jobService.findJob(jobId)
+                .map(job -> new WebEndpointResponse<>(job.snapshot()))
+                .orElseGet(() -> new WebEndpointResponse<>(WebEndpointResponse.STATUS_NOT_FOUND));
+    }
+
+    @WriteOperation
+    public WebEndpointResponse<Map<String, String>> start(String operation) {
+        MigrationOperation migrationOperation;
+        try {
+            migrationOperation = MigrationOperation.valueOf(operation.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return new WebEndpointResponse<>(Map.of("error", "Unknown operation: " + operation),
+                    WebEndpointResponse.STATUS_BAD_REQUEST);
+        }
+
+        return jobService.start(migrationOperation)
+                .map(job -> new WebEndpointResponse<>(Map.of("jobId", job.getId()), WebEndpointResponse.STATUS_OK))
+                .orElseGet(() -> new WebEndpointResponse<>(
+                        Map.of("error", "A migration job is already running",
+                                "jobId", jobService.getRunningJob().map(MigrationJob::getId).orElse("")),
+                        STATUS_CONFLICT));
+    }
+}
@@ -0,0 +1,46 @@
+package io.github.tky0065.spring_boot_migration_starter.service;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Base class of the inspectors reading the lock holders with a single catalog query
+ */
+public abstract class AbstractLockInspector implements LockInspector {
+
+    /**
+     * @return Query selecting, in this order, the session, table, lock mode, session state, transaction age
+     * in milliseconds and last statement of the holders, excluding the current session
+     */
+    protected abstract String query();
+
+    /**
+     * Bind the parameters of the {@link #query()}, none by default
+     */
+    protected void bind(PreparedStatement statement, Connection connection) throws SQLException {
+    }
+
+    @Override
+    public List<LockHolder> findLockHolders(Connection connection, Set<String> tables) throws SQLException {
+        List<LockHolder> holders = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement(query())) {
+            bind(statement, connection);
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    String table = rs.getString(2).toLowerCase(Locale.ROOT);
+                    if (tables.contains(table)) {
+                        holders.add(new LockHolder(rs.getString(1), table, rs.getString(3), rs.getString(4),
+                                rs.getLong(5), rs.getString(6)));
+                    }
+                }
+            }
+        }
+        return holders;
+    }
+}
@@ -0,0 +1,136 @@
+package io.github.tky0065.spring_boot_migration_starter.service;
+
+import io.github.tky0065.spring_boot_migration_starter.config.MigrationProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import javax.sql.DataSource;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Base class for {@link MigrationService} implementations. Takes care of the
+ * notification of the registered {@link MigrationListener}s.
+ */
+public abstract class AbstractMigrationService implements MigrationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AbstractMigrationService.class);
+
+    @Autowired
+    protected DataSource dataSource;
+
+    @Autowired
+    protected MigrationProperties properties;
+
+    @Autowired(required = false)
+    private SeedDataLoader seedDataLoader;
+
+    @Autowired
+    private ObjectProvider<LockInspector> lockInspectors;
+
+    // Resolved lazily so that listeners may themselves depend on the MigrationService
+    @Autowired
+    private ObjectProvider<MigrationListener> listeners;
+
+    protected AbstractMigrationService() {
+    }
+
+    /**
+     * Create a service outside of a Spring application, e.g. at build time
+     */
+    protected AbstractMigrationService(DataSource dataSource, MigrationProperties properties) {
+        this.dataSource = dataSource;
+        this.properties = properties;
+    }
+
+    /**
+     * Run an operation and notify the listeners of its outcome
+     *
+     * @param operation The operation being executed
+     * @param action The actual work
+     */
+    protected void runOperation(MigrationOperation operation, Runnable action) {
+        long start = System.currentTimeMillis();
+        notifyListeners(listener -> listener.beforeOperation(operation));
+        try (MigrationFlightRecorder.Span span = MigrationFlightRecorder.operation(operation, properties.getType())) {
+            try {
+                long connectionStart = System.currentTimeMillis();
+                new ConnectionRetry(properties.getStartup()).await(dataSource);
+                phaseCompleted(operation, MigrationRun.CONNECTION, System.currentTimeMillis() - connectionStart);
+                action.run();
+            } catch (RuntimeException e) {
+                span.failed();
+                notifyListeners(listener -> listener.onOperationFailed(operation, e));
+                throw e;
+            }
+        }
+        long duration = System.currentTimeMillis() - start;
+        notifyListeners(listener -> listener.afterOperation(operation, duration));
+    }
+
+    /**
+     * Check the locks held on the tables of the pending migrations, when enabled, see {@link MigrationPreflight}
+     *
+     * @param pendingTables Supplies the lower-case names of the tables the pending migrations change
+     */
+    protected void runPreflight(Supplier<Collection<String>> pendingTables) {
+        if (!properties.getPreflight().isEnabled()) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        List<LockInspector> inspectors = lockInspectors != null ? lockInspectors.orderedStream().toList() : List.of();
+        new MigrationPreflight(properties, inspectors).check(dataSource, pendingTables.get());
+        phaseCompleted(MigrationOperation.MIGRATE, MigrationRun.PREFLIGHT, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Load the reference data files once the schema is up to date, when enabled
+     */
+    protected void loadSeedData() {
+        if (seedDataLoader != null) {
+            long start = System.currentTimeMillis();
+            seedDataLoader.load(dataSource);
+            phaseCompleted(MigrationOperation.MIGRATE, MigrationRun.SEED_DATA, System.currentTimeMillis() - start);
+        }
+    }
+
+    /**
+     * Refresh the statistics of the migrated tables and warm up, see {@link PostMigrationStage}
+     *
+     * @param touchedTables Lower-case names of the tables written by the applied migrations
+     */
+    protected void runPostMigrationStage(Collection<String> touchedTables) {
+        long start = System.currentTimeMillis();
+        new PostMigrationStage(properties).run(dataSource, touchedTables);
+        phaseCompleted(MigrationOperation.MIGRATE, MigrationRun.POST_MIGRATION, System.currentTimeMillis() - start);
+    }
+
+    protected void phaseCompleted(MigrationOperation operation, String phase, long durationMillis) {
+        notifyListeners(listener -> listener.onPhaseCompleted(operation, phase, durationMillis));
+    }
+
+    protected void scriptStarted(MigrationOperation operation, String script) {
+        notifyListeners(listener -> listener.onScriptStarted(operation, script));
+    }
+
+    protected void scriptCompleted(MigrationOperation operation, String script, long durationMillis) {
+        notifyListeners(listener -> listener.onScriptCompleted(operation, script, durationMillis));
+    }
+
+    private void notifyListeners(Consumer<MigrationListener> notification) {
+        if (listeners == null) {
+            return;
+        }
+        listeners.orderedStream().forEach(listener -> {
+            try {
+                notification.accept(listener);
+            } catch (Exception e) {
+                logger.warn("Migration listener {} failed", listener.getClass().getName(), e);
+            }
+        });
+    }
+}
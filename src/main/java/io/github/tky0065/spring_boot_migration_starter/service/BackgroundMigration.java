@@ -0,0 +1,87 @@
+package io.github.tky0065.spring_boot_migration_starter.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.LivenessState;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+
+/**
+ * Runs startup migrations on a background thread so that the context can finish starting, and holds
+ * the readiness state at {@link ReadinessState#REFUSING_TRAFFIC} until they complete. A failed
+ * migration marks the application as {@link LivenessState#BROKEN}.
+ */
+public class BackgroundMigration {
+
+    private static final Logger logger = LoggerFactory.getLogger(BackgroundMigration.class);
+
+    private final ApplicationEventPublisher publisher;
+    private int running;
+    private boolean failed;
+    private boolean applicationReady;
+
+    public BackgroundMigration(ApplicationEventPublisher publisher) {
+        this.publisher = publisher;
+    }
+
+    /**
+     * Start a migration in the background
+     *
+     * @param name Name of the migration, for logging
+     * @param migration The migration to run
+     */
+    public synchronized void start(String name, Runnable migration) {
+        running++;
+        logger.info("Starting {} migration in the background", name);
+        Thread.ofVirtual().name("background-migration-" + name).start(() -> run(name, migration));
+    }
+
+    /**
+     * @return true once every background migration completed successfully
+     */
+    public synchronized boolean isCompleted() {
+        return running == 0 && !failed;
+    }
+
+    /**
+     * Spring Boot reports the application as ready once the context is started, revoke it while
+     * migrations are still running
+     */
+    @EventListener
+    public synchronized void onReadinessChange(AvailabilityChangeEvent<ReadinessState> event) {
+        if (event.getState() != ReadinessState.ACCEPTING_TRAFFIC || event.getSource() == this) {
+            return;
+        }
+        applicationReady = true;
+        if (!isCompleted()) {
+            logger.info("Migrations still running, refusing traffic until they complete");
+            AvailabilityChangeEvent.publish(publisher, this, ReadinessState.REFUSING_TRAFFIC);
+        }
+    }
+
+    private void run(String name, Runnable migration) {
+        long start = System.currentTimeMillis();
+        try {
+            migration.run();
+            logger.info("Background {} migration completed in {} ms", name, System.currentTimeMillis() - start);
+            completed(false);
+        } catch (Throwable e) {
+            // Errors too, otherwise the migration would be reported as running forever
+            logger.error("Background {} migration failed", name, e);
+            completed(true);
+        }
+    }
+
+    private synchronized void completed(boolean migrationFailed) {
+        running--;
+        if (migrationFailed) {
+            failed = true;
+            AvailabilityChangeEvent.publish(publisher, this, LivenessState.BROKEN);
+        } else if (isCompleted() && applicationReady) {
+            // Otherwise Spring Boot reports the readiness itself once the context is started
+            AvailabilityChangeEvent.publish(publisher, this, ReadinessState.ACCEPTING_TRAFFIC);
+        }
+    }
+}
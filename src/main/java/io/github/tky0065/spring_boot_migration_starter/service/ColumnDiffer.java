@@ -0,0 +1,114 @@
+package io.github.tky0065.spring_boot_migration_starter.service;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Compares the columns mapped by an entity with those of the live table.
+ * <p>
+ * Only differences that would break the mapping are reported: missing columns, types too narrow for
+ * the mapped values, nullability and the defaults declared in {@code columnDefinition}. Types are only
+ * widened, and columns no longer mapped are reported but never dropped.
+ */
+public class ColumnDiffer {
+
+    private static final Pattern DEFAULT = Pattern.compile("\\bDEFAULT\\s+('(?:[^']|'')*'|\\([^)]*\\)|[^\\s,]+)",
+            Pattern.CASE_INSENSITIVE);
+    private static final Pattern NOT_NULL = Pattern.compile("\\bNOT\\s+NULL\\b", Pattern.CASE_INSENSITIVE);
+
+    /**
+     * Find the changes needed for a table to match the mapping of its entity
+     *
+     * @param mapping Expected table structure
+     * @param table Live table structure, or null when the table does not exist
+     * @param dialect Target database
+     * @return The changes, empty when the table already matches
+     */
+    public TableChange diff(EntityMapping mapping, TableSchema table, DatabaseDialect dialect) {
+        List<TableChange.ColumnChange> changes = new ArrayList<>();
+        Set<String> mapped = new HashSet<>();
+
+        for (EntityMapping.MappedColumn column : mapping.columns()) {
+            if (!mapped.add(column.name().toLowerCase(Locale.ROOT))) {
+                continue;
+            }
+            String sqlType = SqlTypeMapper.sqlType(column, dialect);
+            if (sqlType == null) {
+                // Converted or custom types, the mapping alone does not tell the column type
+                continue;
+            }
+            String defaultValue = declaredDefault(column);
+            TableSchema.Column live = table != null ? table.column(column.name()) : null;
+            if (live == null) {
+                changes.add(new TableChange.ColumnChange(column, null, sqlType, defaultValue, false, false, false));
+                continue;
+            }
+
+            boolean typeChanged = column.columnDefinition() == null
+                    && SqlTypeMapper.typeDiffers(column, live, dialect);
+            // Primary key columns are NOT NULL whatever the mapping says
+            boolean nullabilityChanged = !column.id() && live.nullable() != isNullable(column);
+            boolean defaultChanged = defaultValue != null
+                    && !normalizeDefault(defaultValue).equals(normalizeDefault(live.defaultValue()));
+            if (typeChanged) {
+                sqlType = SqlTypeMapper.widenedType(column, live, dialect);
+            }
+            if (typeChanged || nullabilityChanged || defaultChanged) {
+                changes.add(new TableChange.ColumnChange(column, live, sqlType, defaultValue, typeChanged,
+                        nullabilityChanged, defaultChanged));
+            }
+        }
+
+        List<String> unmapped = new ArrayList<>();
+        if (table != null) {
+            table.columns().values().stream()
+                    .map(TableSchema.Column::name)
+                    .filter(name -> !mapped.contains(name.toLowerCase(Locale.ROOT)))
+                    .forEach(unmapped::add);
+        }
+        return new TableChange(mapping.tableName(), table == null, changes, unmapped);
+    }
+
+    /**
+     * @return Whether the column accepts nulls, {@code NOT NULL} in {@code columnDefinition} included
+     */
+    static boolean isNullable(EntityMapping.MappedColumn column) {
+        return column.nullable() && !column.id() && !declaresNotNull(column);
+    }
+
+    static boolean declaresNotNull(EntityMapping.MappedColumn column) {
+        return column.columnDefinition() != null && NOT_NULL.matcher(column.columnDefinition()).find();
+    }
+
+    /**
+     * @return The default declared in {@code columnDefinition}, or null
+     */
+    static String declaredDefault(EntityMapping.MappedColumn column) {
+        if (column.columnDefinition() == null) {
+            return null;
+        }
+        Matcher matcher = DEFAULT.matcher(column.columnDefinition());
+        return matcher.find() ? matcher.group(1) : null;
+    }
+
+    // Drivers report defaults as '1', (1), ((1)) or 'a'::character varying
+    private static String normalizeDefault(String value) {
+        if (value == null) {
+            return "";
+        }
+        String normalized = value.trim();
+        while (normalized.startsWith("(") && normalized.endsWith(")")) {
+            normalized = normalized.substring(1, normalized.length() - 1).trim();
+        }
+        normalized = normalized.replaceAll("::[\\w ]+$", "");
+        if (normalized.length() > 1 && normalized.startsWith("'") && normalized.endsWith("'")) {
+            normalized = normalized.substring(1, normalized.length() - 1);
+        }
+        return normalized.toLowerCase(Locale.ROOT);
+    }
+}
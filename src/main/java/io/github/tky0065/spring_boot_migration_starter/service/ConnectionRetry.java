@@ -0,0 +1,74 @@
+package io.github.tky0065.spring_boot_migration_starter.service;
+
+import io.github.tky0065.spring_boot_migration_starter.config.MigrationProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Waits for the database to accept connections, retrying with an exponential backoff and full jitter
+ * so that instances started together do not hit the database in lockstep.
+ */
+public class ConnectionRetry {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConnectionRetry.class);
+    private static final int VALIDATION_TIMEOUT_SECONDS = 5;
+
+    private final int maxAttempts;
+    private final long initialBackoffMillis;
+    private final long maxBackoffMillis;
+    private final double multiplier;
+
+    public ConnectionRetry(MigrationProperties.Startup startup) {
+        this.maxAttempts = Math.max(1, startup.getMaxAttempts());
+        this.initialBackoffMillis = Math.max(0, startup.getInitialBackoff().toMillis());
+        this.maxBackoffMillis = Math.max(initialBackoffMillis, startup.getMaxBackoff().toMillis());
+        this.multiplier = Math.max(1, startup.getMultiplier());
+    }
+
+    /**
+     * Block until a valid connection can be obtained
+     *
+     * @param dataSource The database to wait for
+     * @throws IllegalStateException if the database is still unavailable after the last attempt
+     */
+    public void await(DataSource dataSource) {
+        double backoff = initialBackoffMillis;
+        for (int attempt = 1; ; attempt++) {
+            try (Connection connection = dataSource.getConnection()) {
+                if (connection.isValid(VALIDATION_TIMEOUT_SECONDS)) {
+                    if (attempt > 1) {
+                        logger.info("Database available after {} attempts", attempt);
+                    }
+                    return;
+                }
+                if (attempt >= maxAttempts) {
+                    throw new IllegalStateException("Database connection still invalid after " + attempt + " attempts");
+                }
+                logger.warn("Database connection is not valid yet (attempt {}/{})", attempt, maxAttempts);
+            } catch (SQLException e) {
+                if (attempt >= maxAttempts) {
+                    logger.error("Database still unavailable after {} attempts", attempt, e);
+                    throw new IllegalStateException("Database still unavailable after " + attempt + " attempts", e);
+                }
+                logger.warn("Database unavailable (attempt {}/{}): {}", attempt, maxAttempts, e.getMessage());
+            }
+
+            sleep(ThreadLocalRandom.current().nextLong((long) backoff + 1));
+            backoff = Math.min(maxBackoffMillis, backoff * multiplier);
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the database", e);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package io.github.tky0065.spring_boot_migration_starter.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming RFC 4180 CSV reader: one record is held in memory at a time.
+ * Unquoted empty fields are read as {@code null}, quoted empty fields as an empty string.
+ */
+public class CsvRecordReader implements Closeable {
+
+    private final Reader reader;
+    private final char separator;
+    private int lookahead = -2;
+
+    public CsvRecordReader(Reader reader, char separator) {
+        this.reader = reader;
+        this.separator = separator;
+    }
+
+    /**
+     * Read the next record
+     *
+     * @return The fields of the record, or null at the end of the input
+     */
+    public List<String> next() throws IOException {
+        int c = read();
+        if (c == -1) {
+            return null;
+        }
+
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        boolean inQuotes = false;
+
+        while (true) {
+            if (inQuotes) {
+                if (c == -1) {
+                    throw new IOException("Unterminated quoted field in CSV input");
+                } else if (c == '"') {
+                    int next = read();
+                    if (next == '"') {
+                        field.append('"');
+                    } else {
+                        inQuotes = false;
+                        c = next;
+                        continue;
+                    }
+                } else {
+                    field.append((char) c);
+                }
+            } else if (c == '"' && field.isEmpty()) {
+                quoted = true;
+                inQuotes = true;
+            } else if (c == separator) {
+                fields.add(quoted || !field.isEmpty() ? field.toString() : null);
+                field.setLength(0);
+                quoted = false;
+            } else if (c == '\r' || c == '\n' || c == -1) {
+                if (c == '\r') {
+                    int next = read();
+                    if (next != '\n') {
+                        unread(next);
+                    }
+                }
+                fields.add(quoted || !field.isEmpty() ? field.toString() : null);
+                return fields;
+            } else {
+                field.append((char) c);
+            }
+            c = read();
+        }
+    }
+
+    private int read() throws IOException {
+        if (lookahead != -2) {
+            int c = lookahead;
+            lookahead = -2;
+            return c;
+        }
+        return reader.read();
+    }
+
+    private void unread(int c) {
+        lookahead = c;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
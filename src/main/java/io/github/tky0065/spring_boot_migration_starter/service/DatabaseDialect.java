@@ -0,0 +1,92 @@
+package io.github.tky0065.spring_boot_migration_starter.service;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Locale;
+
+/**
+ * Database families for which the starter generates specific SQL
+ */
+public enum DatabaseDialect {
+    POSTGRESQL,
+    MYSQL,
+    MARIADB,
+    ORACLE,
+    SQLSERVER,
+    H2,
+    OTHER;
+
+    /**
+     * Resolve the dialect from a JDBC product name
+     *
+     * @param productName Value of {@link java.sql.DatabaseMetaData#getDatabaseProductName()}
+     * @return The matching dialect, {@link #OTHER} if unknown
+     */
+    public static DatabaseDialect fromProductName(String productName) {
+        if (productName == null) {
+            return OTHER;
+        }
+        String name = productName.toLowerCase(Locale.ROOT);
+        if (name.contains("postgres")) {
+            return POSTGRESQL;
+        } else if (name.contains("mariadb")) {
+            return MARIADB;
+        } else if (name.contains("mysql")) {
+            return MYSQL;
+        } else if (name.contains("oracle")) {
+            return ORACLE;
+        } else if (name.contains("microsoft") || name.contains("sql server")) {
+            return SQLSERVER;
+        } else if (name.equals("h2")) {
+            return H2;
+        }
+        return OTHER;
+    }
+
+    /**
+     * Resolve the database an H2 database emulates through its {@code MODE} setting
+     *
+     * @param connection Connection to an H2 database
+     * @return The emulated dialect, {@link #H2} without a known mode
+     */
+    public static DatabaseDialect ofH2Mode(Connection connection) throws SQLException {
+        String mode;
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(
+                     "SELECT SETTING_VALUE FROM INFORMATION_SCHEMA.SETTINGS WHERE SETTING_NAME = 'MODE'")) {
+            mode = rs.next() ? rs.getString(1) : "";
+        }
+        return switch (mode.toLowerCase(Locale.ROOT)) {
+            case "postgresql" -> POSTGRESQL;
+            case "mysql" -> MYSQL;
+            case "mariadb" -> MARIADB;
+            case "oracle" -> ORACLE;
+            case "mssqlserver" -> SQLSERVER;
+            default -> H2;
+        };
+    }
+
+    public static DatabaseDialect of(Connection connection) throws SQLException {
+        return fromProductName(connection.getMetaData().getDatabaseProductName());
+    }
+
+    public static DatabaseDialect of(DataSource dataSource) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            return of(connection);
+        }
+    }
+
+    public boolean isMySqlFamily() {
+        return this == MYSQL || this == MARIADB;
+    }
+
+    /**
+     * @return true if indexes can be built without blocking writes on the table
+     */
+    public boolean supportsOnlineIndexCreation() {
+        return this == POSTGRESQL || isMySqlFamily() || this == ORACLE;
+    }
+}
@@ -0,0 +1,196 @@
+package io.github.tky0065.spring_boot_migration_starter.service;
+
+import org.springframework.util.StringUtils;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Reads table structures (columns and indexes) through JDBC {@link DatabaseMetaData}
+ */
+public class DatabaseSchemaReader {
+
+    private final String schema;
+
+    /**
+     * @param schema Schema to inspect, the connection's current schema when null
+     */
+    public DatabaseSchemaReader(String schema) {
+        this.schema = schema;
+    }
+
+    /**
+     * Read the structure of the given tables
+     *
+     * @param connection Connection to the live database
+     * @param tableNames Table names, matched case-insensitively
+     * @return Existing tables keyed by lower-case name; tables absent from the database are omitted
+     */
+    public Map<String, TableSchema> readTables(Connection connection, Collection<String> tableNames) throws SQLException {
+        Map<String, String> existing = listTables(connection);
+        Map<String, TableSchema> tables = new HashMap<>();
+        for (String tableName : tableNames) {
+            String key = tableName.toLowerCase(Locale.ROOT);
+            String actualName = existing.get(key);
+            if (actualName != null) {
+                tables.put(key, readTable(connection, actualName));
+            }
+        }
+        return tables;
+    }
+
+    /**
+     * List the tables of the schema
+     *
+     * @param connection Connection to the live database
+     * @return Actual table names keyed by lower-case name
+     */
+    public Map<String, String> listTables(Connection connection) throws SQLException {
+        Map<String, String> tables = new HashMap<>();
+        try (ResultSet rs = connection.getMetaData().getTables(
+                connection.getCatalog(), resolveSchema(connection), "%", new String[]{"TABLE"})) {
+            while (rs.next()) {
+                String name = rs.getString("TABLE_NAME");
+                tables.put(name.toLowerCase(Locale.ROOT), name);
+            }
+        }
+        return tables;
+    }
+
+    /**
+     * Read columns and indexes of a single table
+     *
+     * @param connection Connection to the live database
+     * @param actualName Table name as stored in the catalog
+     * @return The table structure
+     */
+    public TableSchema readTable(Connection connection, String actualName) throws SQLException {
+        DatabaseMetaData metaData = connection.getMetaData();
+        String catalog = connection.getCatalog();
+        String schemaName = resolveSchema(connection);
+
+        Map<String, TableSchema.Column> columns = new LinkedHashMap<>();
+        try (ResultSet rs = metaData.getColumns(catalog, schemaName, actualName, "%")) {
+            while (rs.next()) {
+                String name = rs.getString("COLUMN_NAME");
+                columns.put(name.toLowerCase(Locale.ROOT), new TableSchema.Column(
+                        name,
+                        rs.getString("TYPE_NAME"),
+                        rs.getInt("COLUMN_SIZE"),
+                        rs.getInt("DECIMAL_DIGITS"),
+                        rs.getInt("NULLABLE") != DatabaseMetaData.columnNoNulls,
+                        rs.getString("COLUMN_DEF")));
+            }
+        }
+
+        List<TableSchema.Index> indexes = new ArrayList<>();
+        Map<String, Map<Short, String>> indexColumns = new LinkedHashMap<>();
+        Map<String, Boolean> indexUniqueness = new HashMap<>();
+        try (ResultSet rs = metaData.getIndexInfo(catalog, schemaName, actualName, false, true)) {
+            while (rs.next()) {
+                String indexName = rs.getString("INDEX_NAME");
+                String columnName = rs.getString("COLUMN_NAME");
+                if (indexName == null || columnName == null) {
+                    continue;
+                }
+                indexColumns.computeIfAbsent(indexName, k -> new TreeMap<>())
+                        .put(rs.getShort("ORDINAL_POSITION"), columnName);
+                indexUniqueness.put(indexName, !rs.getBoolean("NON_UNIQUE"));
+            }
+        }
+        indexColumns.forEach((name, cols) ->
+                indexes.add(new TableSchema.Index(name, new ArrayList<>(cols.values()), indexUniqueness.get(name))));
+
+        // Not every driver reports the primary key through getIndexInfo
+        Map<Short, String> primaryKey = new TreeMap<>();
+        try (ResultSet rs = metaData.getPrimaryKeys(catalog, schemaName, actualName)) {
+            while (rs.next()) {
+                primaryKey.put(rs.getShort("KEY_SEQ"), rs.getString("COLUMN_NAME"));
+            }
+        }
+        if (!primaryKey.isEmpty()) {
+            indexes.add(new TableSchema.Index("PRIMARY KEY", new ArrayList<>(primaryKey.values()), true));
+        }
+
+        return new TableSchema(actualName, columns, indexes);
+    }
+
+    /**
+     * Estimate the number of rows of a table from the catalog statistics, without scanning it.
+     * H2 tables are counted exactly.
+     *
+     * @param connection Connection to the live database
+     * @param dialect Dialect of the database
+     * @param actualName Table name as stored in the catalog
+     * @return The estimated row count, -1 when no statistics are available
+     */
+    public long estimateRowCount(Connection connection, DatabaseDialect dialect, String actualName) throws SQLException {
+        String sql = switch (dialect) {
+            case POSTGRESQL -> "SELECT c.reltuples FROM pg_class c JOIN pg_namespace n ON n.oid = c.relnamespace "
+                    + "WHERE c.relname = ? AND n.nspname = ?";
+            case MYSQL, MARIADB -> "SELECT table_rows FROM information_schema.tables WHERE table_name = ? AND table_schema = ?";
+            case ORACLE -> "SELECT num_rows FROM all_tables WHERE table_name = ? AND owner = ?";
+            case SQLSERVER -> "SELECT SUM(p.rows) FROM sys.partitions p JOIN sys.tables t ON t.object_id = p.object_id "
+                    + "WHERE t.name = ? AND SCHEMA_NAME(t.schema_id) = ? AND p.index_id IN (0, 1)";
+            case H2 -> "SELECT COUNT(*) FROM " + qualifiedName(connection, actualName);
+            case OTHER -> null;
+        };
+        if (sql == null) {
+            return -1;
+        }
+
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            if (dialect != DatabaseDialect.H2) {
+                String schemaName = resolveSchema(connection);
+                statement.setString(1, actualName);
+                statement.setString(2, schemaName != null ? schemaName
+                        : dialect.isMySqlFamily() ? connection.getCatalog() : "");
+            }
+            try (ResultSet rs = statement.executeQuery()) {
+                if (rs.next()) {
+                    long rows = rs.getLong(1);
+                    return rs.wasNull() || rows < 0 ? -1 : rows;
+                }
+                return -1;
+            }
+        }
+    }
+
+    /**
+     * @param actualName Table name in the case used by the catalog
+     * @return The quoted table name, qualified with the schema when known
+     */
+    public String qualifiedName(Connection connection, String actualName) throws SQLException {
+        String quote = connection.getMetaData().getIdentifierQuoteString().trim();
+        String schemaName = resolveSchema(connection);
+        String table = quote + actualName + quote;
+        return schemaName != null ? quote + schemaName + quote + "." + table : table;
+    }
+
+    /**
+     * @return The configured schema in the case used by the catalog, else the connection's current schema
+     */
+    public String resolveSchema(Connection connection) throws SQLException {
+        if (StringUtils.hasText(schema)) {
+            DatabaseMetaData metaData = connection.getMetaData();
+            if (metaData.storesUpperCaseIdentifiers()) {
+                return schema.toUpperCase(Locale.ROOT);
+            } else if (metaData.storesLowerCaseIdentifiers()) {
+                return schema.toLowerCase(Locale.ROOT);
+            }
+            return schema;
+        }
+        return connection.getSchema();
+    }
+}
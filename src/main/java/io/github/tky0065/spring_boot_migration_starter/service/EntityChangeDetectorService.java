@@ -1,25 +1,23 @@
 package io.github.tky0065.spring_boot_migration_starter.service;
 
 import io.github.tky0065.spring_boot_migration_starter.config.MigrationProperties;
-import jakarta.persistence.Entity;
-import jakarta.persistence.Table;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationContext;
-import org.springframework.context.annotation.ClassPathScanningCandidateComponentProvider;
-import org.springframework.core.type.filter.AnnotationTypeFilter;
-import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
 import org.springframework.stereotype.Service;
+import org.springframework.util.ClassUtils;
 import org.springframework.util.StringUtils;
 
 import javax.sql.DataSource;
-import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.SQLException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
@@ -33,6 +31,8 @@ public class EntityChangeDetectorService {
 
     private static final Logger logger = LoggerFactory.getLogger(EntityChangeDetectorService.class);
     private final ApplicationContext applicationContext;
+    private final ClassLoader classLoader;
+    private final Set<String> basePackages;
     private final MigrationTemplateGenerator templateGenerator;
     private final MigrationProperties properties;
     private final DataSource dataSource;
@@ -41,12 +41,38 @@ public class EntityChangeDetectorService {
     private static final DateTimeFormatter VERSION_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
     private static final DateTimeFormatter DESCRIPTION_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
 
+    @Autowired
     public EntityChangeDetectorService(
             ApplicationContext applicationContext,
             MigrationTemplateGenerator templateGenerator,
             MigrationProperties properties,
             DataSource dataSource) {
         this.applicationContext = applicationContext;
+        this.classLoader = applicationContext.getClassLoader();
+        this.basePackages = null;
+        this.templateGenerator = templateGenerator;
+        this.properties = properties;
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * Create a detector running outside of a Spring application, e.g. at build time
+     *
+     * @param classLoader Class loader of the compiled entity classes
+     * @param basePackages Packages to scan for entities
+     * @param templateGenerator Template generator
+     * @param properties Migration properties
+     * @param dataSource Database the entities are compared with
+     */
+    public EntityChangeDetectorService(
+            ClassLoader classLoader,
+            Collection<String> basePackages,
+            MigrationTemplateGenerator templateGenerator,
+            MigrationProperties properties,
+            DataSource dataSource) {
+        this.applicationContext = null;
+        this.classLoader = classLoader;
+        this.basePackages = new LinkedHashSet<>(basePackages);
         this.templateGenerator = templateGenerator;
         this.properties = properties;
         this.dataSource = dataSource;
@@ -66,7 +92,7 @@ public class EntityChangeDetectorService {
         logger.info("Detecting entity changes and generating migration files");
 
         try {
-            Set<Class<?>> entityClasses = scanForEntityClasses();
+            List<EntityDescriptor> entityClasses = scanForEntityClasses();
             if (entityClasses.isEmpty()) {
                 logger.info("No entity classes found");
                 return false;
@@ -74,15 +100,27 @@ public class EntityChangeDetectorService {
 
             logger.info("Found {} entity classes", entityClasses.size());
 
+            DatabaseDialect dialect = detectDialect();
+
+            // Read once, for both the column and the index comparison
+            Map<String, TableSchema> tables = readSchema(entityClasses);
+            if (tables == null) {
+                return false;
+            }
+
             // Compare with database schema to detect changes
-            Map<String, Set<String>> entityChanges = detectChangesInEntities(entityClasses);
-            if (entityChanges.isEmpty()) {
+            List<TableChange> entityChanges = detectChangesInEntities(entityClasses, tables, dialect);
+
+            // Compare mapped indexes with the live schema
+            List<IndexRecommendation> missingIndexes = adviseMissingIndexes(entityClasses, tables);
+
+            if (entityChanges.isEmpty() && missingIndexes.isEmpty()) {
                 logger.info("No entity changes detected");
                 return false;
             }
 
             // Generate migration files
-            boolean filesGenerated = generateMigrationFiles(entityChanges);
+            boolean filesGenerated = generateMigrationFiles(entityChanges, missingIndexes, dialect);
 
             if (filesGenerated) {
                 logger.info("Migration files generated successfully");
@@ -98,169 +136,239 @@ public class EntityChangeDetectorService {
     }
 
     /**
-     * Scan classpath for JPA entity classes
+     * Scan the configured base packages for JPA entity classes
      *
-     * @return Set of entity classes
+     * @return List of entity descriptors
      */
-    private Set<Class<?>> scanForEntityClasses() {
+    private List<EntityDescriptor> scanForEntityClasses() {
         logger.debug("Scanning for entity classes...");
-        Set<Class<?>> entityClasses = new HashSet<>();
 
         try {
-            ClassPathScanningCandidateComponentProvider scanner =
-                    new ClassPathScanningCandidateComponentProvider(false);
-
-            scanner.addIncludeFilter(new AnnotationTypeFilter(Entity.class));
-
-            // Get base packages from EntityManagerFactory if available
-            String[] basePackages = getBasePackages();
-
-            for (String basePackage : basePackages) {
-                for (BeanDefinition bd : scanner.findCandidateComponents(basePackage)) {
-                    try {
-                        Class<?> entityClass = Class.forName(bd.getBeanClassName());
-                        entityClasses.add(entityClass);
-                        logger.debug("Found entity class: {}", entityClass.getName());
-                    } catch (ClassNotFoundException e) {
-                        logger.warn("Could not load entity class {}", bd.getBeanClassName(), e);
-                    }
-                }
-            }
+            return new EntityScanner(classLoader).scan(getBasePackages());
         } catch (Exception e) {
             logger.error("Error scanning for entity classes", e);
+            return List.of();
         }
-
-        return entityClasses;
     }
 
     /**
-     * Get the base packages to scan for entities
+     * Get the base packages to scan for entities: the packages given at construction, else the
+     * {@code @EntityScan} packages when declared, otherwise the auto-configuration packages
      *
-     * @return Array of base package names
+     * @return Set of base package names
      */
-    private String[] getBasePackages() {
-        try {
-            LocalContainerEntityManagerFactoryBean emf = applicationContext
-                    .getBean(LocalContainerEntityManagerFactoryBean.class);
+    private Set<String> getBasePackages() {
+        if (basePackages != null) {
+            return basePackages;
+        }
 
-            if (emf != null && emf.getPersistenceUnitInfo() != null) {
-                return new String[] { emf.getPersistenceUnitInfo().getPersistenceUnitName() };
-            }
-        } catch (Exception e) {
-            logger.debug("Could not determine entity scan packages from EntityManagerFactory", e);
+        Set<String> packages = new LinkedHashSet<>();
+        BeanFactory beanFactory = applicationContext.getAutowireCapableBeanFactory();
+
+        packages.addAll(EntityScanner.entityPackages(beanFactory));
+        if (!packages.isEmpty()) {
+            return packages;
         }
 
         // Default to base package derived from ApplicationContext
-        String mainClassName = applicationContext.getBeansWithAnnotation(
-                org.springframework.boot.autoconfigure.SpringBootApplication.class)
-                .keySet().stream()
+        String mainBeanName = Arrays.stream(applicationContext.getBeanNamesForAnnotation(
+                org.springframework.boot.autoconfigure.SpringBootApplication.class))
                 .findFirst()
                 .orElse(null);
 
-        if (mainClassName != null) {
-            Class<?> mainClass;
-            try {
-                mainClass = Class.forName(mainClassName);
-                return new String[] { mainClass.getPackage().getName() };
-            } catch (ClassNotFoundException e) {
-                logger.warn("Could not find main application class", e);
+        if (mainBeanName != null) {
+            Class<?> mainClass = applicationContext.getType(mainBeanName);
+            if (mainClass != null) {
+                packages.add(ClassUtils.getUserClass(mainClass).getPackageName());
+                return packages;
             }
+            logger.warn("Could not find main application class");
         }
 
         // Ultimate fallback
-        return new String[] { "io.github.tky0065" };
+        packages.add("io.github.tky0065");
+        return packages;
     }
 
     /**
-     * Detect changes in entity classes compared to database schema
+     * Read the live structure of the tables mapped by the entities
      *
-     * @param entityClasses Set of entity classes to check
-     * @return Map of entity names to sets of changed column names
+     * @param entities Entities to check
+     * @return The tables by lower-case name, null when the schema cannot be read
      */
-    private Map<String, Set<String>> detectChangesInEntities(Set<Class<?>> entityClasses) {
-        Map<String, Set<String>> changes = new HashMap<>();
-
-        // Implementation depends on how you want to compare entities with the database
-        // This could use schema comparison tools, JPA metamodel, or Hibernate SchemaExport
+    private Map<String, TableSchema> readSchema(List<EntityDescriptor> entities) {
+        try (MigrationFlightRecorder.Span span = MigrationFlightRecorder.phase(MigrationFlightRecorder.SCHEMA_DIFF, null);
+             Connection connection = dataSource.getConnection()) {
+            Map<String, TableSchema> tables = new DatabaseSchemaReader(properties.getSchema()).readTables(
+                    connection, entities.stream().map(EntityDescriptor::getTableName).toList());
+            span.setDetail(tables.size() + " tables read");
+            return tables;
+        } catch (SQLException e) {
+            logger.warn("Could not read the schema from the database, skipping entity changes", e);
+            return null;
+        }
+    }
 
-        // For now, we'll just add all entities as "changed" for demonstration purposes
-        for (Class<?> entityClass : entityClasses) {
-            String tableName = getTableName(entityClass);
-            changes.put(tableName, new HashSet<>());  // Empty set means the whole table
+    /**
+     * Detect changes in entity classes compared to database schema, column by column
+     *
+     * @param entityClasses Entities to check
+     * @param tables Live tables by lower-case name
+     * @param dialect Target database
+     * @return The tables to create or alter
+     */
+    private List<TableChange> detectChangesInEntities(List<EntityDescriptor> entityClasses,
+                                                      Map<String, TableSchema> tables, DatabaseDialect dialect) {
+        List<TableChange> changes = new ArrayList<>();
+        EntityMappingReader mappingReader = new EntityMappingReader();
+        ColumnDiffer differ = new ColumnDiffer();
+
+        try (MigrationFlightRecorder.Span span = MigrationFlightRecorder.phase(MigrationFlightRecorder.SCHEMA_DIFF, null)) {
+            for (EntityDescriptor entity : entityClasses) {
+                TableSchema table = tables.get(entity.getTableName().toLowerCase(Locale.ROOT));
+                TableChange change;
+                try {
+                    change = differ.diff(mappingReader.read(entity), table, dialect);
+                } catch (ClassNotFoundException | LinkageError e) {
+                    logger.warn("Could not read mapping of entity class {}", entity.getClassName(), e);
+                    continue;
+                }
+                if (!change.unmappedColumns().isEmpty()) {
+                    logger.info("Columns of {} no longer mapped, left in place: {}", change.tableName(),
+                            String.join(", ", change.unmappedColumns()));
+                }
+                if (!change.isEmpty()) {
+                    changes.add(change);
+                }
+            }
+            span.setDetail(changes.size() + " tables changed");
         }
 
         return changes;
     }
 
     /**
-     * Get the table name for an entity class
+     * Find the indexes required by the entity mappings that are missing from the live schema.
+     * Tables that do not exist yet are skipped.
      *
-     * @param entityClass The entity class
-     * @return The table name
+     * @param entities Entities to check
+     * @param tables Live tables by lower-case name
+     * @return The indexes to create
      */
-    private String getTableName(Class<?> entityClass) {
-        Table tableAnnotation = entityClass.getAnnotation(Table.class);
-        if (tableAnnotation != null && StringUtils.hasText(tableAnnotation.name())) {
-            return tableAnnotation.name();
+    private List<IndexRecommendation> adviseMissingIndexes(List<EntityDescriptor> entities,
+                                                          Map<String, TableSchema> tables) {
+        if (!properties.isIndexAdvisorEnabled()) {
+            return List.of();
+        }
+
+        List<IndexRecommendation> recommendations = new ArrayList<>();
+        EntityMappingReader mappingReader = new EntityMappingReader();
+        IndexAdvisor advisor = new IndexAdvisor();
+
+        try (MigrationFlightRecorder.Span span = MigrationFlightRecorder.phase(MigrationFlightRecorder.SCHEMA_DIFF, null)) {
+            span.setDetail("indexes");
+            for (EntityDescriptor entity : entities) {
+                TableSchema table = tables.get(entity.getTableName().toLowerCase(Locale.ROOT));
+                if (table == null) {
+                    continue;
+                }
+                try {
+                    recommendations.addAll(advisor.advise(mappingReader.read(entity), table));
+                } catch (ClassNotFoundException | LinkageError e) {
+                    logger.warn("Could not read mapping of entity class {}", entity.getClassName(), e);
+                }
+            }
         }
 
-        // Default to class name
-        return entityClass.getSimpleName().toLowerCase();
+        recommendations.forEach(recommendation -> logger.info("Missing index on {}({}): {}",
+                recommendation.tableName(), String.join(", ", recommendation.columns()), recommendation.reason()));
+        return recommendations;
     }
 
     /**
      * Generate migration files based on detected changes
      *
-     * @param entityChanges Map of entity changes
+     * @param entityChanges Tables to create or alter
+     * @param missingIndexes Indexes to create
+     * @param dialect Target database
      * @return true if files were generated
      */
-    private boolean generateMigrationFiles(Map<String, Set<String>> entityChanges) {
-        if (entityChanges.isEmpty()) {
-            return false;
-        }
-
+    private boolean generateMigrationFiles(List<TableChange> entityChanges, List<IndexRecommendation> missingIndexes,
+                                           DatabaseDialect dialect) {
         String migrationsPath = properties.getGeneratedMigrationsPath();
         if (!StringUtils.hasText(migrationsPath)) {
             migrationsPath = DEFAULT_MIGRATION_PATH;
         }
 
         Path directory = Paths.get(migrationsPath);
+        String version = LocalDateTime.now().format(VERSION_FORMATTER);
 
-        try {
+        try (MigrationFlightRecorder.Span span = MigrationFlightRecorder.phase(
+                MigrationFlightRecorder.TEMPLATE_GENERATION, properties.getType())) {
             // Create directories if they don't exist
-            Files.createDirectories(directory);
+            try {
+                Files.createDirectories(directory);
+            } catch (IOException e) {
+                span.failed();
+                logger.error("Error creating migration directories", e);
+                return false;
+            }
+
+            boolean generated = false;
 
             // Generate appropriate migration files based on the tool type
             if ("flyway".equalsIgnoreCase(properties.getType())) {
-                return generateFlywayMigration(directory, entityChanges);
+                if (!entityChanges.isEmpty()) {
+                    String description = "update_schema_" + LocalDateTime.now().format(DESCRIPTION_FORMATTER);
+                    generated = generateFlywayMigration(directory, "V" + version + "__" + description + ".sql",
+                            templateGenerator.generateFlywayMigration(entityChanges, dialect));
+                }
+                if (!missingIndexes.isEmpty()) {
+                    // Kept in its own script: online index builds cannot share a transaction with other DDL
+                    generated |= generateFlywayMigration(directory, "V" + version + ".1__add_missing_indexes.sql",
+                            templateGenerator.generateFlywayIndexMigration(missingIndexes, dialect));
+                }
             } else if ("liquibase".equalsIgnoreCase(properties.getType())) {
-                return generateLiquibaseMigration(directory, entityChanges);
+                if (!entityChanges.isEmpty()) {
+                    generated = generateLiquibaseMigration(directory, "changelog-" + version + ".xml",
+                            templateGenerator.generateLiquibaseMigration(entityChanges, dialect));
+                }
+                if (!missingIndexes.isEmpty()) {
+                    generated |= generateLiquibaseMigration(directory, "changelog-" + version + "-indexes.xml",
+                            templateGenerator.generateLiquibaseIndexMigration(missingIndexes, dialect));
+                }
             } else {
                 logger.warn("Unknown migration type: {}", properties.getType());
-                return false;
             }
-        } catch (IOException e) {
-            logger.error("Error creating migration directories", e);
-            return false;
+            return generated;
+        }
+    }
+
+    private DatabaseDialect detectDialect() {
+        if (properties.getTargetDialect() != null) {
+            return properties.getTargetDialect();
+        }
+        try (Connection connection = dataSource.getConnection()) {
+            DatabaseDialect dialect = DatabaseDialect.of(connection);
+            // A stand-in database in compatibility mode, e.g. at build time
+            return dialect == DatabaseDialect.H2 ? DatabaseDialect.ofH2Mode(connection) : dialect;
+        } catch (SQLException e) {
+            logger.warn("Could not detect database dialect", e);
+            return DatabaseDialect.OTHER;
         }
     }
 
     /**
-     * Generate Flyway migration SQL files
+     * Write a Flyway migration SQL file
      *
      * @param directory Base directory for migration files
-     * @param entityChanges Map of entity changes
-     * @return true if files were generated
+     * @param filename Name of the migration file
+     * @param sqlContent Content of the migration
+     * @return true if the file was generated
      */
-    private boolean generateFlywayMigration(Path directory, Map<String, Set<String>> entityChanges) {
-        String version = LocalDateTime.now().format(VERSION_FORMATTER);
-        String description = "update_schema_" + LocalDateTime.now().format(DESCRIPTION_FORMATTER);
-        String filename = "V" + version + "__" + description + ".sql";
-
+    private boolean generateFlywayMigration(Path directory, String filename, String sqlContent) {
         Path filePath = directory.resolve(filename);
 
-        String sqlContent = templateGenerator.generateFlywayMigration(entityChanges);
-
         try {
             Files.writeString(filePath, sqlContent);
             logger.info("Generated Flyway migration file: {}", filePath);
@@ -272,15 +380,26 @@ public class EntityChangeDetectorService {
     }
 
     /**
-     * Generate Liquibase migration XML files
+     * Write a Liquibase changelog XML file, in the directory of the current release when sharded,
+     * otherwise included in the master changelog
      *
      * @param directory Base directory for migration files
-     * @param entityChanges Map of entity changes
-     * @return true if files were generated
+     * @param filename Name of the changelog file
+     * @param xmlContent Content of the changelog
+     * @return true if the file was generated
      */
-    private boolean generateLiquibaseMigration(Path directory, Map<String, Set<String>> entityChanges) {
-        String version = LocalDateTime.now().format(VERSION_FORMATTER);
-        String filename = "changelog-" + version + ".xml";
+    private boolean generateLiquibaseMigration(Path directory, String filename, String xmlContent) {
+        if (properties.getChangelog().isSharded()) {
+            try {
+                Path filePath = new ShardedChangelogWriter(templateGenerator, properties.getChangelog().getRelease())
+                        .write(directory, filename, xmlContent);
+                logger.info("Generated Liquibase migration file: {}", filePath);
+                return true;
+            } catch (IOException e) {
+                logger.error("Error writing Liquibase migration file", e);
+                return false;
+            }
+        }
 
         // For Liquibase, we typically need a changelog directory structure
         Path changelogDir = directory.resolve("changelog");
@@ -293,8 +412,6 @@ public class EntityChangeDetectorService {
 
         Path filePath = changelogDir.resolve(filename);
 
-        String xmlContent = templateGenerator.generateLiquibaseMigration(entityChanges);
-
         try {
             Files.writeString(filePath, xmlContent);
             logger.info("Generated Liquibase migration file: {}", filePath);
@@ -0,0 +1,81 @@
+package io.github.tky0065.spring_boot_migration_starter.service;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Table;
+import org.springframework.core.type.AnnotationMetadata;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.StringUtils;
+
+import java.util.Map;
+
+/**
+ * A JPA entity found on the classpath. Mapping annotations are read from the ASM based
+ * {@link AnnotationMetadata}; the class itself is only loaded (without being initialized)
+ * when reflective detail is actually needed.
+ */
+public class EntityDescriptor {
+
+    private final String className;
+    private final AnnotationMetadata metadata;
+    private final ClassLoader classLoader;
+    private volatile Class<?> entityClass;
+
+    public EntityDescriptor(String className, AnnotationMetadata metadata, ClassLoader classLoader) {
+        this.className = className;
+        this.metadata = metadata;
+        this.classLoader = classLoader;
+    }
+
+    public String getClassName() {
+        return className;
+    }
+
+    public AnnotationMetadata getMetadata() {
+        return metadata;
+    }
+
+    /**
+     * Get the table name of the entity, from {@code @Table(name)}, {@code @Entity(name)} or the simple class name
+     *
+     * @return The table name
+     */
+    public String getTableName() {
+        Map<String, Object> table = metadata.getAnnotationAttributes(Table.class.getName());
+        if (table != null && StringUtils.hasText((String) table.get("name"))) {
+            return (String) table.get("name");
+        }
+
+        Map<String, Object> entity = metadata.getAnnotationAttributes(Entity.class.getName());
+        if (entity != null && StringUtils.hasText((String) entity.get("name"))) {
+            return EntityMappingReader.toPhysicalName((String) entity.get("name"));
+        }
+
+        // Default to class name
+        String shortName = ClassUtils.getShortName(className);
+        return EntityMappingReader.toPhysicalName(shortName.substring(shortName.lastIndexOf('.') + 1));
+    }
+
+    /**
+     * Load the entity class without running its static initializers
+     *
+     * @return The entity class
+     * @throws ClassNotFoundException if the class cannot be loaded
+     */
+    public Class<?> loadClass() throws ClassNotFoundException {
+        Class<?> loaded = entityClass;
+        if (loaded == null) {
+            loaded = Class.forName(className, false, classLoader);
+            entityClass = loaded;
+        }
+        return loaded;
+    }
+
+    public boolean isLoaded() {
+        return entityClass != null;
+    }
+
+    @Override
+    public String toString() {
+        return className;
+    }
+}
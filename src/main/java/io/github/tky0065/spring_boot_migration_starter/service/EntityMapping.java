@@ -0,0 +1,37 @@
+package io.github.tky0065.spring_boot_migration_starter.service;
+
+import java.util.List;
+
+/**
+ * Table structure expected by a JPA entity, as derived from its mapping annotations
+ */
+public record EntityMapping(String tableName, List<MappedColumn> columns, List<DeclaredIndex> indexes) {
+
+    /**
+     * A column mapped by a basic attribute or a to-one association
+     *
+     * @param name Column name
+     * @param javaType Java type of the attribute, the referenced id type for a join column
+     * @param id Whether the column is part of the identifier
+     * @param generated Whether the identifier value is generated by the database
+     * @param nullable Whether the column accepts nulls
+     * @param unique Whether {@code unique = true} is declared
+     * @param length Declared length for character columns
+     * @param precision Declared precision for decimal columns
+     * @param scale Declared scale for decimal columns
+     * @param columnDefinition Explicit SQL fragment from {@code @Column(columnDefinition)}, or null
+     * @param enumAsString Whether an enum attribute is stored by name
+     * @param joinColumn Whether the column is a foreign key of a to-one association
+     * @param lob Whether {@code @Lob} is declared
+     */
+    public record MappedColumn(String name, Class<?> javaType, boolean id, boolean generated, boolean nullable,
+                               boolean unique, int length, int precision, int scale, String columnDefinition,
+                               boolean enumAsString, boolean joinColumn, boolean lob) {
+    }
+
+    /**
+     * An index declared through {@code @Table(indexes = ...)}
+     */
+    public record DeclaredIndex(String name, List<String> columns, boolean unique) {
+    }
+}
@@ -0,0 +1,205 @@
+package io.github.tky0065.spring_boot_migration_starter.service;
+
+import jakarta.persistence.AttributeOverride;
+import jakarta.persistence.Column;
+import jakarta.persistence.ElementCollection;
+import jakarta.persistence.Embedded;
+import jakarta.persistence.EmbeddedId;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.Lob;
+import jakarta.persistence.ManyToMany;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.MappedSuperclass;
+import jakarta.persistence.OneToMany;
+import jakarta.persistence.OneToOne;
+import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
+import org.springframework.core.annotation.AnnotationAttributes;
+import org.springframework.util.StringUtils;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Derives the expected table structure of an entity from its mapping annotations.
+ * <p>
+ * Names follow Spring Boot's default {@code CamelCaseToUnderscoresNamingStrategy}. Class-level
+ * annotations are read from the ASM metadata; field mappings need the class, which is loaded
+ * without being initialized.
+ */
+public class EntityMappingReader {
+
+    /**
+     * Read the mapping of an entity
+     *
+     * @param entity The entity to read
+     * @return The expected table structure
+     * @throws ClassNotFoundException if the entity class cannot be loaded
+     */
+    public EntityMapping read(EntityDescriptor entity) throws ClassNotFoundException {
+        List<EntityMapping.MappedColumn> columns = new ArrayList<>();
+        Class<?> entityClass = entity.loadClass();
+        collectColumns(entityClass, columns);
+        return new EntityMapping(entity.getTableName(), columns, readDeclaredIndexes(entity));
+    }
+
+    private List<EntityMapping.DeclaredIndex> readDeclaredIndexes(EntityDescriptor entity) {
+        Map<String, Object> table = entity.getMetadata().getAnnotationAttributes(Table.class.getName());
+        if (table == null) {
+            return List.of();
+        }
+        List<EntityMapping.DeclaredIndex> indexes = new ArrayList<>();
+        for (AnnotationAttributes index : AnnotationAttributes.fromMap(table)
+                .getAnnotationArray("indexes")) {
+            List<String> indexColumns = Arrays.stream(index.getString("columnList").split(","))
+                    .map(String::trim)
+                    .filter(StringUtils::hasText)
+                    // "column ASC" / "column DESC" are allowed by the specification
+                    .map(column -> column.split("\\s+")[0])
+                    .toList();
+            indexes.add(new EntityMapping.DeclaredIndex(index.getString("name"), indexColumns,
+                    index.getBoolean("unique")));
+        }
+        return indexes;
+    }
+
+    private void collectColumns(Class<?> type, List<EntityMapping.MappedColumn> columns) {
+        Class<?> superclass = type.getSuperclass();
+        if (superclass != null && superclass.isAnnotationPresent(MappedSuperclass.class)) {
+            collectColumns(superclass, columns);
+        }
+
+        for (Field field : type.getDeclaredFields()) {
+            if (Modifier.isStatic(field.getModifiers()) || Modifier.isTransient(field.getModifiers())
+                    || field.isAnnotationPresent(Transient.class)
+                    || field.isAnnotationPresent(OneToMany.class)
+                    || field.isAnnotationPresent(ManyToMany.class)
+                    || field.isAnnotationPresent(ElementCollection.class)) {
+                continue;
+            }
+
+            if (field.isAnnotationPresent(Embedded.class) || field.isAnnotationPresent(EmbeddedId.class)) {
+                collectEmbedded(field, columns);
+            } else if (field.isAnnotationPresent(ManyToOne.class) || isOwningOneToOne(field)) {
+                columns.add(readJoinColumn(field));
+            } else {
+                columns.add(readBasicColumn(field, field.getAnnotation(Column.class), false));
+            }
+        }
+    }
+
+    private void collectEmbedded(Field field, List<EntityMapping.MappedColumn> columns) {
+        boolean id = field.isAnnotationPresent(EmbeddedId.class);
+        for (Field embeddedField : field.getType().getDeclaredFields()) {
+            if (Modifier.isStatic(embeddedField.getModifiers()) || embeddedField.isAnnotationPresent(Transient.class)) {
+                continue;
+            }
+            Column column = embeddedField.getAnnotation(Column.class);
+            for (AttributeOverride override : field.getAnnotationsByType(AttributeOverride.class)) {
+                if (override.name().equals(embeddedField.getName())) {
+                    column = override.column();
+                }
+            }
+            EntityMapping.MappedColumn mapped = readBasicColumn(embeddedField, column, id);
+            columns.add(mapped);
+        }
+    }
+
+    private EntityMapping.MappedColumn readBasicColumn(Field field, Column column, boolean partOfId) {
+        boolean id = partOfId || field.isAnnotationPresent(Id.class);
+        GeneratedValue generatedValue = field.getAnnotation(GeneratedValue.class);
+        boolean generated = generatedValue != null && (generatedValue.strategy() == GenerationType.IDENTITY
+                || generatedValue.strategy() == GenerationType.AUTO);
+        Enumerated enumerated = field.getAnnotation(Enumerated.class);
+
+        String name = column != null && StringUtils.hasText(column.name()) ?
+                column.name() : toPhysicalName(field.getName());
+        return new EntityMapping.MappedColumn(
+                name,
+                field.getType(),
+                id,
+                id && generated,
+                !id && (column == null || column.nullable()) && !field.getType().isPrimitive(),
+                column != null && column.unique(),
+                column != null ? column.length() : 255,
+                column != null ? column.precision() : 0,
+                column != null ? column.scale() : 0,
+                column != null && StringUtils.hasText(column.columnDefinition()) ? column.columnDefinition() : null,
+                enumerated != null && enumerated.value() == EnumType.STRING,
+                false,
+                field.isAnnotationPresent(Lob.class));
+    }
+
+    private EntityMapping.MappedColumn readJoinColumn(Field field) {
+        JoinColumn joinColumn = field.getAnnotation(JoinColumn.class);
+        Field targetId = findIdField(field.getType());
+        String referencedColumn = targetId != null ? columnName(targetId) : "id";
+
+        String name = joinColumn != null && StringUtils.hasText(joinColumn.name()) ?
+                joinColumn.name() : toPhysicalName(field.getName()) + "_" + referencedColumn;
+        boolean optional = field.isAnnotationPresent(ManyToOne.class) ?
+                field.getAnnotation(ManyToOne.class).optional() : field.getAnnotation(OneToOne.class).optional();
+        return new EntityMapping.MappedColumn(
+                name,
+                targetId != null ? targetId.getType() : Long.class,
+                field.isAnnotationPresent(Id.class),
+                false,
+                optional && (joinColumn == null || joinColumn.nullable()),
+                joinColumn != null && joinColumn.unique(),
+                255, 0, 0,
+                joinColumn != null && StringUtils.hasText(joinColumn.columnDefinition()) ?
+                        joinColumn.columnDefinition() : null,
+                false,
+                true,
+                false);
+    }
+
+    private static boolean isOwningOneToOne(Field field) {
+        OneToOne oneToOne = field.getAnnotation(OneToOne.class);
+        return oneToOne != null && !StringUtils.hasText(oneToOne.mappedBy());
+    }
+
+    private static Field findIdField(Class<?> type) {
+        for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+            for (Field field : current.getDeclaredFields()) {
+                if (field.isAnnotationPresent(Id.class)) {
+                    return field;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static String columnName(Field field) {
+        Column column = field.getAnnotation(Column.class);
+        return column != null && StringUtils.hasText(column.name()) ? column.name() : toPhysicalName(field.getName());
+    }
+
+    /**
+     * Apply Spring Boot's default physical naming strategy: {@code orderLine} becomes {@code order_line}
+     *
+     * @param logicalName Attribute or entity name
+     * @return The physical name
+     */
+    public static String toPhysicalName(String logicalName) {
+        StringBuilder builder = new StringBuilder(logicalName.replace('.', '_'));
+        for (int i = 1; i < builder.length() - 1; i++) {
+            if (Character.isLowerCase(builder.charAt(i - 1)) && Character.isUpperCase(builder.charAt(i))
+                    && Character.isLowerCase(builder.charAt(i + 1))) {
+                builder.insert(i++, '_');
+            }
+        }
+        return builder.toString().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,149 @@
+package io.github.tky0065.spring_boot_migration_starter.service;
+
+import jakarta.persistence.Entity;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.annotation.AnnotatedBeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.boot.autoconfigure.AutoConfigurationPackages;
+import org.springframework.boot.autoconfigure.domain.EntityScanPackages;
+import org.springframework.context.annotation.ClassPathScanningCandidateComponentProvider;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.type.AnnotationMetadata;
+import org.springframework.core.type.filter.AnnotationTypeFilter;
+import org.springframework.util.ClassUtils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Scans base packages for JPA entities in parallel on a fork-join pool.
+ * Scanning relies on the ASM metadata of the class files, no entity class is loaded. With AOT-generated
+ * artifacts, the entities listed in the {@link MigrationIndex} are used instead and are loaded.
+ */
+public class EntityScanner {
+
+    private static final Logger logger = LoggerFactory.getLogger(EntityScanner.class);
+
+    private final ClassLoader classLoader;
+
+    public EntityScanner(ClassLoader classLoader) {
+        this.classLoader = classLoader;
+    }
+
+    /**
+     * Scan the given packages for {@code @Entity} classes
+     *
+     * @param basePackages Packages to scan, nested packages are only scanned once
+     * @return The entities found, sorted by class name
+     */
+    public List<EntityDescriptor> scan(Collection<String> basePackages) {
+        try (MigrationFlightRecorder.Span span = MigrationFlightRecorder.phase(MigrationFlightRecorder.ENTITY_SCAN, null)) {
+            List<EntityDescriptor> entities = doScan(basePackages);
+            span.setDetail(entities.size() + " entities");
+            return entities;
+        }
+    }
+
+    private List<EntityDescriptor> doScan(Collection<String> basePackages) {
+        List<String> roots = collapseNestedPackages(basePackages);
+        if (roots.isEmpty()) {
+            return List.of();
+        }
+
+        MigrationIndex index = MigrationIndex.load(classLoader);
+        if (index != null) {
+            return fromIndex(index, roots);
+        }
+        logger.debug("Scanning for entity classes in {}", roots);
+
+        int parallelism = Math.min(roots.size(), Runtime.getRuntime().availableProcessors());
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            List<EntityDescriptor> entities = pool.submit(() -> roots.parallelStream()
+                    .flatMap(basePackage -> scanPackage(basePackage).stream())
+                    .toList()).get();
+
+            // A class may be reachable from several roots, keep a single descriptor per class
+            Map<String, EntityDescriptor> unique = new LinkedHashMap<>();
+            entities.stream()
+                    .sorted(Comparator.comparing(EntityDescriptor::getClassName))
+                    .forEach(entity -> unique.putIfAbsent(entity.getClassName(), entity));
+            return new ArrayList<>(unique.values());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while scanning for entity classes", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Error scanning for entity classes", e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private List<EntityDescriptor> scanPackage(String basePackage) {
+        // The scanner keeps caches that are not meant to be shared between threads
+        ClassPathScanningCandidateComponentProvider scanner =
+                new ClassPathScanningCandidateComponentProvider(false);
+        scanner.setResourceLoader(new DefaultResourceLoader(classLoader));
+        scanner.addIncludeFilter(new AnnotationTypeFilter(Entity.class));
+
+        List<EntityDescriptor> entities = new ArrayList<>();
+        for (BeanDefinition bd : scanner.findCandidateComponents(basePackage)) {
+            if (bd instanceof AnnotatedBeanDefinition annotated) {
+                entities.add(new EntityDescriptor(bd.getBeanClassName(), annotated.getMetadata(), classLoader));
+                logger.debug("Found entity class: {}", bd.getBeanClassName());
+            }
+        }
+        return entities;
+    }
+
+    // Class files may not be readable at runtime, e.g. in a native image
+    private List<EntityDescriptor> fromIndex(MigrationIndex index, List<String> roots) {
+        List<EntityDescriptor> entities = new ArrayList<>();
+        for (String className : index.getEntityClassNames()) {
+            if (roots.stream().noneMatch(root -> className.startsWith(root + "."))) {
+                continue;
+            }
+            try {
+                Class<?> entityClass = ClassUtils.forName(className, classLoader);
+                entities.add(new EntityDescriptor(className, AnnotationMetadata.introspect(entityClass), classLoader));
+            } catch (ClassNotFoundException | LinkageError e) {
+                logger.warn("Could not load indexed entity class {}", className, e);
+            }
+        }
+        return entities;
+    }
+
+    /**
+     * Resolve the entity packages of an application
+     *
+     * @param beanFactory Bean factory of the application
+     * @return The {@code @EntityScan} packages when declared, otherwise the auto-configuration packages
+     */
+    public static List<String> entityPackages(BeanFactory beanFactory) {
+        List<String> packages = EntityScanPackages.get(beanFactory).getPackageNames();
+        if (packages.isEmpty() && AutoConfigurationPackages.has(beanFactory)) {
+            packages = AutoConfigurationPackages.get(beanFactory);
+        }
+        return packages;
+    }
+
+    private static List<String> collapseNestedPackages(Collection<String> basePackages) {
+        List<String> roots = new ArrayList<>();
+        for (String candidate : new TreeSet<>(basePackages)) {
+            boolean nested = roots.stream().anyMatch(root -> candidate.startsWith(root + "."));
+            if (!nested) {
+                roots.add(candidate);
+            }
+        }
+        return roots;
+    }
+}
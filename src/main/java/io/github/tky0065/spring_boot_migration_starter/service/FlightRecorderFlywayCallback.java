@@ -0,0 +1,63 @@
+package io.github.tky0065.spring_boot_migration_starter.service;
+
+import org.flywaydb.core.api.MigrationInfo;
+import org.flywaydb.core.api.callback.Callback;
+import org.flywaydb.core.api.callback.Context;
+import org.flywaydb.core.api.callback.Event;
+
+/**
+ * Records Flyway's checksum validation and every applied script as {@link MigrationFlightRecorder} events.
+ * Registered as a bean for the startup migration run by Spring Boot, and on each Flyway instance of
+ * {@link FlywayMigrationService}. An instance follows one migration at a time.
+ */
+public class FlightRecorderFlywayCallback implements Callback {
+
+    private MigrationFlightRecorder.Span validation;
+    private MigrationFlightRecorder.Span script;
+
+    @Override
+    public boolean supports(Event event, Context context) {
+        return switch (event) {
+            case BEFORE_VALIDATE, AFTER_VALIDATE, AFTER_VALIDATE_ERROR,
+                 BEFORE_EACH_MIGRATE, AFTER_EACH_MIGRATE, AFTER_EACH_MIGRATE_ERROR -> true;
+            default -> false;
+        };
+    }
+
+    @Override
+    public boolean canHandleInTransaction(Event event, Context context) {
+        return true;
+    }
+
+    @Override
+    public void handle(Event event, Context context) {
+        switch (event) {
+            case BEFORE_VALIDATE -> validation = MigrationFlightRecorder.phase(
+                    MigrationFlightRecorder.CHECKSUM_VALIDATION, "flyway");
+            case AFTER_VALIDATE, AFTER_VALIDATE_ERROR -> validation = close(validation, event == Event.AFTER_VALIDATE);
+            case BEFORE_EACH_MIGRATE -> {
+                MigrationInfo info = context.getMigrationInfo();
+                script = MigrationFlightRecorder.script("flyway", MigrationOperation.MIGRATE,
+                        info != null ? info.getScript() : null);
+            }
+            case AFTER_EACH_MIGRATE, AFTER_EACH_MIGRATE_ERROR -> script = close(script, event == Event.AFTER_EACH_MIGRATE);
+            default -> {
+            }
+        }
+    }
+
+    private static MigrationFlightRecorder.Span close(MigrationFlightRecorder.Span span, boolean success) {
+        if (span != null) {
+            if (!success) {
+                span.failed();
+            }
+            span.close();
+        }
+        return null;
+    }
+
+    @Override
+    public String getCallbackName() {
+        return "spring-boot-migration-starter-flight-recorder";
+    }
+}
@@ -2,25 +2,56 @@ package io.github.tky0065.spring_boot_migration_starter.service;
 
 import io.github.tky0065.spring_boot_migration_starter.config.MigrationProperties;
 import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.MigrationInfo;
+import org.flywaydb.core.api.MigrationInfoService;
+import org.flywaydb.core.api.MigrationVersion;
+import org.flywaydb.core.api.callback.Callback;
+import org.flywaydb.core.api.callback.Context;
+import org.flywaydb.core.api.callback.Event;
+import org.flywaydb.core.api.configuration.FluentConfiguration;
+import org.flywaydb.core.api.migration.JavaMigration;
+import org.flywaydb.core.api.output.MigrateResult;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
 import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicReference;
 
 @Service
-public class FlywayMigrationService implements MigrationService {
+public class FlywayMigrationService extends AbstractMigrationService {
     
     private static final Logger logger = LoggerFactory.getLogger(FlywayMigrationService.class);
 
-    @Autowired
-    private DataSource dataSource;
+    private ClassLoader classLoader;
 
-    @Autowired
-    private MigrationProperties properties;
+    public FlywayMigrationService() {
+    }
+
+    public FlywayMigrationService(DataSource dataSource, MigrationProperties properties) {
+        this(dataSource, properties, null);
+    }
+
+    /**
+     * @param classLoader Class loader the migrations are resolved with, e.g. the project's at build time.
+     *                    Flyway's default, the context class loader, when null
+     */
+    public FlywayMigrationService(DataSource dataSource, MigrationProperties properties, ClassLoader classLoader) {
+        super(dataSource, properties);
+        this.classLoader = classLoader;
+    }
 
     @Override
     public void migrate() {
@@ -30,8 +61,13 @@ public class FlywayMigrationService implements MigrationService {
         }
 
         logger.info("Starting Flyway database migration");
-        Flyway flyway = configureFlyway();
-        flyway.migrate();
+        runOperation(MigrationOperation.MIGRATE, () -> {
+            Flyway flyway = configureFlyway(MigrationOperation.MIGRATE);
+            runPreflight(() -> pendingTables(flyway));
+            MigrateResult result = flyway.migrate();
+            loadSeedData();
+            runPostMigrationStage(new PostMigrationStage(properties).touchedTables(flyway, result));
+        });
         logger.info("Flyway migration completed successfully");
     }
 
@@ -43,8 +79,10 @@ public class FlywayMigrationService implements MigrationService {
         }
 
         logger.info("Validating database schema with Flyway");
-        Flyway flyway = configureFlyway();
-        flyway.validate();
+        runOperation(MigrationOperation.VALIDATE, () -> {
+            Flyway flyway = configureFlyway(MigrationOperation.VALIDATE);
+            flyway.validate();
+        });
         logger.info("Flyway validation completed successfully");
     }
 
@@ -56,16 +94,128 @@ public class FlywayMigrationService implements MigrationService {
         }
 
         logger.info("Repairing database schema with Flyway");
-        Flyway flyway = configureFlyway();
-        flyway.repair();
+        runOperation(MigrationOperation.REPAIR, () -> {
+            Flyway flyway = configureFlyway(MigrationOperation.REPAIR);
+            flyway.repair();
+        });
         logger.info("Flyway repair completed successfully");
     }
 
-    private Flyway configureFlyway() {
+    @Override
+    public MigrationDryRunReport dryRun() {
+        logger.info("Profiling pending Flyway migrations");
+        AtomicReference<MigrationDryRunReport> report = new AtomicReference<>();
+        runOperation(MigrationOperation.DRY_RUN, () -> {
+            Flyway flyway = configure(dataSource).load();
+            MigrationInfoService info = flyway.info();
+            MigrationInfo current = info.current();
+
+            try (MigrationDryRun dryRun = new MigrationDryRun(properties, dataSource, "flyway")) {
+                // Bring the clone to the target's version, pending migrations are then applied one statement at a time
+                if (current != null && current.getVersion() != null) {
+                    configure(dryRun.getClone()).target(current.getVersion()).load().migrate();
+                }
+                profilePendingMigrations(dryRun, flyway, info.pending());
+                report.set(dryRun.finish());
+            } catch (SQLException | IOException e) {
+                logger.error("Flyway dry run failed", e);
+                throw new RuntimeException("Flyway dry run failed", e);
+            }
+        });
+        return report.get();
+    }
+
+    // Tables written by the pending SQL scripts, Java migrations cannot be parsed
+    private Set<String> pendingTables(Flyway flyway) {
+        ClassLoader flywayClassLoader = flyway.getConfiguration().getClassLoader();
+        MigrationLocations locations = MigrationLocations.of(properties, flywayClassLoader);
+        Map<MigrationVersion, StreamingSqlMigration> streamingMigrations = streamingMigrationsByVersion(flywayClassLoader);
+        DatabaseDialect dialect = PostMigrationStage.scriptDialect(dataSource);
+        Set<String> tables = new TreeSet<>();
+        for (MigrationInfo migration : flyway.info().pending()) {
+            String script = migration.getScript();
+            try {
+                StreamingSqlMigration streamingMigration = streamingMigrations.get(migration.getVersion());
+                Resource resource = streamingMigration != null && StreamingSqlMigration.class.getName().equals(script)
+                        ? streamingMigration.getScript()
+                        : script.endsWith(".sql") ? locations.findScript(script) : null;
+                if (resource == null) {
+                    logger.debug("Cannot read migration {}, its tables are not inspected", script);
+                    continue;
+                }
+                try (Reader reader = StreamingSqlExecutor.openScript(resource)) {
+                    PostMigrationStage.collectTouchedTables(reader, dialect, tables);
+                }
+            } catch (IOException e) {
+                logger.warn("Could not read migration {}", script, e);
+            }
+        }
+        return tables;
+    }
+
+    private Map<MigrationVersion, StreamingSqlMigration> streamingMigrationsByVersion(ClassLoader flywayClassLoader) {
+        Map<MigrationVersion, StreamingSqlMigration> streamingMigrations = new HashMap<>();
+        if (properties.getStreaming().isEnabled()) {
+            findStreamingMigrations(flywayClassLoader).forEach(migration -> streamingMigrations.put(migration.getVersion(), migration));
+        }
+        return streamingMigrations;
+    }
+
+    private void profilePendingMigrations(MigrationDryRun dryRun, Flyway flyway, MigrationInfo[] pending)
+            throws IOException {
+        ClassLoader flywayClassLoader = flyway.getConfiguration().getClassLoader();
+        MigrationLocations locations = MigrationLocations.of(properties, flywayClassLoader);
+        Map<MigrationVersion, StreamingSqlMigration> streamingMigrations = streamingMigrationsByVersion(flywayClassLoader);
+
+        for (MigrationInfo migration : pending) {
+            String script = migration.getScript();
+            Resource resource = null;
+            StreamingSqlMigration streamingMigration = streamingMigrations.get(migration.getVersion());
+            if (streamingMigration != null && StreamingSqlMigration.class.getName().equals(script)) {
+                script = streamingMigration.getScriptName();
+                resource = streamingMigration.getScript();
+            } else if (script.endsWith(".sql")) {
+                resource = locations.findScript(script);
+            }
+            if (resource == null) {
+                dryRun.skipScript(script, "Only SQL scripts can be profiled");
+                continue;
+            }
+
+            long start = System.currentTimeMillis();
+            scriptStarted(MigrationOperation.DRY_RUN, script);
+            boolean succeeded;
+            try (Reader reader = StreamingSqlExecutor.openScript(resource)) {
+                succeeded = dryRun.profileScript(script, reader);
+            }
+            scriptCompleted(MigrationOperation.DRY_RUN, script, System.currentTimeMillis() - start);
+            if (!succeeded) {
+                return;
+            }
+        }
+    }
+
+    private Flyway configureFlyway(MigrationOperation operation) {
+        long start = System.currentTimeMillis();
+        try (MigrationFlightRecorder.Span span = MigrationFlightRecorder.phase(MigrationFlightRecorder.CONFIGURATION, "flyway")) {
+            try {
+                return configure(dataSource)
+                        .callbacks(new ProgressCallback(operation), new FlightRecorderFlywayCallback())
+                        .load();
+            } catch (RuntimeException e) {
+                span.failed();
+                throw e;
+            }
+        } finally {
+            phaseCompleted(operation, MigrationRun.CONFIGURATION, System.currentTimeMillis() - start);
+        }
+    }
+
+    private FluentConfiguration configure(DataSource target) {
         logger.debug("Configuring Flyway with the following properties: {}", properties);
 
-        org.flywaydb.core.api.configuration.FluentConfiguration configuration = Flyway.configure()
-                .dataSource(dataSource)
+        FluentConfiguration configuration = (classLoader != null ? Flyway.configure(classLoader) : Flyway.configure())
+                .dataSource(target)
                 .baselineOnMigrate(properties.isBaselineOnMigrate())
                 .validateOnMigrate(properties.isValidateOnMigrate())
                 .cleanDisabled(properties.isCleanDisabled());
@@ -77,6 +227,14 @@ public class FlywayMigrationService implements MigrationService {
             configuration.locations(properties.getLocation());
         }
 
+        // Classpath scanning does not work in a native image, use the locations indexed at build time
+        MigrationIndex index = MigrationIndex.load(configuration.getClassLoader());
+        List<String> locations = MigrationLocations.of(properties, configuration.getClassLoader()).getLocations();
+        if (index != null && locations.stream().allMatch(location -> MigrationIndex.classpathPath(location) != null)) {
+            configuration.resourceProvider(
+                    new IndexedFlywayResourceProvider(index, locations, configuration.getClassLoader()));
+        }
+
         // Set schema if provided
         if (StringUtils.hasText(properties.getSchema())) {
             configuration.schemas(properties.getSchema());
@@ -87,11 +245,103 @@ public class FlywayMigrationService implements MigrationService {
             configuration.baselineVersion(properties.getBaselineVersion());
         }
 
+        // Very large scripts bypass Flyway's in-memory parser
+        if (properties.getStreaming().isEnabled()) {
+            configuration.javaMigrations(findStreamingMigrations(configuration.getClassLoader()).toArray(new JavaMigration[0]));
+        }
+
         // Apply additional properties if provided
         for (Map.Entry<String, String> entry : properties.getFlywayProperties().entrySet()) {
             configuration.configuration(Map.of(entry.getKey(), entry.getValue()));
         }
 
-        return configuration.load();
+        return configuration;
+    }
+
+    private List<StreamingSqlMigration> findStreamingMigrations(ClassLoader flywayClassLoader) {
+        return StreamingSqlMigration.find(MigrationLocations.of(properties, flywayClassLoader), properties.getStreaming());
+    }
+
+    /**
+     * Forwards Flyway's per-migration and phase events to the registered listeners
+     */
+    private class ProgressCallback implements Callback {
+
+        private final MigrationOperation operation;
+        private long scriptStart;
+        private long validateStart;
+        private long migrateStart;
+        private long migrateScriptMillis;
+        private Map<MigrationVersion, StreamingSqlMigration> streamingMigrations;
+
+        private ProgressCallback(MigrationOperation operation) {
+            this.operation = operation;
+        }
+
+        @Override
+        public boolean supports(Event event, Context context) {
+            return switch (event) {
+                case BEFORE_EACH_MIGRATE, AFTER_EACH_MIGRATE, BEFORE_VALIDATE, AFTER_VALIDATE, AFTER_VALIDATE_ERROR,
+                     BEFORE_MIGRATE, AFTER_MIGRATE, AFTER_MIGRATE_ERROR -> true;
+                default -> false;
+            };
+        }
+
+        @Override
+        public boolean canHandleInTransaction(Event event, Context context) {
+            return true;
+        }
+
+        @Override
+        public void handle(Event event, Context context) {
+            long now = System.currentTimeMillis();
+            switch (event) {
+                case BEFORE_VALIDATE -> validateStart = now;
+                case AFTER_VALIDATE, AFTER_VALIDATE_ERROR ->
+                        phaseCompleted(operation, MigrationRun.CHECKSUM_VALIDATION, now - validateStart);
+                case BEFORE_MIGRATE -> {
+                    migrateStart = now;
+                    migrateScriptMillis = 0;
+                }
+                // Flyway does not report its lock, the time spent in migrate outside of the scripts is mostly the wait on it
+                case AFTER_MIGRATE, AFTER_MIGRATE_ERROR -> phaseCompleted(operation, MigrationRun.LOCK_WAIT,
+                        Math.max(0, now - migrateStart - migrateScriptMillis));
+                default -> handleScript(event, context, now);
+            }
+        }
+
+        private void handleScript(Event event, Context context, long now) {
+            MigrationInfo info = context.getMigrationInfo();
+            if (info == null) {
+                return;
+            }
+            String script = scriptName(info, context);
+            if (event == Event.BEFORE_EACH_MIGRATE) {
+                scriptStart = now;
+                scriptStarted(operation, script);
+            } else {
+                migrateScriptMillis += now - scriptStart;
+                scriptCompleted(operation, script, now - scriptStart);
+            }
+        }
+
+        // Java migrations report their class name, use the file name of streamed scripts
+        private String scriptName(MigrationInfo info, Context context) {
+            if (StreamingSqlMigration.class.getName().equals(info.getScript())) {
+                if (streamingMigrations == null) {
+                    streamingMigrations = streamingMigrationsByVersion(context.getConfiguration().getClassLoader());
+                }
+                StreamingSqlMigration streamingMigration = streamingMigrations.get(info.getVersion());
+                if (streamingMigration != null) {
+                    return streamingMigration.getScriptName();
+                }
+            }
+            return info.getScript();
+        }
+
+        @Override
+        public String getCallbackName() {
+            return "spring-boot-migration-starter-progress";
+        }
     }
 }
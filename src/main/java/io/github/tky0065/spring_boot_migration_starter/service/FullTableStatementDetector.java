@@ -0,0 +1,108 @@
+package io.github.tky0065.spring_boot_migration_starter.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Detects DDL and DML statements that scan or rewrite a whole table, whose duration grows
+ * with the size of the table. Detection is based on the statement text only.
+ */
+public final class FullTableStatementDetector {
+
+    private static final String IDENTIFIER_PART = "(?:[\\w$]+|\"[^\"]+\"|`[^`]+`|\\[[^\\]]+\\])";
+    static final String IDENTIFIER = "(" + IDENTIFIER_PART + "(?:\\." + IDENTIFIER_PART + ")*)";
+
+    private static final Pattern BLOCK_COMMENT = Pattern.compile("/\\*.*?\\*/", Pattern.DOTALL);
+    private static final Pattern WHERE = Pattern.compile("\\bWHERE\\b");
+
+    private static final Pattern UPDATE = Pattern.compile("^UPDATE\\s+(?:ONLY\\s+)?" + IDENTIFIER);
+    private static final Pattern DELETE = Pattern.compile("^DELETE\\s+FROM\\s+(?:ONLY\\s+)?" + IDENTIFIER);
+    private static final Pattern INSERT_SELECT = Pattern.compile(
+            "^INSERT\\s+INTO\\s+" + IDENTIFIER + ".*?\\bSELECT\\b.*?\\bFROM\\s+" + IDENTIFIER);
+    private static final Pattern CREATE_INDEX = Pattern.compile(
+            "^CREATE\\s+(?:UNIQUE\\s+)?INDEX\\b.*?\\bON\\s+(?:ONLY\\s+)?" + IDENTIFIER);
+    private static final Pattern ONLINE_INDEX = Pattern.compile("\\b(CONCURRENTLY|ONLINE|LOCK\\s*=\\s*NONE)\\b");
+    private static final Pattern ALTER_TABLE = Pattern.compile(
+            "^ALTER\\s+TABLE\\s+(?:IF\\s+EXISTS\\s+)?(?:ONLY\\s+)?" + IDENTIFIER + "\\s+(.*)");
+
+    private static final Pattern TYPE_CHANGE = Pattern.compile(
+            "\\bALTER\\s+(?:COLUMN\\s+)?\\S+\\s+(?:SET\\s+DATA\\s+)?TYPE\\b|\\bMODIFY\\b|\\bCHANGE\\s+(?:COLUMN\\s+)?\\S+\\s+\\S+\\s+\\w");
+    private static final Pattern ADD_COLUMN_WITH_DEFAULT = Pattern.compile(
+            "\\bADD\\s+(?!CONSTRAINT\\b|INDEX\\b|KEY\\b|UNIQUE\\b|PRIMARY\\b|FOREIGN\\b|CHECK\\b)(?:COLUMN\\s+)?\\S+\\s+[^,]*?\\b(DEFAULT|NOT\\s+NULL)\\b");
+    private static final Pattern SET_NOT_NULL = Pattern.compile("\\bSET\\s+NOT\\s+NULL\\b");
+    private static final Pattern ADD_CONSTRAINT = Pattern.compile(
+            "\\bADD\\s+(?:CONSTRAINT\\s+\\S+\\s+)?(FOREIGN\\s+KEY|CHECK|PRIMARY\\s+KEY|UNIQUE)\\b");
+    private static final Pattern NOT_VALID = Pattern.compile("\\bNOT\\s+VALID\\b");
+    private static final Pattern DROP_COLUMN = Pattern.compile("\\bDROP\\s+COLUMN\\b");
+
+    /**
+     * A whole-table operation found in a statement
+     *
+     * @param table Lower-case table name, without schema
+     * @param reason Human readable explanation
+     */
+    public record Match(String table, String reason) {
+    }
+
+    private FullTableStatementDetector() {
+    }
+
+    /**
+     * Analyze a single SQL statement
+     *
+     * @param sql The statement, without trailing delimiter
+     * @return The whole-table operations found, empty when none
+     */
+    public static List<Match> detect(String sql) {
+        String statement = BLOCK_COMMENT.matcher(sql).replaceAll(" ")
+                .replaceAll("\\s+", " ").trim().toUpperCase(Locale.ROOT);
+        List<Match> matches = new ArrayList<>();
+        boolean hasWhere = WHERE.matcher(statement).find();
+
+        Matcher matcher;
+        if ((matcher = UPDATE.matcher(statement)).find()) {
+            if (!hasWhere) {
+                matches.add(new Match(tableName(matcher.group(1)), "UPDATE without WHERE clause rewrites every row"));
+            }
+        } else if ((matcher = DELETE.matcher(statement)).find()) {
+            if (!hasWhere) {
+                matches.add(new Match(tableName(matcher.group(1)), "DELETE without WHERE clause scans every row"));
+            }
+        } else if ((matcher = INSERT_SELECT.matcher(statement)).find()) {
+            if (!hasWhere) {
+                matches.add(new Match(tableName(matcher.group(2)), "INSERT ... SELECT without WHERE clause copies every row"));
+            }
+        } else if ((matcher = CREATE_INDEX.matcher(statement)).find()) {
+            matches.add(new Match(tableName(matcher.group(1)), ONLINE_INDEX.matcher(statement).find()
+                    ? "Online index build scans the whole table"
+                    : "Index build scans the whole table and blocks writes"));
+        } else if ((matcher = ALTER_TABLE.matcher(statement)).find()) {
+            String table = tableName(matcher.group(1));
+            String actions = matcher.group(2);
+            if (TYPE_CHANGE.matcher(actions).find()) {
+                matches.add(new Match(table, "Column type change may rewrite the whole table"));
+            }
+            if (ADD_COLUMN_WITH_DEFAULT.matcher(actions).find()) {
+                matches.add(new Match(table, "Adding a column with a default value or NOT NULL constraint may rewrite the whole table"));
+            }
+            if (SET_NOT_NULL.matcher(actions).find()) {
+                matches.add(new Match(table, "SET NOT NULL scans the whole table"));
+            }
+            if (ADD_CONSTRAINT.matcher(actions).find() && !NOT_VALID.matcher(actions).find()) {
+                matches.add(new Match(table, "Constraint validation scans the whole table"));
+            }
+            if (DROP_COLUMN.matcher(actions).find()) {
+                matches.add(new Match(table, "Dropping a column may rebuild the whole table"));
+            }
+        }
+        return matches;
+    }
+
+    static String tableName(String identifier) {
+        String name = identifier.substring(identifier.lastIndexOf('.') + 1);
+        return name.replaceAll("[\"`\\[\\]]", "").toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,25 @@
+package io.github.tky0065.spring_boot_migration_starter.service;
+
+/**
+ * Reads the table locks of H2 2.x {@code INFORMATION_SCHEMA.LOCKS}. H2 does not expose the start of a
+ * transaction, the age is the time since the session's last statement started or ended.
+ */
+public class H2LockInspector extends AbstractLockInspector {
+
+    private static final String QUERY = "SELECT DISTINCT s.SESSION_ID, l.TABLE_NAME, l.LOCK_TYPE, s.SESSION_STATE, "
+            + "DATEDIFF(MILLISECOND, COALESCE(s.EXECUTING_STATEMENT_START, s.SLEEP_SINCE, s.SESSION_START), "
+            + "CURRENT_TIMESTAMP), s.EXECUTING_STATEMENT "
+            + "FROM INFORMATION_SCHEMA.LOCKS l "
+            + "JOIN INFORMATION_SCHEMA.SESSIONS s ON s.SESSION_ID = l.SESSION_ID "
+            + "WHERE s.SESSION_ID <> SESSION_ID()";
+
+    @Override
+    public boolean supports(DatabaseDialect dialect) {
+        return dialect == DatabaseDialect.H2;
+    }
+
+    @Override
+    protected String query() {
+        return QUERY;
+    }
+}
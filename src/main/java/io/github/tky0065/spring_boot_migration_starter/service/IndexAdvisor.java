@@ -0,0 +1,73 @@
+package io.github.tky0065.spring_boot_migration_starter.service;
+
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Compares the indexes required by the entity mappings with those of the live schema.
+ * <p>
+ * Join columns of to-one associations, {@code @Table(indexes = ...)} and {@code @Column(unique = true)}
+ * each require an index. A foreign key is considered covered by any index starting with its column.
+ */
+public class IndexAdvisor {
+
+    // PostgreSQL truncates identifiers longer than 63 characters
+    private static final int MAX_INDEX_NAME_LENGTH = 63;
+
+    /**
+     * Find the indexes missing for an entity
+     *
+     * @param mapping Expected table structure
+     * @param table Live table structure
+     * @return The indexes to create
+     */
+    public List<IndexRecommendation> advise(EntityMapping mapping, TableSchema table) {
+        Map<String, IndexRecommendation> recommendations = new LinkedHashMap<>();
+
+        for (EntityMapping.DeclaredIndex index : mapping.indexes()) {
+            if (!index.columns().isEmpty() && !table.hasIndexOn(index.columns(), index.unique())) {
+                String name = StringUtils.hasText(index.name()) ?
+                        index.name() : indexName(index.unique() ? "uk" : "idx", mapping.tableName(), index.columns());
+                recommendations.putIfAbsent(key(index.columns(), index.unique()), new IndexRecommendation(
+                        mapping.tableName(), name, index.columns(), index.unique(), "@Table(indexes)"));
+            }
+        }
+
+        for (EntityMapping.MappedColumn column : mapping.columns()) {
+            if (column.id()) {
+                continue;
+            }
+            List<String> columns = List.of(column.name());
+            if (column.unique() && !table.hasIndexOn(columns, true)) {
+                recommendations.putIfAbsent(key(columns, true), new IndexRecommendation(
+                        mapping.tableName(), indexName("uk", mapping.tableName(), columns), columns, true,
+                        column.joinColumn() ? "@JoinColumn(unique = true)" : "@Column(unique = true)"));
+            } else if (column.joinColumn() && !table.hasIndexOn(columns, false)) {
+                recommendations.putIfAbsent(key(columns, false), new IndexRecommendation(
+                        mapping.tableName(), indexName("idx", mapping.tableName(), columns), columns, false,
+                        "foreign key " + column.name()));
+            }
+        }
+
+        return new ArrayList<>(recommendations.values());
+    }
+
+    private static String key(List<String> columns, boolean unique) {
+        return String.join(",", columns).toLowerCase(Locale.ROOT) + (unique ? "#unique" : "");
+    }
+
+    private static String indexName(String prefix, String tableName, List<String> columns) {
+        String name = prefix + "_" + tableName + "_" + String.join("_", columns);
+        name = name.toLowerCase(Locale.ROOT);
+        if (name.length() > MAX_INDEX_NAME_LENGTH) {
+            String hash = Integer.toHexString(name.hashCode());
+            name = name.substring(0, MAX_INDEX_NAME_LENGTH - hash.length() - 1) + "_" + hash;
+        }
+        return name;
+    }
+}
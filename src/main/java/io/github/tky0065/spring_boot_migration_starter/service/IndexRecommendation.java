@@ -0,0 +1,16 @@
+package io.github.tky0065.spring_boot_migration_starter.service;
+
+import java.util.List;
+
+/**
+ * An index expected by the entity mappings but missing from the live schema
+ *
+ * @param tableName Table to index
+ * @param indexName Name of the index to create
+ * @param columns Indexed columns, in order
+ * @param unique Whether the index enforces uniqueness
+ * @param reason Mapping that requires the index, for the generated comment
+ */
+public record IndexRecommendation(String tableName, String indexName, List<String> columns,
+                                  boolean unique, String reason) {
+}
@@ -0,0 +1,106 @@
+package io.github.tky0065.spring_boot_migration_starter.service;
+
+import org.flywaydb.core.api.ResourceProvider;
+import org.flywaydb.core.api.resource.LoadableResource;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Serves Flyway's SQL migrations from the {@link MigrationIndex} instead of scanning the
+ * classpath locations, which does not work in a native image.
+ */
+public class IndexedFlywayResourceProvider implements ResourceProvider {
+
+    private final MigrationIndex index;
+    private final List<String> locations;
+    private final ClassLoader classLoader;
+
+    /**
+     * @param index Index generated at build time
+     * @param locations Classpath migration locations
+     * @param classLoader Class loader of the application
+     */
+    public IndexedFlywayResourceProvider(MigrationIndex index, List<String> locations, ClassLoader classLoader) {
+        this.index = index;
+        this.locations = List.copyOf(locations);
+        this.classLoader = classLoader;
+    }
+
+    @Override
+    public LoadableResource getResource(String name) {
+        for (String location : locations) {
+            String path = MigrationIndex.classpathPath(location);
+            if (path != null && index.getResources().contains(path + "/" + name)) {
+                return new IndexedResource(path, name);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Collection<LoadableResource> getResources(String prefix, String[] suffixes) {
+        List<LoadableResource> resources = new ArrayList<>();
+        for (String location : locations) {
+            String path = MigrationIndex.classpathPath(location);
+            for (String resource : index.findResources(location, "**/*")) {
+                String filename = StringUtils.getFilename(resource);
+                if (filename != null && filename.startsWith(prefix)
+                        && Arrays.stream(suffixes).anyMatch(filename::endsWith)) {
+                    resources.add(new IndexedResource(path, resource.substring(path.length() + 1)));
+                }
+            }
+        }
+        return resources;
+    }
+
+    private class IndexedResource extends LoadableResource {
+
+        private final String location;
+        private final String relativePath;
+
+        IndexedResource(String location, String relativePath) {
+            this.location = location;
+            this.relativePath = relativePath;
+        }
+
+        @Override
+        public Reader read() {
+            try {
+                return new InputStreamReader(new ClassPathResource(getAbsolutePath(), classLoader).getInputStream(),
+                        StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not read migration " + getAbsolutePath(), e);
+            }
+        }
+
+        @Override
+        public String getAbsolutePath() {
+            return location + "/" + relativePath;
+        }
+
+        @Override
+        public String getAbsolutePathOnDisk() {
+            return getAbsolutePath();
+        }
+
+        @Override
+        public String getFilename() {
+            return StringUtils.getFilename(relativePath);
+        }
+
+        @Override
+        public String getRelativePath() {
+            return relativePath;
+        }
+    }
+}
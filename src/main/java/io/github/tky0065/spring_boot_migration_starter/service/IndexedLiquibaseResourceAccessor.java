@@ -0,0 +1,56 @@
+package io.github.tky0065.spring_boot_migration_starter.service;
+
+import liquibase.resource.ClassLoaderResourceAccessor;
+import liquibase.resource.Resource;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Resolves the {@code includeAll} searches of Liquibase from the {@link MigrationIndex} instead of
+ * scanning the classpath, which does not work in a native image. Changelogs are still read from
+ * the class loader.
+ */
+@SuppressWarnings("try") // close() is inherited from ClassLoaderResourceAccessor
+public class IndexedLiquibaseResourceAccessor extends ClassLoaderResourceAccessor {
+
+    private final MigrationIndex index;
+
+    public IndexedLiquibaseResourceAccessor(MigrationIndex index, ClassLoader classLoader) {
+        super(classLoader);
+        this.index = index;
+    }
+
+    @Override
+    public List<Resource> search(String path, boolean recursive) throws IOException {
+        SearchOptions options = new SearchOptions();
+        options.setRecursive(recursive);
+        return search(path, options);
+    }
+
+    @Override
+    public List<Resource> search(String path, SearchOptions searchOptions) throws IOException {
+        String directory = MigrationIndex.classpathPath(path);
+        List<String> indexed = directory != null ? index.findResources(directory, "**/*") : List.of();
+        if (indexed.isEmpty()) {
+            return super.search(path, searchOptions);
+        }
+
+        List<Resource> resources = new ArrayList<>();
+        for (String resource : indexed) {
+            int depth = resource.substring(directory.length() + 1).split("/").length;
+            boolean inDepth = searchOptions.getRecursive()
+                    ? depth >= searchOptions.getMinDepth() && depth <= searchOptions.getMaxDepth()
+                    : depth == 1;
+            boolean matches = !searchOptions.endsWithFilterIsSet()
+                    || resource.toLowerCase(Locale.ROOT).endsWith(searchOptions.getEndsWithFilter().toLowerCase(Locale.ROOT));
+            List<Resource> found = inDepth && matches ? getAll(resource) : null;
+            if (found != null) {
+                resources.addAll(found);
+            }
+        }
+        return resources;
+    }
+}
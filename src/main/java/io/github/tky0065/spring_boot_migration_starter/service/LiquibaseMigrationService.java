@@ -4,33 +4,58 @@ import io.github.tky0065.spring_boot_migration_starter.config.MigrationPropertie
 import liquibase.Contexts;
 import liquibase.LabelExpression;
 import liquibase.Liquibase;
+import liquibase.change.AbstractSQLChange;
+import liquibase.change.Change;
+import liquibase.change.custom.CustomChangeWrapper;
+import liquibase.changelog.ChangeSet;
+import liquibase.changelog.DatabaseChangeLog;
+import liquibase.changelog.visitor.AbstractChangeExecListener;
+import liquibase.changelog.visitor.ChangeExecListener;
 import liquibase.database.Database;
 import liquibase.database.DatabaseFactory;
 import liquibase.database.jvm.JdbcConnection;
 import liquibase.exception.LiquibaseException;
 import liquibase.resource.ClassLoaderResourceAccessor;
+import liquibase.resource.ResourceAccessor;
+import liquibase.snapshot.SnapshotGeneratorFactory;
+import liquibase.sql.Sql;
+import liquibase.sqlgenerator.SqlGeneratorFactory;
+import liquibase.structure.DatabaseObject;
+import liquibase.structure.core.Column;
+import liquibase.structure.core.Index;
+import liquibase.structure.core.Relation;
+import liquibase.structure.core.Table;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
 import javax.sql.DataSource;
+import java.io.IOException;
 import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 
 @Service
-public class LiquibaseMigrationService implements MigrationService {
+public class LiquibaseMigrationService extends AbstractMigrationService {
 
     private static final Logger logger = LoggerFactory.getLogger(LiquibaseMigrationService.class);
 
-    @Autowired
-    private DataSource dataSource;
+    private static final String DEFAULT_CHANGELOG_PATH = "db/changelog/db.changelog-master.yaml";
 
-    @Autowired
-    private MigrationProperties properties;
+    public LiquibaseMigrationService() {
+    }
 
-    private static final String DEFAULT_CHANGELOG_PATH = "db/changelog/db.changelog-master.yaml";
+    public LiquibaseMigrationService(DataSource dataSource, MigrationProperties properties) {
+        super(dataSource, properties);
+    }
 
     @Override
     public void migrate() {
@@ -40,15 +65,12 @@ public class LiquibaseMigrationService implements MigrationService {
         }
 
         logger.info("Starting Liquibase database migration");
-        executeWithLiquibase(liquibase -> {
+        TimedLockService.register();
+        executeWithLiquibase(MigrationOperation.MIGRATE, liquibase -> {
             try {
-                Contexts contexts = StringUtils.hasText(properties.getContexts()) ?
-                        new Contexts(properties.getContexts()) : new Contexts();
-
-                LabelExpression labelExpression = StringUtils.hasText(properties.getLabels()) ?
-                        new LabelExpression(properties.getLabels()) : new LabelExpression();
-
-                liquibase.update(contexts, labelExpression);
+                runPreflight(() -> pendingTables(liquibase));
+                TimedLockService.timed(lockWait -> phaseCompleted(MigrationOperation.MIGRATE, MigrationRun.LOCK_WAIT, lockWait),
+                        () -> liquibase.update(contexts(), labelExpression()));
                 logger.info("Liquibase migration completed successfully");
             } catch (LiquibaseException e) {
                 logger.error("Failed to update database schema", e);
@@ -65,13 +87,20 @@ public class LiquibaseMigrationService implements MigrationService {
         }
 
         logger.info("Validating database schema with Liquibase");
-        executeWithLiquibase(liquibase -> {
-            try {
-                liquibase.validate();
+        executeWithLiquibase(MigrationOperation.VALIDATE, liquibase -> {
+            long start = System.currentTimeMillis();
+            try (MigrationFlightRecorder.Span span = MigrationFlightRecorder.phase(
+                    MigrationFlightRecorder.CHECKSUM_VALIDATION, "liquibase")) {
+                try {
+                    liquibase.validate();
+                } catch (LiquibaseException e) {
+                    span.failed();
+                    logger.error("Database validation failed", e);
+                    throw new RuntimeException("Database validation failed", e);
+                }
+                phaseCompleted(MigrationOperation.VALIDATE, MigrationRun.CHECKSUM_VALIDATION,
+                        System.currentTimeMillis() - start);
                 logger.info("Liquibase validation completed successfully");
-            } catch (LiquibaseException e) {
-                logger.error("Database validation failed", e);
-                throw new RuntimeException("Database validation failed", e);
             }
         });
     }
@@ -84,7 +113,7 @@ public class LiquibaseMigrationService implements MigrationService {
         }
 
         logger.info("Repairing database schema with Liquibase");
-        executeWithLiquibase(liquibase -> {
+        executeWithLiquibase(MigrationOperation.REPAIR, liquibase -> {
             try {
                 // Liquibase doesn't have a direct repair method like Flyway
                 // Instead, we can clear checksums which is similar in function
@@ -97,13 +126,71 @@ public class LiquibaseMigrationService implements MigrationService {
         });
     }
 
-    private void executeWithLiquibase(Consumer<Liquibase> liquibaseConsumer) {
+    @Override
+    public MigrationDryRunReport dryRun() {
+        logger.info("Profiling pending Liquibase changesets");
+        AtomicReference<MigrationDryRunReport> report = new AtomicReference<>();
+        runOperation(MigrationOperation.DRY_RUN, () -> {
+            Set<String> pending = new HashSet<>();
+            doExecuteWithLiquibase(dataSource, null, liquibase -> {
+                try {
+                    liquibase.listUnrunChangeSets(contexts(), labelExpression())
+                            .forEach(changeSet -> pending.add(changeSet.toString(false)));
+                } catch (LiquibaseException e) {
+                    logger.error("Failed to list pending changesets", e);
+                    throw new RuntimeException("Failed to list pending changesets", e);
+                }
+            });
+
+            try (MigrationDryRun dryRun = new MigrationDryRun(properties, dataSource, "liquibase")) {
+                // Changesets already applied to the target are replayed untimed on the clone
+                doExecuteWithLiquibase(dryRun.getClone(), new DryRunListener(dryRun, pending), liquibase -> {
+                    try {
+                        liquibase.update(contexts(), labelExpression());
+                    } catch (LiquibaseException e) {
+                        dryRun.failed(e);
+                    }
+                });
+                report.set(dryRun.finish());
+            } catch (SQLException | IOException e) {
+                logger.error("Liquibase dry run failed", e);
+                throw new RuntimeException("Liquibase dry run failed", e);
+            }
+        });
+        return report.get();
+    }
+
+    private Contexts contexts() {
+        return StringUtils.hasText(properties.getContexts()) ?
+                new Contexts(properties.getContexts()) : new Contexts();
+    }
+
+    private LabelExpression labelExpression() {
+        return StringUtils.hasText(properties.getLabels()) ?
+                new LabelExpression(properties.getLabels()) : new LabelExpression();
+    }
+
+    private void executeWithLiquibase(MigrationOperation operation, Consumer<Liquibase> liquibaseConsumer) {
+        runOperation(operation, () -> {
+            ProgressListener listener = new ProgressListener(operation);
+            doExecuteWithLiquibase(dataSource, listener, liquibaseConsumer);
+            // Once the Liquibase connection is released
+            if (operation == MigrationOperation.MIGRATE) {
+                loadSeedData();
+                runPostMigrationStage(listener.touchedTables);
+            }
+        });
+    }
+
+    private void doExecuteWithLiquibase(DataSource target, ChangeExecListener listener,
+                                        Consumer<Liquibase> liquibaseConsumer) {
         String changeLogPath = StringUtils.hasText(properties.getChangeLogPath()) ?
                 properties.getChangeLogPath() : DEFAULT_CHANGELOG_PATH;
 
-        logger.debug("Using changelog path: {}", changeLogPath);
-
-        try (Connection connection = dataSource.getConnection()) {
+        try (Connection connection = target.getConnection()) {
+            long configurationStart = System.currentTimeMillis();
+            MigrationFlightRecorder.Span configuration = MigrationFlightRecorder.phase(
+                    MigrationFlightRecorder.CONFIGURATION, "liquibase");
             Database database = DatabaseFactory.getInstance()
                     .findCorrectDatabaseImplementation(new JdbcConnection(connection));
 
@@ -131,11 +218,205 @@ public class LiquibaseMigrationService implements MigrationService {
                 logger.debug("Using schema: {}", properties.getSchema());
             }
 
-            Liquibase liquibase = new Liquibase(changeLogPath, new ClassLoaderResourceAccessor(), database);
+            if (properties.getChangelog().isActiveReleaseOnly() && isUnderLiquibaseControl(database)) {
+                changeLogPath = activeReleaseChangelogPath(changeLogPath);
+            }
+            logger.debug("Using changelog path: {}", changeLogPath);
+
+            // Classpath scanning does not work in a native image, use the changelogs indexed at build time
+            ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+            MigrationIndex index = MigrationIndex.load(classLoader);
+            ResourceAccessor resourceAccessor = index != null
+                    ? new IndexedLiquibaseResourceAccessor(index, classLoader) : new ClassLoaderResourceAccessor();
+            Liquibase liquibase = new Liquibase(changeLogPath, resourceAccessor, database);
+            liquibase.setChangeExecListener(listener);
+            configuration.close();
+            if (listener instanceof ProgressListener progress) {
+                phaseCompleted(progress.operation, MigrationRun.CONFIGURATION, System.currentTimeMillis() - configurationStart);
+            }
             liquibaseConsumer.accept(liquibase);
         } catch (Exception e) {
             logger.error("Error executing Liquibase operation", e);
             throw new RuntimeException("Error executing Liquibase operation", e);
         }
     }
+
+    // Tables changed by the changesets update is about to run
+    private Set<String> pendingTables(Liquibase liquibase) {
+        Set<String> tables = new TreeSet<>();
+        try {
+            for (ChangeSet changeSet : liquibase.listUnrunChangeSets(contexts(), labelExpression())) {
+                for (Change change : changeSet.getChanges()) {
+                    collectTables(change, liquibase.getDatabase(), tables);
+                }
+            }
+        } catch (LiquibaseException e) {
+            logger.warn("Could not list the pending changesets, their tables are not inspected", e);
+        }
+        return tables;
+    }
+
+    private static void collectTables(Change change, Database database, Set<String> tables) {
+        for (DatabaseObject object : change.getAffectedDatabaseObjects(database)) {
+            Relation relation = object instanceof Relation r ? r
+                    : object instanceof Column c ? c.getRelation()
+                    : object instanceof Index i ? i.getRelation() : null;
+            if (relation != null && relation.getName() != null) {
+                tables.add(relation.getName().toLowerCase(Locale.ROOT));
+            }
+        }
+        // Raw SQL changes do not describe their objects, generating the statements of a custom task would execute it
+        if (change instanceof AbstractSQLChange) {
+            for (Sql sql : SqlGeneratorFactory.getInstance().generateSql(change, database)) {
+                String table = PostMigrationStage.touchedTable(sql.toSql());
+                if (table != null) {
+                    tables.add(table);
+                }
+            }
+        }
+    }
+
+    // New databases need the whole history, the master changelog is used for them
+    private boolean isUnderLiquibaseControl(Database database) throws Exception {
+        return SnapshotGeneratorFactory.getInstance().has(
+                new Table().setName(database.getDatabaseChangeLogTableName())
+                        .setSchema(database.getLiquibaseCatalogName(), database.getLiquibaseSchemaName()),
+                database);
+    }
+
+    private String activeReleaseChangelogPath(String masterChangeLogPath) {
+        int separator = masterChangeLogPath.lastIndexOf('/');
+        String directory = separator >= 0 ? masterChangeLogPath.substring(0, separator + 1) : "";
+        return directory + ShardedChangelogWriter.releaseChangelogPath(properties.getChangelog().getRelease());
+    }
+
+    /**
+     * Forwards Liquibase's per-changeset events to the registered listeners
+     */
+    private class ProgressListener extends AbstractChangeExecListener {
+
+        private final MigrationOperation operation;
+        private final Set<String> touchedTables = new TreeSet<>();
+        private long changeSetStart;
+        private MigrationFlightRecorder.Span changeSetSpan;
+
+        ProgressListener(MigrationOperation operation) {
+            this.operation = operation;
+        }
+
+        @Override
+        public void willRun(ChangeSet changeSet, DatabaseChangeLog databaseChangeLog,
+                            Database database, ChangeSet.RunStatus runStatus) {
+            changeSetStart = System.currentTimeMillis();
+            changeSetSpan = MigrationFlightRecorder.script("liquibase", operation, changeSet.toString(false));
+            scriptStarted(operation, changeSet.toString(false));
+        }
+
+        @Override
+        public void ran(ChangeSet changeSet, DatabaseChangeLog databaseChangeLog,
+                        Database database, ChangeSet.ExecType execType) {
+            closeChangeSetSpan(true);
+            scriptCompleted(operation, changeSet.toString(false), System.currentTimeMillis() - changeSetStart);
+        }
+
+        @Override
+        public void runFailed(ChangeSet changeSet, DatabaseChangeLog databaseChangeLog, Database database,
+                              Exception exception) {
+            closeChangeSetSpan(false);
+        }
+
+        private void closeChangeSetSpan(boolean success) {
+            if (changeSetSpan != null) {
+                if (!success) {
+                    changeSetSpan.failed();
+                }
+                changeSetSpan.close();
+                changeSetSpan = null;
+            }
+        }
+
+        @Override
+        public void ran(Change change, ChangeSet changeSet, DatabaseChangeLog changeLog, Database database) {
+            if (operation == MigrationOperation.MIGRATE) {
+                collectTables(change, database, touchedTables);
+            }
+        }
+    }
+
+    /**
+     * Times every change of the pending changesets while they are applied to the clone
+     */
+    private class DryRunListener extends AbstractChangeExecListener {
+
+        private final MigrationDryRun dryRun;
+        private final Set<String> pending;
+        private MigrationDryRun.Script script;
+        private MigrationDryRun.PendingStatement statement;
+        private long changeSetStart;
+        private long changeStart;
+
+        DryRunListener(MigrationDryRun dryRun, Set<String> pending) {
+            this.dryRun = dryRun;
+            this.pending = pending;
+        }
+
+        @Override
+        public void willRun(ChangeSet changeSet, DatabaseChangeLog databaseChangeLog,
+                            Database database, ChangeSet.RunStatus runStatus) {
+            String id = changeSet.toString(false);
+            if (pending.contains(id)) {
+                script = dryRun.startScript(id);
+                changeSetStart = System.currentTimeMillis();
+                scriptStarted(MigrationOperation.DRY_RUN, id);
+            }
+        }
+
+        @Override
+        public void willRun(Change change, ChangeSet changeSet, DatabaseChangeLog changeLog, Database database) {
+            if (script == null) {
+                return;
+            }
+            List<String> sql = new ArrayList<>();
+            // Generating the statements of a custom task would execute it
+            if (change instanceof CustomChangeWrapper) {
+                sql.add(change.getDescription());
+            } else {
+                for (Sql generated : SqlGeneratorFactory.getInstance().generateSql(change, database)) {
+                    sql.add(generated.toSql());
+                }
+            }
+            statement = script.inspect(((JdbcConnection) database.getConnection()).getUnderlyingConnection(), sql);
+            changeStart = System.nanoTime();
+        }
+
+        @Override
+        public void ran(Change change, ChangeSet changeSet, DatabaseChangeLog changeLog, Database database) {
+            if (script != null && statement != null) {
+                script.completed(statement, System.nanoTime() - changeStart);
+                statement = null;
+            }
+        }
+
+        @Override
+        public void ran(ChangeSet changeSet, DatabaseChangeLog databaseChangeLog,
+                        Database database, ChangeSet.ExecType execType) {
+            if (script != null) {
+                script.finish();
+                script = null;
+                String id = changeSet.toString(false);
+                scriptCompleted(MigrationOperation.DRY_RUN, id, System.currentTimeMillis() - changeSetStart);
+            }
+        }
+
+        @Override
+        public void runFailed(ChangeSet changeSet, DatabaseChangeLog databaseChangeLog,
+                              Database database, Exception exception) {
+            if (script != null) {
+                script.failed(exception);
+                script = null;
+            } else {
+                dryRun.failed(exception);
+            }
+        }
+    }
 }
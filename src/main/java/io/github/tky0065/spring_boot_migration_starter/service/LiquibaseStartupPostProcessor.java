@@ -0,0 +1,96 @@
+package io.github.tky0065.spring_boot_migration_starter.service;
+
+import io.github.tky0065.spring_boot_migration_starter.config.MigrationProperties;
+import liquibase.exception.LiquibaseException;
+import liquibase.integration.spring.SpringLiquibase;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Makes the startup Liquibase migration run by Spring Boot wait for the database, and defers it to
+ * the background when a {@link BackgroundMigration} is available. The seed data is loaded once the
+ * schema is up to date.
+ */
+public class LiquibaseStartupPostProcessor implements BeanPostProcessor {
+
+    // Resolved lazily: post-processors are created before regular beans
+    private final ObjectProvider<MigrationProperties> properties;
+    private final ObjectProvider<BackgroundMigration> backgroundMigration;
+    private final ObjectProvider<SeedDataLoader> seedDataLoader;
+    private final Set<String> deferredBeans = new HashSet<>();
+    // The migration runs in afterPropertiesSet, between the two callbacks
+    private final Map<String, MigrationFlightRecorder.Span> migrationSpans = new ConcurrentHashMap<>();
+
+    public LiquibaseStartupPostProcessor(ObjectProvider<MigrationProperties> properties,
+                                         ObjectProvider<BackgroundMigration> backgroundMigration,
+                                         ObjectProvider<SeedDataLoader> seedDataLoader) {
+        this.properties = properties;
+        this.backgroundMigration = backgroundMigration;
+        this.seedDataLoader = seedDataLoader;
+    }
+
+    @Override
+    public Object postProcessBeforeInitialization(Object bean, String beanName) {
+        if (bean instanceof SpringLiquibase liquibase) {
+            if (backgroundMigration.getIfAvailable() != null) {
+                // Skip the migration performed by afterPropertiesSet, it is started once the bean is initialized
+                liquibase.setShouldRun(false);
+                deferredBeans.add(beanName);
+            } else {
+                connectionRetry().await(liquibase.getDataSource());
+                migrationSpans.put(beanName, startupSpan());
+            }
+        }
+        return bean;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof SpringLiquibase liquibase && deferredBeans.remove(beanName)) {
+            backgroundMigration.getObject().start("liquibase", () -> {
+                connectionRetry().await(liquibase.getDataSource());
+                liquibase.setShouldRun(true);
+                try (MigrationFlightRecorder.Span span = startupSpan()) {
+                    try {
+                        liquibase.afterPropertiesSet();
+                    } catch (LiquibaseException e) {
+                        span.failed();
+                        throw new RuntimeException("Failed to update database schema", e);
+                    }
+                }
+                afterMigration(liquibase);
+            });
+        } else if (bean instanceof SpringLiquibase liquibase) {
+            MigrationFlightRecorder.Span span = migrationSpans.remove(beanName);
+            if (span != null) {
+                span.close();
+            }
+            afterMigration(liquibase);
+        }
+        return bean;
+    }
+
+    // The applied changesets are not reported by SpringLiquibase, so only the warm-up runs after it
+    private void afterMigration(SpringLiquibase liquibase) {
+        SeedDataLoader loader = seedDataLoader.getIfAvailable();
+        if (loader != null) {
+            loader.load(liquibase.getDataSource());
+        }
+        new PostMigrationStage(properties.getObject()).warmUp(liquibase.getDataSource());
+    }
+
+    private static MigrationFlightRecorder.Span startupSpan() {
+        MigrationFlightRecorder.Span span = MigrationFlightRecorder.operation(MigrationOperation.MIGRATE, "liquibase");
+        span.setDetail("startup");
+        return span;
+    }
+
+    private ConnectionRetry connectionRetry() {
+        return new ConnectionRetry(properties.getObject().getStartup());
+    }
+}
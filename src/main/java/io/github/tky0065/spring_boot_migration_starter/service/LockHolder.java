@@ -0,0 +1,15 @@
+package io.github.tky0065.spring_boot_migration_starter.service;
+
+/**
+ * A session holding a lock on a table a pending migration changes, found by a {@link LockInspector}
+ *
+ * @param session Identifier of the session, e.g. the PostgreSQL backend pid
+ * @param table Lower-case name of the locked table
+ * @param lockMode Mode of the lock as reported by the database
+ * @param state State of the session, e.g. {@code idle in transaction}
+ * @param transactionMillis Age of the holder's transaction
+ * @param query Last statement of the session, may be null
+ */
+public record LockHolder(String session, String table, String lockMode, String state, long transactionMillis,
+                         String query) {
+}
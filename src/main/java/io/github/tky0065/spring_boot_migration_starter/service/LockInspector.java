@@ -0,0 +1,30 @@
+package io.github.tky0065.spring_boot_migration_starter.service;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Finds the sessions holding locks on tables before a migration changes them. Inspectors declared as
+ * beans are consulted before the built-in ones for PostgreSQL, MySQL and H2.
+ *
+ * @see MigrationPreflight
+ */
+public interface LockInspector {
+
+    /**
+     * @param dialect Dialect of the migrated database
+     * @return Whether this inspector can query the locks of the database
+     */
+    boolean supports(DatabaseDialect dialect);
+
+    /**
+     * Find the other sessions holding a lock on the given tables
+     *
+     * @param connection Connection to the migrated database, its own session must be excluded
+     * @param tables Lower-case names of the tables the pending migrations change
+     * @return The holders, one per session and table
+     */
+    List<LockHolder> findLockHolders(Connection connection, Set<String> tables) throws SQLException;
+}
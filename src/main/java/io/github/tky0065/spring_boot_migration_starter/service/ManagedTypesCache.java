@@ -0,0 +1,233 @@
+package io.github.tky0065.spring_boot_migration_starter.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.tky0065.spring_boot_migration_starter.config.MigrationProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.orm.jpa.persistenceunit.ManagedClassNameFilter;
+import org.springframework.orm.jpa.persistenceunit.PersistenceManagedTypes;
+import org.springframework.orm.jpa.persistenceunit.PersistenceManagedTypesScanner;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.StringUtils;
+
+import javax.sql.DataSource;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.JarURLConnection;
+import java.net.URL;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * Caches the JPA managed types found by the entity scan at startup, keyed by the applied schema
+ * version and a hash of the build holding the entities, so that restarts of the same build on the
+ * same schema skip the classpath scan.
+ * <p>
+ * The build hash covers the classpath roots of the scanned packages: the path, size and modification
+ * time of a jar, which costs a file lookup per root, and the class files of a directory, as in a
+ * development build, which are read. Rebuilding the application invalidates the cache, as does
+ * applying a migration.
+ */
+public class ManagedTypesCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ManagedTypesCache.class);
+
+    /**
+     * Content of the cache file
+     */
+    public record Entry(String schemaVersion, String modelHash, List<String> managedClassNames,
+                        List<String> managedPackages) {
+    }
+
+    private final MigrationProperties properties;
+    private final DataSource dataSource;
+    private final ResourceLoader resourceLoader;
+    private final ManagedClassNameFilter managedClassNameFilter;
+    private final BackgroundMigration backgroundMigration;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * @param managedClassNameFilter Filter applied by the scan, may be null
+     */
+    public ManagedTypesCache(MigrationProperties properties, DataSource dataSource, ResourceLoader resourceLoader,
+                             ManagedClassNameFilter managedClassNameFilter) {
+        this(properties, dataSource, resourceLoader, managedClassNameFilter, null);
+    }
+
+    /**
+     * @param managedClassNameFilter Filter applied by the scan, may be null
+     * @param backgroundMigration Deferred startup migrations, the cache is bypassed until they complete; may be null
+     */
+    public ManagedTypesCache(MigrationProperties properties, DataSource dataSource, ResourceLoader resourceLoader,
+                             ManagedClassNameFilter managedClassNameFilter, BackgroundMigration backgroundMigration) {
+        this.properties = properties;
+        this.dataSource = dataSource;
+        this.resourceLoader = resourceLoader;
+        this.managedClassNameFilter = managedClassNameFilter;
+        this.backgroundMigration = backgroundMigration;
+    }
+
+    /**
+     * Return the cached managed types when both keys match, otherwise scan the packages and store the result
+     *
+     * @param packagesToScan Packages holding the entities
+     * @return The managed types
+     */
+    public PersistenceManagedTypes resolve(String... packagesToScan) {
+        Path path = Paths.get(properties.getMetadataCache().getPath());
+        String schemaVersion;
+        if (backgroundMigration != null && !backgroundMigration.isCompleted()) {
+            // The applied version is about to change, it must not key the cache
+            logger.info("Startup migrations still running, JPA managed types are not cached");
+            schemaVersion = null;
+        } else {
+            schemaVersion = appliedVersion();
+        }
+
+        Entry cached = schemaVersion == null ? null : read(path);
+        String modelHash = schemaVersion == null ? "" : modelHash(packagesToScan);
+        if (cached != null && schemaVersion.equals(cached.schemaVersion())
+                && isCurrent(cached.modelHash(), modelHash)) {
+            logger.info("Reusing {} cached JPA managed types for schema version {}",
+                    cached.managedClassNames().size(), schemaVersion);
+            return PersistenceManagedTypes.of(cached.managedClassNames(), cached.managedPackages());
+        }
+
+        long start = System.currentTimeMillis();
+        PersistenceManagedTypes types = new PersistenceManagedTypesScanner(resourceLoader, managedClassNameFilter)
+                .scan(packagesToScan);
+        logger.info("Scanned {} JPA managed types in {} ms", types.getManagedClassNames().size(),
+                System.currentTimeMillis() - start);
+        if (schemaVersion != null && !modelHash.isEmpty()) {
+            write(path, new Entry(schemaVersion, modelHash,
+                    types.getManagedClassNames(), types.getManagedPackages()));
+        }
+        return types;
+    }
+
+    private static boolean isCurrent(String cachedHash, String modelHash) {
+        return !modelHash.isEmpty() && modelHash.equals(cachedHash);
+    }
+
+    private String appliedVersion() {
+        try (Connection connection = dataSource.getConnection()) {
+            return MigrationHistory.appliedVersion(connection, properties);
+        } catch (SQLException e) {
+            logger.warn("Could not read the applied schema version, JPA managed types are not cached", e);
+            return null;
+        }
+    }
+
+    private Entry read(Path path) {
+        if (!Files.isReadable(path)) {
+            return null;
+        }
+        try {
+            return objectMapper.readValue(path.toFile(), Entry.class);
+        } catch (IOException e) {
+            logger.warn("Ignoring unreadable JPA managed types cache {}", path, e);
+            return null;
+        }
+    }
+
+    private void write(Path path, Entry entry) {
+        try {
+            Path directory = path.toAbsolutePath().getParent();
+            Files.createDirectories(directory);
+            // Written aside then moved, so that concurrent starts never read a partial file
+            Path temp = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+            objectMapper.writeValue(temp.toFile(), entry);
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            logger.debug("Cached JPA managed types for schema version {} in {}", entry.schemaVersion(), path);
+        } catch (IOException e) {
+            logger.warn("Could not write the JPA managed types cache {}", path, e);
+        }
+    }
+
+    /**
+     * Hash the classpath roots of the packages: jars by their path, size and modification time,
+     * directories by the names and bytecode of their class files
+     */
+    String modelHash(String[] packagesToScan) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            ClassLoader classLoader = Objects.requireNonNullElse(resourceLoader.getClassLoader(),
+                    ClassUtils.getDefaultClassLoader());
+            PathMatchingResourcePatternResolver resolver = new PathMatchingResourcePatternResolver(resourceLoader);
+            for (String basePackage : packagesToScan) {
+                String packagePath = ClassUtils.convertClassNameToResourcePath(basePackage);
+                digest.update(packagePath.getBytes(StandardCharsets.UTF_8));
+                List<URL> roots = Collections.list(classLoader.getResources(packagePath));
+                roots.sort(Comparator.comparing(URL::toString));
+                for (URL root : roots) {
+                    File archive = archiveFile(root);
+                    if (archive != null) {
+                        digest.update((archive.getAbsolutePath() + ":" + archive.length() + ":"
+                                + archive.lastModified()).getBytes(StandardCharsets.UTF_8));
+                    } else {
+                        hashClassFiles(digest, resolver, root, packagePath);
+                    }
+                }
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (IOException e) {
+            logger.warn("Could not hash the entity model of {}", Arrays.toString(packagesToScan), e);
+            return "";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static void hashClassFiles(MessageDigest digest, PathMatchingResourcePatternResolver resolver, URL root,
+                                       String packagePath) throws IOException {
+        String rootUrl = StringUtils.trimTrailingCharacter(root.toString(), '/');
+        Map<String, Resource> classFiles = new TreeMap<>();
+        for (Resource classFile : resolver.getResources(rootUrl + "/**/*.class")) {
+            String url = classFile.getURL().toString();
+            classFiles.put(url.substring(url.indexOf(packagePath)), classFile);
+        }
+        for (Map.Entry<String, Resource> classFile : classFiles.entrySet()) {
+            digest.update(classFile.getKey().getBytes(StandardCharsets.UTF_8));
+            try (InputStream in = classFile.getValue().getInputStream()) {
+                digest.update(in.readAllBytes());
+            }
+        }
+    }
+
+    /**
+     * @return The jar holding a classpath root, including the outer jar of a Spring Boot executable
+     * jar, or null for a directory
+     */
+    private static File archiveFile(URL root) throws IOException {
+        if (!(root.openConnection() instanceof JarURLConnection connection)) {
+            return null;
+        }
+        URL jarFileUrl = connection.getJarFileURL();
+        String path = URLDecoder.decode(jarFileUrl.getPath(), StandardCharsets.UTF_8);
+        if ("nested".equals(jarFileUrl.getProtocol()) && path.contains("/!")) {
+            path = path.substring(0, path.indexOf("/!"));
+        }
+        File file = new File(path);
+        return file.isFile() ? file : null;
+    }
+}
@@ -0,0 +1,355 @@
+package io.github.tky0065.spring_boot_migration_starter.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.tky0065.spring_boot_migration_starter.config.MigrationProperties;
+import io.github.tky0065.spring_boot_migration_starter.service.MigrationDryRunReport.Finding;
+import io.github.tky0065.spring_boot_migration_starter.service.MigrationDryRunReport.ScriptReport;
+import io.github.tky0065.spring_boot_migration_starter.service.MigrationDryRunReport.StatementReport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.StringUtils;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * A dry-run session: the pending migrations are applied to a throwaway clone of the target
+ * database and every statement is timed. The duration of statements scanning or rewriting a
+ * whole table is extrapolated to the row count of that table on the target.
+ * <p>
+ * The clone is either the database configured with {@code db.migration.dry-run.url}, typically a
+ * restored snapshot, or an in-memory H2 database in the compatibility mode of the target.
+ */
+public class MigrationDryRun implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(MigrationDryRun.class);
+
+    private static final int MAX_REPORTED_STATEMENTS = 100;
+    private static final int MAX_SQL_LENGTH = 500;
+    // Timings measured on fewer rows say nothing about the target
+    private static final long MIN_SAMPLE_ROWS = 1000;
+
+    private final MigrationProperties.DryRun configuration;
+    private final String tool;
+    private final DataSource target;
+    private final DatabaseDialect targetDialect;
+    private final String targetDatabase;
+    private final DataSource clone;
+    private final DatabaseDialect cloneDialect;
+    private final String cloneDatabase;
+    private final boolean temporaryClone;
+    private final DatabaseSchemaReader schemaReader;
+    private final Map<String, Long> targetRows = new HashMap<>();
+    private final List<ScriptReport> scripts = new ArrayList<>();
+    private String error;
+
+    /**
+     * @param properties Migration properties
+     * @param target The database the migrations are meant for, only read
+     * @param tool Name of the migration tool, for the report
+     */
+    public MigrationDryRun(MigrationProperties properties, DataSource target, String tool) throws SQLException {
+        this.configuration = properties.getDryRun();
+        this.tool = tool;
+        this.target = target;
+        this.schemaReader = new DatabaseSchemaReader(properties.getSchema());
+
+        try (Connection connection = target.getConnection()) {
+            this.targetDialect = DatabaseDialect.of(connection);
+            this.targetDatabase = describe(connection);
+        }
+
+        if (StringUtils.hasText(configuration.getUrl())) {
+            this.clone = new DriverManagerDataSource(configuration.getUrl(),
+                    configuration.getUsername(), configuration.getPassword());
+            this.temporaryClone = false;
+        } else {
+            if (!ClassUtils.isPresent("org.h2.Driver", getClass().getClassLoader())) {
+                throw new IllegalStateException(
+                        "A dry run requires H2 on the classpath or a clone configured with db.migration.dry-run.url");
+            }
+            this.clone = new DriverManagerDataSource(h2Url(targetDialect));
+            this.temporaryClone = true;
+        }
+
+        try (Connection connection = clone.getConnection()) {
+            this.cloneDialect = DatabaseDialect.of(connection);
+            this.cloneDatabase = describe(connection);
+            if (temporaryClone && StringUtils.hasText(properties.getSchema())) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("CREATE SCHEMA IF NOT EXISTS " + properties.getSchema());
+                }
+            }
+        }
+        logger.info("Dry run of {} migrations for {} on {}", tool, targetDatabase, cloneDatabase);
+    }
+
+    /**
+     * @return The database the pending migrations are applied to
+     */
+    public DataSource getClone() {
+        return clone;
+    }
+
+    /**
+     * Execute every statement of a script on the clone, one at a time
+     *
+     * @param name Script name, for the report
+     * @param reader The script content
+     * @return false if a statement failed, in which case the following scripts should not be profiled
+     */
+    public boolean profileScript(String name, Reader reader) throws IOException {
+        Script script = startScript(name);
+        try (Connection connection = clone.getConnection(); Statement statement = connection.createStatement()) {
+            SqlStatementSplitter splitter = new SqlStatementSplitter(reader, DatabaseDialect.of(connection));
+            String sql;
+            while ((sql = splitter.nextStatement()) != null) {
+                PendingStatement pending = script.inspect(connection, List.of(sql));
+                long start = System.nanoTime();
+                statement.execute(sql);
+                script.completed(pending, System.nanoTime() - start);
+            }
+        } catch (SQLException e) {
+            script.failed(e);
+            return false;
+        }
+        script.finish();
+        return true;
+    }
+
+    /**
+     * Start profiling a script whose statements are executed by the caller
+     *
+     * @param name Script name, for the report
+     * @return The script being profiled
+     */
+    public Script startScript(String name) {
+        return new Script(name);
+    }
+
+    /**
+     * Record a script that cannot be profiled, e.g. a Java migration
+     */
+    public void skipScript(String name, String reason) {
+        logger.warn("Dry run skipped {}: {}", name, reason);
+        scripts.add(new ScriptReport(name, 0, 0, 0, reason, null, List.of()));
+    }
+
+    /**
+     * Record a failure which did not happen in a profiled script
+     */
+    public void failed(Exception e) {
+        if (error == null) {
+            error = String.valueOf(e.getMessage());
+        }
+    }
+
+    /**
+     * Write the JSON report
+     *
+     * @return The report
+     * @throws IllegalStateException if a statement failed or the estimated time exceeds the budget,
+     *                               once the report is written
+     */
+    public MigrationDryRunReport finish() throws IOException {
+        double duration = 0;
+        double estimated = 0;
+        int flagged = 0;
+        for (ScriptReport script : scripts) {
+            duration += script.durationMillis();
+            estimated += script.estimatedMillis();
+            flagged += (int) script.statements().stream().filter(s -> !s.findings().isEmpty()).count();
+        }
+
+        MigrationDryRunReport report = new MigrationDryRunReport(tool, targetDatabase, cloneDatabase,
+                Instant.now().toString(), round(duration), round(estimated), configuration.getMaxEstimatedMillis(),
+                flagged, error, List.copyOf(scripts));
+
+        Path path = Path.of(configuration.getReportPath()).toAbsolutePath();
+        Files.createDirectories(path.getParent());
+        new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(path.toFile(), report);
+        logger.info("Dry run of {} scripts: {} ms measured, {} ms estimated on the target, {} flagged statements. Report written to {}",
+                scripts.size(), report.durationMillis(), report.estimatedMillis(), flagged, path);
+
+        if (error != null) {
+            throw new IllegalStateException("Dry run failed: " + error);
+        }
+        if (!report.isWithinBudget()) {
+            throw new IllegalStateException(String.format("Estimated migration time of %.0f ms exceeds the budget of %d ms",
+                    report.estimatedMillis(), report.maxEstimatedMillis()));
+        }
+        return report;
+    }
+
+    @Override
+    public void close() {
+        if (!temporaryClone) {
+            return;
+        }
+        try (Connection connection = clone.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("SHUTDOWN");
+        } catch (SQLException e) {
+            logger.warn("Could not shut down the dry run database", e);
+        }
+    }
+
+    /**
+     * A statement inspected before its execution
+     *
+     * @param sql The statement(s)
+     * @param matches Whole-table operations detected
+     * @param cloneRows Rows of the affected tables on the clone, before execution
+     */
+    public record PendingStatement(String sql, List<FullTableStatementDetector.Match> matches,
+                                   Map<String, Long> cloneRows) {
+    }
+
+    /**
+     * Timings of the statements of one script or changeset
+     */
+    public class Script {
+
+        private final String name;
+        private final List<StatementReport> statements = new ArrayList<>();
+        private long statementCount;
+        private int unflaggedReported;
+        private double durationMillis;
+        private double estimatedMillis;
+
+        private Script(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Analyze statements about to be executed
+         *
+         * @param connection Connection to the clone
+         * @param sql Statements executed as one unit
+         */
+        public PendingStatement inspect(Connection connection, List<String> sql) {
+            List<FullTableStatementDetector.Match> matches = new ArrayList<>();
+            for (String statement : sql) {
+                matches.addAll(FullTableStatementDetector.detect(statement));
+            }
+            Map<String, Long> cloneRows = new HashMap<>();
+            for (FullTableStatementDetector.Match match : matches) {
+                cloneRows.computeIfAbsent(match.table(), table -> countRows(connection, cloneDialect, table));
+            }
+            return new PendingStatement(String.join(";\n", sql), matches, cloneRows);
+        }
+
+        /**
+         * Record the execution of inspected statements
+         *
+         * @param pending The inspected statements
+         * @param durationNanos Execution time on the clone
+         */
+        public void completed(PendingStatement pending, long durationNanos) {
+            double millis = durationNanos / 1_000_000.0;
+            double factor = 1;
+            List<Finding> findings = new ArrayList<>();
+            List<String> warnings = new ArrayList<>();
+            for (FullTableStatementDetector.Match match : pending.matches()) {
+                long cloneRows = pending.cloneRows().get(match.table());
+                long rows = targetRows(match.table());
+                findings.add(new Finding(match.table(), match.reason(), cloneRows, rows));
+                if (rows < 0) {
+                    warnings.add("Row count of " + match.table() + " on the target is unknown");
+                } else if (rows > cloneRows && cloneRows < MIN_SAMPLE_ROWS) {
+                    warnings.add("Only " + Math.max(cloneRows, 0) + " rows of " + match.table()
+                            + " on the clone, duration not extrapolated to " + rows + " rows");
+                } else if (rows > cloneRows) {
+                    factor = Math.max(factor, (double) rows / cloneRows);
+                }
+            }
+
+            double estimated = millis * factor;
+            statementCount++;
+            durationMillis += millis;
+            estimatedMillis += estimated;
+            if (!findings.isEmpty() || unflaggedReported++ < MAX_REPORTED_STATEMENTS) {
+                statements.add(new StatementReport(abbreviate(pending.sql()), round(millis), round(estimated),
+                        findings, warnings));
+            }
+        }
+
+        /**
+         * Record the failure of the script, which ends the dry run
+         */
+        public void failed(Exception e) {
+            logger.error("Dry run failed on {}", name, e);
+            scripts.add(report(String.valueOf(e.getMessage())));
+            MigrationDryRun.this.failed(e);
+        }
+
+        public void finish() {
+            scripts.add(report(null));
+        }
+
+        private ScriptReport report(String scriptError) {
+            return new ScriptReport(name, statementCount, round(durationMillis), round(estimatedMillis),
+                    null, scriptError, List.copyOf(statements));
+        }
+    }
+
+    private long targetRows(String table) {
+        return targetRows.computeIfAbsent(table, name -> {
+            try (Connection connection = target.getConnection()) {
+                return countRows(connection, targetDialect, name);
+            } catch (SQLException e) {
+                logger.warn("Could not estimate the row count of {} on the target", name, e);
+                return -1L;
+            }
+        });
+    }
+
+    private long countRows(Connection connection, DatabaseDialect dialect, String table) {
+        try {
+            String actualName = schemaReader.listTables(connection).get(table);
+            return actualName != null ? schemaReader.estimateRowCount(connection, dialect, actualName) : -1;
+        } catch (SQLException e) {
+            logger.warn("Could not count the rows of {}", table, e);
+            return -1;
+        }
+    }
+
+    private static String h2Url(DatabaseDialect dialect) {
+        String mode = switch (dialect) {
+            case POSTGRESQL -> ";MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH";
+            case MYSQL -> ";MODE=MySQL;DATABASE_TO_LOWER=TRUE";
+            case MARIADB -> ";MODE=MariaDB;DATABASE_TO_LOWER=TRUE";
+            case ORACLE -> ";MODE=Oracle";
+            case SQLSERVER -> ";MODE=MSSQLServer";
+            default -> "";
+        };
+        return "jdbc:h2:mem:migration-dry-run-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1" + mode;
+    }
+
+    private static String describe(Connection connection) throws SQLException {
+        DatabaseMetaData metaData = connection.getMetaData();
+        return metaData.getDatabaseProductName() + " " + metaData.getDatabaseProductVersion();
+    }
+
+    private static String abbreviate(String sql) {
+        return sql.length() <= MAX_SQL_LENGTH ? sql : sql.substring(0, MAX_SQL_LENGTH) + "...";
+    }
+
+    private static double round(double millis) {
+        return Math.round(millis * 1000) / 1000.0;
+    }
+}
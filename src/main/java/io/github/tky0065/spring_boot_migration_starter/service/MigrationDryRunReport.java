@@ -0,0 +1,53 @@
+package io.github.tky0065.spring_boot_migration_starter.service;
+
+import java.util.List;
+
+/**
+ * Result of a {@link MigrationService#dryRun() dry run}: measured duration of every pending statement
+ * on the clone, and its estimated duration on the target database.
+ *
+ * @param tool Migration tool (flyway or liquibase)
+ * @param targetDatabase Product and version of the target database
+ * @param cloneDatabase Product and version of the database the migrations were applied to
+ * @param generatedAt ISO-8601 timestamp of the run
+ * @param durationMillis Total time measured on the clone
+ * @param estimatedMillis Total time estimated on the target
+ * @param maxEstimatedMillis Configured budget, 0 when none
+ * @param flaggedStatements Number of statements scanning or rewriting whole tables
+ * @param error First error raised on the clone, null when every statement succeeded
+ * @param scripts Pending scripts (Flyway) or changesets (Liquibase), in execution order
+ */
+public record MigrationDryRunReport(String tool, String targetDatabase, String cloneDatabase, String generatedAt,
+                                    double durationMillis, double estimatedMillis, long maxEstimatedMillis,
+                                    int flaggedStatements, String error, List<ScriptReport> scripts) {
+
+    public boolean isWithinBudget() {
+        return maxEstimatedMillis <= 0 || estimatedMillis <= maxEstimatedMillis;
+    }
+
+    /**
+     * @param statementCount Number of statements executed, including those omitted from {@code statements}
+     * @param skipped Why the script was not profiled, null when it was
+     * @param statements Flagged statements, and the first others up to a fixed limit
+     */
+    public record ScriptReport(String script, long statementCount, double durationMillis, double estimatedMillis,
+                               String skipped, String error, List<StatementReport> statements) {
+    }
+
+    /**
+     * @param sql The statement, abbreviated. For Liquibase, the SQL generated for one change.
+     * @param findings Whole-table operations detected in the statement
+     * @param warnings Why the estimate may be inaccurate
+     */
+    public record StatementReport(String sql, double durationMillis, double estimatedMillis,
+                                  List<Finding> findings, List<String> warnings) {
+    }
+
+    /**
+     * @param table The table being scanned or rewritten
+     * @param cloneRows Rows in the table on the clone before the statement, -1 if unknown
+     * @param targetRows Estimated rows in the table on the target, -1 if unknown
+     */
+    public record Finding(String table, String reason, long cloneRows, long targetRows) {
+    }
+}
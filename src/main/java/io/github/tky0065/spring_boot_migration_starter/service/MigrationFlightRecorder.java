@@ -0,0 +1,212 @@
+package io.github.tky0065.spring_boot_migration_starter.service;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import org.springframework.util.ClassUtils;
+
+import java.util.Locale;
+
+/**
+ * Java Flight Recorder events of the starter: one {@value #PHASE_EVENT} event per phase (auto-configuration,
+ * entity scanning, schema diffing, template generation, tool configuration, checksum validation and
+ * operations) and one {@value #SCRIPT_EVENT} event per applied script or changeset.
+ * <p>
+ * The events are enabled by default and cost a disabled check when no recording is running. Runtimes
+ * without the {@code jdk.jfr} module get no-op spans.
+ */
+public final class MigrationFlightRecorder {
+
+    public static final String PHASE_EVENT = "io.github.tky0065.migration.Phase";
+    public static final String SCRIPT_EVENT = "io.github.tky0065.migration.Script";
+
+    public static final String AUTO_CONFIGURATION = "auto-configuration";
+    public static final String ENTITY_SCAN = "entity-scan";
+    public static final String SCHEMA_DIFF = "schema-diff";
+    public static final String TEMPLATE_GENERATION = "template-generation";
+    public static final String CONFIGURATION = "configuration";
+    public static final String CHECKSUM_VALIDATION = "checksum-validation";
+
+    private static final boolean AVAILABLE = ClassUtils.isPresent("jdk.jfr.Event",
+            MigrationFlightRecorder.class.getClassLoader());
+
+    private static final Span NOOP = new Span() {
+        @Override
+        public void setDetail(String detail) {
+        }
+
+        @Override
+        public void failed() {
+        }
+
+        @Override
+        public void close() {
+        }
+    };
+
+    private MigrationFlightRecorder() {
+    }
+
+    /**
+     * A timed event, committed when closed
+     */
+    public interface Span extends AutoCloseable {
+
+        void setDetail(String detail);
+
+        void failed();
+
+        @Override
+        void close();
+    }
+
+    /**
+     * Start timing a phase
+     *
+     * @param phase Phase name, e.g. {@link #ENTITY_SCAN}
+     * @param tool Migration tool, or null when the phase does not depend on it
+     * @return The span to close at the end of the phase
+     */
+    public static Span phase(String phase, String tool) {
+        return AVAILABLE ? PhaseSpan.start(phase, tool) : NOOP;
+    }
+
+    /**
+     * Start timing an operation, reported as a phase named after it
+     */
+    public static Span operation(MigrationOperation operation, String tool) {
+        return phase(operation.name().toLowerCase(Locale.ROOT).replace('_', '-'), tool);
+    }
+
+    /**
+     * Start timing a script or changeset
+     *
+     * @param tool Migration tool
+     * @param operation Operation applying the script
+     * @param script Script name or changeset identifier
+     * @return The span to close once the script is applied, after {@link Span#failed()} if it failed
+     */
+    public static Span script(String tool, MigrationOperation operation, String script) {
+        return AVAILABLE ? ScriptSpan.start(tool, operation, script) : NOOP;
+    }
+
+    // Loaded only when jdk.jfr is available
+    private static final class PhaseSpan implements Span {
+
+        private final PhaseEvent event;
+
+        private PhaseSpan(PhaseEvent event) {
+            this.event = event;
+        }
+
+        static Span start(String phase, String tool) {
+            PhaseEvent event = new PhaseEvent();
+            if (!event.isEnabled()) {
+                return NOOP;
+            }
+            event.phase = phase;
+            event.tool = tool;
+            event.begin();
+            return new PhaseSpan(event);
+        }
+
+        @Override
+        public void setDetail(String detail) {
+            event.detail = detail;
+        }
+
+        @Override
+        public void failed() {
+            event.success = false;
+        }
+
+        @Override
+        public void close() {
+            event.end();
+            if (event.shouldCommit()) {
+                event.commit();
+            }
+        }
+    }
+
+    private static final class ScriptSpan implements Span {
+
+        private final ScriptEvent event;
+
+        private ScriptSpan(ScriptEvent event) {
+            this.event = event;
+        }
+
+        static Span start(String tool, MigrationOperation operation, String script) {
+            ScriptEvent event = new ScriptEvent();
+            if (!event.isEnabled()) {
+                return NOOP;
+            }
+            event.tool = tool;
+            event.operation = operation.name();
+            event.script = script;
+            event.begin();
+            return new ScriptSpan(event);
+        }
+
+        @Override
+        public void setDetail(String detail) {
+        }
+
+        @Override
+        public void failed() {
+            event.success = false;
+        }
+
+        @Override
+        public void close() {
+            event.end();
+            if (event.shouldCommit()) {
+                event.commit();
+            }
+        }
+    }
+
+    @Name(PHASE_EVENT)
+    @Label("Migration Phase")
+    @Category("Spring Boot Migration Starter")
+    @Description("A phase of the migration starter, from the auto-configuration to the migration operations")
+    @StackTrace(false)
+    static class PhaseEvent extends Event {
+
+        @Label("Phase")
+        String phase;
+
+        @Label("Tool")
+        String tool;
+
+        @Label("Detail")
+        String detail;
+
+        @Label("Success")
+        boolean success = true;
+    }
+
+    @Name(SCRIPT_EVENT)
+    @Label("Migration Script")
+    @Category("Spring Boot Migration Starter")
+    @Description("A Flyway script or Liquibase changeset applied to the database")
+    @StackTrace(false)
+    static class ScriptEvent extends Event {
+
+        @Label("Tool")
+        String tool;
+
+        @Label("Operation")
+        String operation;
+
+        @Label("Script")
+        String script;
+
+        @Label("Success")
+        boolean success = true;
+    }
+}
@@ -0,0 +1,86 @@
+package io.github.tky0065.spring_boot_migration_starter.service;
+
+import io.github.tky0065.spring_boot_migration_starter.config.MigrationProperties;
+import org.springframework.util.StringUtils;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Locale;
+
+/**
+ * Reads the history table of the configured migration tool
+ */
+public final class MigrationHistory {
+
+    private MigrationHistory() {
+    }
+
+    /**
+     * @return Lower-case name of the history table, {@code flyway_schema_history} or {@code databasechangelog}
+     */
+    public static String tableName(MigrationProperties properties) {
+        String table = isLiquibase(properties) ? "databasechangelog"
+                : properties.getFlywayProperties().getOrDefault("flyway.table", "flyway_schema_history");
+        return table.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Identify the applied schema version
+     *
+     * @param connection Connection to the migrated database
+     * @param properties Migration settings
+     * @return The version, or null when no migration has been applied
+     */
+    public static String appliedVersion(Connection connection, MigrationProperties properties) throws SQLException {
+        String actualName = new DatabaseSchemaReader(properties.getSchema())
+                .listTables(connection).get(tableName(properties));
+        return actualName == null ? null : appliedVersion(connection, properties, actualName);
+    }
+
+    /**
+     * Identify the applied schema version by the number of applied migrations and the rank of the
+     * last one, which change with every applied, repaired or removed migration
+     *
+     * @param connection Connection to the migrated database
+     * @param properties Migration settings
+     * @param actualName Name of the history table as stored in the catalog
+     * @return The version, or null when no migration has been applied
+     */
+    public static String appliedVersion(Connection connection, MigrationProperties properties,
+                                        String actualName) throws SQLException {
+        DatabaseSchemaReader schemaReader = new DatabaseSchemaReader(properties.getSchema());
+        DatabaseMetaData metaData = connection.getMetaData();
+        String schema = schemaReader.resolveSchema(connection);
+
+        // Flyway quotes its identifiers, so their case depends on the database
+        String rank = isLiquibase(properties) ? "orderexecuted" : "installed_rank";
+        String rankColumn = null;
+        try (ResultSet rs = metaData.getColumns(connection.getCatalog(), schema, actualName, null)) {
+            while (rs.next() && rankColumn == null) {
+                if (rank.equalsIgnoreCase(rs.getString("COLUMN_NAME"))) {
+                    rankColumn = rs.getString("COLUMN_NAME");
+                }
+            }
+        }
+        if (rankColumn == null) {
+            return null;
+        }
+
+        String quote = metaData.getIdentifierQuoteString().trim();
+        String table = quote + actualName + quote;
+        if (StringUtils.hasText(properties.getSchema())) {
+            table = quote + schema + quote + "." + table;
+        }
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT COUNT(*), MAX(" + quote + rankColumn + quote + ") FROM " + table)) {
+            return rs.next() && rs.getLong(1) > 0 ? rs.getLong(1) + "/" + rs.getLong(2) : null;
+        }
+    }
+
+    private static boolean isLiquibase(MigrationProperties properties) {
+        return "liquibase".equalsIgnoreCase(properties.getType());
+    }
+}
@@ -0,0 +1,161 @@
+package io.github.tky0065.spring_boot_migration_starter.service;
+
+import org.springframework.aot.AotDetector;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.StringUtils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Entities and classpath migration resources resolved at build time by the AOT processing, so that
+ * an AOT-processed or native application does not scan the classpath. The index lists one
+ * {@code entity:} or {@code resource:} entry per line.
+ */
+public final class MigrationIndex {
+
+    public static final String LOCATION = "META-INF/spring-boot-migration-starter/migration-index";
+
+    private static final String ENTITY = "entity:";
+    private static final String RESOURCE = "resource:";
+
+    private final List<String> entityClassNames;
+    private final List<String> resources;
+    private final AntPathMatcher matcher = new AntPathMatcher();
+
+    /**
+     * @param entityClassNames Names of the entity classes
+     * @param resources Classpath paths of the migration resources, e.g. {@code db/migration/V1__init.sql}
+     */
+    public MigrationIndex(Collection<String> entityClassNames, Collection<String> resources) {
+        this.entityClassNames = List.copyOf(new TreeSet<>(entityClassNames));
+        this.resources = List.copyOf(new TreeSet<>(resources));
+    }
+
+    /**
+     * Scan the classpath for the entities and the files of the classpath locations
+     *
+     * @param classLoader Class loader of the application
+     * @param entityPackages Packages to scan for entities
+     * @param locations Migration locations, only {@code classpath:} ones are indexed
+     * @return The index
+     */
+    public static MigrationIndex build(ClassLoader classLoader, Collection<String> entityPackages,
+                                       Collection<String> locations) throws IOException {
+        List<String> entities = new EntityScanner(classLoader).scan(entityPackages).stream()
+                .map(EntityDescriptor::getClassName)
+                .toList();
+
+        ResourcePatternResolver resolver = new PathMatchingResourcePatternResolver(classLoader);
+        List<String> resources = new ArrayList<>();
+        for (String location : locations) {
+            String path = classpathPath(location);
+            if (path == null) {
+                continue;
+            }
+            // Relative paths are taken from each root, a location may span several jars
+            for (Resource root : resolver.getResources("classpath*:" + path + "/")) {
+                String rootUrl = root.getURL().toString();
+                for (Resource file : resolver.getResources(rootUrl + "**/*")) {
+                    String url = file.getURL().toString();
+                    if (file.isReadable() && url.startsWith(rootUrl) && !url.endsWith("/")) {
+                        resources.add(path + "/" + url.substring(rootUrl.length()));
+                    }
+                }
+            }
+        }
+        return new MigrationIndex(entities, resources);
+    }
+
+    /**
+     * Read the index generated at build time, when running with AOT-generated artifacts
+     *
+     * @param classLoader Class loader of the application
+     * @return The index, or null when the application does not run with AOT-generated artifacts
+     */
+    public static MigrationIndex load(ClassLoader classLoader) {
+        if (!AotDetector.useGeneratedArtifacts()) {
+            return null;
+        }
+        ClassLoader loader = classLoader != null ? classLoader : MigrationIndex.class.getClassLoader();
+        try (InputStream in = loader.getResourceAsStream(LOCATION)) {
+            return in != null ? read(in) : null;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read " + LOCATION, e);
+        }
+    }
+
+    public static MigrationIndex read(InputStream in) throws IOException {
+        List<String> entities = new ArrayList<>();
+        List<String> resources = new ArrayList<>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.startsWith(ENTITY)) {
+                entities.add(line.substring(ENTITY.length()));
+            } else if (line.startsWith(RESOURCE)) {
+                resources.add(line.substring(RESOURCE.length()));
+            }
+        }
+        return new MigrationIndex(entities, resources);
+    }
+
+    public String write() {
+        StringBuilder content = new StringBuilder();
+        entityClassNames.forEach(name -> content.append(ENTITY).append(name).append('\n'));
+        resources.forEach(path -> content.append(RESOURCE).append(path).append('\n'));
+        return content.toString();
+    }
+
+    public List<String> getEntityClassNames() {
+        return entityClassNames;
+    }
+
+    public List<String> getResources() {
+        return resources;
+    }
+
+    /**
+     * Find the indexed resources of a location matching an Ant-style pattern
+     *
+     * @param location Migration location, only {@code classpath:} ones are indexed
+     * @param filePattern Pattern relative to the location
+     * @return The classpath paths of the matching resources
+     */
+    public List<String> findResources(String location, String filePattern) {
+        String path = classpathPath(location);
+        if (path == null) {
+            return List.of();
+        }
+        String pattern = path + "/" + filePattern;
+        return resources.stream().filter(resource -> matcher.match(pattern, resource)).toList();
+    }
+
+    /**
+     * @return The classpath directory of a location, or null when it is not a classpath location
+     */
+    public static String classpathPath(String location) {
+        String path;
+        if (location.startsWith("classpath:")) {
+            path = location.substring("classpath:".length());
+        } else if (location.startsWith("classpath*:")) {
+            path = location.substring("classpath*:".length());
+        } else if (!location.contains(":")) {
+            path = location;
+        } else {
+            return null;
+        }
+        return StringUtils.trimTrailingCharacter(StringUtils.trimLeadingCharacter(path, '/'), '/');
+    }
+}
@@ -0,0 +1,92 @@
+package io.github.tky0065.spring_boot_migration_starter.service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * A migration operation running in the background, started through {@link MigrationJobService}.
+ * Instances are mutated by the job thread and read by pollers, hence the synchronized accessors.
+ */
+public class MigrationJob {
+
+    public enum Status {
+        RUNNING,
+        SUCCEEDED,
+        FAILED
+    }
+
+    /**
+     * Progress of a single script or changeset
+     */
+    public record ScriptProgress(String script, boolean completed, Long durationMillis) {
+    }
+
+    /**
+     * Immutable view of a job, safe to serialize
+     */
+    public record Snapshot(String id, MigrationOperation operation, Status status, Instant startedAt,
+                           Instant finishedAt, Long durationMillis, String error,
+                           List<ScriptProgress> scripts) {
+    }
+
+    private final String id = UUID.randomUUID().toString();
+    private final MigrationOperation operation;
+    private final Instant startedAt = Instant.now();
+    private final List<ScriptProgress> scripts = new ArrayList<>();
+    private Status status = Status.RUNNING;
+    private Instant finishedAt;
+    private String error;
+    private Thread thread;
+
+    MigrationJob(MigrationOperation operation) {
+        this.operation = operation;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public MigrationOperation getOperation() {
+        return operation;
+    }
+
+    synchronized void scriptStarted(String script) {
+        scripts.add(new ScriptProgress(script, false, null));
+    }
+
+    synchronized void scriptCompleted(String script, long durationMillis) {
+        for (int i = scripts.size() - 1; i >= 0; i--) {
+            if (scripts.get(i).script().equals(script) && !scripts.get(i).completed()) {
+                scripts.set(i, new ScriptProgress(script, true, durationMillis));
+                return;
+            }
+        }
+        scripts.add(new ScriptProgress(script, true, durationMillis));
+    }
+
+    synchronized void succeeded() {
+        status = Status.SUCCEEDED;
+        finishedAt = Instant.now();
+    }
+
+    synchronized void failed(Throwable cause) {
+        status = Status.FAILED;
+        finishedAt = Instant.now();
+        error = cause.getMessage() != null ? cause.getMessage() : cause.getClass().getName();
+    }
+
+    void setThread(Thread thread) {
+        this.thread = thread;
+    }
+
+    boolean runsOn(Thread candidate) {
+        return thread == candidate;
+    }
+
+    public synchronized Snapshot snapshot() {
+        Long duration = finishedAt != null ? finishedAt.toEpochMilli() - startedAt.toEpochMilli() : null;
+        return new Snapshot(id, operation, status, startedAt, finishedAt, duration, error, List.copyOf(scripts));
+    }
+}
@@ -0,0 +1,118 @@
+package io.github.tky0065.spring_boot_migration_starter.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs {@link MigrationService} operations as background jobs on virtual threads.
+ * Only one job may run at a time; progress is collected through the {@link MigrationListener} callbacks.
+ */
+public class MigrationJobService implements MigrationListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(MigrationJobService.class);
+    private static final int MAX_RETAINED_JOBS = 20;
+
+    private final MigrationService migrationService;
+    private final AtomicReference<MigrationJob> runningJob = new AtomicReference<>();
+    private final Map<String, MigrationJob> jobs = new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, MigrationJob> eldest) {
+            return size() > MAX_RETAINED_JOBS;
+        }
+    };
+
+    public MigrationJobService(MigrationService migrationService) {
+        this.migrationService = migrationService;
+    }
+
+    /**
+     * Start an operation in the background
+     *
+     * @param operation The operation to run
+     * @return The started job, or empty if another job is still running
+     */
+    public Optional<MigrationJob> start(MigrationOperation operation) {
+        MigrationJob job = new MigrationJob(operation);
+        if (!runningJob.compareAndSet(null, job)) {
+            logger.warn("Migration job {} is already running, refusing to start {}",
+                    runningJob.get().getId(), operation);
+            return Optional.empty();
+        }
+        synchronized (jobs) {
+            jobs.put(job.getId(), job);
+        }
+
+        Thread thread = Thread.ofVirtual()
+                .name("migration-job-" + job.getId())
+                .unstarted(() -> execute(job));
+        job.setThread(thread);
+        logger.info("Starting migration job {} ({})", job.getId(), operation);
+        thread.start();
+        return Optional.of(job);
+    }
+
+    private void execute(MigrationJob job) {
+        try {
+            switch (job.getOperation()) {
+                case MIGRATE -> migrationService.migrate();
+                case VALIDATE -> migrationService.validate();
+                case REPAIR -> migrationService.repair();
+                case DRY_RUN -> migrationService.dryRun();
+            }
+            job.succeeded();
+            logger.info("Migration job {} completed successfully", job.getId());
+        } catch (Throwable e) {
+            // Errors too, e.g. a missing driver class: the job would otherwise be left running. The job
+            // records the failure, the job thread ends here.
+            job.failed(e);
+            logger.error("Migration job {} failed", job.getId(), e);
+        } finally {
+            runningJob.set(null);
+        }
+    }
+
+    public Optional<MigrationJob> findJob(String id) {
+        synchronized (jobs) {
+            return Optional.ofNullable(jobs.get(id));
+        }
+    }
+
+    public Optional<MigrationJob> getRunningJob() {
+        return Optional.ofNullable(runningJob.get());
+    }
+
+    /**
+     * @return The retained jobs, most recent first
+     */
+    public List<MigrationJob> getJobs() {
+        synchronized (jobs) {
+            List<MigrationJob> result = new ArrayList<>(jobs.values());
+            Collections.reverse(result);
+            return result;
+        }
+    }
+
+    @Override
+    public void onScriptStarted(MigrationOperation operation, String script) {
+        currentJob().ifPresent(job -> job.scriptStarted(script));
+    }
+
+    @Override
+    public void onScriptCompleted(MigrationOperation operation, String script, long durationMillis) {
+        currentJob().ifPresent(job -> job.scriptCompleted(script, durationMillis));
+    }
+
+    // Only record events emitted by the job's own thread, not by concurrent programmatic calls
+    private Optional<MigrationJob> currentJob() {
+        MigrationJob job = runningJob.get();
+        return job != null && job.runsOn(Thread.currentThread()) ? Optional.of(job) : Optional.empty();
+    }
+}
@@ -0,0 +1,64 @@
+package io.github.tky0065.spring_boot_migration_starter.service;
+
+/**
+ * Callback interface notified by {@link MigrationService} implementations while an
+ * operation is running. Any bean implementing this interface is picked up automatically.
+ * Exceptions thrown by a listener are logged and never interrupt the migration.
+ */
+public interface MigrationListener {
+
+    /**
+     * Called before the migration tool is invoked
+     *
+     * @param operation The operation about to run
+     */
+    default void beforeOperation(MigrationOperation operation) {
+    }
+
+    /**
+     * Called when a script (Flyway) or a changeset (Liquibase) starts executing
+     *
+     * @param operation The running operation
+     * @param script Script name or changeset identifier
+     */
+    default void onScriptStarted(MigrationOperation operation, String script) {
+    }
+
+    /**
+     * Called when a script (Flyway) or a changeset (Liquibase) has been applied
+     *
+     * @param operation The running operation
+     * @param script Script name or changeset identifier
+     * @param durationMillis Execution time of the script
+     */
+    default void onScriptCompleted(MigrationOperation operation, String script, long durationMillis) {
+    }
+
+    /**
+     * Called when a phase of the operation ends, e.g. {@link MigrationRun#LOCK_WAIT}
+     *
+     * @param operation The running operation
+     * @param phase Phase name, one of the {@link MigrationRun} constants
+     * @param durationMillis Execution time of the phase
+     */
+    default void onPhaseCompleted(MigrationOperation operation, String phase, long durationMillis) {
+    }
+
+    /**
+     * Called once the operation completed successfully
+     *
+     * @param operation The completed operation
+     * @param durationMillis Total execution time
+     */
+    default void afterOperation(MigrationOperation operation, long durationMillis) {
+    }
+
+    /**
+     * Called when the operation failed
+     *
+     * @param operation The failed operation
+     * @param error The cause of the failure
+     */
+    default void onOperationFailed(MigrationOperation operation, Throwable error) {
+    }
+}
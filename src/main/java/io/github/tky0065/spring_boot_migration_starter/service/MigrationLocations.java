@@ -0,0 +1,146 @@
+package io.github.tky0065.spring_boot_migration_starter.service;
+
+import io.github.tky0065.spring_boot_migration_starter.config.MigrationProperties;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Resolves files inside the configured migration {@code locations}, which use the Flyway
+ * syntax ({@code classpath:db/migration}, {@code filesystem:/opt/migrations}). Classpath locations
+ * are looked up in the {@link MigrationIndex} instead of being scanned when it is available.
+ */
+public class MigrationLocations {
+
+    private static final String DEFAULT_LOCATION = "classpath:db/migration";
+
+    private final List<String> locations;
+    private final ResourcePatternResolver resolver;
+    private final ClassLoader classLoader;
+    private final MigrationIndex index;
+
+    public MigrationLocations(List<String> locations, ClassLoader classLoader) {
+        this(locations, classLoader, MigrationIndex.load(classLoader));
+    }
+
+    MigrationLocations(List<String> locations, ClassLoader classLoader, MigrationIndex index) {
+        this.locations = locations.isEmpty() ? List.of(DEFAULT_LOCATION) : List.copyOf(locations);
+        this.resolver = new PathMatchingResourcePatternResolver(classLoader);
+        this.classLoader = classLoader;
+        this.index = index;
+    }
+
+    public static MigrationLocations of(MigrationProperties properties) {
+        return of(properties, MigrationLocations.class.getClassLoader());
+    }
+
+    /**
+     * @param classLoader Class loader the {@code classpath:} locations are resolved with, e.g. the
+     *                    project's at build time
+     */
+    public static MigrationLocations of(MigrationProperties properties, ClassLoader classLoader) {
+        List<String> locations = new ArrayList<>(properties.getLocations());
+        if (locations.isEmpty() && StringUtils.hasText(properties.getLocation())) {
+            locations.add(properties.getLocation());
+        }
+        return new MigrationLocations(locations, classLoader);
+    }
+
+    public List<String> getLocations() {
+        return locations;
+    }
+
+    /**
+     * Find the files matching an Ant-style pattern in every location
+     *
+     * @param filePattern Pattern relative to the locations, e.g. {@code **}{@code /S*__*.csv}
+     * @return The matching resources, sorted by file name, without duplicates
+     */
+    public List<Resource> findResources(String filePattern) throws IOException {
+        Map<String, Resource> resources = new LinkedHashMap<>();
+        for (String location : locations) {
+            for (Resource resource : getResources(location, filePattern)) {
+                if (resource.isReadable()) {
+                    resources.putIfAbsent(resource.getURL().toString(), resource);
+                }
+            }
+        }
+        List<Resource> sorted = new ArrayList<>(resources.values());
+        sorted.sort(Comparator.comparing(r -> String.valueOf(r.getFilename())));
+        return sorted;
+    }
+
+    /**
+     * Find a script by its path relative to one of the locations, as reported by Flyway
+     *
+     * @param script Relative script path
+     * @return The first readable match, or null
+     */
+    public Resource findScript(String script) throws IOException {
+        for (String location : locations) {
+            for (Resource resource : getResources(location, script)) {
+                if (resource.isReadable()) {
+                    return resource;
+                }
+            }
+        }
+        return null;
+    }
+
+    private Resource[] getResources(String location, String filePattern) throws IOException {
+        if (index != null && MigrationIndex.classpathPath(location) != null) {
+            return index.findResources(location, filePattern).stream()
+                    .map(path -> new ClassPathResource(path, classLoader))
+                    .toArray(Resource[]::new);
+        }
+        return resolver.getResources(toResourcePattern(location, filePattern));
+    }
+
+    /**
+     * Compute the CRC32 checksum of a resource without loading it in memory
+     *
+     * @param resource The resource to read
+     * @return The checksum
+     */
+    public static long checksum(Resource resource) throws IOException {
+        CRC32 crc = new CRC32();
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = resource.getInputStream()) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                crc.update(buffer, 0, read);
+            }
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * Translate a Flyway location into a Spring resource pattern
+     *
+     * @param location Flyway location
+     * @param filePattern Pattern relative to the location
+     * @return The Spring resource pattern
+     */
+    static String toResourcePattern(String location, String filePattern) {
+        String base;
+        if (location.startsWith("classpath:")) {
+            base = "classpath*:" + location.substring("classpath:".length());
+        } else if (location.startsWith("filesystem:")) {
+            base = "file:" + location.substring("filesystem:".length());
+        } else {
+            base = location;
+        }
+        return StringUtils.trimTrailingCharacter(base, '/') + "/" + filePattern;
+    }
+}
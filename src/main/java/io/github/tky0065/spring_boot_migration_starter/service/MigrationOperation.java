@@ -0,0 +1,11 @@
+package io.github.tky0065.spring_boot_migration_starter.service;
+
+/**
+ * Operations exposed by a {@link MigrationService}
+ */
+public enum MigrationOperation {
+    MIGRATE,
+    VALIDATE,
+    REPAIR,
+    DRY_RUN
+}
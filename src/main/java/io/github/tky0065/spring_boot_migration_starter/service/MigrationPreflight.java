@@ -0,0 +1,127 @@
+package io.github.tky0065.spring_boot_migration_starter.service;
+
+import io.github.tky0065.spring_boot_migration_starter.config.MigrationProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+/**
+ * Checks, before {@code migrate()} applies anything, that no long-running transaction holds a lock on the
+ * tables of the pending migrations. A migration queued behind such a lock would in turn block every
+ * statement of the application on these tables until the holder ends.
+ * <p>
+ * Depending on {@link MigrationProperties.Preflight#getPolicy()} the migration waits for the holders,
+ * is aborted, or runs after they are logged.
+ */
+public class MigrationPreflight {
+
+    private static final Logger logger = LoggerFactory.getLogger(MigrationPreflight.class);
+
+    private final MigrationProperties properties;
+    private final List<LockInspector> inspectors;
+
+    /**
+     * @param properties Migration settings
+     * @param inspectors Inspectors consulted before the built-in ones
+     */
+    public MigrationPreflight(MigrationProperties properties, Collection<LockInspector> inspectors) {
+        this.properties = properties;
+        this.inspectors = new ArrayList<>(inspectors);
+        this.inspectors.addAll(List.of(new PostgresLockInspector(properties.getSchema()),
+                new MySqlLockInspector(properties.getSchema()), new H2LockInspector()));
+    }
+
+    /**
+     * Inspect the locks held on the given tables and apply the configured policy
+     *
+     * @param dataSource The migrated database
+     * @param tables Lower-case names of the tables the pending migrations change
+     * @throws IllegalStateException when the migration must not start
+     */
+    public void check(DataSource dataSource, Collection<String> tables) {
+        if (tables.isEmpty()) {
+            return;
+        }
+        MigrationProperties.Preflight settings = properties.getPreflight();
+        Set<String> targets = tables.stream().map(t -> t.toLowerCase(Locale.ROOT)).collect(Collectors.toCollection(TreeSet::new));
+        long deadline = System.currentTimeMillis() + settings.getMaxWait().toMillis();
+        while (true) {
+            List<LockHolder> blockers = findBlockers(dataSource, targets);
+            if (blockers.isEmpty()) {
+                return;
+            }
+            String description = describe(blockers);
+            switch (settings.getPolicy()) {
+                case REPORT -> {
+                    logger.warn("Migrating although sessions hold locks on the migrated tables: {}", description);
+                    return;
+                }
+                case ABORT -> throw new IllegalStateException(
+                        "Migration aborted, sessions hold locks on the migrated tables: " + description);
+                case WAIT -> {
+                    if (System.currentTimeMillis() >= deadline) {
+                        throw new IllegalStateException("Migration aborted after waiting "
+                                + settings.getMaxWait() + " for the sessions holding locks on the migrated tables: "
+                                + description);
+                    }
+                    logger.info("Waiting for the sessions holding locks on the migrated tables: {}", description);
+                    sleep(Math.min(settings.getPollInterval().toMillis(), Math.max(0, deadline - System.currentTimeMillis())));
+                }
+            }
+        }
+    }
+
+    /**
+     * @param dataSource The migrated database
+     * @param tables Lower-case table names
+     * @return The holders whose transaction is older than the configured minimum age
+     */
+    List<LockHolder> findBlockers(DataSource dataSource, Set<String> tables) {
+        long minAge = properties.getPreflight().getMinTransactionAge().toMillis();
+        try (Connection connection = dataSource.getConnection()) {
+            DatabaseDialect dialect = DatabaseDialect.of(connection);
+            LockInspector inspector = inspectors.stream()
+                    .filter(candidate -> candidate.supports(dialect))
+                    .findFirst()
+                    .orElse(null);
+            if (inspector == null) {
+                logger.debug("No lock inspector for {}, the pre-flight check is skipped", dialect);
+                return List.of();
+            }
+            return inspector.findLockHolders(connection, tables).stream()
+                    .filter(holder -> holder.transactionMillis() >= minAge)
+                    .toList();
+        } catch (SQLException e) {
+            // Missing privileges on the catalog must not prevent the migration
+            logger.warn("Could not inspect the locks held on the migrated tables", e);
+            return List.of();
+        }
+    }
+
+    private static String describe(List<LockHolder> blockers) {
+        return blockers.stream()
+                .map(holder -> String.format(Locale.ROOT, "session %s holds %s on %s for %d ms (%s%s)",
+                        holder.session(), holder.lockMode(), holder.table(), holder.transactionMillis(),
+                        holder.state(), holder.query() != null ? ": " + holder.query() : ""))
+                .collect(Collectors.joining("; "));
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the locks on the migrated tables", e);
+        }
+    }
+}
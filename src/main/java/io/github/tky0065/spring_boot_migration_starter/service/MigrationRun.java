@@ -0,0 +1,49 @@
+package io.github.tky0065.spring_boot_migration_starter.service;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * A {@link MigrationService} run recorded by {@link MigrationRunHistory}
+ *
+ * @param runId Unique identifier of the run
+ * @param node Node that ran the operation
+ * @param tool Migration tool, {@code flyway} or {@code liquibase}
+ * @param operation Operation that ran
+ * @param startedAt Start of the run
+ * @param durationMillis Total execution time
+ * @param lockWaitMillis Time spent acquiring the migration lock, see {@link #LOCK_WAIT}
+ * @param success Whether the operation completed
+ * @param phases Execution time of each phase, in execution order
+ * @param scripts Execution time of each applied script or changeset, in execution order
+ */
+public record MigrationRun(String runId, String node, String tool, MigrationOperation operation, Instant startedAt,
+                           long durationMillis, long lockWaitMillis, boolean success, Map<String, Long> phases,
+                           Map<String, Long> scripts) {
+
+    public static final String CONNECTION = "connection";
+    public static final String CONFIGURATION = "configuration";
+    public static final String CHECKSUM_VALIDATION = "checksum-validation";
+    public static final String PREFLIGHT = "preflight";
+    /**
+     * Liquibase's changelog lock, or for Flyway the time spent in {@code migrate} outside of the scripts,
+     * which is mostly the wait on its lock
+     */
+    public static final String LOCK_WAIT = "lock-wait";
+    public static final String SEED_DATA = "seed-data";
+    public static final String POST_MIGRATION = "post-migration";
+
+    /**
+     * @return Total execution time of the scripts
+     */
+    public long scriptMillis() {
+        return scripts.values().stream().mapToLong(Long::longValue).sum();
+    }
+
+    /**
+     * @return Execution time outside of the scripts, comparable between runs applying different scripts
+     */
+    public long overheadMillis() {
+        return Math.max(0, durationMillis - scriptMillis());
+    }
+}
@@ -0,0 +1,322 @@
+package io.github.tky0065.spring_boot_migration_starter.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.tky0065.spring_boot_migration_starter.config.MigrationProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.util.StringUtils;
+
+import javax.sql.DataSource;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Records every {@link MigrationService} run, with the duration of its phases and scripts, in a
+ * starter-owned table, one row per run. Each recorded run is compared with the median of the previous
+ * successful runs of the same operation: a run whose execution time outside of the scripts exceeds
+ * the baseline is logged and published as a {@link MigrationRunRegression} event.
+ * <p>
+ * Scripts run once, so only the time outside of them (connection, configuration, validation, lock wait,
+ * post-migration stage) is compared between runs.
+ */
+public class MigrationRunHistory implements MigrationListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(MigrationRunHistory.class);
+
+    private static final TypeReference<LinkedHashMap<String, Long>> DURATIONS = new TypeReference<>() {
+    };
+
+    private final DataSource dataSource;
+    private final MigrationProperties properties;
+    private final ApplicationEventPublisher publisher;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final String node;
+    // Callbacks of one operation all come from the thread running it
+    private final ThreadLocal<Run> currentRun = new ThreadLocal<>();
+
+    private static final class Run {
+        private final MigrationOperation operation;
+        private final Instant startedAt = Instant.now();
+        private final Map<String, Long> phases = new LinkedHashMap<>();
+        private final Map<String, Long> scripts = new LinkedHashMap<>();
+
+        private Run(MigrationOperation operation) {
+            this.operation = operation;
+        }
+    }
+
+    /**
+     * @param dataSource Database holding the history table, the migrated one
+     * @param properties Migration settings
+     * @param publisher Publisher of the regression events, may be null
+     */
+    public MigrationRunHistory(DataSource dataSource, MigrationProperties properties,
+                               ApplicationEventPublisher publisher) {
+        this.dataSource = dataSource;
+        this.properties = properties;
+        this.publisher = publisher;
+        String configuredNode = properties.getRunHistory().getNode();
+        this.node = StringUtils.hasText(configuredNode) ? configuredNode : localNode();
+    }
+
+    @Override
+    public void beforeOperation(MigrationOperation operation) {
+        currentRun.set(new Run(operation));
+    }
+
+    @Override
+    public void onPhaseCompleted(MigrationOperation operation, String phase, long durationMillis) {
+        Run run = currentRun.get();
+        if (run != null) {
+            run.phases.merge(phase, durationMillis, Long::sum);
+        }
+    }
+
+    @Override
+    public void onScriptCompleted(MigrationOperation operation, String script, long durationMillis) {
+        Run run = currentRun.get();
+        if (run != null) {
+            run.scripts.put(script, durationMillis);
+        }
+    }
+
+    @Override
+    public void afterOperation(MigrationOperation operation, long durationMillis) {
+        finish(durationMillis, true);
+    }
+
+    @Override
+    public void onOperationFailed(MigrationOperation operation, Throwable error) {
+        Run run = currentRun.get();
+        finish(run != null ? System.currentTimeMillis() - run.startedAt.toEpochMilli() : 0, false);
+    }
+
+    private void finish(long durationMillis, boolean success) {
+        Run run = currentRun.get();
+        currentRun.remove();
+        if (run == null) {
+            return;
+        }
+        MigrationRun recorded = new MigrationRun(UUID.randomUUID().toString(), node, properties.getType(),
+                run.operation, run.startedAt, durationMillis, run.phases.getOrDefault(MigrationRun.LOCK_WAIT, 0L),
+                success, Collections.unmodifiableMap(run.phases), Collections.unmodifiableMap(run.scripts));
+        try {
+            record(recorded);
+        } catch (SQLException | JsonProcessingException e) {
+            logger.warn("Could not record the {} run in {}", run.operation, properties.getRunHistory().getTable(), e);
+            return;
+        }
+
+        MigrationRunRegression regression = success ? checkRegression(recorded) : null;
+        if (regression != null) {
+            logger.warn("{} run took {} ms outside of its scripts, {}x the baseline of {} ms (lock wait {} ms, baseline {} ms)",
+                    recorded.operation(), recorded.overheadMillis(), String.format(Locale.ROOT, "%.1f", regression.ratio()),
+                    regression.baselineMillis(), recorded.lockWaitMillis(), regression.baselineLockWaitMillis());
+            if (publisher != null) {
+                publisher.publishEvent(regression);
+            }
+        }
+    }
+
+    /**
+     * Store a run
+     *
+     * @param run The run to store
+     */
+    public void record(MigrationRun run) throws SQLException, JsonProcessingException {
+        String table = properties.getRunHistory().getTable();
+        try (Connection connection = dataSource.getConnection()) {
+            ensureHistoryTable(connection);
+            try (PreparedStatement insert = connection.prepareStatement("INSERT INTO " + table
+                    + " (run_id, node, tool, operation, started_at, duration_ms, lock_wait_ms, success, phases, scripts)"
+                    + " VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)")) {
+                insert.setString(1, run.runId());
+                insert.setString(2, run.node());
+                insert.setString(3, run.tool());
+                insert.setString(4, run.operation().name());
+                insert.setTimestamp(5, Timestamp.from(run.startedAt()));
+                insert.setLong(6, run.durationMillis());
+                insert.setLong(7, run.lockWaitMillis());
+                insert.setInt(8, run.success() ? 1 : 0);
+                insert.setString(9, objectMapper.writeValueAsString(run.phases()));
+                insert.setString(10, objectMapper.writeValueAsString(run.scripts()));
+                insert.executeUpdate();
+            }
+            if (!connection.getAutoCommit()) {
+                connection.commit();
+            }
+        }
+    }
+
+    /**
+     * Read the most recent runs of an operation with the configured tool, on every node
+     *
+     * @param operation The operation
+     * @param limit Maximum number of runs
+     * @return The runs, most recent first
+     */
+    public List<MigrationRun> findRuns(MigrationOperation operation, int limit) {
+        String table = properties.getRunHistory().getTable();
+        try (Connection connection = dataSource.getConnection()) {
+            if (!new DatabaseSchemaReader(properties.getSchema()).listTables(connection)
+                    .containsKey(table.toLowerCase(Locale.ROOT))) {
+                return List.of();
+            }
+            try (PreparedStatement select = connection.prepareStatement("SELECT run_id, node, tool, operation, "
+                    + "started_at, duration_ms, lock_wait_ms, success, phases, scripts FROM " + table
+                    + " WHERE tool = ? AND operation = ? ORDER BY started_at DESC")) {
+                select.setString(1, properties.getType());
+                select.setString(2, operation.name());
+                select.setMaxRows(limit);
+                List<MigrationRun> runs = new ArrayList<>();
+                try (ResultSet rs = select.executeQuery()) {
+                    while (rs.next()) {
+                        runs.add(new MigrationRun(rs.getString(1), rs.getString(2), rs.getString(3),
+                                MigrationOperation.valueOf(rs.getString(4)), rs.getTimestamp(5).toInstant(),
+                                rs.getLong(6), rs.getLong(7), rs.getInt(8) == 1, durations(rs.getString(9)),
+                                durations(rs.getString(10))));
+                    }
+                }
+                return runs;
+            }
+        } catch (SQLException | JsonProcessingException e) {
+            throw new IllegalStateException("Could not read the migration run history", e);
+        }
+    }
+
+    /**
+     * Find the recent successful runs slower than the baseline of the successful runs preceding them
+     *
+     * @param operation The operation
+     * @param limit Number of recent runs to check
+     * @return The regressions, most recent first
+     */
+    public List<MigrationRunRegression> findRegressions(MigrationOperation operation, int limit) {
+        List<MigrationRun> runs = findRuns(operation, limit + properties.getRunHistory().getBaselineRuns()).stream()
+                .filter(MigrationRun::success)
+                .toList();
+        List<MigrationRunRegression> regressions = new ArrayList<>();
+        for (int i = 0; i < Math.min(limit, runs.size()); i++) {
+            MigrationRunRegression regression = compare(runs.get(i), runs.subList(i + 1, runs.size()));
+            if (regression != null) {
+                regressions.add(regression);
+            }
+        }
+        return regressions;
+    }
+
+    private MigrationRunRegression checkRegression(MigrationRun run) {
+        try {
+            List<MigrationRun> previous = findRuns(run.operation(), properties.getRunHistory().getBaselineRuns() + 1)
+                    .stream()
+                    .filter(r -> r.success() && !r.runId().equals(run.runId()))
+                    .toList();
+            return compare(run, previous);
+        } catch (IllegalStateException e) {
+            logger.warn("Could not compare the {} run with the history", run.operation(), e);
+            return null;
+        }
+    }
+
+    /**
+     * Compare a run with the median of the runs preceding it
+     *
+     * @param run The run to check
+     * @param previous Previous successful runs, most recent first
+     * @return The regression, or null when the run is within the baseline or the history is too short
+     */
+    MigrationRunRegression compare(MigrationRun run, List<MigrationRun> previous) {
+        MigrationProperties.RunHistory settings = properties.getRunHistory();
+        List<MigrationRun> baseline = previous.subList(0, Math.min(settings.getBaselineRuns(), previous.size()));
+        // A median over fewer runs would flag any noisy start
+        if (baseline.size() < Math.min(3, settings.getBaselineRuns())) {
+            return null;
+        }
+        long baselineMillis = median(baseline.stream().mapToLong(MigrationRun::overheadMillis).toArray());
+        long slowdown = run.overheadMillis() - baselineMillis;
+        if (run.overheadMillis() > baselineMillis * settings.getRegressionThreshold()
+                && slowdown >= settings.getMinRegression().toMillis()) {
+            return new MigrationRunRegression(run, baselineMillis,
+                    median(baseline.stream().mapToLong(MigrationRun::lockWaitMillis).toArray()));
+        }
+        return null;
+    }
+
+    private static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        int middle = sorted.length / 2;
+        return sorted.length % 2 == 1 ? sorted[middle] : (sorted[middle - 1] + sorted[middle]) / 2;
+    }
+
+    private void ensureHistoryTable(Connection connection) throws SQLException {
+        String table = properties.getRunHistory().getTable();
+        DatabaseSchemaReader schemaReader = new DatabaseSchemaReader(properties.getSchema());
+        if (schemaReader.listTables(connection).containsKey(table.toLowerCase(Locale.ROOT))) {
+            return;
+        }
+        DatabaseDialect dialect = DatabaseDialect.of(connection);
+        String text = switch (dialect) {
+            case POSTGRESQL, MYSQL, MARIADB -> "TEXT";
+            case SQLSERVER -> "NVARCHAR(MAX)";
+            default -> "CLOB";
+        };
+        logger.info("Creating migration run history table {}", table);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE " + table + " ("
+                    + "run_id VARCHAR(36) NOT NULL PRIMARY KEY, "
+                    + "node VARCHAR(255) NOT NULL, "
+                    + "tool VARCHAR(16) NOT NULL, "
+                    + "operation VARCHAR(16) NOT NULL, "
+                    + "started_at TIMESTAMP NOT NULL, "
+                    + "duration_ms BIGINT NOT NULL, "
+                    + "lock_wait_ms BIGINT NOT NULL, "
+                    + "success SMALLINT NOT NULL, "
+                    + "phases " + text + ", "
+                    + "scripts " + text + ")");
+        } catch (SQLException e) {
+            // Another node may have created it meanwhile
+            if (!schemaReader.listTables(connection).containsKey(table.toLowerCase(Locale.ROOT))) {
+                throw e;
+            }
+        }
+        if (!connection.getAutoCommit()) {
+            connection.commit();
+        }
+    }
+
+    private Map<String, Long> durations(String json) throws JsonProcessingException {
+        return json != null ? objectMapper.readValue(json, DURATIONS) : Map.of();
+    }
+
+    // HOSTNAME is the pod name on Kubernetes
+    private static String localNode() {
+        String hostName = System.getenv("HOSTNAME");
+        if (StringUtils.hasText(hostName)) {
+            return hostName;
+        }
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "unknown";
+        }
+    }
+}
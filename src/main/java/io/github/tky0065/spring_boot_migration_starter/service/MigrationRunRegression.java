@@ -0,0 +1,19 @@
+package io.github.tky0065.spring_boot_migration_starter.service;
+
+/**
+ * A run slower than the rolling baseline of the previous runs, published as an application event
+ * when it is recorded
+ *
+ * @param run The slow run
+ * @param baselineMillis Median execution time outside of the scripts of the previous successful runs
+ * @param baselineLockWaitMillis Median lock wait of the previous successful runs
+ */
+public record MigrationRunRegression(MigrationRun run, long baselineMillis, long baselineLockWaitMillis) {
+
+    /**
+     * @return Execution time outside of the scripts relative to the baseline
+     */
+    public double ratio() {
+        return baselineMillis > 0 ? (double) run.overheadMillis() / baselineMillis : Double.POSITIVE_INFINITY;
+    }
+}
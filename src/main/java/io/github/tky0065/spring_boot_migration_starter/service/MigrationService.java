@@ -4,4 +4,15 @@ public interface MigrationService {
     void migrate();
     void validate();
     void repair();
-}
\ No newline at end of file
+
+    /**
+     * Apply the pending migrations to a throwaway clone of the database, timing every statement.
+     * Not supported by default, so that existing implementations keep compiling.
+     *
+     * @return The profiling report, also written to {@code db.migration.dry-run.report-path}
+     * @throws IllegalStateException if the implementation does not support dry runs
+     */
+    default MigrationDryRunReport dryRun() {
+        throw new IllegalStateException("dry run not supported");
+    }
+}
@@ -0,0 +1,20 @@
+package io.github.tky0065.spring_boot_migration_starter.service;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a {@link javax.sql.DataSource} bean as a shard migrated by {@link ShardedMigrationService}.
+ * The shard is named after the bean.
+ */
+@Target({ElementType.METHOD, ElementType.TYPE, ElementType.FIELD, ElementType.PARAMETER})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@Qualifier
+public @interface MigrationShard {
+}
@@ -13,8 +13,8 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.Map;
-import java.util.Set;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Service for generating migration script templates
@@ -39,12 +39,16 @@ public class MigrationTemplateGenerator {
      */
     public void generateInitialMigrations(String type) {
         logger.info("Generating initial migration templates for type: {}", type);
-        if ("flyway".equalsIgnoreCase(type)) {
-            generateFlywayInitialMigration();
-        } else if ("liquibase".equalsIgnoreCase(type)) {
-            generateLiquibaseInitialMigration();
-        } else {
-            logger.warn("Unknown migration type: {}. No templates will be generated.", type);
+        try (MigrationFlightRecorder.Span span = MigrationFlightRecorder.phase(
+                MigrationFlightRecorder.TEMPLATE_GENERATION, type)) {
+            span.setDetail("initial");
+            if ("flyway".equalsIgnoreCase(type)) {
+                generateFlywayInitialMigration();
+            } else if ("liquibase".equalsIgnoreCase(type)) {
+                generateLiquibaseInitialMigration();
+            } else {
+                logger.warn("Unknown migration type: {}. No templates will be generated.", type);
+            }
         }
     }
 
@@ -79,28 +83,25 @@ public class MigrationTemplateGenerator {
     }
     
     /**
-     * Generate a Flyway migration script based on entity changes
+     * Generate a Flyway migration script based on entity changes, with a single ALTER TABLE per table
+     * where the database allows several clauses in one statement
      *
-     * @param entityChanges Map of entity names to sets of changed column names
+     * @param tableChanges Columns to add or alter, per table
+     * @param dialect Target database
      * @return The SQL content for the migration
      */
-    public String generateFlywayMigration(Map<String, Set<String>> entityChanges) {
+    public String generateFlywayMigration(List<TableChange> tableChanges, DatabaseDialect dialect) {
         StringBuilder sql = new StringBuilder();
         sql.append("-- Migration generated automatically by spring-boot-migration-starter\n");
         sql.append("-- Generated on ").append(LocalDateTime.now()).append("\n\n");
 
-        // For demonstration purposes, we'll just create basic table creation statements
-        for (Map.Entry<String, Set<String>> entry : entityChanges.entrySet()) {
-            String tableName = entry.getKey();
-            sql.append("-- Table: ").append(tableName).append("\n");
-
-            // In a real implementation, this would inspect the entity class
-            // and generate appropriate DDL statements.
-            sql.append("CREATE TABLE IF NOT EXISTS ").append(tableName).append(" (\n");
-            sql.append("    id BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY,\n");
-            sql.append("    name VARCHAR(255),\n");
-            sql.append("    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP\n");
-            sql.append(");\n\n");
+        for (TableChange change : tableChanges) {
+            sql.append("-- Table: ").append(change.tableName()).append("\n");
+            notes(change, dialect).forEach(note -> sql.append("-- ").append(note).append("\n"));
+            for (String statement : schemaStatements(change, dialect)) {
+                sql.append(statement).append(";\n");
+            }
+            sql.append("\n");
         }
 
         return sql.toString();
@@ -126,12 +127,14 @@ public class MigrationTemplateGenerator {
     }
 
     /**
-     * Generate a Liquibase migration script based on entity changes
+     * Generate a Liquibase changelog based on entity changes, with the same statements as
+     * {@link #generateFlywayMigration(List, DatabaseDialect)}
      *
-     * @param entityChanges Map of entity names to sets of changed column names
+     * @param tableChanges Columns to add or alter, per table
+     * @param dialect Target database
      * @return The XML content for the migration
      */
-    public String generateLiquibaseMigration(Map<String, Set<String>> entityChanges) {
+    public String generateLiquibaseMigration(List<TableChange> tableChanges, DatabaseDialect dialect) {
         StringBuilder xml = new StringBuilder();
         xml.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
         xml.append("<databaseChangeLog\n");
@@ -143,18 +146,81 @@ public class MigrationTemplateGenerator {
         String changesetId = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss"));
         xml.append("    <changeSet id=\"").append(changesetId).append("\" author=\"spring-boot-migration-starter\">\n");
 
-        // For demonstration purposes, we'll just create basic table creation statements
-        for (Map.Entry<String, Set<String>> entry : entityChanges.entrySet()) {
-            String tableName = entry.getKey();
+        for (TableChange change : tableChanges) {
+            xml.append("        <!-- Table: ").append(change.tableName()).append(" -->\n");
+            notes(change, dialect).forEach(note -> xml.append("        <!-- ").append(note).append(" -->\n"));
+            for (String statement : schemaStatements(change, dialect)) {
+                xml.append("        <sql>").append(escapeXml(statement)).append("</sql>\n");
+            }
+        }
+
+        xml.append("    </changeSet>\n");
+        xml.append("</databaseChangeLog>");
+
+        return xml.toString();
+    }
+
+    /**
+     * Generate a Flyway migration creating missing indexes
+     *
+     * @param recommendations Indexes to create
+     * @param dialect Target database, decides whether indexes are built online
+     * @return The SQL content for the migration
+     */
+    public String generateFlywayIndexMigration(List<IndexRecommendation> recommendations, DatabaseDialect dialect) {
+        StringBuilder sql = new StringBuilder();
+        sql.append("-- Missing indexes detected by spring-boot-migration-starter\n");
+        sql.append("-- Generated on ").append(LocalDateTime.now()).append("\n");
+        if (dialect == DatabaseDialect.POSTGRESQL) {
+            // Flyway runs CREATE INDEX CONCURRENTLY outside of a transaction automatically
+            sql.append("-- Indexes are built concurrently and do not block writes\n");
+        }
+        sql.append("\n");
+
+        for (IndexRecommendation recommendation : recommendations) {
+            sql.append("-- ").append(recommendation.tableName()).append(": ").append(recommendation.reason()).append("\n");
+            sql.append(createIndexStatement(recommendation, dialect)).append(";\n\n");
+        }
+
+        return sql.toString();
+    }
+
+    /**
+     * Generate a Liquibase changelog creating missing indexes
+     *
+     * @param recommendations Indexes to create
+     * @param dialect Target database, decides whether indexes are built online
+     * @return The XML content for the migration
+     */
+    public String generateLiquibaseIndexMigration(List<IndexRecommendation> recommendations, DatabaseDialect dialect) {
+        StringBuilder xml = new StringBuilder();
+        xml.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        xml.append("<databaseChangeLog\n");
+        xml.append("        xmlns=\"http://www.liquibase.org/xml/ns/dbchangelog\"\n");
+        xml.append("        xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\"\n");
+        xml.append("        xsi:schemaLocation=\"http://www.liquibase.org/xml/ns/dbchangelog\n");
+        xml.append("         https://www.liquibase.org/xml/ns/dbchangelog/dbchangelog-4.5.xsd\">\n\n");
 
-            xml.append("        <!-- Table: ").append(tableName).append(" -->\n");
-            xml.append("        <createTable tableName=\"").append(tableName).append("\">\n");
-            xml.append("            <column name=\"id\" type=\"BIGINT\" autoIncrement=\"true\">\n");
-            xml.append("                <constraints primaryKey=\"true\" nullable=\"false\"/>\n");
-            xml.append("            </column>\n");
-            xml.append("            <column name=\"name\" type=\"VARCHAR(255)\"/>\n");
-            xml.append("            <column name=\"created_at\" type=\"TIMESTAMP\" defaultValueComputed=\"CURRENT_TIMESTAMP\"/>\n");
-            xml.append("        </createTable>\n\n");
+        String changesetId = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss")) + "-indexes";
+        boolean online = dialect.supportsOnlineIndexCreation();
+        xml.append("    <changeSet id=\"").append(changesetId).append("\" author=\"spring-boot-migration-starter\"");
+        // CREATE INDEX CONCURRENTLY cannot run inside a transaction
+        xml.append(dialect == DatabaseDialect.POSTGRESQL ? " runInTransaction=\"false\">\n" : ">\n");
+
+        for (IndexRecommendation recommendation : recommendations) {
+            xml.append("        <!-- ").append(recommendation.tableName()).append(": ")
+                    .append(recommendation.reason()).append(" -->\n");
+            if (online) {
+                xml.append("        <sql>").append(createIndexStatement(recommendation, dialect)).append("</sql>\n");
+            } else {
+                xml.append("        <createIndex tableName=\"").append(recommendation.tableName())
+                        .append("\" indexName=\"").append(recommendation.indexName()).append("\"")
+                        .append(recommendation.unique() ? " unique=\"true\"" : "").append(">\n");
+                for (String column : recommendation.columns()) {
+                    xml.append("            <column name=\"").append(column).append("\"/>\n");
+                }
+                xml.append("        </createIndex>\n");
+            }
         }
 
         xml.append("    </changeSet>\n");
@@ -163,6 +229,227 @@ public class MigrationTemplateGenerator {
         return xml.toString();
     }
 
+    /**
+     * Build the CREATE INDEX statement for a dialect, using online creation where supported
+     *
+     * @param recommendation Index to create
+     * @param dialect Target database
+     * @return The statement, without trailing semicolon
+     */
+    public String createIndexStatement(IndexRecommendation recommendation, DatabaseDialect dialect) {
+        String unique = recommendation.unique() ? "UNIQUE " : "";
+        String columns = String.join(", ", recommendation.columns());
+        String table = recommendation.tableName();
+        String name = recommendation.indexName();
+
+        return switch (dialect) {
+            case POSTGRESQL -> "CREATE " + unique + "INDEX CONCURRENTLY IF NOT EXISTS " + name
+                    + " ON " + table + " (" + columns + ")";
+            case MYSQL, MARIADB -> "CREATE " + unique + "INDEX " + name + " ON " + table + " (" + columns + ")"
+                    + " ALGORITHM=INPLACE LOCK=NONE";
+            case ORACLE -> "CREATE " + unique + "INDEX " + name + " ON " + table + " (" + columns + ") ONLINE";
+            case H2 -> "CREATE " + unique + "INDEX IF NOT EXISTS " + name + " ON " + table + " (" + columns + ")";
+            default -> "CREATE " + unique + "INDEX " + name + " ON " + table + " (" + columns + ")";
+        };
+    }
+
+    /**
+     * Build the statements applying the changes of a table: a CREATE TABLE for a new table, otherwise
+     * one ALTER TABLE grouping every clause. SQL Server and H2 alter one column per statement, their
+     * added columns are still grouped.
+     *
+     * @param change Columns to add or alter
+     * @param dialect Target database
+     * @return The statements, without trailing semicolon
+     */
+    public List<String> schemaStatements(TableChange change, DatabaseDialect dialect) {
+        String table = change.tableName();
+        if (change.newTable()) {
+            List<String> definitions = new ArrayList<>();
+            change.columns().forEach(column -> definitions.add(columnDefinition(column, dialect, false)));
+            List<String> ids = change.columns().stream().filter(c -> c.column().id()).map(TableChange.ColumnChange::name).toList();
+            if (!ids.isEmpty()) {
+                definitions.add("PRIMARY KEY (" + String.join(", ", ids) + ")");
+            }
+            return List.of("CREATE TABLE " + table + " (\n    " + String.join(",\n    ", definitions) + "\n)");
+        }
+
+        List<String> added = change.columns().stream()
+                .filter(TableChange.ColumnChange::added)
+                .map(column -> columnDefinition(column, dialect, deferNotNull(column)))
+                .toList();
+        List<TableChange.ColumnChange> altered = change.columns().stream().filter(c -> !c.added()).toList();
+        List<String> clauses = new ArrayList<>();
+        List<String> statements = new ArrayList<>();
+
+        switch (dialect) {
+            case POSTGRESQL -> {
+                added.forEach(definition -> clauses.add("ADD COLUMN " + definition));
+                for (TableChange.ColumnChange column : altered) {
+                    String alter = "ALTER COLUMN " + column.name();
+                    if (column.typeChanged()) {
+                        clauses.add(alter + " TYPE " + column.sqlType());
+                    }
+                    if (column.nullabilityChanged()) {
+                        clauses.add(alter + (ColumnDiffer.isNullable(column.column()) ? " DROP NOT NULL" : " SET NOT NULL"));
+                    }
+                    if (column.defaultChanged()) {
+                        clauses.add(alter + " SET DEFAULT " + column.defaultValue());
+                    }
+                }
+            }
+            case MYSQL, MARIADB -> {
+                added.forEach(definition -> clauses.add("ADD COLUMN " + definition));
+                for (TableChange.ColumnChange column : altered) {
+                    if (column.typeChanged() || column.nullabilityChanged()) {
+                        // MODIFY redefines the whole column, the live default is kept unless another is declared
+                        clauses.add("MODIFY COLUMN " + modifiedColumn(column, dialect));
+                    } else {
+                        clauses.add("ALTER COLUMN " + column.name() + " SET DEFAULT " + column.defaultValue());
+                    }
+                }
+            }
+            case ORACLE -> {
+                if (!added.isEmpty()) {
+                    clauses.add("ADD (" + String.join(", ", added) + ")");
+                }
+                if (!altered.isEmpty()) {
+                    clauses.add("MODIFY (" + String.join(", ", altered.stream().map(this::oracleModify).toList()) + ")");
+                }
+                // Oracle separates its ADD and MODIFY clauses without commas
+                return clauses.isEmpty() ? List.of()
+                        : List.of("ALTER TABLE " + table + "\n    " + String.join("\n    ", clauses));
+            }
+            case SQLSERVER -> {
+                List<String> additions = new ArrayList<>(added);
+                for (TableChange.ColumnChange column : altered) {
+                    if (column.typeChanged() || column.nullabilityChanged()) {
+                        statements.add("ALTER TABLE " + table + " ALTER COLUMN " + column.name() + " "
+                                + alteredType(column) + (ColumnDiffer.isNullable(column.column()) ? " NULL" : " NOT NULL"));
+                    }
+                    if (column.defaultChanged() && column.live().defaultValue() == null) {
+                        additions.add("CONSTRAINT df_" + table + "_" + column.name() + " DEFAULT "
+                                + column.defaultValue() + " FOR " + column.name());
+                    }
+                }
+                if (!additions.isEmpty()) {
+                    statements.add(0, "ALTER TABLE " + table + " ADD " + String.join(", ", additions));
+                }
+                return statements;
+            }
+            default -> {
+                if (dialect == DatabaseDialect.H2 && !added.isEmpty()) {
+                    statements.add("ALTER TABLE " + table + " ADD COLUMN (" + String.join(", ", added) + ")");
+                } else {
+                    added.forEach(definition -> statements.add("ALTER TABLE " + table + " ADD COLUMN " + definition));
+                }
+                for (TableChange.ColumnChange column : altered) {
+                    String alter = "ALTER TABLE " + table + " ALTER COLUMN " + column.name();
+                    if (column.typeChanged()) {
+                        statements.add(alter + " SET DATA TYPE " + column.sqlType());
+                    }
+                    if (column.nullabilityChanged()) {
+                        statements.add(alter + (ColumnDiffer.isNullable(column.column()) ? " DROP NOT NULL" : " SET NOT NULL"));
+                    }
+                    if (column.defaultChanged()) {
+                        statements.add(alter + " SET DEFAULT " + column.defaultValue());
+                    }
+                }
+                return statements;
+            }
+        }
+
+        if (!clauses.isEmpty()) {
+            statements.add("ALTER TABLE " + table + "\n    " + String.join(",\n    ", clauses));
+        }
+        return statements;
+    }
+
+    /**
+     * Things the generated statements deliberately leave to the developer
+     */
+    private List<String> notes(TableChange change, DatabaseDialect dialect) {
+        List<String> notes = new ArrayList<>();
+        for (TableChange.ColumnChange column : change.columns()) {
+            if (!change.newTable() && deferNotNull(column)) {
+                notes.add(column.name() + " is added nullable: fill it, then make it NOT NULL");
+            }
+            if (dialect == DatabaseDialect.SQLSERVER && column.defaultChanged() && column.live().defaultValue() != null) {
+                notes.add(column.name() + " has another default constraint: drop it, then set DEFAULT "
+                        + column.defaultValue());
+            }
+        }
+        if (!change.unmappedColumns().isEmpty()) {
+            notes.add("Columns no longer mapped, not dropped: " + String.join(", ", change.unmappedColumns()));
+        }
+        return notes;
+    }
+
+    // A NOT NULL column without default cannot be added to a table that has rows
+    private static boolean deferNotNull(TableChange.ColumnChange column) {
+        return column.added() && column.column().columnDefinition() == null && column.defaultValue() == null
+                && !ColumnDiffer.isNullable(column.column());
+    }
+
+    private static String columnDefinition(TableChange.ColumnChange change, DatabaseDialect dialect, boolean nullable) {
+        EntityMapping.MappedColumn column = change.column();
+        StringBuilder definition = new StringBuilder(column.name()).append(' ').append(change.sqlType());
+        if (column.columnDefinition() == null && column.generated()) {
+            definition.append(switch (dialect) {
+                case MYSQL, MARIADB -> " AUTO_INCREMENT";
+                case SQLSERVER -> " IDENTITY(1,1)";
+                default -> " GENERATED BY DEFAULT AS IDENTITY";
+            });
+        }
+        if (column.columnDefinition() == null && change.defaultValue() != null) {
+            definition.append(" DEFAULT ").append(change.defaultValue());
+        }
+        if (!nullable && !ColumnDiffer.isNullable(column) && !ColumnDiffer.declaresNotNull(column)) {
+            definition.append(" NOT NULL");
+        }
+        return definition.toString();
+    }
+
+    private String modifiedColumn(TableChange.ColumnChange change, DatabaseDialect dialect) {
+        if (change.column().columnDefinition() != null) {
+            return columnDefinition(change, dialect, false);
+        }
+        String defaultValue = change.defaultValue() != null ? change.defaultValue() : mySqlLiteral(change.live().defaultValue());
+        return change.name() + " " + alteredType(change) + (defaultValue != null ? " DEFAULT " + defaultValue : "")
+                + (ColumnDiffer.isNullable(change.column()) ? " NULL" : " NOT NULL");
+    }
+
+    private String oracleModify(TableChange.ColumnChange change) {
+        StringBuilder clause = new StringBuilder(change.name());
+        if (change.typeChanged()) {
+            clause.append(' ').append(change.sqlType());
+        }
+        if (change.defaultChanged()) {
+            clause.append(" DEFAULT ").append(change.defaultValue());
+        }
+        if (change.nullabilityChanged()) {
+            clause.append(ColumnDiffer.isNullable(change.column()) ? " NULL" : " NOT NULL");
+        }
+        return clause.toString();
+    }
+
+    // The live type when only the nullability changes, so that a wider column is not narrowed back
+    private static String alteredType(TableChange.ColumnChange change) {
+        return change.typeChanged() ? change.sqlType() : SqlTypeMapper.liveType(change.live());
+    }
+
+    private static String escapeXml(String text) {
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+    }
+
+    // MySQL reports string defaults unquoted
+    private static String mySqlLiteral(String value) {
+        if (value == null || value.matches("-?\\d+(\\.\\d+)?|(?i)current_\\w+|.*\\(.*\\).*|(?i)null|b'[01]+'|'.*'")) {
+            return value;
+        }
+        return "'" + value.replace("'", "''") + "'";
+    }
+
     /**
      * Generate the initial Liquibase setup with master changelog and an initial changeset
      *
@@ -0,0 +1,52 @@
+package io.github.tky0065.spring_boot_migration_starter.service;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * Reads the granted table metadata locks of {@code performance_schema}, which every DDL statement waits for,
+ * with the age of the holder's InnoDB transaction, on the tables of the migrated schema. Requires the
+ * {@code wait/lock/metadata/sql/mdl} instrument, enabled by default on MySQL 8.
+ */
+public class MySqlLockInspector extends AbstractLockInspector {
+
+    private static final String QUERY = "SELECT DISTINCT t.PROCESSLIST_ID, m.OBJECT_NAME, m.LOCK_TYPE, "
+            + "t.PROCESSLIST_COMMAND, "
+            + "COALESCE(TIMESTAMPDIFF(MICROSECOND, trx.trx_started, NOW(6)) DIV 1000, t.PROCESSLIST_TIME * 1000), "
+            + "t.PROCESSLIST_INFO "
+            + "FROM performance_schema.metadata_locks m "
+            + "JOIN performance_schema.threads t ON t.THREAD_ID = m.OWNER_THREAD_ID "
+            + "LEFT JOIN information_schema.innodb_trx trx ON trx.trx_mysql_thread_id = t.PROCESSLIST_ID "
+            + "WHERE m.OBJECT_TYPE = 'TABLE' AND m.LOCK_STATUS = 'GRANTED' AND m.OBJECT_SCHEMA = COALESCE(?, DATABASE()) "
+            + "AND t.PROCESSLIST_ID <> CONNECTION_ID()";
+
+    private final DatabaseSchemaReader schemaReader;
+
+    public MySqlLockInspector() {
+        this(null);
+    }
+
+    /**
+     * @param schema Migrated schema, the connection's current database when null
+     */
+    public MySqlLockInspector(String schema) {
+        this.schemaReader = new DatabaseSchemaReader(schema);
+    }
+
+    @Override
+    public boolean supports(DatabaseDialect dialect) {
+        return dialect.isMySqlFamily();
+    }
+
+    @Override
+    protected String query() {
+        return QUERY;
+    }
+
+    // Connector/J reports databases as catalogs, the schema is then null and DATABASE() applies
+    @Override
+    protected void bind(PreparedStatement statement, Connection connection) throws SQLException {
+        statement.setString(1, schemaReader.resolveSchema(connection));
+    }
+}
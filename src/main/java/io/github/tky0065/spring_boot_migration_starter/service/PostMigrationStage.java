@@ -0,0 +1,329 @@
+package io.github.tky0065.spring_boot_migration_starter.service;
+
+import io.github.tky0065.spring_boot_migration_starter.config.MigrationProperties;
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.Location;
+import org.flywaydb.core.api.MigrationInfo;
+import org.flywaydb.core.api.output.MigrateOutput;
+import org.flywaydb.core.api.output.MigrateResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.Resource;
+import org.springframework.util.StringUtils;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Runs once migrations are applied, before the application reports ready: refreshes the planner
+ * statistics of the tables the migrations touched, so that the first queries after a deployment
+ * get good plans, then optionally warms the connection pool and a list of critical queries.
+ * <p>
+ * Failures are logged and never fail the migration, which is already committed.
+ */
+public class PostMigrationStage {
+
+    private static final Logger logger = LoggerFactory.getLogger(PostMigrationStage.class);
+
+    private static final String IDENTIFIER = FullTableStatementDetector.IDENTIFIER;
+    private static final Pattern BLOCK_COMMENT = Pattern.compile("/\\*.*?\\*/", Pattern.DOTALL);
+    private static final List<Pattern> WRITTEN_TABLE = List.of(
+            Pattern.compile("^CREATE\\s+(?:(?:GLOBAL\\s+|LOCAL\\s+)?TEMP(?:ORARY)?\\s+)?TABLE\\s+(?:IF\\s+NOT\\s+EXISTS\\s+)?" + IDENTIFIER),
+            Pattern.compile("^ALTER\\s+TABLE\\s+(?:IF\\s+EXISTS\\s+)?(?:ONLY\\s+)?" + IDENTIFIER),
+            Pattern.compile("^CREATE\\s+(?:UNIQUE\\s+)?INDEX\\b.*?\\bON\\s+(?:ONLY\\s+)?" + IDENTIFIER),
+            Pattern.compile("^INSERT\\s+(?:IGNORE\\s+)?INTO\\s+" + IDENTIFIER),
+            Pattern.compile("^(?:REPLACE|MERGE)\\s+INTO\\s+" + IDENTIFIER),
+            Pattern.compile("^UPDATE\\s+(?:ONLY\\s+)?" + IDENTIFIER),
+            Pattern.compile("^DELETE\\s+FROM\\s+(?:ONLY\\s+)?" + IDENTIFIER),
+            Pattern.compile("^TRUNCATE\\s+(?:TABLE\\s+)?" + IDENTIFIER),
+            Pattern.compile("^COPY\\s+" + IDENTIFIER + "\\s+FROM\\b"));
+
+    private final MigrationProperties properties;
+
+    public PostMigrationStage(MigrationProperties properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * Refresh the statistics of the touched tables, then warm up
+     *
+     * @param dataSource The migrated database
+     * @param touchedTables Lower-case names of the tables written by the applied migrations
+     */
+    public void run(DataSource dataSource, Collection<String> touchedTables) {
+        MigrationProperties.PostMigration settings = properties.getPostMigration();
+        if (settings.isAnalyzeTouchedTables() && !touchedTables.isEmpty()) {
+            try (Connection connection = dataSource.getConnection()) {
+                refreshStatistics(connection, touchedTables);
+            } catch (SQLException e) {
+                logger.warn("Could not refresh the statistics of the migrated tables", e);
+            }
+        }
+        warmUp(dataSource);
+    }
+
+    /**
+     * Collect the tables written by the migrations Flyway just applied
+     *
+     * @param flyway The Flyway instance that ran the migration
+     * @param result Result of the migration
+     * @return Lower-case names of the touched tables
+     */
+    public Set<String> touchedTables(Flyway flyway, MigrateResult result) {
+        Set<String> tables = new TreeSet<>();
+        if (result == null || result.migrations == null || result.migrations.isEmpty()) {
+            return tables;
+        }
+        List<String> descriptors = new ArrayList<>();
+        for (Location location : flyway.getConfiguration().getLocations()) {
+            descriptors.add(location.getDescriptor());
+        }
+        MigrationLocations locations = new MigrationLocations(descriptors, flyway.getConfiguration().getClassLoader());
+        MigrationInfo[] applied = flyway.info().applied();
+        DatabaseDialect dialect = scriptDialect(flyway.getConfiguration().getDataSource());
+        for (MigrateOutput output : result.migrations) {
+            MigrationInfo info = findApplied(applied, output);
+            if (info == null) {
+                continue;
+            }
+            try {
+                Resource script = findScript(locations, info);
+                if (script == null) {
+                    logger.debug("Cannot read migration {}, its tables are not analyzed", info.getScript());
+                    continue;
+                }
+                try (Reader reader = StreamingSqlExecutor.openScript(script)) {
+                    collectTouchedTables(reader, dialect, tables);
+                }
+            } catch (IOException e) {
+                logger.warn("Could not read migration {}", info.getScript(), e);
+            }
+        }
+        return tables;
+    }
+
+    /**
+     * Open connections until the pool holds the configured number, then run the warm-up queries
+     *
+     * @param dataSource The migrated database
+     */
+    public void warmUp(DataSource dataSource) {
+        MigrationProperties.PostMigration settings = properties.getPostMigration();
+        if (settings.getWarmUpConnections() > 0) {
+            warmUpPool(dataSource, settings.getWarmUpConnections());
+        }
+        if (settings.getWarmUpQueries().isEmpty()) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            for (String query : settings.getWarmUpQueries()) {
+                for (int i = 0; i < settings.getWarmUpIterations(); i++) {
+                    try {
+                        execute(statement, query);
+                    } catch (SQLException e) {
+                        logger.warn("Warm-up query failed: {}", query, e);
+                        break;
+                    }
+                }
+            }
+            logger.info("Ran {} warm-up queries in {} ms", settings.getWarmUpQueries().size(),
+                    System.currentTimeMillis() - start);
+        } catch (SQLException e) {
+            logger.warn("Could not run the warm-up queries", e);
+        }
+    }
+
+    /**
+     * Refresh the planner statistics of the given tables. Tables that no longer exist are skipped.
+     *
+     * @param connection Connection to the migrated database
+     * @param touchedTables Lower-case table names
+     */
+    public void refreshStatistics(Connection connection, Collection<String> touchedTables) throws SQLException {
+        DatabaseDialect dialect = DatabaseDialect.of(connection);
+        if (dialect == DatabaseDialect.OTHER) {
+            logger.debug("Statistics refresh is not supported on {}", connection.getMetaData().getDatabaseProductName());
+            return;
+        }
+        DatabaseSchemaReader schemaReader = new DatabaseSchemaReader(properties.getSchema());
+        Map<String, String> existing = schemaReader.listTables(connection);
+        String schema = schemaReader.resolveSchema(connection);
+
+        long start = System.currentTimeMillis();
+        int analyzed = 0;
+        for (String table : touchedTables) {
+            String actualName = existing.get(table.toLowerCase(Locale.ROOT));
+            if (actualName == null) {
+                continue;
+            }
+            try {
+                analyze(connection, dialect, schema, actualName);
+                analyzed++;
+            } catch (SQLException e) {
+                logger.warn("Could not refresh the statistics of {}", actualName, e);
+            }
+        }
+        logger.info("Refreshed the statistics of {} migrated tables in {} ms", analyzed, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Collect the tables written by the statements of a script
+     *
+     * @param script The script, read one statement at a time
+     * @param dialect Database the script is written for
+     * @param tables Receives the lower-case table names
+     */
+    static void collectTouchedTables(Reader script, DatabaseDialect dialect, Set<String> tables) throws IOException {
+        SqlStatementSplitter splitter = new SqlStatementSplitter(script, dialect);
+        String statement;
+        while ((statement = splitter.nextStatement()) != null) {
+            String table = touchedTable(statement);
+            if (table != null) {
+                tables.add(table);
+            }
+        }
+    }
+
+    /**
+     * @param sql A single statement
+     * @return Lower-case name of the table the statement writes, null if none
+     */
+    static String touchedTable(String sql) {
+        String statement = BLOCK_COMMENT.matcher(sql).replaceAll(" ")
+                .replaceAll("\\s+", " ").trim().toUpperCase(Locale.ROOT);
+        for (Pattern pattern : WRITTEN_TABLE) {
+            Matcher matcher = pattern.matcher(statement);
+            if (matcher.find()) {
+                return FullTableStatementDetector.tableName(matcher.group(1));
+            }
+        }
+        return null;
+    }
+
+    private void analyze(Connection connection, DatabaseDialect dialect, String schema, String table) throws SQLException {
+        if (dialect == DatabaseDialect.ORACLE) {
+            try (CallableStatement call = connection.prepareCall("{call DBMS_STATS.GATHER_TABLE_STATS(?, ?)}")) {
+                call.setString(1, schema);
+                call.setString(2, table);
+                call.execute();
+            }
+            return;
+        }
+        String name = quote(dialect, table);
+        if (StringUtils.hasText(properties.getSchema())) {
+            name = quote(dialect, schema) + "." + name;
+        }
+        String sql = switch (dialect) {
+            case POSTGRESQL -> "ANALYZE " + name;
+            case SQLSERVER -> "UPDATE STATISTICS " + name;
+            default -> "ANALYZE TABLE " + name;
+        };
+        try (Statement statement = connection.createStatement()) {
+            execute(statement, sql);
+        }
+    }
+
+    private static String quote(DatabaseDialect dialect, String identifier) {
+        if (dialect.isMySqlFamily()) {
+            return "`" + identifier + "`";
+        } else if (dialect == DatabaseDialect.SQLSERVER) {
+            return "[" + identifier + "]";
+        }
+        return "\"" + identifier + "\"";
+    }
+
+    // Consume the results, MySQL's ANALYZE TABLE and the warm-up queries return rows
+    /**
+     * @return The dialect the scripts are split with, {@link DatabaseDialect#OTHER} if the database is unreachable
+     */
+    static DatabaseDialect scriptDialect(DataSource dataSource) {
+        try {
+            return DatabaseDialect.of(dataSource);
+        } catch (SQLException e) {
+            logger.debug("Could not resolve the database dialect, scripts are split with the generic syntax", e);
+            return DatabaseDialect.OTHER;
+        }
+    }
+
+    private static void execute(Statement statement, String sql) throws SQLException {
+        boolean hasResults = statement.execute(sql);
+        while (hasResults || statement.getUpdateCount() != -1) {
+            if (hasResults) {
+                try (ResultSet rs = statement.getResultSet()) {
+                    while (rs.next()) {
+                        // Reading the rows is the point of the warm-up
+                    }
+                }
+            }
+            hasResults = statement.getMoreResults();
+        }
+    }
+
+    private void warmUpPool(DataSource dataSource, int size) {
+        List<Connection> connections = new ArrayList<>();
+        try {
+            for (int i = 0; i < size; i++) {
+                Connection connection = dataSource.getConnection();
+                connections.add(connection);
+                connection.isValid(1);
+            }
+            logger.info("Warmed up {} database connections", connections.size());
+        } catch (SQLException e) {
+            logger.warn("Could only open {} of the {} warm-up connections", connections.size(), size, e);
+        } finally {
+            for (Connection connection : connections) {
+                try {
+                    connection.close();
+                } catch (SQLException e) {
+                    logger.debug("Could not release a warm-up connection", e);
+                }
+            }
+        }
+    }
+
+    private static MigrationInfo findApplied(MigrationInfo[] applied, MigrateOutput output) {
+        for (int i = applied.length - 1; i >= 0; i--) {
+            MigrationInfo info = applied[i];
+            String version = info.getVersion() == null ? "" : info.getVersion().getVersion();
+            if (version.equals(Objects.toString(output.version, ""))
+                    && Objects.equals(info.getDescription(), output.description)) {
+                return info;
+            }
+        }
+        return null;
+    }
+
+    private Resource findScript(MigrationLocations locations, MigrationInfo info) throws IOException {
+        if (StreamingSqlMigration.class.getName().equals(info.getScript())) {
+            // The version of V1_1__x is 1.1, match it rather than the file name
+            try {
+                return StreamingSqlMigration.find(locations, properties.getStreaming()).stream()
+                        .filter(migration -> migration.getVersion().equals(info.getVersion()))
+                        .map(StreamingSqlMigration::getScript)
+                        .findFirst()
+                        .orElse(null);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+        return info.getScript().endsWith(".sql") ? locations.findScript(info.getScript()) : null;
+    }
+}
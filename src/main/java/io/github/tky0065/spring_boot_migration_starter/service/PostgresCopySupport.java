@@ -0,0 +1,35 @@
+package io.github.tky0065.spring_boot_migration_starter.service;
+
+import org.postgresql.PGConnection;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Bulk loading through the PostgreSQL {@code COPY} protocol. Kept in its own class so that
+ * the PostgreSQL driver is only required when the target database is PostgreSQL.
+ */
+final class PostgresCopySupport {
+
+    private PostgresCopySupport() {
+    }
+
+    /**
+     * Stream a CSV file with a header line into a table
+     *
+     * @param connection PostgreSQL connection, possibly wrapped by a pool
+     * @param table Target table
+     * @param columns Columns of the CSV file, in order
+     * @param csv The CSV content, header included
+     * @return The number of rows copied
+     */
+    static long copyCsv(Connection connection, String table, List<String> columns, Reader csv)
+            throws SQLException, IOException {
+        PGConnection pgConnection = connection.unwrap(PGConnection.class);
+        String sql = "COPY " + table + " (" + String.join(", ", columns) + ") FROM STDIN WITH (FORMAT csv, HEADER true)";
+        return pgConnection.getCopyAPI().copyIn(sql, csv);
+    }
+}
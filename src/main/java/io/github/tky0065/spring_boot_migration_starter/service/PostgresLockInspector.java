@@ -0,0 +1,50 @@
+package io.github.tky0065.spring_boot_migration_starter.service;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * Reads the granted relation locks of {@code pg_locks} with the sessions of {@code pg_stat_activity}, on the
+ * tables of the migrated schema
+ */
+public class PostgresLockInspector extends AbstractLockInspector {
+
+    private static final String QUERY = "SELECT DISTINCT a.pid, c.relname, l.mode, a.state, "
+            + "COALESCE(EXTRACT(EPOCH FROM clock_timestamp() - a.xact_start) * 1000, 0)::BIGINT, a.query "
+            + "FROM pg_locks l "
+            + "JOIN pg_class c ON c.oid = l.relation "
+            + "JOIN pg_namespace n ON n.oid = c.relnamespace "
+            + "JOIN pg_stat_activity a ON a.pid = l.pid "
+            + "WHERE l.locktype = 'relation' AND l.granted AND a.pid <> pg_backend_pid() "
+            + "AND l.database = (SELECT oid FROM pg_database WHERE datname = current_database()) "
+            + "AND c.relkind IN ('r', 'p') AND n.nspname = ?";
+
+    private final DatabaseSchemaReader schemaReader;
+
+    public PostgresLockInspector() {
+        this(null);
+    }
+
+    /**
+     * @param schema Migrated schema, the connection's current schema when null
+     */
+    public PostgresLockInspector(String schema) {
+        this.schemaReader = new DatabaseSchemaReader(schema);
+    }
+
+    @Override
+    public boolean supports(DatabaseDialect dialect) {
+        return dialect == DatabaseDialect.POSTGRESQL;
+    }
+
+    @Override
+    protected String query() {
+        return QUERY;
+    }
+
+    @Override
+    protected void bind(PreparedStatement statement, Connection connection) throws SQLException {
+        statement.setString(1, schemaReader.resolveSchema(connection));
+    }
+}
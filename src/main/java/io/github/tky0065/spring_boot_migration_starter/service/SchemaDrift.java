@@ -0,0 +1,24 @@
+package io.github.tky0065.spring_boot_migration_starter.service;
+
+import java.io.Serializable;
+
+/**
+ * Difference between the live schema and the schema left by the last migration
+ *
+ * @param table Lower-case table name
+ * @param kind Kind of change
+ * @param object Changed column or index, the table itself for table changes
+ * @param detail Human-readable description of the change
+ */
+public record SchemaDrift(String table, Kind kind, String object, String detail) implements Serializable {
+
+    public enum Kind {
+        TABLE_ADDED,
+        TABLE_DROPPED,
+        COLUMN_ADDED,
+        COLUMN_DROPPED,
+        COLUMN_CHANGED,
+        INDEX_ADDED,
+        INDEX_DROPPED
+    }
+}
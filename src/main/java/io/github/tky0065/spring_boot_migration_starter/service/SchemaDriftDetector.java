@@ -0,0 +1,360 @@
+package io.github.tky0065.spring_boot_migration_starter.service;
+
+import io.github.tky0065.spring_boot_migration_starter.config.MigrationProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.util.StringUtils;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically compares the live schema with the schema left by the last migration, to report
+ * changes made by hand (hotfixes, manual indexes...). Never generates any migration.
+ * <p>
+ * A snapshot of every table is read once; each check then runs a single catalog query returning a
+ * change marker per table (last DDL time on Oracle and SQL Server, catalog row versions on
+ * PostgreSQL, a column checksum on MySQL) and only re-reads the tables whose marker moved. Other
+ * databases have no such marker and are fully re-read on each check.
+ * <p>
+ * The snapshot is taken again after each migration, detected through the migration history table
+ * or the {@link MigrationListener} callbacks, so that migrated changes are not reported.
+ */
+public class SchemaDriftDetector implements MigrationListener, SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(SchemaDriftDetector.class);
+
+    private static final String POSTGRESQL_MARKERS = """
+            SELECT c.relname, c.xmin::text
+                || ':' || (SELECT COALESCE(MAX(a.xmin::text::bigint), 0) FROM pg_attribute a WHERE a.attrelid = c.oid)
+                || ':' || (SELECT COUNT(*) || '/' || COALESCE(MAX(i.xmin::text::bigint), 0) FROM pg_index i WHERE i.indrelid = c.oid)
+                || ':' || (SELECT COUNT(*) || '/' || COALESCE(MAX(k.xmin::text::bigint), 0) FROM pg_constraint k WHERE k.conrelid = c.oid)
+            FROM pg_class c JOIN pg_namespace n ON n.oid = c.relnamespace
+            WHERE n.nspname = ? AND c.relkind IN ('r', 'p')""";
+
+    private static final String MYSQL_MARKERS = """
+            SELECT c.table_name, CONCAT(COUNT(*), ':',
+                SUM(CRC32(CONCAT_WS(':', c.column_name, c.column_type, c.is_nullable, IFNULL(c.column_default, '')))), ':',
+                (SELECT COUNT(*) FROM information_schema.statistics s
+                 WHERE s.table_schema = c.table_schema AND s.table_name = c.table_name))
+            FROM information_schema.columns c JOIN information_schema.tables t
+                ON t.table_schema = c.table_schema AND t.table_name = c.table_name
+            WHERE c.table_schema = ? AND t.table_type = 'BASE TABLE'
+            GROUP BY c.table_schema, c.table_name""";
+
+    private static final String ORACLE_MARKERS = """
+            SELECT object_name, TO_CHAR(last_ddl_time, 'YYYYMMDDHH24MISS')
+            FROM all_objects WHERE owner = ? AND object_type = 'TABLE'""";
+
+    private static final String SQLSERVER_MARKERS = """
+            SELECT t.name, CONVERT(varchar(30), t.modify_date, 126)
+            FROM sys.tables t WHERE SCHEMA_NAME(t.schema_id) = ?""";
+
+    private final DataSource dataSource;
+    private final MigrationProperties properties;
+    private final ApplicationEventPublisher publisher;
+    private final DatabaseSchemaReader schemaReader;
+    private final Set<String> ignoredTables = new HashSet<>();
+
+    private Map<String, TableSchema> baseline;
+    private Map<String, String> markers = Map.of();
+    private final Map<String, List<SchemaDrift>> drifts = new HashMap<>();
+    private String historyVersion;
+    private boolean baselineStale;
+    private volatile long lastCheckNanos;
+
+    private ScheduledExecutorService scheduler;
+
+    public SchemaDriftDetector(DataSource dataSource, MigrationProperties properties,
+                               ApplicationEventPublisher publisher) {
+        this.dataSource = dataSource;
+        this.properties = properties;
+        this.publisher = publisher;
+        this.schemaReader = new DatabaseSchemaReader(properties.getSchema());
+        ignoredTables.add(MigrationHistory.tableName(properties));
+        ignoredTables.add("databasechangeloglock");
+        ignoredTables.add(properties.getSeedData().getHistoryTable().toLowerCase(Locale.ROOT));
+        ignoredTables.add(properties.getRunHistory().getTable().toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Compare the live schema with the last snapshot. The first check only takes the snapshot.
+     *
+     * @return Changes found by this check, changes already reported by a previous check are omitted
+     */
+    public synchronized List<SchemaDrift> check() {
+        long start = System.nanoTime();
+        try (Connection connection = dataSource.getConnection()) {
+            DatabaseDialect dialect = DatabaseDialect.of(connection);
+            Map<String, Marker> current = readMarkers(connection, dialect);
+            String currentHistoryVersion = appliedVersion(connection, current.get(MigrationHistory.tableName(properties)));
+            current.keySet().removeAll(ignoredTables);
+
+            if (baseline == null || baselineStale || !Objects.equals(currentHistoryVersion, historyVersion)) {
+                takeSnapshot(connection, current);
+                historyVersion = currentHistoryVersion;
+                return List.of();
+            }
+
+            List<SchemaDrift> detected = new ArrayList<>();
+            Set<String> tables = new HashSet<>(current.keySet());
+            tables.addAll(markers.keySet());
+            for (String table : tables) {
+                Marker marker = current.get(table);
+                if (marker != null && marker.fingerprint().equals(markers.get(table))) {
+                    continue;
+                }
+                TableSchema live = marker == null ? null : marker.read(connection, schemaReader);
+                List<SchemaDrift> tableDrifts = diff(table, baseline.get(table), live);
+                List<SchemaDrift> previous = tableDrifts.isEmpty() ? drifts.remove(table) : drifts.put(table, tableDrifts);
+                for (SchemaDrift drift : tableDrifts) {
+                    if (previous == null || !previous.contains(drift)) {
+                        detected.add(drift);
+                    }
+                }
+            }
+            markers = fingerprints(current);
+
+            if (!detected.isEmpty()) {
+                detected.forEach(drift -> logger.warn("Schema drift on {}: {}", drift.table(), drift.detail()));
+                publisher.publishEvent(new SchemaDriftEvent(this, detected, getDriftCount()));
+            }
+            return detected;
+        } catch (SQLException | RuntimeException e) {
+            logger.warn("Schema drift check failed", e);
+            return List.of();
+        } finally {
+            lastCheckNanos = System.nanoTime() - start;
+        }
+    }
+
+    /**
+     * @return Every change currently differing from the last snapshot
+     */
+    public synchronized List<SchemaDrift> getDrifts() {
+        return drifts.values().stream().flatMap(List::stream).toList();
+    }
+
+    public synchronized int getDriftCount() {
+        return drifts.values().stream().mapToInt(List::size).sum();
+    }
+
+    /**
+     * @return Duration of the last check in nanoseconds
+     */
+    public long getLastCheckNanos() {
+        return lastCheckNanos;
+    }
+
+    /**
+     * Accept the live schema as the new reference on the next check
+     */
+    public synchronized void resetBaseline() {
+        baselineStale = true;
+    }
+
+    @Override
+    public void afterOperation(MigrationOperation operation, long durationMillis) {
+        if (operation == MigrationOperation.MIGRATE || operation == MigrationOperation.REPAIR) {
+            resetBaseline();
+        }
+    }
+
+    @Override
+    public synchronized void start() {
+        long interval = properties.getDrift().getInterval().toMillis();
+        scheduler = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform()
+                .name("schema-drift-detector").daemon(true).factory());
+        scheduler.scheduleWithFixedDelay(this::check, 0, interval, TimeUnit.MILLISECONDS);
+        logger.info("Schema drift detection started, checking every {}", properties.getDrift().getInterval());
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    @Override
+    public synchronized boolean isRunning() {
+        return scheduler != null;
+    }
+
+    /**
+     * Tables re-read on a snapshot are limited to those whose marker moved since the previous one
+     */
+    private void takeSnapshot(Connection connection, Map<String, Marker> current) throws SQLException {
+        Map<String, TableSchema> snapshot = new HashMap<>();
+        for (Map.Entry<String, Marker> entry : current.entrySet()) {
+            String table = entry.getKey();
+            TableSchema previous = baseline == null ? null : baseline.get(table);
+            boolean unchanged = previous != null && entry.getValue().fingerprint().equals(markers.get(table))
+                    && !drifts.containsKey(table);
+            snapshot.put(table, unchanged ? previous : entry.getValue().read(connection, schemaReader));
+        }
+        baseline = snapshot;
+        markers = fingerprints(current);
+        drifts.clear();
+        baselineStale = false;
+        logger.debug("Schema snapshot taken for {} tables", snapshot.size());
+    }
+
+    private Map<String, Marker> readMarkers(Connection connection, DatabaseDialect dialect) throws SQLException {
+        String query = switch (dialect) {
+            case POSTGRESQL -> POSTGRESQL_MARKERS;
+            case MYSQL, MARIADB -> MYSQL_MARKERS;
+            case ORACLE -> ORACLE_MARKERS;
+            case SQLSERVER -> SQLSERVER_MARKERS;
+            default -> null;
+        };
+        Map<String, Marker> current = new HashMap<>();
+        if (query == null) {
+            // No cheap marker: the table structure is its own fingerprint
+            for (String actualName : schemaReader.listTables(connection).values()) {
+                if (ignoredTables.contains(actualName.toLowerCase(Locale.ROOT))) {
+                    putMarker(current, actualName, "", null);
+                } else {
+                    TableSchema table = schemaReader.readTable(connection, actualName);
+                    putMarker(current, actualName, Integer.toHexString(table.hashCode()), table);
+                }
+            }
+            return current;
+        }
+        String schema = dialect.isMySqlFamily() && !StringUtils.hasText(properties.getSchema())
+                ? connection.getCatalog() : schemaReader.resolveSchema(connection);
+        try (PreparedStatement statement = connection.prepareStatement(query)) {
+            statement.setString(1, schema);
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    putMarker(current, rs.getString(1), rs.getString(2), null);
+                }
+            }
+        }
+        return current;
+    }
+
+    private static void putMarker(Map<String, Marker> markers, String actualName, String fingerprint, TableSchema table) {
+        markers.put(actualName.toLowerCase(Locale.ROOT), new Marker(actualName, Objects.toString(fingerprint, ""), table));
+    }
+
+    /**
+     * @return The applied schema version, null when there is no history yet
+     */
+    private String appliedVersion(Connection connection, Marker historyTable) {
+        if (historyTable == null) {
+            return null;
+        }
+        try {
+            return MigrationHistory.appliedVersion(connection, properties, historyTable.actualName());
+        } catch (SQLException e) {
+            logger.debug("Could not read the migration history in {}", historyTable.actualName(), e);
+            return null;
+        }
+    }
+
+    private static Map<String, String> fingerprints(Map<String, Marker> markers) {
+        Map<String, String> fingerprints = new HashMap<>();
+        markers.forEach((table, marker) -> fingerprints.put(table, marker.fingerprint()));
+        return fingerprints;
+    }
+
+    /**
+     * Compare two structures of the same table
+     *
+     * @param table Lower-case table name
+     * @param expected Structure in the snapshot, null if the table did not exist
+     * @param live Live structure, null if the table no longer exists
+     * @return The differences, empty when the structures match
+     */
+    static List<SchemaDrift> diff(String table, TableSchema expected, TableSchema live) {
+        List<SchemaDrift> drifts = new ArrayList<>();
+        if (expected == null && live == null) {
+            return drifts;
+        } else if (expected == null) {
+            drifts.add(new SchemaDrift(table, SchemaDrift.Kind.TABLE_ADDED, table, "table " + table + " added"));
+            return drifts;
+        } else if (live == null) {
+            drifts.add(new SchemaDrift(table, SchemaDrift.Kind.TABLE_DROPPED, table, "table " + table + " dropped"));
+            return drifts;
+        }
+
+        for (TableSchema.Column column : expected.columns().values()) {
+            TableSchema.Column liveColumn = live.column(column.name());
+            if (liveColumn == null) {
+                drifts.add(new SchemaDrift(table, SchemaDrift.Kind.COLUMN_DROPPED, column.name(),
+                        "column " + column.name() + " dropped"));
+            } else if (!describe(column).equals(describe(liveColumn))) {
+                drifts.add(new SchemaDrift(table, SchemaDrift.Kind.COLUMN_CHANGED, column.name(),
+                        "column " + column.name() + " changed from " + describe(column) + " to " + describe(liveColumn)));
+            }
+        }
+        for (TableSchema.Column column : live.columns().values()) {
+            if (expected.column(column.name()) == null) {
+                drifts.add(new SchemaDrift(table, SchemaDrift.Kind.COLUMN_ADDED, column.name(),
+                        "column " + column.name() + " " + describe(column) + " added"));
+            }
+        }
+
+        // Indexes are matched on their definition, generated names may change when a table is rebuilt
+        Map<String, String> expectedIndexes = indexes(expected);
+        Map<String, String> liveIndexes = indexes(live);
+        expectedIndexes.forEach((definition, index) -> {
+            if (!liveIndexes.containsKey(definition)) {
+                drifts.add(new SchemaDrift(table, SchemaDrift.Kind.INDEX_DROPPED, index,
+                        "index " + index + " " + definition + " dropped"));
+            }
+        });
+        liveIndexes.forEach((definition, index) -> {
+            if (!expectedIndexes.containsKey(definition)) {
+                drifts.add(new SchemaDrift(table, SchemaDrift.Kind.INDEX_ADDED, index,
+                        "index " + index + " " + definition + " added"));
+            }
+        });
+        return drifts;
+    }
+
+    private static String describe(TableSchema.Column column) {
+        String type = column.typeName().toUpperCase(Locale.ROOT) + "(" + column.size()
+                + (column.decimalDigits() > 0 ? "," + column.decimalDigits() : "") + ")";
+        return type + (column.nullable() ? " NULL" : " NOT NULL")
+                + (column.defaultValue() != null ? " DEFAULT " + column.defaultValue() : "");
+    }
+
+    private static Map<String, String> indexes(TableSchema table) {
+        Map<String, String> indexes = new HashMap<>();
+        for (TableSchema.Index index : table.indexes()) {
+            String definition = (index.unique() ? "UNIQUE " : "") + "("
+                    + String.join(", ", index.columns()).toLowerCase(Locale.ROOT) + ")";
+            indexes.put(definition, index.name().toLowerCase(Locale.ROOT));
+        }
+        return indexes;
+    }
+
+    /**
+     * Change marker of a table, with its structure when it was already read to compute the marker
+     */
+    private record Marker(String actualName, String fingerprint, TableSchema table) {
+
+        TableSchema read(Connection connection, DatabaseSchemaReader reader) throws SQLException {
+            return table != null ? table : reader.readTable(connection, actualName);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package io.github.tky0065.spring_boot_migration_starter.service;
+
+import org.springframework.context.ApplicationEvent;
+
+import java.util.List;
+
+/**
+ * Published by {@link SchemaDriftDetector} when changes made outside of the migrations are found
+ */
+public class SchemaDriftEvent extends ApplicationEvent {
+
+    private final List<SchemaDrift> drifts;
+    private final int totalDrifts;
+
+    /**
+     * @param source The detector
+     * @param drifts Changes found by the latest check
+     * @param totalDrifts Number of changes currently differing from the last migration
+     */
+    public SchemaDriftEvent(Object source, List<SchemaDrift> drifts, int totalDrifts) {
+        super(source);
+        this.drifts = List.copyOf(drifts);
+        this.totalDrifts = totalDrifts;
+    }
+
+    public List<SchemaDrift> getDrifts() {
+        return drifts;
+    }
+
+    public int getTotalDrifts() {
+        return totalDrifts;
+    }
+}
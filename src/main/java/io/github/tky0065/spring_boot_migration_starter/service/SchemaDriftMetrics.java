@@ -0,0 +1,49 @@
+package io.github.tky0065.spring_boot_migration_starter.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.context.ApplicationListener;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micrometer metrics of the {@link SchemaDriftDetector}:
+ * <ul>
+ *     <li>{@code db.migration.schema.drift}: changes currently differing from the last migration</li>
+ *     <li>{@code db.migration.schema.drift.detected}: changes detected since startup</li>
+ *     <li>{@code db.migration.schema.drift.check.duration}: duration of the last check</li>
+ * </ul>
+ */
+public class SchemaDriftMetrics implements MeterBinder, ApplicationListener<SchemaDriftEvent> {
+
+    private final SchemaDriftDetector detector;
+    private Counter detected;
+
+    public SchemaDriftMetrics(SchemaDriftDetector detector) {
+        this.detector = detector;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("db.migration.schema.drift", detector, SchemaDriftDetector::getDriftCount)
+                .description("Schema changes made outside of the migrations")
+                .register(registry);
+        Gauge.builder("db.migration.schema.drift.check.duration", detector,
+                        d -> d.getLastCheckNanos() / (double) TimeUnit.MILLISECONDS.toNanos(1))
+                .description("Duration of the last schema drift check")
+                .baseUnit("milliseconds")
+                .register(registry);
+        detected = Counter.builder("db.migration.schema.drift.detected")
+                .description("Schema changes detected outside of the migrations")
+                .register(registry);
+    }
+
+    @Override
+    public void onApplicationEvent(SchemaDriftEvent event) {
+        if (detected != null) {
+            detected.increment(event.getDrifts().size());
+        }
+    }
+}
@@ -0,0 +1,582 @@
+package io.github.tky0065.spring_boot_migration_starter.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.tky0065.spring_boot_migration_starter.config.MigrationProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.Resource;
+import org.springframework.util.StringUtils;
+
+import javax.sql.DataSource;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Loads reference data shipped as CSV or JSON Lines files in the migration {@code locations}.
+ * <p>
+ * Seed files are named {@code S<version>__<table>.csv} or {@code S<version>__<table>.jsonl} and are
+ * loaded in version order. Rows are streamed into JDBC batches (or {@code COPY} on PostgreSQL), so
+ * memory use does not depend on the file size. Each file is loaded in its own transaction and its
+ * checksum is recorded in a tracking table, an unchanged file is never loaded twice. Instances starting
+ * together are serialized by a session-level advisory lock on PostgreSQL, MySQL, MariaDB and SQL Server;
+ * elsewhere, the primary key of the tracking table makes the slower instance skip the file.
+ */
+public class SeedDataLoader {
+
+    private static final Logger logger = LoggerFactory.getLogger(SeedDataLoader.class);
+    private static final int LOCK_TIMEOUT_SECONDS = 600;
+    private static final Pattern SEED_FILE_NAME = Pattern.compile("S([0-9._]+)__(\\w+)\\.(csv|jsonl)");
+
+    private final MigrationProperties properties;
+    private final MigrationLocations locations;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public SeedDataLoader(MigrationProperties properties) {
+        this(properties, MigrationLocations.of(properties));
+    }
+
+    public SeedDataLoader(MigrationProperties properties, MigrationLocations locations) {
+        this.properties = properties;
+        this.locations = locations;
+    }
+
+    private record SeedFile(Resource resource, String fileName, String version, String table, boolean csv) {
+    }
+
+    /**
+     * Quoted names of a seed table and of its columns
+     *
+     * @param qualifiedName Quoted table name, qualified with the schema when known
+     * @param columnNames Column names in the case used by the catalog, by lower-case name
+     * @param columnTypes JDBC types, by lower-case column name
+     */
+    private record TargetTable(String qualifiedName, String quote, Map<String, String> columnNames,
+                               Map<String, Integer> columnTypes) {
+
+        List<String> quotedColumns(List<String> columns) {
+            return columns.stream()
+                    .map(column -> quote + columnNames.getOrDefault(column.toLowerCase(Locale.ROOT), column) + quote)
+                    .toList();
+        }
+    }
+
+    /**
+     * Load the new or changed seed files
+     *
+     * @param dataSource Target database
+     * @return The number of files loaded
+     */
+    public int load(DataSource dataSource) {
+        List<SeedFile> seedFiles = findSeedFiles();
+        if (seedFiles.isEmpty()) {
+            logger.debug("No seed data files found in {}", locations.getLocations());
+            return 0;
+        }
+
+        int loaded = 0;
+        try (Connection connection = dataSource.getConnection()) {
+            DatabaseDialect dialect = DatabaseDialect.of(connection);
+            boolean locked = lock(connection, dialect);
+            try {
+                String historyTable = ensureHistoryTable(connection);
+                for (SeedFile seedFile : seedFiles) {
+                    if (loadIfChanged(connection, dialect, historyTable, seedFile, locked)) {
+                        loaded++;
+                    }
+                }
+            } finally {
+                if (locked) {
+                    unlock(connection, dialect);
+                }
+            }
+        } catch (SQLException | IOException e) {
+            logger.error("Failed to load seed data", e);
+            throw new RuntimeException("Failed to load seed data", e);
+        }
+        return loaded;
+    }
+
+    private boolean loadIfChanged(Connection connection, DatabaseDialect dialect, String historyTable,
+                                  SeedFile seedFile, boolean locked) throws SQLException, IOException {
+        long checksum = MigrationLocations.checksum(seedFile.resource());
+        Long recorded = recordedChecksum(connection, historyTable, seedFile.fileName());
+        if (recorded != null && recorded == checksum) {
+            logger.debug("Seed data file {} is up to date", seedFile.fileName());
+            return false;
+        }
+        if (recorded != null && !properties.getSeedData().isUpsert()) {
+            throw new IllegalStateException("Seed data file " + seedFile.fileName()
+                    + " changed since it was loaded, enable db.migration.seed-data.upsert to reload it");
+        }
+
+        try {
+            loadFile(connection, dialect, historyTable, seedFile, checksum, recorded != null);
+            return true;
+        } catch (SQLException e) {
+            // Without a lock, another instance may have recorded the same file first
+            if (!locked && Long.valueOf(checksum).equals(recordedChecksum(connection, historyTable, seedFile.fileName()))) {
+                logger.info("Seed data file {} was loaded by another instance", seedFile.fileName());
+                return false;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Take a session-level advisory lock, so that a single instance loads the seed data at a time
+     *
+     * @return Whether the database supports it
+     */
+    private boolean lock(Connection connection, DatabaseDialect dialect) throws SQLException {
+        String sql = switch (dialect) {
+            case POSTGRESQL -> "SELECT pg_advisory_lock(hashtext(?))";
+            case MYSQL, MARIADB -> "SELECT GET_LOCK(?, " + LOCK_TIMEOUT_SECONDS + ")";
+            case SQLSERVER -> "DECLARE @result INT; EXEC @result = sp_getapplock @Resource = ?, @LockMode = 'Exclusive', "
+                    + "@LockOwner = 'Session', @LockTimeout = " + LOCK_TIMEOUT_SECONDS * 1000 + "; SELECT @result";
+            default -> null;
+        };
+        if (sql == null) {
+            logger.debug("No advisory lock on {}, concurrent seed data loads are resolved by the history table", dialect);
+            return false;
+        }
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            ps.setString(1, lockName());
+            try (ResultSet rs = ps.executeQuery()) {
+                // pg_advisory_lock returns void, the others 1 (MySQL) or 0/1 (SQL Server) once granted
+                if (dialect != DatabaseDialect.POSTGRESQL && (!rs.next() || rs.getInt(1) < 0
+                        || (dialect != DatabaseDialect.SQLSERVER && rs.getInt(1) != 1))) {
+                    throw new IllegalStateException("Timed out waiting for the seed data lock " + lockName());
+                }
+            }
+        }
+        return true;
+    }
+
+    private void unlock(Connection connection, DatabaseDialect dialect) {
+        String sql = switch (dialect) {
+            case POSTGRESQL -> "SELECT pg_advisory_unlock(hashtext(?))";
+            case MYSQL, MARIADB -> "SELECT RELEASE_LOCK(?)";
+            default -> "EXEC sp_releaseapplock @Resource = ?, @LockOwner = 'Session'";
+        };
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            ps.setString(1, lockName());
+            ps.execute();
+        } catch (SQLException e) {
+            // Released anyway when the session ends
+            logger.warn("Could not release the seed data lock {}", lockName(), e);
+        }
+    }
+
+    private String lockName() {
+        return "seed-data:" + properties.getSeedData().getHistoryTable();
+    }
+
+    private List<SeedFile> findSeedFiles() {
+        List<SeedFile> seedFiles = new ArrayList<>();
+        try {
+            List<Resource> resources = new ArrayList<>(locations.findResources("**/S*__*.csv"));
+            resources.addAll(locations.findResources("**/S*__*.jsonl"));
+            for (Resource resource : resources) {
+                Matcher matcher = SEED_FILE_NAME.matcher(String.valueOf(resource.getFilename()));
+                if (matcher.matches()) {
+                    seedFiles.add(new SeedFile(resource, resource.getFilename(), matcher.group(1),
+                            matcher.group(2), "csv".equals(matcher.group(3))));
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to list seed data files", e);
+        }
+        seedFiles.sort(Comparator.comparing((SeedFile f) -> versionKey(f.version())).thenComparing(SeedFile::fileName));
+        return seedFiles;
+    }
+
+    // Zero-padded numeric parts so that S2 sorts before S10
+    private static String versionKey(String version) {
+        return Arrays.stream(version.split("[._]"))
+                .filter(part -> !part.isEmpty())
+                .map(part -> String.format("%010d", Long.parseLong(part)))
+                .collect(Collectors.joining("."));
+    }
+
+    private void loadFile(Connection connection, DatabaseDialect dialect, String historyTable, SeedFile seedFile,
+                          long checksum, boolean reload) throws SQLException, IOException {
+        boolean upsert = reload || properties.getSeedData().isUpsert();
+        long start = System.currentTimeMillis();
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try {
+            TargetTable target = targetTable(connection, seedFile.table());
+            long rows;
+            if (seedFile.csv() && dialect == DatabaseDialect.POSTGRESQL) {
+                rows = copyIntoPostgres(connection, seedFile, target, upsert);
+            } else {
+                rows = batchInsert(connection, dialect, seedFile, target, upsert);
+            }
+            recordLoad(connection, historyTable, seedFile.fileName(), checksum, rows);
+            connection.commit();
+            logger.info("Loaded {} rows into {} from seed data file {} in {} ms",
+                    rows, seedFile.table(), seedFile.fileName(), System.currentTimeMillis() - start);
+        } catch (SQLException | IOException | RuntimeException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    private long batchInsert(Connection connection, DatabaseDialect dialect, SeedFile seedFile, TargetTable target,
+                             boolean upsert) throws SQLException, IOException {
+        int batchSize = Math.max(1, properties.getSeedData().getBatchSize());
+        try (RowSource rows = openRows(seedFile)) {
+            List<String> columns = rows.columns();
+            Map<String, Integer> columnTypes = target.columnTypes();
+            List<String> quotedColumns = target.quotedColumns(columns);
+            String sql = upsert ?
+                    upsertStatement(dialect, target.qualifiedName(), quotedColumns, primaryKey(connection, seedFile.table(), target)) :
+                    insertStatement(target.qualifiedName(), quotedColumns);
+
+            long count = 0;
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                Object[] row;
+                while ((row = rows.next()) != null) {
+                    for (int i = 0; i < columns.size(); i++) {
+                        Integer sqlType = columnTypes.get(columns.get(i).toLowerCase(Locale.ROOT));
+                        bind(ps, i + 1, i < row.length ? row[i] : null, sqlType);
+                    }
+                    ps.addBatch();
+                    if (++count % batchSize == 0) {
+                        ps.executeBatch();
+                    }
+                }
+                if (count % batchSize != 0) {
+                    ps.executeBatch();
+                }
+            }
+            return count;
+        }
+    }
+
+    private long copyIntoPostgres(Connection connection, SeedFile seedFile, TargetTable target, boolean upsert)
+            throws SQLException, IOException {
+        List<String> columns;
+        try (RowSource rows = openRows(seedFile)) {
+            columns = target.quotedColumns(rows.columns());
+        }
+
+        String copyTarget = target.qualifiedName();
+        if (upsert) {
+            // COPY cannot resolve conflicts: stage the rows, then merge them
+            copyTarget = target.quote() + "seed_staging_" + seedFile.table() + target.quote();
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("CREATE TEMP TABLE " + copyTarget + " (LIKE " + target.qualifiedName()
+                        + " INCLUDING DEFAULTS) ON COMMIT DROP");
+            }
+        }
+
+        long rows;
+        try (BufferedReader reader = newReader(seedFile.resource().getInputStream())) {
+            rows = PostgresCopySupport.copyCsv(connection, copyTarget, columns, reader);
+        }
+
+        if (upsert) {
+            String columnList = String.join(", ", columns);
+            String sql = "INSERT INTO " + target.qualifiedName() + " (" + columnList + ") SELECT " + columnList
+                    + " FROM " + copyTarget + onConflictClause(columns, primaryKey(connection, seedFile.table(), target));
+            try (Statement statement = connection.createStatement()) {
+                statement.executeUpdate(sql);
+            }
+        }
+        return rows;
+    }
+
+    static String insertStatement(String table, List<String> columns) {
+        return "INSERT INTO " + table + " (" + String.join(", ", columns) + ") VALUES (" + placeholders(columns) + ")";
+    }
+
+    static String upsertStatement(DatabaseDialect dialect, String table, List<String> columns, List<String> keys) {
+        if (keys.isEmpty()) {
+            throw new IllegalStateException("Upsert of seed data requires a primary key on table " + table);
+        }
+        List<String> updated = nonKeyColumns(columns, keys);
+
+        return switch (dialect) {
+            case POSTGRESQL -> insertStatement(table, columns) + onConflictClause(columns, keys);
+            case MYSQL, MARIADB -> insertStatement(table, columns) + " ON DUPLICATE KEY UPDATE "
+                    + (updated.isEmpty() ? keys.get(0) + " = " + keys.get(0) : updated.stream()
+                    .map(column -> column + " = VALUES(" + column + ")").collect(Collectors.joining(", ")));
+            case H2 -> "MERGE INTO " + table + " (" + String.join(", ", columns) + ") KEY ("
+                    + String.join(", ", keys) + ") VALUES (" + placeholders(columns) + ")";
+            default -> throw new IllegalStateException("Upsert of seed data is not supported for " + dialect);
+        };
+    }
+
+    private static String onConflictClause(List<String> columns, List<String> keys) {
+        if (keys.isEmpty()) {
+            throw new IllegalStateException("Upsert of seed data requires a primary key");
+        }
+        List<String> updated = nonKeyColumns(columns, keys);
+        return " ON CONFLICT (" + String.join(", ", keys) + ") " + (updated.isEmpty() ? "DO NOTHING" :
+                "DO UPDATE SET " + updated.stream()
+                        .map(column -> column + " = EXCLUDED." + column).collect(Collectors.joining(", ")));
+    }
+
+    private static List<String> nonKeyColumns(List<String> columns, List<String> keys) {
+        return columns.stream()
+                .filter(column -> keys.stream().noneMatch(key -> key.equalsIgnoreCase(column)))
+                .toList();
+    }
+
+    private static String placeholders(List<String> columns) {
+        return columns.stream().map(c -> "?").collect(Collectors.joining(", "));
+    }
+
+    private static void bind(PreparedStatement ps, int index, Object value, Integer sqlType) throws SQLException {
+        if (value == null) {
+            ps.setNull(index, sqlType != null ? sqlType : Types.NULL);
+        } else if (sqlType != null) {
+            // Let the driver convert textual values to the column type
+            ps.setObject(index, value, sqlType);
+        } else {
+            ps.setObject(index, value);
+        }
+    }
+
+    private TargetTable targetTable(Connection connection, String table) throws SQLException {
+        DatabaseSchemaReader schemaReader = new DatabaseSchemaReader(properties.getSchema());
+        String actualName = schemaReader.listTables(connection).getOrDefault(table.toLowerCase(Locale.ROOT), table);
+        DatabaseMetaData metaData = connection.getMetaData();
+        Map<String, String> names = new HashMap<>();
+        Map<String, Integer> types = new HashMap<>();
+        try (ResultSet rs = metaData.getColumns(connection.getCatalog(), schemaReader.resolveSchema(connection), actualName, "%")) {
+            while (rs.next()) {
+                String column = rs.getString("COLUMN_NAME");
+                names.put(column.toLowerCase(Locale.ROOT), column);
+                types.put(column.toLowerCase(Locale.ROOT), rs.getInt("DATA_TYPE"));
+            }
+        }
+        return new TargetTable(schemaReader.qualifiedName(connection, actualName),
+                metaData.getIdentifierQuoteString().trim(), names, types);
+    }
+
+    private List<String> primaryKey(Connection connection, String table, TargetTable target) throws SQLException {
+        DatabaseSchemaReader schemaReader = new DatabaseSchemaReader(properties.getSchema());
+        String actualName = schemaReader.listTables(connection).getOrDefault(table.toLowerCase(Locale.ROOT), table);
+        return schemaReader.readTable(connection, actualName).indexes().stream()
+                .filter(index -> "PRIMARY KEY".equals(index.name()))
+                .findFirst()
+                .map(index -> target.quotedColumns(index.columns()))
+                .orElse(List.of());
+    }
+
+    /**
+     * Create the history table when missing
+     *
+     * @return The history table name, qualified with the configured schema
+     */
+    private String ensureHistoryTable(Connection connection) throws SQLException {
+        String table = properties.getSeedData().getHistoryTable();
+        DatabaseSchemaReader schemaReader = new DatabaseSchemaReader(properties.getSchema());
+        String qualifiedTable = table;
+        if (StringUtils.hasText(properties.getSchema())) {
+            String quote = connection.getMetaData().getIdentifierQuoteString().trim();
+            qualifiedTable = quote + schemaReader.resolveSchema(connection) + quote + "." + table;
+        }
+        if (schemaReader.listTables(connection).containsKey(table.toLowerCase(Locale.ROOT))) {
+            return qualifiedTable;
+        }
+
+        logger.info("Creating seed data history table {}", qualifiedTable);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE " + qualifiedTable + " ("
+                    + "file_name VARCHAR(255) NOT NULL PRIMARY KEY, "
+                    + "checksum BIGINT NOT NULL, "
+                    + "row_count BIGINT NOT NULL, "
+                    + "loaded_at TIMESTAMP NOT NULL)");
+        } catch (SQLException e) {
+            // Another instance may have created it in the meantime
+            if (!schemaReader.listTables(connection).containsKey(table.toLowerCase(Locale.ROOT))) {
+                throw e;
+            }
+        }
+        if (!connection.getAutoCommit()) {
+            connection.commit();
+        }
+        return qualifiedTable;
+    }
+
+    private Long recordedChecksum(Connection connection, String historyTable, String fileName) throws SQLException {
+        String sql = "SELECT checksum FROM " + historyTable + " WHERE file_name = ?";
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            ps.setString(1, fileName);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : null;
+            }
+        }
+    }
+
+    private void recordLoad(Connection connection, String historyTable, String fileName, long checksum, long rows)
+            throws SQLException {
+        try (PreparedStatement delete = connection.prepareStatement("DELETE FROM " + historyTable + " WHERE file_name = ?")) {
+            delete.setString(1, fileName);
+            delete.executeUpdate();
+        }
+        try (PreparedStatement insert = connection.prepareStatement("INSERT INTO " + historyTable
+                + " (file_name, checksum, row_count, loaded_at) VALUES (?, ?, ?, ?)")) {
+            insert.setString(1, fileName);
+            insert.setLong(2, checksum);
+            insert.setLong(3, rows);
+            insert.setTimestamp(4, Timestamp.from(Instant.now()));
+            insert.executeUpdate();
+        }
+    }
+
+    private RowSource openRows(SeedFile seedFile) throws IOException {
+        BufferedReader reader = newReader(seedFile.resource().getInputStream());
+        return seedFile.csv() ? new CsvRowSource(reader) : new JsonLinesRowSource(reader);
+    }
+
+    private static BufferedReader newReader(InputStream in) {
+        return new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 64 * 1024);
+    }
+
+    /**
+     * Rows of a seed file, read one at a time
+     */
+    private interface RowSource extends AutoCloseable {
+
+        List<String> columns();
+
+        Object[] next() throws IOException;
+
+        @Override
+        void close() throws IOException;
+    }
+
+    private static class CsvRowSource implements RowSource {
+
+        private final CsvRecordReader reader;
+        private final List<String> columns;
+
+        CsvRowSource(BufferedReader in) throws IOException {
+            this.reader = new CsvRecordReader(in, ',');
+            List<String> header = reader.next();
+            if (header == null) {
+                throw new IOException("Seed data CSV file has no header");
+            }
+            this.columns = header.stream().map(String::trim).toList();
+        }
+
+        @Override
+        public List<String> columns() {
+            return columns;
+        }
+
+        @Override
+        public Object[] next() throws IOException {
+            List<String> record;
+            do {
+                record = reader.next();
+                // Skip blank lines
+            } while (record != null && record.size() == 1 && record.get(0) == null);
+            return record != null ? record.toArray() : null;
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+
+    private class JsonLinesRowSource implements RowSource {
+
+        private final BufferedReader reader;
+        private final List<String> columns = new ArrayList<>();
+        private JsonNode pending;
+
+        JsonLinesRowSource(BufferedReader reader) throws IOException {
+            this.reader = reader;
+            // Columns are taken from the first object
+            pending = readObject();
+            if (pending != null) {
+                pending.fieldNames().forEachRemaining(columns::add);
+            }
+        }
+
+        @Override
+        public List<String> columns() {
+            return columns;
+        }
+
+        @Override
+        public Object[] next() throws IOException {
+            JsonNode node = pending != null ? pending : readObject();
+            pending = null;
+            if (node == null) {
+                return null;
+            }
+            Object[] row = new Object[columns.size()];
+            for (int i = 0; i < columns.size(); i++) {
+                row[i] = toValue(node.get(columns.get(i)));
+            }
+            return row;
+        }
+
+        private JsonNode readObject() throws IOException {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isBlank()) {
+                    JsonNode node = objectMapper.readTree(line);
+                    if (!node.isObject()) {
+                        throw new IOException("Seed data JSON line is not an object: " + line);
+                    }
+                    return node;
+                }
+            }
+            return null;
+        }
+
+        private Object toValue(JsonNode value) {
+            if (value == null || value.isNull()) {
+                return null;
+            } else if (value.isBoolean()) {
+                return value.booleanValue();
+            } else if (value.isIntegralNumber()) {
+                return value.bigIntegerValue().bitLength() < 64 ? value.longValue() : value.bigIntegerValue();
+            } else if (value.isNumber()) {
+                return value.decimalValue();
+            } else if (value.isValueNode()) {
+                return value.asText();
+            }
+            // Nested objects and arrays are stored as JSON text
+            return value.toString();
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+}
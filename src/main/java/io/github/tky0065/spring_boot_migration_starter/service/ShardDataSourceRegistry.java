@@ -0,0 +1,17 @@
+package io.github.tky0065.spring_boot_migration_starter.service;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * Provides shards that are not declared as {@link MigrationShard} beans, e.g. built from configuration.
+ * Any bean implementing this interface is picked up by {@link ShardedMigrationService}.
+ */
+@FunctionalInterface
+public interface ShardDataSourceRegistry {
+
+    /**
+     * @return Shard data sources keyed by shard name
+     */
+    Map<String, DataSource> getShards();
+}
@@ -0,0 +1,40 @@
+package io.github.tky0065.spring_boot_migration_starter.service;
+
+import java.util.List;
+
+/**
+ * Consolidated result of a {@link ShardedMigrationService} run: the latest outcome of every shard,
+ * including the shards a {@link ShardedMigrationService#retryFailed() retry} did not run again.
+ *
+ * @param operation The operation
+ * @param completedAt ISO-8601 timestamp of the run
+ * @param durationMillis Wall-clock time of the run, set by the slowest shard
+ * @param shards Outcome of every shard, sorted by name
+ */
+public record ShardMigrationReport(MigrationOperation operation, String completedAt, long durationMillis,
+                                   List<ShardResult> shards) {
+
+    public enum Status {
+        SUCCEEDED,
+        FAILED,
+        TIMED_OUT
+    }
+
+    /**
+     * @param attempts Number of runs of the operation on this shard
+     * @param error Cause of the failure, null on success
+     */
+    public record ShardResult(String shard, Status status, long durationMillis, int attempts, String error) {
+    }
+
+    public boolean isSuccessful() {
+        return shards.stream().allMatch(shard -> shard.status() == Status.SUCCEEDED);
+    }
+
+    public List<String> failedShards() {
+        return shards.stream()
+                .filter(shard -> shard.status() != Status.SUCCEEDED)
+                .map(ShardResult::shard)
+                .toList();
+    }
+}
@@ -0,0 +1,130 @@
+package io.github.tky0065.spring_boot_migration_starter.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Writes generated Liquibase changelogs in per-release directories, so that no existing file has to
+ * be rewritten:
+ * <pre>
+ * db.changelog-master.xml                     includes the index, written once
+ * changelog/releases/db.changelog-index.yaml  one include per release, append-only
+ * changelog/releases/db.changelog-1.4.yaml    includeAll of the release directory, written once
+ * changelog/releases/1.4/changelog-*.xml      generated changelogs
+ * </pre>
+ * Generating a changelog therefore takes constant time whatever the size of the history.
+ */
+public class ShardedChangelogWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShardedChangelogWriter.class);
+
+    static final String MASTER_CHANGELOG = "db.changelog-master.xml";
+    static final String RELEASES_DIRECTORY = "changelog/releases";
+    static final String INDEX_CHANGELOG = "db.changelog-index.yaml";
+
+    private static final DateTimeFormatter DEFAULT_RELEASE_FORMATTER = DateTimeFormatter.ofPattern("yyyy.MM");
+
+    private final MigrationTemplateGenerator templateGenerator;
+    private final String release;
+
+    /**
+     * @param templateGenerator Generator of the master changelog, when it does not exist yet
+     * @param release Release the generated changelogs belong to, the current month when empty
+     */
+    public ShardedChangelogWriter(MigrationTemplateGenerator templateGenerator, String release) {
+        this.templateGenerator = templateGenerator;
+        this.release = resolveRelease(release);
+    }
+
+    public String getRelease() {
+        return release;
+    }
+
+    /**
+     * Write a changelog in the directory of the current release
+     *
+     * @param directory Directory of the master changelog
+     * @param filename Name of the changelog file
+     * @param xmlContent Content of the changelog
+     * @return The written file
+     */
+    public Path write(Path directory, String filename, String xmlContent) throws IOException {
+        Path releases = directory.resolve(RELEASES_DIRECTORY);
+        Path releaseDirectory = Files.createDirectories(releases.resolve(release));
+
+        Path filePath = releaseDirectory.resolve(filename);
+        Files.writeString(filePath, xmlContent);
+
+        if (createIfAbsent(releases.resolve(releaseChangelogName(release)), releaseChangelog(release))) {
+            registerRelease(directory, releases);
+        }
+        return filePath;
+    }
+
+    /**
+     * Path of the changelog of a single release, relative to the directory of the master changelog
+     */
+    public static String releaseChangelogPath(String release) {
+        return RELEASES_DIRECTORY + "/" + releaseChangelogName(resolveRelease(release));
+    }
+
+    private void registerRelease(Path directory, Path releases) throws IOException {
+        Path index = releases.resolve(INDEX_CHANGELOG);
+        if (createIfAbsent(index, "databaseChangeLog:\n")) {
+            includeIndexInMaster(directory.resolve(MASTER_CHANGELOG));
+        }
+        Files.writeString(index,
+                "  - include:\n"
+                        + "      file: " + releaseChangelogName(release) + "\n"
+                        + "      relativeToChangelogFile: true\n",
+                StandardOpenOption.APPEND);
+        logger.info("Registered Liquibase release {} in {}", release, index);
+    }
+
+    // One-time change: the master is only touched when the index is created
+    private void includeIndexInMaster(Path master) throws IOException {
+        String include = "\t<include file=\"" + RELEASES_DIRECTORY + "/" + INDEX_CHANGELOG
+                + "\" relativeToChangelogFile=\"true\"/>";
+        String content = Files.exists(master) ? Files.readString(master)
+                : templateGenerator.generateLiquibaseMasterChangelog();
+        Files.writeString(master, content.replace("</databaseChangeLog>",
+                include + System.lineSeparator() + "</databaseChangeLog>"));
+        logger.info("Included the Liquibase release index in {}", master);
+    }
+
+    private static boolean createIfAbsent(Path file, String content) throws IOException {
+        try {
+            Files.writeString(file, content, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            return true;
+        } catch (FileAlreadyExistsException e) {
+            return false;
+        }
+    }
+
+    private static String releaseChangelog(String release) {
+        return "databaseChangeLog:\n"
+                + "  - includeAll:\n"
+                + "      path: " + release + "/\n"
+                + "      relativeToChangelogFile: true\n";
+    }
+
+    private static String releaseChangelogName(String release) {
+        return "db.changelog-" + release + ".yaml";
+    }
+
+    private static String resolveRelease(String release) {
+        if (!StringUtils.hasText(release)) {
+            return LocalDate.now().format(DEFAULT_RELEASE_FORMATTER);
+        }
+        return release.trim().replaceAll("[^\\w.-]", "_");
+    }
+}
@@ -0,0 +1,184 @@
+package io.github.tky0065.spring_boot_migration_starter.service;
+
+import io.github.tky0065.spring_boot_migration_starter.config.MigrationProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Applies the migrations to every shard of a horizontally partitioned database. Shards are migrated
+ * in parallel on virtual threads, each with its own timeout, so that a rollout takes as long as the
+ * slowest shard. The latest outcome of every shard is kept, and {@link #retryFailed()} only runs
+ * the operation again on the shards that failed or timed out.
+ */
+public class ShardedMigrationService implements SmartInitializingSingleton {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShardedMigrationService.class);
+
+    private final Map<String, DataSource> shards;
+    private final MigrationProperties properties;
+    private final Function<DataSource, MigrationService> serviceFactory;
+    private final Map<String, ShardMigrationReport.ShardResult> results = new TreeMap<>();
+    private MigrationOperation lastOperation = MigrationOperation.MIGRATE;
+
+    /**
+     * @param shards Shard data sources keyed by shard name
+     * @param properties Migration settings, shared by every shard
+     */
+    public ShardedMigrationService(Map<String, DataSource> shards, MigrationProperties properties) {
+        this(shards, properties, dataSource -> "liquibase".equalsIgnoreCase(properties.getType())
+                ? new LiquibaseMigrationService(dataSource, properties)
+                : new FlywayMigrationService(dataSource, properties));
+    }
+
+    ShardedMigrationService(Map<String, DataSource> shards, MigrationProperties properties,
+                            Function<DataSource, MigrationService> serviceFactory) {
+        this.shards = new TreeMap<>(shards);
+        this.properties = properties;
+        this.serviceFactory = serviceFactory;
+    }
+
+    public Collection<String> getShardNames() {
+        return shards.keySet();
+    }
+
+    public ShardMigrationReport migrate() {
+        return run(MigrationOperation.MIGRATE, shards.keySet(), MigrationService::migrate);
+    }
+
+    public ShardMigrationReport validate() {
+        return run(MigrationOperation.VALIDATE, shards.keySet(), MigrationService::validate);
+    }
+
+    public ShardMigrationReport repair() {
+        return run(MigrationOperation.REPAIR, shards.keySet(), MigrationService::repair);
+    }
+
+    /**
+     * Run the last operation again on the shards that failed or timed out
+     *
+     * @return The consolidated report of every shard
+     */
+    public synchronized ShardMigrationReport retryFailed() {
+        List<String> failed = results.values().stream()
+                .filter(result -> result.status() != ShardMigrationReport.Status.SUCCEEDED)
+                .map(ShardMigrationReport.ShardResult::shard)
+                .toList();
+        Consumer<MigrationService> action = switch (lastOperation) {
+            case VALIDATE -> MigrationService::validate;
+            case REPAIR -> MigrationService::repair;
+            default -> MigrationService::migrate;
+        };
+        return run(lastOperation, failed, action);
+    }
+
+    /**
+     * @return The consolidated report of the latest runs, without running anything
+     */
+    public synchronized ShardMigrationReport getReport() {
+        return report(0);
+    }
+
+    /**
+     * Migrate the shards once every singleton is created, when enabled
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!properties.isEnabled() || !properties.getShards().isMigrateOnStartup()) {
+            return;
+        }
+        ShardMigrationReport report = migrate();
+        if (!report.isSuccessful()) {
+            throw new IllegalStateException("Migration failed on shards " + report.failedShards());
+        }
+    }
+
+    private synchronized ShardMigrationReport run(MigrationOperation operation, Collection<String> names,
+                                                  Consumer<MigrationService> action) {
+        MigrationProperties.Shards settings = properties.getShards();
+        Duration timeout = settings.getTimeout();
+        Semaphore permits = new Semaphore(settings.getParallelism() > 0 ? settings.getParallelism() : Integer.MAX_VALUE);
+        boolean retry = operation == lastOperation;
+        lastOperation = operation;
+        long start = System.currentTimeMillis();
+        logger.info("Running {} on {} shards", operation, names.size());
+
+        // Not closed: a shard stuck in a JDBC call that ignores interrupts must not hold the others
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        try {
+            Map<String, Future<ShardMigrationReport.ShardResult>> futures = new LinkedHashMap<>();
+            for (String name : names) {
+                int attempts = retry && results.containsKey(name) ? results.get(name).attempts() + 1 : 1;
+                futures.put(name, executor.submit(() -> runShard(executor, permits, name, attempts, timeout, action)));
+            }
+            for (Map.Entry<String, Future<ShardMigrationReport.ShardResult>> entry : futures.entrySet()) {
+                results.put(entry.getKey(), entry.getValue().get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while migrating shards", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Shard migration failed unexpectedly", e.getCause());
+        } finally {
+            executor.shutdown();
+        }
+
+        ShardMigrationReport report = report(System.currentTimeMillis() - start);
+        if (report.isSuccessful()) {
+            logger.info("{} completed on every shard in {} ms", operation, report.durationMillis());
+        } else {
+            logger.error("{} failed on shards {}", operation, report.failedShards());
+        }
+        return report;
+    }
+
+    private ShardMigrationReport.ShardResult runShard(ExecutorService executor, Semaphore permits, String name,
+                                                      int attempts, Duration timeout,
+                                                      Consumer<MigrationService> action) throws InterruptedException {
+        permits.acquire();
+        long start = System.currentTimeMillis();
+        Future<?> migration = executor.submit(() -> action.accept(serviceFactory.apply(shards.get(name))));
+        try {
+            // The timeout starts once the shard starts, not while it waits for a permit
+            migration.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+            logger.info("Shard {} completed in {} ms", name, System.currentTimeMillis() - start);
+            return new ShardMigrationReport.ShardResult(name, ShardMigrationReport.Status.SUCCEEDED,
+                    System.currentTimeMillis() - start, attempts, null);
+        } catch (TimeoutException e) {
+            migration.cancel(true);
+            logger.error("Shard {} timed out after {}", name, timeout);
+            return new ShardMigrationReport.ShardResult(name, ShardMigrationReport.Status.TIMED_OUT,
+                    System.currentTimeMillis() - start, attempts, "Timed out after " + timeout);
+        } catch (ExecutionException e) {
+            logger.error("Shard {} failed", name, e.getCause());
+            return new ShardMigrationReport.ShardResult(name, ShardMigrationReport.Status.FAILED,
+                    System.currentTimeMillis() - start, attempts, String.valueOf(e.getCause().getMessage()));
+        } finally {
+            permits.release();
+        }
+    }
+
+    private ShardMigrationReport report(long durationMillis) {
+        return new ShardMigrationReport(lastOperation, Instant.now().toString(), durationMillis,
+                new ArrayList<>(results.values()));
+    }
+}
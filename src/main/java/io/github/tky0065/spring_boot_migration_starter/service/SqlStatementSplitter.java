@@ -0,0 +1,256 @@
+package io.github.tky0065.spring_boot_migration_starter.service;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Incremental SQL script splitter: statements are read one at a time from the underlying
+ * reader, so only the current statement is held in memory.
+ * <p>
+ * Statements are terminated by {@code ;}. Semicolons inside quoted strings and identifiers,
+ * PostgreSQL dollar-quoted bodies and comments are ignored. Line comments are dropped,
+ * block comments are kept since they may carry optimizer hints.
+ * <p>
+ * On MySQL and MariaDB, backslash escapes in strings and {@code #} line comments are also handled,
+ * and the {@code BEGIN ... END} body of a stored procedure, function, trigger or event is kept in
+ * a single statement. {@code DELIMITER} commands are a feature of the mysql client and are rejected:
+ * write the routine with {@code ;} terminators instead.
+ */
+public class SqlStatementSplitter {
+
+    private static final Pattern ROUTINE = Pattern.compile(
+            "\\s*CREATE\\b.*\\b(PROCEDURE|FUNCTION|TRIGGER|EVENT)\\b.*", Pattern.DOTALL);
+
+    private final Reader reader;
+    private final boolean mysql;
+    private int lookahead = -2;
+
+    // Nesting of BEGIN/CASE ... END blocks in a routine body
+    private int blockDepth;
+    private boolean pendingEnd;
+    private final StringBuilder word = new StringBuilder();
+
+    public SqlStatementSplitter(Reader reader) {
+        this(reader, DatabaseDialect.OTHER);
+    }
+
+    /**
+     * @param dialect Database the script is written for
+     */
+    public SqlStatementSplitter(Reader reader, DatabaseDialect dialect) {
+        this.reader = reader;
+        this.mysql = dialect == DatabaseDialect.MYSQL || dialect == DatabaseDialect.MARIADB;
+    }
+
+    /**
+     * Read the next statement
+     *
+     * @return The statement without its terminator, or null at the end of the script
+     */
+    public String nextStatement() throws IOException {
+        StringBuilder statement = new StringBuilder();
+        blockDepth = 0;
+        pendingEnd = false;
+        word.setLength(0);
+        int c;
+        while ((c = read()) != -1) {
+            if (mysql) {
+                if (Character.isLetterOrDigit(c) || c == '_') {
+                    word.append((char) c);
+                    statement.append((char) c);
+                    continue;
+                }
+                endWord(statement);
+            }
+            switch (c) {
+                case ';' -> {
+                    if (pendingEnd) {
+                        pendingEnd = false;
+                        blockDepth--;
+                    }
+                    if (blockDepth > 0) {
+                        statement.append(';');
+                        continue;
+                    }
+                    String sql = statement.toString().trim();
+                    if (!sql.isEmpty()) {
+                        return sql;
+                    }
+                    statement.setLength(0);
+                }
+                case '\'', '"', '`' -> {
+                    statement.append((char) c);
+                    readQuoted(statement, c);
+                }
+                case '#' -> {
+                    if (mysql) {
+                        skipLineComment(statement);
+                    } else {
+                        statement.append('#');
+                    }
+                }
+                case '-' -> {
+                    int next = read();
+                    if (next == '-') {
+                        skipLineComment(statement);
+                    } else {
+                        statement.append('-');
+                        unread(next);
+                    }
+                }
+                case '/' -> {
+                    int next = read();
+                    if (next == '*') {
+                        statement.append("/*");
+                        readBlockComment(statement);
+                    } else {
+                        statement.append('/');
+                        unread(next);
+                    }
+                }
+                case '$' -> readDollar(statement);
+                default -> statement.append((char) c);
+            }
+        }
+        if (mysql) {
+            endWord(statement);
+        }
+        String sql = statement.toString().trim();
+        return sql.isEmpty() ? null : sql;
+    }
+
+    /**
+     * Track the blocks of a MySQL routine body once a keyword is complete. {@code END IF},
+     * {@code END LOOP}, {@code END WHILE} and {@code END REPEAT} close blocks that are not counted.
+     */
+    private void endWord(StringBuilder statement) {
+        if (word.isEmpty()) {
+            return;
+        }
+        String keyword = word.toString().toUpperCase(Locale.ROOT);
+        word.setLength(0);
+
+        if (pendingEnd) {
+            // The keyword after END belongs to it: END CASE, END IF, END <label>...
+            pendingEnd = false;
+            if (!keyword.equals("IF") && !keyword.equals("LOOP") && !keyword.equals("WHILE")
+                    && !keyword.equals("REPEAT")) {
+                blockDepth--;
+            }
+            return;
+        }
+        if (keyword.equals("DELIMITER") && statement.toString().trim().equalsIgnoreCase("DELIMITER")) {
+            throw new IllegalStateException("DELIMITER is not supported, terminate the statements of routine bodies with ;");
+        }
+        if (keyword.equals("BEGIN") && (blockDepth > 0
+                || ROUTINE.matcher(statement.toString().toUpperCase(Locale.ROOT)).matches())) {
+            blockDepth++;
+        } else if (keyword.equals("CASE") && blockDepth > 0) {
+            blockDepth++;
+        } else if (keyword.equals("END") && blockDepth > 0) {
+            // Known once the next keyword is read
+            pendingEnd = true;
+        }
+    }
+
+    private void readQuoted(StringBuilder statement, int quote) throws IOException {
+        int c;
+        while ((c = read()) != -1) {
+            statement.append((char) c);
+            if (c == '\\' && mysql && quote != '`') {
+                // Backslash-escaped character
+                int next = read();
+                if (next != -1) {
+                    statement.append((char) next);
+                }
+            } else if (c == quote) {
+                int next = read();
+                if (next == quote) {
+                    // Doubled quote is an escaped quote
+                    statement.append((char) next);
+                } else {
+                    unread(next);
+                    return;
+                }
+            }
+        }
+    }
+
+    private void skipLineComment(StringBuilder statement) throws IOException {
+        int c;
+        while ((c = read()) != -1) {
+            if (c == '\n') {
+                statement.append('\n');
+                return;
+            }
+        }
+    }
+
+    private void readBlockComment(StringBuilder statement) throws IOException {
+        int previous = 0;
+        int c;
+        while ((c = read()) != -1) {
+            statement.append((char) c);
+            if (previous == '*' && c == '/') {
+                return;
+            }
+            previous = c;
+        }
+    }
+
+    /**
+     * Handle {@code $tag$ ... $tag$} bodies. A {@code $} that does not open a valid tag
+     * (e.g. a {@code $1} parameter) is kept as is.
+     */
+    private void readDollar(StringBuilder statement) throws IOException {
+        int last = statement.isEmpty() ? ' ' : statement.charAt(statement.length() - 1);
+        statement.append('$');
+        if (Character.isLetterOrDigit(last) || last == '_') {
+            return;
+        }
+
+        StringBuilder tag = new StringBuilder("$");
+        int c;
+        while ((c = read()) != -1) {
+            if (c == '$') {
+                tag.append('$');
+                statement.append('$');
+                readDollarBody(statement, tag.toString());
+                return;
+            }
+            boolean valid = tag.length() == 1 ? Character.isLetter(c) || c == '_' : Character.isLetterOrDigit(c) || c == '_';
+            if (!valid) {
+                unread(c);
+                return;
+            }
+            tag.append((char) c);
+            statement.append((char) c);
+        }
+    }
+
+    private void readDollarBody(StringBuilder statement, String tag) throws IOException {
+        int c;
+        while ((c = read()) != -1) {
+            statement.append((char) c);
+            if (c == '$' && statement.length() >= tag.length() * 2
+                    && statement.substring(statement.length() - tag.length()).equals(tag)) {
+                return;
+            }
+        }
+    }
+
+    private int read() throws IOException {
+        if (lookahead != -2) {
+            int c = lookahead;
+            lookahead = -2;
+            return c;
+        }
+        return reader.read();
+    }
+
+    private void unread(int c) {
+        lookahead = c;
+    }
+}
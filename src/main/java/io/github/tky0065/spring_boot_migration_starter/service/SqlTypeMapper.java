@@ -0,0 +1,264 @@
+package io.github.tky0065.spring_boot_migration_starter.service;
+
+import org.springframework.util.ClassUtils;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.ZonedDateTime;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Maps entity attributes to SQL column types, following Hibernate's defaults, and compares them
+ * with the types reported by the JDBC metadata
+ */
+final class SqlTypeMapper {
+
+    // Hibernate 6 defaults for BigDecimal columns without precision
+    static final int DEFAULT_PRECISION = 38;
+    static final int DEFAULT_SCALE = 2;
+
+    /**
+     * Type families, so that synonyms reported by the drivers compare equal
+     */
+    enum Family {
+        BOOLEAN, SMALLINT, INTEGER, BIGINT, DECIMAL, REAL, DOUBLE, VARCHAR, TEXT, DATE, TIME, TIMESTAMP,
+        TIMESTAMP_TZ, UUID, BINARY, OTHER
+    }
+
+    private static final Map<String, Family> FAMILIES = Map.ofEntries(
+            Map.entry("bool", Family.BOOLEAN), Map.entry("boolean", Family.BOOLEAN), Map.entry("bit", Family.BOOLEAN),
+            Map.entry("tinyint", Family.SMALLINT), Map.entry("smallint", Family.SMALLINT), Map.entry("int2", Family.SMALLINT),
+            Map.entry("int", Family.INTEGER), Map.entry("integer", Family.INTEGER), Map.entry("int4", Family.INTEGER),
+            Map.entry("serial", Family.INTEGER), Map.entry("bigint", Family.BIGINT), Map.entry("int8", Family.BIGINT),
+            Map.entry("bigserial", Family.BIGINT), Map.entry("numeric", Family.DECIMAL),
+            Map.entry("decimal", Family.DECIMAL), Map.entry("number", Family.DECIMAL), Map.entry("real", Family.REAL),
+            Map.entry("float4", Family.REAL), Map.entry("float", Family.DOUBLE), Map.entry("float8", Family.DOUBLE),
+            Map.entry("double", Family.DOUBLE), Map.entry("double precision", Family.DOUBLE),
+            Map.entry("binary_double", Family.DOUBLE), Map.entry("varchar", Family.VARCHAR),
+            Map.entry("character varying", Family.VARCHAR), Map.entry("varchar2", Family.VARCHAR),
+            Map.entry("nvarchar", Family.VARCHAR), Map.entry("nvarchar2", Family.VARCHAR), Map.entry("text", Family.TEXT),
+            Map.entry("longtext", Family.TEXT), Map.entry("clob", Family.TEXT),
+            Map.entry("character large object", Family.TEXT), Map.entry("date", Family.DATE),
+            Map.entry("time", Family.TIME), Map.entry("timestamp", Family.TIMESTAMP),
+            Map.entry("timestamp without time zone", Family.TIMESTAMP), Map.entry("datetime", Family.TIMESTAMP),
+            Map.entry("datetime2", Family.TIMESTAMP), Map.entry("timestamptz", Family.TIMESTAMP_TZ),
+            Map.entry("timestamp with time zone", Family.TIMESTAMP_TZ), Map.entry("datetimeoffset", Family.TIMESTAMP_TZ),
+            Map.entry("uuid", Family.UUID), Map.entry("uniqueidentifier", Family.UUID), Map.entry("bytea", Family.BINARY),
+            Map.entry("varbinary", Family.BINARY), Map.entry("binary varying", Family.BINARY),
+            Map.entry("blob", Family.BINARY), Map.entry("raw", Family.BINARY), Map.entry("longblob", Family.BINARY));
+
+    private SqlTypeMapper() {
+    }
+
+    /**
+     * @return The family of the column type expected by a mapped attribute
+     */
+    static Family family(EntityMapping.MappedColumn column) {
+        Class<?> type = ClassUtils.resolvePrimitiveIfNecessary(column.javaType());
+        if (type.isEnum()) {
+            return column.enumAsString() ? Family.VARCHAR : Family.SMALLINT;
+        } else if (type == Boolean.class) {
+            return Family.BOOLEAN;
+        } else if (type == Byte.class || type == Short.class) {
+            return Family.SMALLINT;
+        } else if (type == Integer.class) {
+            return Family.INTEGER;
+        } else if (type == Long.class || type == BigInteger.class) {
+            return Family.BIGINT;
+        } else if (type == BigDecimal.class) {
+            return Family.DECIMAL;
+        } else if (type == Float.class) {
+            return Family.REAL;
+        } else if (type == Double.class) {
+            return Family.DOUBLE;
+        } else if (type == String.class || type == Character.class) {
+            return column.lob() ? Family.TEXT : Family.VARCHAR;
+        } else if (column.lob() && (type == char[].class || type == Character[].class)) {
+            return Family.TEXT;
+        } else if (type == LocalDate.class || type == java.sql.Date.class) {
+            return Family.DATE;
+        } else if (type == LocalTime.class || type == java.sql.Time.class) {
+            return Family.TIME;
+        } else if (type == LocalDateTime.class || type == Date.class || type == java.sql.Timestamp.class) {
+            return Family.TIMESTAMP;
+        } else if (type == Instant.class || type == OffsetDateTime.class || type == ZonedDateTime.class) {
+            return Family.TIMESTAMP_TZ;
+        } else if (type == UUID.class) {
+            return Family.UUID;
+        } else if (type == byte[].class || type == Byte[].class) {
+            return Family.BINARY;
+        }
+        return Family.OTHER;
+    }
+
+    /**
+     * @return The family of a type name reported by {@link java.sql.DatabaseMetaData#getColumns}
+     */
+    static Family family(String typeName) {
+        String name = typeName.toLowerCase(Locale.ROOT)
+                .replaceAll("\\(.*\\)", "")
+                .replaceAll(" (identity|unsigned)$", "")
+                .trim();
+        return FAMILIES.getOrDefault(name, Family.OTHER);
+    }
+
+    /**
+     * Build the SQL type of a mapped attribute, {@code columnDefinition} taking precedence
+     *
+     * @param column Mapped attribute
+     * @param dialect Target database
+     * @return The type, or null when the attribute type is not supported
+     */
+    static String sqlType(EntityMapping.MappedColumn column, DatabaseDialect dialect) {
+        if (column.columnDefinition() != null) {
+            return column.columnDefinition();
+        }
+        return sqlType(column, dialect, length(column), precision(column), scale(column));
+    }
+
+    /**
+     * Build the type a live column is altered to, never narrower than the live type: character columns
+     * keep their length and decimal columns their integer digits and scale when larger than the mapping's
+     *
+     * @param column Mapped attribute, without {@code columnDefinition}
+     * @param live Live column, for which {@link #typeDiffers} is true
+     * @param dialect Target database
+     * @return The type
+     */
+    static String widenedType(EntityMapping.MappedColumn column, TableSchema.Column live, DatabaseDialect dialect) {
+        Family actual = family(live.typeName());
+        int length = length(column);
+        int precision = precision(column);
+        int scale = scale(column);
+        if (family(column) == Family.VARCHAR && actual == Family.VARCHAR) {
+            length = Math.max(length, live.size());
+        } else if (family(column) == Family.DECIMAL) {
+            int integerDigits = precision - scale;
+            if (actual == Family.DECIMAL && live.size() > 0) {
+                integerDigits = Math.max(integerDigits, live.size() - Math.max(0, live.decimalDigits()));
+                scale = Math.max(scale, live.decimalDigits());
+            } else if (integerDigits(actual) > 0) {
+                integerDigits = Math.max(integerDigits, integerDigits(actual));
+            }
+            precision = integerDigits + scale;
+        }
+        return sqlType(column, dialect, length, precision, scale);
+    }
+
+    private static String sqlType(EntityMapping.MappedColumn column, DatabaseDialect dialect, int length,
+                                  int precision, int scale) {
+        boolean oracle = dialect == DatabaseDialect.ORACLE;
+        boolean sqlServer = dialect == DatabaseDialect.SQLSERVER;
+
+        return switch (family(column)) {
+            case BOOLEAN -> oracle ? "NUMBER(1)" : sqlServer ? "BIT" : dialect.isMySqlFamily() ? "BIT(1)" : "BOOLEAN";
+            case SMALLINT -> oracle ? "NUMBER(5)" : "SMALLINT";
+            case INTEGER -> oracle ? "NUMBER(10)" : "INTEGER";
+            case BIGINT -> oracle ? "NUMBER(19)" : "BIGINT";
+            case DECIMAL -> (oracle ? "NUMBER(" : "NUMERIC(") + precision + "," + scale + ")";
+            case REAL -> oracle ? "BINARY_FLOAT" : "REAL";
+            case DOUBLE -> oracle ? "BINARY_DOUBLE" : dialect.isMySqlFamily() ? "DOUBLE" : sqlServer ? "FLOAT" : "DOUBLE PRECISION";
+            case VARCHAR -> (oracle ? "VARCHAR2(" : "VARCHAR(") + length + (oracle ? " CHAR)" : ")");
+            case TEXT -> oracle ? "CLOB" : dialect.isMySqlFamily() ? "LONGTEXT" : sqlServer ? "VARCHAR(MAX)" : "TEXT";
+            case DATE -> "DATE";
+            case TIME -> oracle ? "DATE" : "TIME";
+            case TIMESTAMP -> dialect.isMySqlFamily() ? "DATETIME(6)" : sqlServer ? "DATETIME2(6)" : "TIMESTAMP(6)";
+            case TIMESTAMP_TZ -> dialect.isMySqlFamily() ? "DATETIME(6)"
+                    : sqlServer ? "DATETIMEOFFSET(6)" : "TIMESTAMP(6) WITH TIME ZONE";
+            case UUID -> dialect == DatabaseDialect.POSTGRESQL || dialect == DatabaseDialect.H2 ? "UUID"
+                    : sqlServer ? "UNIQUEIDENTIFIER" : oracle ? "RAW(16)" : "BINARY(16)";
+            case BINARY -> dialect == DatabaseDialect.POSTGRESQL ? "BYTEA"
+                    : column.lob() ? (dialect.isMySqlFamily() ? "LONGBLOB" : sqlServer ? "VARBINARY(MAX)" : "BLOB")
+                    : oracle ? "RAW(" + length + ")" : "VARBINARY(" + length + ")";
+            case OTHER -> null;
+        };
+    }
+
+    /**
+     * Check whether a live column is too narrow for the values of a mapped attribute. Only widening
+     * changes are reported: a smaller integer type, {@code REAL} for a double, a shorter character column,
+     * {@code VARCHAR} for a {@code @Lob}, or a decimal column with fewer integer digits or a smaller scale.
+     * A wider live type, or one of an unrelated family, is left alone as altering it could lose data.
+     *
+     * @param column Mapped attribute, without {@code columnDefinition}
+     * @param live Live column
+     * @param dialect Target database
+     * @return true if the column type must be widened
+     */
+    static boolean typeDiffers(EntityMapping.MappedColumn column, TableSchema.Column live, DatabaseDialect dialect) {
+        Family expected = family(column);
+        Family actual = family(live.typeName());
+        if (expected == actual) {
+            return switch (expected) {
+                case VARCHAR -> live.size() < length(column);
+                case DECIMAL -> live.size() > 0 && (live.size() - Math.max(0, live.decimalDigits())
+                        < precision(column) - scale(column) || live.decimalDigits() < scale(column));
+                default -> false;
+            };
+        }
+        int expectedDigits = integerDigits(expected);
+        if (expectedDigits > 0) {
+            if (integerDigits(actual) > 0) {
+                return integerDigits(actual) < expectedDigits;
+            }
+            // Oracle stores every number as NUMBER, an unconstrained one has no size
+            return actual == Family.DECIMAL && live.size() > 0
+                    && live.size() - Math.max(0, live.decimalDigits()) < expectedDigits;
+        }
+        return switch (expected) {
+            case DECIMAL -> integerDigits(actual) > 0
+                    && (scale(column) > 0 || integerDigits(actual) < precision(column) - scale(column));
+            case DOUBLE -> actual == Family.REAL;
+            // SQL Server reports VARCHAR(MAX) as a VARCHAR of the maximum size
+            case TEXT -> actual == Family.VARCHAR && live.size() < Integer.MAX_VALUE;
+            default -> false;
+        };
+    }
+
+    /**
+     * Rebuild the type of a live column, for databases that need the type to alter a column
+     */
+    static String liveType(TableSchema.Column live) {
+        String name = live.typeName();
+        if (name.contains("(")) {
+            return name;
+        }
+        return switch (family(name)) {
+            case VARCHAR, BINARY -> live.size() > 0 ? name + "(" + live.size() + ")" : name;
+            case DECIMAL -> live.size() > 0 ? name + "(" + live.size() + "," + live.decimalDigits() + ")" : name;
+            case TIMESTAMP, TIMESTAMP_TZ -> live.decimalDigits() > 0 && !name.contains(" ")
+                    ? name + "(" + live.decimalDigits() + ")" : name;
+            default -> name;
+        };
+    }
+
+    // Decimal digits an integer family holds, 0 for the other families
+    private static int integerDigits(Family family) {
+        return switch (family) {
+            case SMALLINT -> 5;
+            case INTEGER -> 10;
+            case BIGINT -> 19;
+            default -> 0;
+        };
+    }
+
+    private static int length(EntityMapping.MappedColumn column) {
+        return column.length() > 0 ? column.length() : 255;
+    }
+
+    private static int precision(EntityMapping.MappedColumn column) {
+        return column.precision() > 0 ? column.precision() : DEFAULT_PRECISION;
+    }
+
+    private static int scale(EntityMapping.MappedColumn column) {
+        return column.precision() > 0 ? column.scale() : DEFAULT_SCALE;
+    }
+}
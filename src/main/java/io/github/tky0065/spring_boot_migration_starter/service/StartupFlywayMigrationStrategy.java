@@ -0,0 +1,61 @@
+package io.github.tky0065.spring_boot_migration_starter.service;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.output.MigrateResult;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+
+import javax.sql.DataSource;
+
+/**
+ * Makes the startup Flyway migration run by Spring Boot wait for the database, and defers it to
+ * the background when a {@link BackgroundMigration} is given. The seed data is loaded once the schema
+ * is up to date.
+ */
+public class StartupFlywayMigrationStrategy implements FlywayMigrationStrategy {
+
+    private final ConnectionRetry connectionRetry;
+    private final BackgroundMigration backgroundMigration;
+    private final PostMigrationStage postMigrationStage;
+    private final SeedDataLoader seedDataLoader;
+
+    /**
+     * @param connectionRetry Retry policy for the first connection
+     * @param backgroundMigration Background runner, null to migrate during startup
+     * @param postMigrationStage Statistics refresh and warm-up run after the migration
+     * @param seedDataLoader Reference data loaded after the migration, null when disabled
+     */
+    public StartupFlywayMigrationStrategy(ConnectionRetry connectionRetry, BackgroundMigration backgroundMigration,
+                                          PostMigrationStage postMigrationStage, SeedDataLoader seedDataLoader) {
+        this.connectionRetry = connectionRetry;
+        this.backgroundMigration = backgroundMigration;
+        this.postMigrationStage = postMigrationStage;
+        this.seedDataLoader = seedDataLoader;
+    }
+
+    @Override
+    public void migrate(Flyway flyway) {
+        Runnable migration = () -> {
+            DataSource dataSource = flyway.getConfiguration().getDataSource();
+            connectionRetry.await(dataSource);
+            MigrateResult result;
+            try (MigrationFlightRecorder.Span span = MigrationFlightRecorder.operation(MigrationOperation.MIGRATE, "flyway")) {
+                span.setDetail("startup");
+                try {
+                    result = flyway.migrate();
+                } catch (RuntimeException e) {
+                    span.failed();
+                    throw e;
+                }
+            }
+            if (seedDataLoader != null) {
+                seedDataLoader.load(dataSource);
+            }
+            postMigrationStage.run(dataSource, postMigrationStage.touchedTables(flyway, result));
+        };
+        if (backgroundMigration != null) {
+            backgroundMigration.start("flyway", migration);
+        } else {
+            migration.run();
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package io.github.tky0065.spring_boot_migration_starter.service;
+
+import io.github.tky0065.spring_boot_migration_starter.config.MigrationProperties;
+import org.flywaydb.core.api.Location;
+import org.flywaydb.core.api.migration.JavaMigration;
+import org.flywaydb.core.api.configuration.FluentConfiguration;
+import org.springframework.boot.autoconfigure.flyway.FlywayConfigurationCustomizer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Registers the streamed scripts ({@code .bigsql}) of the startup migration's locations on the Flyway
+ * instance of Spring Boot, which would otherwise skip them and apply the later versions
+ */
+public class StreamingFlywayConfigurationCustomizer implements FlywayConfigurationCustomizer {
+
+    private final MigrationProperties properties;
+
+    public StreamingFlywayConfigurationCustomizer(MigrationProperties properties) {
+        this.properties = properties;
+    }
+
+    @Override
+    public void customize(FluentConfiguration configuration) {
+        List<String> locations = new ArrayList<>();
+        for (Location location : configuration.getLocations()) {
+            locations.add(location.getDescriptor());
+        }
+        List<StreamingSqlMigration> streamingMigrations = StreamingSqlMigration.find(
+                new MigrationLocations(locations, configuration.getClassLoader()), properties.getStreaming());
+        if (streamingMigrations.isEmpty()) {
+            return;
+        }
+        // Keep the JavaMigration beans registered by Spring Boot
+        List<JavaMigration> migrations = new ArrayList<>(Arrays.asList(configuration.getJavaMigrations()));
+        migrations.addAll(streamingMigrations);
+        configuration.javaMigrations(migrations.toArray(new JavaMigration[0]));
+    }
+}
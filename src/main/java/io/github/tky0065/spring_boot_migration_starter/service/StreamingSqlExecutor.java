@@ -0,0 +1,134 @@
+package io.github.tky0065.spring_boot_migration_starter.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.Resource;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Executes SQL scripts of any size with constant heap usage: the script is read through a
+ * buffered channel, split incrementally and sent to the database in JDBC batches.
+ * <p>
+ * With a positive commit interval the executor takes over the transaction and commits every
+ * {@code commitInterval} statements; otherwise the script runs in the caller's transaction.
+ */
+public class StreamingSqlExecutor {
+
+    private static final Logger logger = LoggerFactory.getLogger(StreamingSqlExecutor.class);
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    // Statements returning rows or controlling the transaction cannot be batched
+    private static final Pattern NON_BATCHABLE = Pattern.compile(
+            "^(SELECT|WITH|SHOW|EXPLAIN|VALUES|CALL|BEGIN|START|COMMIT|ROLLBACK|SAVEPOINT|RELEASE|SET)\\b.*",
+            Pattern.DOTALL);
+
+    private final int batchSize;
+    private final int commitInterval;
+
+    /**
+     * @param batchSize Number of statements per JDBC batch
+     * @param commitInterval Number of statements between commits, 0 to run in the caller's transaction
+     */
+    public StreamingSqlExecutor(int batchSize, int commitInterval) {
+        this.batchSize = Math.max(1, batchSize);
+        this.commitInterval = Math.max(0, commitInterval);
+    }
+
+    public record Result(long statements, long commits) {
+    }
+
+    /**
+     * Execute every statement of a script
+     *
+     * @param connection Target connection
+     * @param script The script content
+     * @return Execution counters
+     */
+    public Result execute(Connection connection, Reader script) throws SQLException, IOException {
+        boolean manageTransaction = commitInterval > 0;
+        boolean autoCommit = connection.getAutoCommit();
+        if (manageTransaction && autoCommit) {
+            connection.setAutoCommit(false);
+        }
+
+        SqlStatementSplitter splitter = new SqlStatementSplitter(script, DatabaseDialect.of(connection));
+        long statements = 0;
+        long commits = 0;
+        int batched = 0;
+        long sinceCommit = 0;
+
+        try (Statement statement = connection.createStatement()) {
+            String sql;
+            while ((sql = splitter.nextStatement()) != null) {
+                if (NON_BATCHABLE.matcher(sql.toUpperCase(Locale.ROOT)).matches()) {
+                    if (batched > 0) {
+                        statement.executeBatch();
+                        batched = 0;
+                    }
+                    statement.execute(sql);
+                } else {
+                    statement.addBatch(sql);
+                    if (++batched == batchSize) {
+                        statement.executeBatch();
+                        batched = 0;
+                    }
+                }
+                statements++;
+                sinceCommit++;
+
+                if (manageTransaction && sinceCommit >= commitInterval && batched == 0) {
+                    connection.commit();
+                    commits++;
+                    sinceCommit = 0;
+                    logger.debug("Committed after {} statements", statements);
+                }
+            }
+            if (batched > 0) {
+                statement.executeBatch();
+            }
+            if (manageTransaction) {
+                connection.commit();
+                commits++;
+            }
+        } catch (SQLException | IOException | RuntimeException e) {
+            if (manageTransaction) {
+                connection.rollback();
+            }
+            throw e;
+        } finally {
+            if (manageTransaction && autoCommit) {
+                connection.setAutoCommit(true);
+            }
+        }
+
+        return new Result(statements, commits);
+    }
+
+    /**
+     * Open a script for streaming, through a file channel when the resource is a file
+     *
+     * @param resource The script
+     * @return A buffered reader over the script
+     */
+    public static Reader openScript(Resource resource) throws IOException {
+        if (resource.isFile()) {
+            FileChannel channel = FileChannel.open(resource.getFile().toPath(), StandardOpenOption.READ);
+            return new BufferedReader(Channels.newReader(channel, StandardCharsets.UTF_8), READ_BUFFER_SIZE);
+        }
+        return new BufferedReader(new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8),
+                READ_BUFFER_SIZE);
+    }
+}
@@ -0,0 +1,105 @@
+package io.github.tky0065.spring_boot_migration_starter.service;
+
+import liquibase.change.custom.CustomTaskChange;
+import liquibase.database.Database;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.exception.CustomChangeException;
+import liquibase.exception.ValidationErrors;
+import liquibase.resource.ResourceAccessor;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Paths;
+
+/**
+ * Liquibase counterpart of Flyway's streaming migrations, replacing {@code <sqlFile>} for very
+ * large scripts:
+ *
+ * <pre>
+ * &lt;changeSet id="big-data-fix" author="me" runInTransaction="false"&gt;
+ *     &lt;customChange class="io.github.tky0065.spring_boot_migration_starter.service.StreamingSqlFileChange"
+ *                   path="db/changelog/data/big-fix.sql" batchSize="200" commitInterval="10000"/&gt;
+ * &lt;/changeSet&gt;
+ * </pre>
+ *
+ * A positive {@code commitInterval} commits periodically and should only be used with
+ * {@code runInTransaction="false"}. As for any custom change, the Liquibase checksum covers
+ * the parameters, not the content of the script.
+ */
+public class StreamingSqlFileChange implements CustomTaskChange {
+
+    private String path;
+    private int batchSize = 100;
+    private int commitInterval = 0;
+    private ResourceAccessor resourceAccessor;
+
+    public String getPath() {
+        return path;
+    }
+
+    public void setPath(String path) {
+        this.path = path;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public int getCommitInterval() {
+        return commitInterval;
+    }
+
+    public void setCommitInterval(int commitInterval) {
+        this.commitInterval = commitInterval;
+    }
+
+    @Override
+    public void execute(Database database) throws CustomChangeException {
+        if (!(database.getConnection() instanceof JdbcConnection jdbcConnection)) {
+            throw new CustomChangeException("Streaming SQL execution requires a JDBC connection");
+        }
+        try (Reader reader = StreamingSqlExecutor.openScript(resolveScript())) {
+            new StreamingSqlExecutor(batchSize, commitInterval)
+                    .execute(jdbcConnection.getUnderlyingConnection(), reader);
+        } catch (Exception e) {
+            throw new CustomChangeException("Failed to execute streaming SQL file " + path, e);
+        }
+    }
+
+    // File system scripts are read through a file channel, others through their stream
+    private Resource resolveScript() throws IOException {
+        liquibase.resource.Resource script = resourceAccessor.getExisting(path);
+        if ("file".equals(script.getUri().getScheme())) {
+            return new FileSystemResource(Paths.get(script.getUri()));
+        }
+        return new InputStreamResource(script.openInputStream());
+    }
+
+    @Override
+    public String getConfirmationMessage() {
+        return "Streamed SQL file " + path;
+    }
+
+    @Override
+    public void setUp() {
+    }
+
+    @Override
+    public void setFileOpener(ResourceAccessor resourceAccessor) {
+        this.resourceAccessor = resourceAccessor;
+    }
+
+    @Override
+    public ValidationErrors validate(Database database) {
+        ValidationErrors errors = new ValidationErrors();
+        errors.checkRequiredField("path", path);
+        return errors;
+    }
+}
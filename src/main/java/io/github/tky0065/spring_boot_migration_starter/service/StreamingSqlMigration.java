@@ -0,0 +1,117 @@
+package io.github.tky0065.spring_boot_migration_starter.service;
+
+import io.github.tky0065.spring_boot_migration_starter.config.MigrationProperties;
+import org.flywaydb.core.api.MigrationVersion;
+import org.flywaydb.core.api.migration.Context;
+import org.flywaydb.core.api.migration.JavaMigration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Flyway migration backed by a very large SQL script ({@code V<version>__<description>.bigsql}),
+ * executed through the {@link StreamingSqlExecutor} instead of Flyway's in-memory SQL parser.
+ */
+public class StreamingSqlMigration implements JavaMigration {
+
+    private static final Logger logger = LoggerFactory.getLogger(StreamingSqlMigration.class);
+
+    private final Resource script;
+    private final MigrationVersion version;
+    private final String description;
+    private final int batchSize;
+    private final int commitInterval;
+    private Integer checksum;
+
+    public StreamingSqlMigration(Resource script, String suffix, int batchSize, int commitInterval) {
+        String filename = String.valueOf(script.getFilename());
+        int separator = filename.indexOf("__");
+        if (!filename.startsWith("V") || separator < 2 || !filename.endsWith(suffix)) {
+            throw new IllegalArgumentException("Invalid streaming migration name: " + filename
+                    + " (expected V<version>__<description>" + suffix + ")");
+        }
+        this.script = script;
+        this.version = MigrationVersion.fromVersion(filename.substring(1, separator).replace('_', '.'));
+        this.description = filename.substring(separator + 2, filename.length() - suffix.length()).replace('_', ' ');
+        this.batchSize = batchSize;
+        this.commitInterval = commitInterval;
+    }
+
+    /**
+     * Find the streamed scripts of migration locations
+     *
+     * @param locations Locations to search
+     * @param streaming Streaming settings
+     * @return One migration per script
+     */
+    public static List<StreamingSqlMigration> find(MigrationLocations locations, MigrationProperties.Streaming streaming) {
+        try {
+            List<StreamingSqlMigration> migrations = new ArrayList<>();
+            for (Resource script : locations.findResources("**/V*__*" + streaming.getScriptSuffix())) {
+                migrations.add(new StreamingSqlMigration(script, streaming.getScriptSuffix(),
+                        streaming.getBatchSize(), streaming.getCommitInterval()));
+            }
+            if (!migrations.isEmpty()) {
+                logger.debug("Found {} streaming SQL migrations", migrations.size());
+            }
+            return migrations;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not list streaming SQL migrations", e);
+        }
+    }
+
+    @Override
+    public MigrationVersion getVersion() {
+        return version;
+    }
+
+    @Override
+    public String getDescription() {
+        return description;
+    }
+
+    @Override
+    public Integer getChecksum() {
+        if (checksum == null) {
+            try {
+                checksum = (int) MigrationLocations.checksum(script);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not compute checksum of " + script.getFilename(), e);
+            }
+        }
+        return checksum;
+    }
+
+    /**
+     * Periodic commits require the migration to run outside of Flyway's transaction
+     */
+    @Override
+    public boolean canExecuteInTransaction() {
+        return commitInterval == 0;
+    }
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        long start = System.currentTimeMillis();
+        try (Reader reader = StreamingSqlExecutor.openScript(script)) {
+            StreamingSqlExecutor.Result result = new StreamingSqlExecutor(batchSize, commitInterval)
+                    .execute(context.getConnection(), reader);
+            logger.info("Executed {} statements from {} in {} ms ({} commits)", result.statements(),
+                    script.getFilename(), System.currentTimeMillis() - start, result.commits());
+        }
+    }
+
+    public Resource getScript() {
+        return script;
+    }
+
+    public String getScriptName() {
+        return script.getFilename();
+    }
+}
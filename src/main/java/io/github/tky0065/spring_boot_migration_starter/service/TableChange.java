@@ -0,0 +1,41 @@
+package io.github.tky0065.spring_boot_migration_starter.service;
+
+import java.util.List;
+
+/**
+ * Columns of a table that differ from the mapping of its entity
+ *
+ * @param tableName Table name
+ * @param newTable Whether the table does not exist yet, every mapped column is then listed
+ * @param columns Columns to add or alter
+ * @param unmappedColumns Live columns no longer mapped by the entity, reported but never dropped
+ */
+public record TableChange(String tableName, boolean newTable, List<ColumnChange> columns,
+                          List<String> unmappedColumns) {
+
+    /**
+     * @param column Mapped attribute
+     * @param live Live column, or null when the column does not exist yet
+     * @param sqlType Expected SQL type
+     * @param defaultValue Default declared in {@code columnDefinition}, or null
+     * @param typeChanged Whether the live type cannot hold the mapped values
+     * @param nullabilityChanged Whether the live nullability differs from the mapping
+     * @param defaultChanged Whether the live default differs from the declared one
+     */
+    public record ColumnChange(EntityMapping.MappedColumn column, TableSchema.Column live, String sqlType,
+                               String defaultValue, boolean typeChanged, boolean nullabilityChanged,
+                               boolean defaultChanged) {
+
+        public String name() {
+            return column.name();
+        }
+
+        public boolean added() {
+            return live == null;
+        }
+    }
+
+    public boolean isEmpty() {
+        return !newTable && columns.isEmpty();
+    }
+}
@@ -0,0 +1,44 @@
+package io.github.tky0065.spring_boot_migration_starter.service;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Structure of a table as found in the live database. Column names are keyed in lower case.
+ */
+public record TableSchema(String name, Map<String, Column> columns, List<Index> indexes) {
+
+    public record Column(String name, String typeName, int size, int decimalDigits,
+                         boolean nullable, String defaultValue) {
+    }
+
+    public record Index(String name, List<String> columns, boolean unique) {
+    }
+
+    public Column column(String columnName) {
+        return columns.get(columnName.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Check whether an existing index can serve lookups on the given columns
+     *
+     * @param indexColumns Columns in index order
+     * @param unique Whether a unique index is required
+     * @return true if an index starts with these columns (and is unique with exactly them when required)
+     */
+    public boolean hasIndexOn(List<String> indexColumns, boolean unique) {
+        List<String> wanted = indexColumns.stream().map(c -> c.toLowerCase(Locale.ROOT)).toList();
+        for (Index index : indexes) {
+            List<String> existing = index.columns().stream().map(c -> c.toLowerCase(Locale.ROOT)).toList();
+            if (unique) {
+                if (index.unique() && existing.equals(wanted)) {
+                    return true;
+                }
+            } else if (existing.size() >= wanted.size() && existing.subList(0, wanted.size()).equals(wanted)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,65 @@
+package io.github.tky0065.spring_boot_migration_starter.service;
+
+import liquibase.exception.LiquibaseException;
+import liquibase.exception.LockException;
+import liquibase.lockservice.LockServiceFactory;
+import liquibase.lockservice.StandardLockService;
+
+import java.util.function.LongConsumer;
+
+/**
+ * Liquibase's standard lock service, reporting how long {@link #waitForLock()} waited to the migration running
+ * on the current thread. Liquibase still acquires and releases the lock itself, so that it is never released
+ * on behalf of another node.
+ */
+public class TimedLockService extends StandardLockService {
+
+    private static final ThreadLocal<LongConsumer> LOCK_WAIT_LISTENER = new ThreadLocal<>();
+
+    /**
+     * Register the lock service for the next Liquibase operations. Liquibase resets the factory at the end of
+     * an update, dropping the registration.
+     */
+    static void register() {
+        // Lock services already created by the factory would otherwise be reused
+        LockServiceFactory.reset();
+        LockServiceFactory.getInstance().register(new TimedLockService());
+    }
+
+    /**
+     * Run a Liquibase operation, reporting the time spent waiting for the lock
+     *
+     * @param listener Receives the wait in milliseconds
+     * @param operation The operation taking the lock
+     */
+    static void timed(LongConsumer listener, LockedOperation operation) throws LiquibaseException {
+        LOCK_WAIT_LISTENER.set(listener);
+        try {
+            operation.run();
+        } finally {
+            LOCK_WAIT_LISTENER.remove();
+        }
+    }
+
+    @FunctionalInterface
+    interface LockedOperation {
+        void run() throws LiquibaseException;
+    }
+
+    @Override
+    public int getPriority() {
+        return super.getPriority() + 1;
+    }
+
+    @Override
+    public void waitForLock() throws LockException {
+        LongConsumer listener = LOCK_WAIT_LISTENER.get();
+        if (listener == null || hasChangeLogLock()) {
+            super.waitForLock();
+            return;
+        }
+        long start = System.currentTimeMillis();
+        super.waitForLock();
+        listener.accept(System.currentTimeMillis() - start);
+    }
+}
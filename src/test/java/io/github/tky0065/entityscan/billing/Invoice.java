@@ -0,0 +1,17 @@
+package io.github.tky0065.entityscan.billing;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+
+import static org.assertj.core.api.Assertions.fail;
+
+@Entity
+public class Invoice {
+
+    static {
+        fail("The entity scan must not initialise the entity classes");
+    }
+
+    @Id
+    private Long id;
+}
@@ -0,0 +1,11 @@
+package io.github.tky0065.entityscan.billing.archive;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+
+@Entity
+public class ArchivedInvoice {
+
+    @Id
+    private Long id;
+}
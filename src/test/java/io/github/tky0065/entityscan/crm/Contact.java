@@ -0,0 +1,11 @@
+package io.github.tky0065.entityscan.crm;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+
+@Entity
+public class Contact {
+
+    @Id
+    private Long id;
+}
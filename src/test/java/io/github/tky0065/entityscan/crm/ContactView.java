@@ -0,0 +1,7 @@
+package io.github.tky0065.entityscan.crm;
+
+/**
+ * Not an entity, must be left out of the scan
+ */
+public record ContactView(Long id, String name) {
+}
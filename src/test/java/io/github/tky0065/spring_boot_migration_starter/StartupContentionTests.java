@@ -0,0 +1,272 @@
+package io.github.tky0065.spring_boot_migration_starter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.github.tky0065.spring_boot_migration_starter.config.DatabaseMigrationAutoConfiguration;
+import org.flywaydb.core.api.callback.Callback;
+import org.flywaydb.core.api.callback.Context;
+import org.flywaydb.core.api.callback.Event;
+import org.h2.tools.Server;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.flyway.FlywayAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.logging.LoggingInitializationContext;
+import org.springframework.boot.logging.LoggingSystem;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.StandardEnvironment;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Starts many application contexts at the same time against one H2 server-mode database, as a
+ * rolling deployment does, and measures the contention on the migration lock. Excluded from the
+ * default build, run it with {@code mvn test -Pcontention}. Tunable with the system properties
+ * {@code contention.instances}, {@code contention.restarts}, {@code contention.scripts},
+ * {@code contention.rows} and {@code contention.lockTimeoutMillis}. The measures are logged and
+ * written to {@code target/startup-contention.json}.
+ */
+@Tag("contention")
+class StartupContentionTests {
+
+    private static final Logger logger = LoggerFactory.getLogger(StartupContentionTests.class);
+
+    private final int instances = Integer.getInteger("contention.instances", 8);
+    private final int restarts = Integer.getInteger("contention.restarts", 3);
+    private final int scripts = Integer.getInteger("contention.scripts", 5);
+    private final int rows = Integer.getInteger("contention.rows", 100_000);
+    private final int lockTimeoutMillis = Integer.getInteger("contention.lockTimeoutMillis", 10_000);
+
+    // Instances keep running until every one is ready, as in a real deployment
+    private final List<ConfigurableApplicationContext> runningContexts = new CopyOnWriteArrayList<>();
+
+    @TempDir
+    Path migrations;
+
+    /**
+     * Measures of one instance
+     *
+     * @param readyMillis Time from the common start to the ready context, -1 when it never started
+     * @param attempts Number of starts, more than one when a start failed and the instance was restarted
+     * @param lockWaitMillis Time spent in Flyway's migrate outside of the scripts, mostly waiting on the lock,
+     *                       failed attempts included
+     * @param scriptsExecuted Number of scripts applied by this instance
+     * @param errors Cause of every failed start
+     */
+    record InstanceReport(int instance, long readyMillis, int attempts, long lockWaitMillis, int scriptsExecuted,
+                          List<String> errors) {
+    }
+
+    record ContentionReport(int instances, int scripts, int rows, int lockTimeoutMillis, long allReadyMillis,
+                            int failedStarts, int neverReady, boolean historyConsistent,
+                            List<InstanceReport> instanceReports) {
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    @ImportAutoConfiguration({DataSourceAutoConfiguration.class, DatabaseMigrationAutoConfiguration.class,
+            FlywayAutoConfiguration.class})
+    static class ContentionApplication {
+    }
+
+    /**
+     * Flyway callback measuring the time spent in {@code migrate} outside of the scripts
+     */
+    static class LockWaitCallback implements Callback {
+
+        private long migrateStart;
+        private long scriptStart;
+        private long scriptsMillis;
+        private long lockWaitMillis;
+        private int scriptsExecuted;
+
+        @Override
+        public boolean supports(Event event, Context context) {
+            // Not AFTER_MIGRATE_ERROR: running a callback on a connection broken by a lock timeout hides the timeout
+            return event == Event.BEFORE_MIGRATE || event == Event.BEFORE_EACH_MIGRATE
+                    || event == Event.AFTER_EACH_MIGRATE || event == Event.AFTER_MIGRATE;
+        }
+
+        @Override
+        public boolean canHandleInTransaction(Event event, Context context) {
+            return true;
+        }
+
+        @Override
+        public synchronized void handle(Event event, Context context) {
+            long now = System.currentTimeMillis();
+            switch (event) {
+                case BEFORE_MIGRATE -> {
+                    migrateStart = now;
+                    scriptsMillis = 0;
+                }
+                case BEFORE_EACH_MIGRATE -> scriptStart = now;
+                case AFTER_EACH_MIGRATE -> {
+                    scriptsMillis += now - scriptStart;
+                    scriptsExecuted++;
+                }
+                default -> migrateEnded(now);
+            }
+        }
+
+        synchronized void migrateEnded(long now) {
+            if (migrateStart > 0) {
+                lockWaitMillis += now - migrateStart - scriptsMillis;
+                migrateStart = 0;
+            }
+        }
+
+        @Override
+        public String getCallbackName() {
+            return "startup-contention-lock-wait";
+        }
+    }
+
+    @Test
+    void measuresStartupContentionOnTheMigrationLock() throws Exception {
+        for (int i = 1; i <= scripts; i++) {
+            Files.writeString(migrations.resolve("V" + i + "__table_" + i + ".sql"), """
+                    CREATE TABLE contention_%1$d (id BIGINT PRIMARY KEY, payload VARCHAR(64));
+                    INSERT INTO contention_%1$d SELECT x, 'row-' || x FROM SYSTEM_RANGE(1, %2$d);
+                    CREATE INDEX idx_contention_%1$d ON contention_%1$d (payload);
+                    """.formatted(i, rows));
+        }
+
+        // Contexts starting together would each initialize the logging system and duplicate the appenders
+        LoggingSystem loggingSystem = LoggingSystem.get(getClass().getClassLoader());
+        loggingSystem.beforeInitialize();
+        loggingSystem.initialize(new LoggingInitializationContext(new StandardEnvironment()), null, null);
+
+        // The auto-configuration publishes its settings as system properties, restore them afterwards
+        Properties systemProperties = (Properties) System.getProperties().clone();
+        Server server = Server.createTcpServer("-tcpPort", "0", "-ifNotExists").start();
+        String url = "jdbc:h2:tcp://localhost:" + server.getPort() + "/mem:contention;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT="
+                + lockTimeoutMillis;
+        ExecutorService executor = Executors.newFixedThreadPool(instances);
+        try {
+            CountDownLatch startSignal = new CountDownLatch(1);
+            List<Future<InstanceReport>> futures = new ArrayList<>();
+            for (int i = 0; i < instances; i++) {
+                int instance = i;
+                futures.add(executor.submit(() -> {
+                    startSignal.await();
+                    return startInstance(instance, url, System.currentTimeMillis());
+                }));
+            }
+            startSignal.countDown();
+
+            List<InstanceReport> instanceReports = new ArrayList<>();
+            for (Future<InstanceReport> future : futures) {
+                instanceReports.add(future.get());
+            }
+
+            ContentionReport report = new ContentionReport(instances, scripts, rows, lockTimeoutMillis,
+                    instanceReports.stream().mapToLong(InstanceReport::readyMillis).max().orElse(0),
+                    instanceReports.stream().mapToInt(r -> r.errors().size()).sum(),
+                    (int) instanceReports.stream().filter(r -> r.readyMillis() < 0).count(),
+                    isHistoryConsistent(url), instanceReports);
+            log(report);
+
+            Path output = Paths.get("target", "startup-contention.json");
+            Files.createDirectories(output.getParent());
+            new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(output.toFile(), report);
+
+            assertThat(report.neverReady()).isZero();
+            assertThat(report.historyConsistent()).isTrue();
+            assertThat(instanceReports.stream().mapToInt(InstanceReport::scriptsExecuted).sum()).isEqualTo(scripts);
+        } finally {
+            executor.shutdownNow();
+            runningContexts.forEach(ConfigurableApplicationContext::close);
+            server.stop();
+            System.setProperties(systemProperties);
+        }
+    }
+
+    private InstanceReport startInstance(int instance, String url, long start) {
+        List<String> errors = new ArrayList<>();
+        LockWaitCallback callback = new LockWaitCallback();
+        for (int attempt = 1; attempt <= restarts; attempt++) {
+            try {
+                ConfigurableApplicationContext context = new SpringApplicationBuilder(ContentionApplication.class)
+                        .web(WebApplicationType.NONE)
+                        .initializers(ctx -> ctx.getBeanFactory().registerSingleton("lockWaitCallback", callback))
+                        .run("--spring.datasource.url=" + url,
+                                "--spring.datasource.username=sa",
+                                "--spring.datasource.password=",
+                                "--spring.datasource.hikari.pool-name=contention-" + instance,
+                                "--spring.main.banner-mode=off",
+                                "--db.migration.locations=filesystem:" + migrations,
+                                "--db.migration.runtime-generation-enabled=false");
+                runningContexts.add(context);
+                return new InstanceReport(instance, System.currentTimeMillis() - start, attempt,
+                        callback.lockWaitMillis, callback.scriptsExecuted, errors);
+            } catch (RuntimeException e) {
+                callback.migrateEnded(System.currentTimeMillis());
+                Throwable cause = e;
+                while (cause.getCause() != null) {
+                    cause = cause.getCause();
+                }
+                errors.add(cause.getClass().getSimpleName() + ": " + cause.getMessage());
+                logger.warn("Instance {} failed to start (attempt {}/{}): {}", instance, attempt, restarts,
+                        cause.getMessage());
+            }
+        }
+        return new InstanceReport(instance, -1, restarts, callback.lockWaitMillis, callback.scriptsExecuted, errors);
+    }
+
+    // Every script applied exactly once, successfully, and every table created once with all its rows
+    private boolean isHistoryConsistent(String url) throws Exception {
+        try (Connection connection = DriverManager.getConnection(url, "sa", "");
+             Statement statement = connection.createStatement()) {
+            try (ResultSet rs = statement.executeQuery("SELECT COUNT(*), COUNT(DISTINCT \"version\"), "
+                    + "SUM(CASE WHEN \"success\" THEN 1 ELSE 0 END) FROM \"flyway_schema_history\" "
+                    + "WHERE \"version\" IS NOT NULL")) {
+                rs.next();
+                if (rs.getInt(1) != scripts || rs.getInt(2) != scripts || rs.getInt(3) != scripts) {
+                    return false;
+                }
+            }
+            for (int i = 1; i <= scripts; i++) {
+                try (ResultSet rs = statement.executeQuery("SELECT COUNT(*) FROM contention_" + i)) {
+                    if (!rs.next() || rs.getInt(1) != rows) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+    }
+
+    private void log(ContentionReport report) {
+        logger.info("{} instances ready in {} ms, {} failed starts, {} never ready, history consistent: {}",
+                report.instances(), report.allReadyMillis(), report.failedStarts(), report.neverReady(),
+                report.historyConsistent());
+        for (InstanceReport instance : report.instanceReports()) {
+            logger.info("Instance {}: ready in {} ms after {} attempt(s), {} ms waiting on the lock, {} scripts applied",
+                    instance.instance(), instance.readyMillis(), instance.attempts(), instance.lockWaitMillis(),
+                    instance.scriptsExecuted());
+        }
+    }
+}
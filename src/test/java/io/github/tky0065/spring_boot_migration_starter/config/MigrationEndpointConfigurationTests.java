@@ -0,0 +1,43 @@
+package io.github.tky0065.spring_boot_migration_starter.config;
+
+import io.github.tky0065.spring_boot_migration_starter.endpoint.MigrationEndpoint;
+import io.github.tky0065.spring_boot_migration_starter.service.MigrationJobService;
+import io.github.tky0065.spring_boot_migration_starter.service.MigrationService;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.test.context.FilteredClassLoader;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class MigrationEndpointConfigurationTests {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withConfiguration(AutoConfigurations.of(DatabaseMigrationAutoConfiguration.class))
+            .withPropertyValues("db.migration.runtime-generation-enabled=false")
+            .withBean(MigrationService.class, () -> mock(MigrationService.class));
+
+    @Test
+    void registersTheEndpointWhenExposed() {
+        contextRunner.withPropertyValues("management.endpoints.web.exposure.include=migration")
+                .run(context -> assertThat(context).hasSingleBean(MigrationJobService.class)
+                        .hasSingleBean(MigrationEndpoint.class));
+    }
+
+    @Test
+    void skipsTheEndpointWhenNotExposed() {
+        contextRunner.run(context -> assertThat(context).hasSingleBean(MigrationJobService.class)
+                .doesNotHaveBean(MigrationEndpoint.class));
+    }
+
+    @Test
+    void skipsTheEndpointWithoutActuator() {
+        contextRunner.withClassLoader(new FilteredClassLoader(Endpoint.class))
+                .withPropertyValues("management.endpoints.web.exposure.include=migration")
+                .run(context -> assertThat(context).hasNotFailed()
+                        .hasSingleBean(MigrationJobService.class)
+                        .doesNotHaveBean(MigrationEndpoint.class));
+    }
+}
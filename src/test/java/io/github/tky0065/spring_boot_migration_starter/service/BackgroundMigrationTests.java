@@ -0,0 +1,65 @@
+package io.github.tky0065.spring_boot_migration_starter.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.AvailabilityState;
+import org.springframework.boot.availability.LivenessState;
+import org.springframework.boot.availability.ReadinessState;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+class BackgroundMigrationTests {
+
+    private final List<AvailabilityState> states = new CopyOnWriteArrayList<>();
+
+    private final BackgroundMigration backgroundMigration = new BackgroundMigration(event ->
+            states.add(((AvailabilityChangeEvent<?>) event).getState()));
+
+    @Test
+    void refusesTrafficUntilMigrationCompletes() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        backgroundMigration.start("test", () -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        // Spring Boot declares the application ready while the migration is still running
+        backgroundMigration.onReadinessChange(new AvailabilityChangeEvent<>(this, ReadinessState.ACCEPTING_TRAFFIC));
+        assertThat(states).containsExactly(ReadinessState.REFUSING_TRAFFIC);
+
+        release.countDown();
+        await().until(backgroundMigration::isCompleted);
+        await().untilAsserted(() -> assertThat(states)
+                .containsExactly(ReadinessState.REFUSING_TRAFFIC, ReadinessState.ACCEPTING_TRAFFIC));
+    }
+
+    @Test
+    void failedMigrationBreaksLiveness() {
+        backgroundMigration.start("test", () -> {
+            throw new IllegalStateException("Database still unavailable");
+        });
+
+        await().untilAsserted(() -> assertThat(states).containsExactly(LivenessState.BROKEN));
+        backgroundMigration.onReadinessChange(new AvailabilityChangeEvent<>(this, ReadinessState.ACCEPTING_TRAFFIC));
+        assertThat(backgroundMigration.isCompleted()).isFalse();
+        assertThat(states).containsExactly(LivenessState.BROKEN, ReadinessState.REFUSING_TRAFFIC);
+    }
+
+    @Test
+    void errorBreaksLiveness() {
+        backgroundMigration.start("test", () -> {
+            throw new OutOfMemoryError("Java heap space");
+        });
+
+        await().untilAsserted(() -> assertThat(states).containsExactly(LivenessState.BROKEN));
+        assertThat(backgroundMigration.isCompleted()).isFalse();
+    }
+}
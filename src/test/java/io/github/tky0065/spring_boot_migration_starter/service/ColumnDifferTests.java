@@ -0,0 +1,177 @@
+package io.github.tky0065.spring_boot_migration_starter.service;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Lob;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.type.AnnotationMetadata;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+class ColumnDifferTests {
+
+    private final MigrationTemplateGenerator generator = new MigrationTemplateGenerator(null, null);
+
+    @Test
+    void groupsTheColumnChangesOfATable() throws Exception {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:column-differ;DB_CLOSE_DELAY=-1");
+
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE invoice (id BIGINT PRIMARY KEY, reference VARCHAR(20), "
+                    + "amount NUMERIC(38,2), status VARCHAR(16), legacy_code VARCHAR(8))");
+            statement.execute("INSERT INTO invoice (id, reference, amount, status) VALUES (1, 'INV-1', 10, 'OPEN')");
+
+            TableChange change = diff(connection, DatabaseDialect.H2);
+
+            assertThat(change.columns())
+                    .extracting(TableChange.ColumnChange::name, TableChange.ColumnChange::added,
+                            TableChange.ColumnChange::typeChanged, TableChange.ColumnChange::nullabilityChanged,
+                            TableChange.ColumnChange::defaultChanged)
+                    .containsExactly(
+                            tuple("reference", false, true, true, false),
+                            tuple("status", false, false, false, true),
+                            tuple("issued_on", true, false, false, false));
+            assertThat(change.unmappedColumns()).containsExactly("LEGACY_CODE");
+
+            for (String sql : generator.schemaStatements(change, DatabaseDialect.H2)) {
+                statement.execute(sql);
+            }
+            TableChange applied = diff(connection, DatabaseDialect.H2);
+            // issued_on is added nullable as the table has rows
+            assertThat(applied.columns()).extracting(TableChange.ColumnChange::name).containsExactly("issued_on");
+            assertThat(applied.unmappedColumns()).containsExactly("LEGACY_CODE");
+        }
+    }
+
+    @Test
+    void rendersASingleAlterTablePerTable() {
+        TableSchema table = new TableSchema("invoice", new LinkedHashMap<>(Map.of(
+                "id", new TableSchema.Column("id", "int8", 19, 0, false, null),
+                "reference", new TableSchema.Column("reference", "varchar", 20, 0, true, null),
+                "amount", new TableSchema.Column("amount", "numeric", 38, 2, true, null),
+                "status", new TableSchema.Column("status", "varchar", 16, 0, true, null))), List.of());
+        TableChange change = new ColumnDiffer().diff(mapping(), table, DatabaseDialect.POSTGRESQL);
+
+        assertThat(generator.schemaStatements(change, DatabaseDialect.POSTGRESQL)).containsExactly("""
+                ALTER TABLE invoice
+                    ADD COLUMN issued_on DATE,
+                    ALTER COLUMN reference TYPE VARCHAR(40),
+                    ALTER COLUMN reference SET NOT NULL,
+                    ALTER COLUMN status SET DEFAULT 'DRAFT'""");
+        assertThat(generator.schemaStatements(change, DatabaseDialect.MYSQL)).containsExactly("""
+                ALTER TABLE invoice
+                    ADD COLUMN issued_on DATE,
+                    MODIFY COLUMN reference VARCHAR(40) NOT NULL,
+                    ALTER COLUMN status SET DEFAULT 'DRAFT'""");
+        assertThat(generator.generateFlywayMigration(List.of(change), DatabaseDialect.POSTGRESQL))
+                .contains("-- issued_on is added nullable: fill it, then make it NOT NULL");
+    }
+
+    @Test
+    void rendersOracleAddAndModifyClauses() {
+        TableSchema table = new TableSchema("invoice", new LinkedHashMap<>(Map.of(
+                "id", new TableSchema.Column("id", "NUMBER", 19, 0, false, null),
+                "reference", new TableSchema.Column("reference", "VARCHAR2", 20, 0, true, null),
+                "amount", new TableSchema.Column("amount", "NUMBER", 38, 2, true, null),
+                "status", new TableSchema.Column("status", "VARCHAR2", 16, 0, true, "'DRAFT' "))), List.of());
+        TableChange change = new ColumnDiffer().diff(mapping(), table, DatabaseDialect.ORACLE);
+
+        assertThat(generator.schemaStatements(change, DatabaseDialect.ORACLE)).containsExactly("""
+                ALTER TABLE invoice
+                    ADD (issued_on DATE)
+                    MODIFY (reference VARCHAR2(40 CHAR) NOT NULL)""");
+    }
+
+    @Test
+    void onlyWidensLiveTypes() throws Exception {
+        TableSchema table = new TableSchema("ledger", new LinkedHashMap<>(Map.of(
+                "id", new TableSchema.Column("id", "int8", 19, 0, false, null),
+                "counter", new TableSchema.Column("counter", "int8", 19, 0, true, null),
+                "total", new TableSchema.Column("total", "int4", 10, 0, true, null),
+                "notes", new TableSchema.Column("notes", "text", Integer.MAX_VALUE, 0, true, null),
+                "body", new TableSchema.Column("body", "varchar", 255, 0, true, null),
+                "amount", new TableSchema.Column("amount", "numeric", 21, 4, true, null),
+                "rate", new TableSchema.Column("rate", "numeric", 12, 2, true, null))), List.of());
+        EntityMapping mapping = new EntityMappingReader().read(new EntityDescriptor(Ledger.class.getName(),
+                AnnotationMetadata.introspect(Ledger.class), getClass().getClassLoader()));
+
+        TableChange change = new ColumnDiffer().diff(mapping, table, DatabaseDialect.POSTGRESQL);
+
+        // BIGINT for an Integer, TEXT for a String and NUMERIC(21,4) for NUMERIC(19,2) are kept
+        assertThat(change.columns())
+                .extracting(TableChange.ColumnChange::name, TableChange.ColumnChange::sqlType)
+                .containsExactlyInAnyOrder(
+                        tuple("total", "BIGINT"),
+                        tuple("body", "TEXT"),
+                        tuple("rate", "NUMERIC(14,4)"));
+    }
+
+    private TableChange diff(Connection connection, DatabaseDialect dialect) throws Exception {
+        TableSchema table = new DatabaseSchemaReader(null).readTables(connection, List.of("invoice")).get("invoice");
+        return new ColumnDiffer().diff(mapping(), table, dialect);
+    }
+
+    private EntityMapping mapping() {
+        try {
+            return new EntityMappingReader().read(new EntityDescriptor(Invoice.class.getName(),
+                    AnnotationMetadata.introspect(Invoice.class), getClass().getClassLoader()));
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Entity
+    static class Ledger {
+        @Id
+        Long id;
+
+        Integer counter;
+
+        Long total;
+
+        String notes;
+
+        @Lob
+        String body;
+
+        @Column(precision = 19, scale = 2)
+        BigDecimal amount;
+
+        @Column(precision = 10, scale = 4)
+        BigDecimal rate;
+    }
+
+    @Entity
+    static class Invoice {
+        @Id
+        @GeneratedValue(strategy = GenerationType.IDENTITY)
+        Long id;
+
+        // Widened and made mandatory
+        @Column(length = 40, nullable = false)
+        String reference;
+
+        // Unchanged
+        BigDecimal amount;
+
+        @Column(columnDefinition = "VARCHAR(16) DEFAULT 'DRAFT'")
+        String status;
+
+        @Column(nullable = false)
+        LocalDate issuedOn;
+    }
+}
@@ -0,0 +1,55 @@
+package io.github.tky0065.spring_boot_migration_starter.service;
+
+import io.github.tky0065.spring_boot_migration_starter.config.MigrationProperties;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ConnectionRetryTests {
+
+    @Test
+    void retriesUntilTheDatabaseAcceptsConnections() throws Exception {
+        Connection connection = mock(Connection.class);
+        when(connection.isValid(anyInt())).thenReturn(true);
+        DataSource dataSource = mock(DataSource.class);
+        when(dataSource.getConnection())
+                .thenThrow(new SQLTransientConnectionException("Connection refused"))
+                .thenThrow(new SQLTransientConnectionException("Connection refused"))
+                .thenReturn(connection);
+
+        new ConnectionRetry(startup(5)).await(dataSource);
+
+        verify(dataSource, times(3)).getConnection();
+        verify(connection).close();
+    }
+
+    @Test
+    void givesUpAfterMaxAttempts() throws Exception {
+        DataSource dataSource = mock(DataSource.class);
+        when(dataSource.getConnection()).thenThrow(new SQLTransientConnectionException("Connection refused"));
+
+        assertThatThrownBy(() -> new ConnectionRetry(startup(3)).await(dataSource))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("after 3 attempts")
+                .hasCauseInstanceOf(SQLTransientConnectionException.class);
+        verify(dataSource, times(3)).getConnection();
+    }
+
+    private static MigrationProperties.Startup startup(int maxAttempts) {
+        MigrationProperties.Startup startup = new MigrationProperties.Startup();
+        startup.setMaxAttempts(maxAttempts);
+        startup.setInitialBackoff(Duration.ofMillis(5));
+        startup.setMaxBackoff(Duration.ofMillis(20));
+        return startup;
+    }
+}
@@ -0,0 +1,87 @@
+package io.github.tky0065.spring_boot_migration_starter.service;
+
+import io.github.tky0065.entityscan.billing.archive.ArchivedInvoice;
+import io.github.tky0065.entityscan.crm.Contact;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.boot.autoconfigure.AutoConfigurationPackages;
+import org.springframework.boot.autoconfigure.domain.EntityScanPackages;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EntityScannerTests {
+
+    // Outside of the application package, whose entities Hibernate initialises in the context tests
+    private static final String SCAN_PACKAGE = "io.github.tky0065.entityscan";
+    private static final String BILLING = SCAN_PACKAGE + ".billing";
+    private static final String ARCHIVE = SCAN_PACKAGE + ".billing.archive";
+    private static final String CRM = SCAN_PACKAGE + ".crm";
+
+    @Test
+    void scansEveryRootOnTheForkJoinPoolWithoutInitialisingEntities() {
+        RecordingClassLoader classLoader = new RecordingClassLoader();
+
+        // Invoice fails the test from its static initializer, its name is not taken from a class literal
+        List<EntityDescriptor> entities = new EntityScanner(classLoader).scan(List.of(CRM, BILLING));
+
+        assertThat(entities).extracting(EntityDescriptor::getClassName).containsExactly(
+                BILLING + ".Invoice", ArchivedInvoice.class.getName(), Contact.class.getName());
+        assertThat(entities).noneMatch(EntityDescriptor::isLoaded);
+        assertThat(entities).extracting(EntityDescriptor::getTableName)
+                .containsExactly("invoice", "archived_invoice", "contact");
+        assertThat(classLoader.scannedRoots.keySet()).containsExactlyInAnyOrder(BILLING, CRM);
+        assertThat(classLoader.scannedRoots.values()).allMatch(thread -> thread.startsWith("ForkJoinPool-"));
+    }
+
+    @Test
+    void scansNestedPackagesOnce() {
+        RecordingClassLoader classLoader = new RecordingClassLoader();
+
+        List<EntityDescriptor> entities = new EntityScanner(classLoader).scan(List.of(ARCHIVE, BILLING, ARCHIVE));
+
+        assertThat(entities).extracting(EntityDescriptor::getClassName)
+                .containsExactly(BILLING + ".Invoice", ArchivedInvoice.class.getName());
+        assertThat(classLoader.scannedRoots).containsOnlyKeys(BILLING);
+    }
+
+    @Test
+    void prefersEntityScanPackagesToAutoConfigurationPackages() {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        assertThat(EntityScanner.entityPackages(beanFactory)).isEmpty();
+
+        AutoConfigurationPackages.register(beanFactory, CRM);
+        assertThat(EntityScanner.entityPackages(beanFactory)).containsExactly(CRM);
+
+        EntityScanPackages.register(beanFactory, List.of(BILLING));
+        assertThat(EntityScanner.entityPackages(beanFactory)).containsExactly(BILLING);
+    }
+
+    /**
+     * Records the thread listing each scanned package directory
+     */
+    private static class RecordingClassLoader extends ClassLoader {
+
+        private final Map<String, String> scannedRoots = new ConcurrentHashMap<>();
+
+        RecordingClassLoader() {
+            super(EntityScannerTests.class.getClassLoader());
+        }
+
+        @Override
+        public Enumeration<URL> getResources(String name) throws IOException {
+            String packageName = name.replace('/', '.');
+            if (packageName.startsWith(SCAN_PACKAGE)) {
+                scannedRoots.put(packageName.endsWith(".") ? packageName.substring(0, packageName.length() - 1)
+                        : packageName, Thread.currentThread().getName());
+            }
+            return super.getResources(name);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package io.github.tky0065.spring_boot_migration_starter.service;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.type.AnnotationMetadata;
+
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+class IndexAdvisorTests {
+
+    @Test
+    void recommendsIndexesMissingFromTheLiveSchema() throws Exception {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:index-advisor;DB_CLOSE_DELAY=-1");
+
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE customer (id BIGINT PRIMARY KEY)");
+            statement.execute("CREATE TABLE purchase_order (id BIGINT PRIMARY KEY, customer_id BIGINT, "
+                    + "billing_customer BIGINT, reference VARCHAR(40), placed_on DATE)");
+            statement.execute("CREATE INDEX existing_billing ON purchase_order (billing_customer, placed_on)");
+
+            EntityDescriptor entity = new EntityDescriptor(PurchaseOrder.class.getName(),
+                    AnnotationMetadata.introspect(PurchaseOrder.class), getClass().getClassLoader());
+            Map<String, TableSchema> tables = new DatabaseSchemaReader(null)
+                    .readTables(connection, List.of(entity.getTableName()));
+
+            List<IndexRecommendation> recommendations = new IndexAdvisor()
+                    .advise(new EntityMappingReader().read(entity), tables.get("purchase_order"));
+
+            assertThat(recommendations)
+                    .extracting(IndexRecommendation::indexName, IndexRecommendation::columns, IndexRecommendation::unique)
+                    .containsExactlyInAnyOrder(
+                            tuple("idx_placed_on", List.of("placed_on"), false),
+                            tuple("uk_purchase_order_reference", List.of("reference"), true),
+                            tuple("idx_purchase_order_customer_id", List.of("customer_id"), false));
+        }
+    }
+
+    @Test
+    void onlineIndexCreationDependsOnDialect() {
+        MigrationTemplateGenerator generator = new MigrationTemplateGenerator(null, null);
+        IndexRecommendation recommendation = new IndexRecommendation("purchase_order", "idx_purchase_order_customer_id",
+                List.of("customer_id"), false, "foreign key customer_id");
+
+        assertThat(generator.createIndexStatement(recommendation, DatabaseDialect.POSTGRESQL))
+                .isEqualTo("CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_purchase_order_customer_id ON purchase_order (customer_id)");
+        assertThat(generator.createIndexStatement(recommendation, DatabaseDialect.MYSQL))
+                .endsWith("ALGORITHM=INPLACE LOCK=NONE");
+    }
+
+    @Entity
+    static class Customer {
+        @Id
+        Long id;
+    }
+
+    @Entity
+    @Table(indexes = @Index(name = "idx_placed_on", columnList = "placed_on"))
+    static class PurchaseOrder {
+        @Id
+        Long id;
+
+        @ManyToOne
+        Customer customer;
+
+        // Covered by the existing composite index
+        @ManyToOne
+        @JoinColumn(name = "billing_customer")
+        Customer billingCustomer;
+
+        @Column(unique = true, length = 40)
+        String reference;
+
+        java.time.LocalDate placedOn;
+    }
+}
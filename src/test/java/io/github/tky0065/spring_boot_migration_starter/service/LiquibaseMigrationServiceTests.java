@@ -0,0 +1,99 @@
+package io.github.tky0065.spring_boot_migration_starter.service;
+
+import io.github.tky0065.spring_boot_migration_starter.config.MigrationProperties;
+import org.h2.api.Trigger;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LiquibaseMigrationServiceTests {
+
+    @TempDir
+    Path classpath;
+
+    @Test
+    void leavesTheLockTakenByAnotherNodeAfterTheUpdate() throws Exception {
+        Files.createDirectories(classpath.resolve("db/changelog"));
+        Files.writeString(classpath.resolve("db/changelog/db.changelog-master.yaml"), """
+                databaseChangeLog:
+                  - changeSet:
+                      id: customer
+                      author: test
+                      changes:
+                        - sql:
+                            sql: CREATE TABLE customer (id BIGINT PRIMARY KEY)
+                """);
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:liquibase-lock;DB_CLOSE_DELAY=-1");
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE DATABASECHANGELOGLOCK (ID INT PRIMARY KEY, LOCKED BOOLEAN NOT NULL, "
+                    + "LOCKGRANTED TIMESTAMP, LOCKEDBY VARCHAR(255))");
+            statement.execute("INSERT INTO DATABASECHANGELOGLOCK VALUES (1, FALSE, NULL, NULL)");
+            statement.execute("CREATE TRIGGER steal_lock BEFORE UPDATE ON DATABASECHANGELOGLOCK FOR EACH ROW CALL \""
+                    + StealLockTrigger.class.getName() + "\"");
+        }
+        StealLockTrigger.stolen.set(false);
+
+        MigrationProperties properties = new MigrationProperties();
+        properties.setType("liquibase");
+        LiquibaseMigrationService service = new LiquibaseMigrationService(dataSource, properties);
+        List<String> phases = new ArrayList<>();
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerSingleton("listener", new MigrationListener() {
+            @Override
+            public void onPhaseCompleted(MigrationOperation operation, String phase, long durationMillis) {
+                phases.add(phase);
+            }
+        });
+        ReflectionTestUtils.setField(service, "listeners", beanFactory.getBeanProvider(MigrationListener.class));
+
+        Thread thread = Thread.currentThread();
+        ClassLoader contextClassLoader = thread.getContextClassLoader();
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[] {classpath.toUri().toURL()}, contextClassLoader)) {
+            thread.setContextClassLoader(classLoader);
+            service.migrate();
+        } finally {
+            thread.setContextClassLoader(contextClassLoader);
+        }
+
+        assertThat(StealLockTrigger.stolen).isTrue();
+        assertThat(phases).contains(MigrationRun.LOCK_WAIT);
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT LOCKED, LOCKEDBY FROM DATABASECHANGELOGLOCK")) {
+            rs.next();
+            assertThat(rs.getBoolean(1)).isTrue();
+            assertThat(rs.getString(2)).isEqualTo("other-node");
+        }
+    }
+
+    /**
+     * Another node takes the lock as soon as Liquibase releases it
+     */
+    public static class StealLockTrigger implements Trigger {
+
+        static final AtomicBoolean stolen = new AtomicBoolean();
+
+        @Override
+        public void fire(Connection connection, Object[] oldRow, Object[] newRow) {
+            if (Boolean.TRUE.equals(oldRow[1]) && Boolean.FALSE.equals(newRow[1]) && stolen.compareAndSet(false, true)) {
+                newRow[1] = true;
+                newRow[3] = "other-node";
+            }
+        }
+    }
+}
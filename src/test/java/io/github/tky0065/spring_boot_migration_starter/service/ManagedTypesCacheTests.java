@@ -0,0 +1,117 @@
+package io.github.tky0065.spring_boot_migration_starter.service;
+
+import io.github.tky0065.spring_boot_migration_starter.config.MigrationProperties;
+import org.flywaydb.core.Flyway;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+class ManagedTypesCacheTests {
+
+    private static final String ENTITY_PACKAGE = ManagedTypesCacheTests.class.getPackageName();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void reusesTheScanUntilTheSchemaVersionChanges() throws Exception {
+        Path migrations = Files.createDirectories(directory.resolve("migrations"));
+        Files.writeString(migrations.resolve("V1__init.sql"), "CREATE TABLE customer (id BIGINT PRIMARY KEY);");
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:managed-types-cache;DB_CLOSE_DELAY=-1");
+        Flyway flyway = Flyway.configure().dataSource(dataSource).locations("filesystem:" + migrations).load();
+        flyway.migrate();
+
+        MigrationProperties properties = new MigrationProperties();
+        properties.getMetadataCache().setPath(directory.resolve("managed-types.json").toString());
+        DefaultResourceLoader resourceLoader = new DefaultResourceLoader();
+
+        assertThat(new ManagedTypesCache(properties, dataSource, resourceLoader, null).resolve(ENTITY_PACKAGE)
+                .getManagedClassNames()).contains(IndexAdvisorTests.Customer.class.getName());
+
+        // A filter excluding every class shows whether the scan ran again
+        ManagedTypesCache filtered = new ManagedTypesCache(properties, dataSource, resourceLoader, className -> false);
+        assertThat(filtered.resolve(ENTITY_PACKAGE).getManagedClassNames())
+                .contains(IndexAdvisorTests.Customer.class.getName());
+
+        Files.writeString(migrations.resolve("V2__order.sql"), "CREATE TABLE purchase_order (id BIGINT PRIMARY KEY);");
+        flyway.migrate();
+        assertThat(filtered.resolve(ENTITY_PACKAGE).getManagedClassNames()).isEmpty();
+    }
+
+    @Test
+    void keysPackagedEntitiesOnTheirJar() throws Exception {
+        Path jar = directory.resolve("app.jar");
+        writeJar(jar, "v1");
+        long modified = Files.getLastModifiedTime(jar).toMillis();
+        String[] packages = {"com.acme.model"};
+
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[]{jar.toUri().toURL()}, null)) {
+            ManagedTypesCache cache = new ManagedTypesCache(new MigrationProperties(), null,
+                    new DefaultResourceLoader(classLoader), null);
+            String hash = cache.modelHash(packages);
+            assertThat(hash).isNotEmpty();
+
+            // The jar entries are not read, only the jar file itself
+            writeJar(jar, "v2");
+            Files.setLastModifiedTime(jar, FileTime.fromMillis(modified));
+            assertThat(cache.modelHash(packages)).isEqualTo(hash);
+
+            Files.setLastModifiedTime(jar, FileTime.fromMillis(modified + 2000));
+            assertThat(cache.modelHash(packages)).isNotEqualTo(hash);
+        }
+    }
+
+    @Test
+    void bypassesTheCacheWhileBackgroundMigrationsRun() throws Exception {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:managed-types-cache-deferred;DB_CLOSE_DELAY=-1");
+        Flyway.configure().dataSource(dataSource).locations("filesystem:" + directory).load().migrate();
+        MigrationProperties properties = new MigrationProperties();
+        Path cacheFile = directory.resolve("managed-types.json");
+        properties.getMetadataCache().setPath(cacheFile.toString());
+        BackgroundMigration backgroundMigration = new BackgroundMigration(event -> { });
+        CountDownLatch release = new CountDownLatch(1);
+        backgroundMigration.start("flyway", () -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        ManagedTypesCache cache = new ManagedTypesCache(properties, dataSource, new DefaultResourceLoader(), null,
+                backgroundMigration);
+
+        assertThat(cache.resolve(ENTITY_PACKAGE).getManagedClassNames()).contains(IndexAdvisorTests.Customer.class.getName());
+        assertThat(cacheFile).doesNotExist();
+
+        release.countDown();
+        await().atMost(Duration.ofSeconds(5)).until(backgroundMigration::isCompleted);
+        cache.resolve(ENTITY_PACKAGE);
+        assertThat(cacheFile).exists();
+    }
+
+    private static void writeJar(Path jar, String content) throws Exception {
+        try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar))) {
+            out.putNextEntry(new JarEntry("com/acme/model/"));
+            out.putNextEntry(new JarEntry("com/acme/model/Customer.class"));
+            out.write(content.getBytes(StandardCharsets.UTF_8));
+            out.closeEntry();
+        }
+    }
+}
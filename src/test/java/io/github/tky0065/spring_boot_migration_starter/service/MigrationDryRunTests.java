@@ -0,0 +1,86 @@
+package io.github.tky0065.spring_boot_migration_starter.service;
+
+import io.github.tky0065.spring_boot_migration_starter.config.MigrationProperties;
+import org.flywaydb.core.Flyway;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+class MigrationDryRunTests {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void detectsWholeTableStatements() {
+        assertThat(FullTableStatementDetector.detect("update \"app\".\"orders\" set status = 'X'"))
+                .extracting(FullTableStatementDetector.Match::table).containsExactly("orders");
+        assertThat(FullTableStatementDetector.detect("UPDATE orders SET status = 'X' WHERE id = 1")).isEmpty();
+        assertThat(FullTableStatementDetector.detect("CREATE INDEX CONCURRENTLY idx ON orders (status)"))
+                .extracting(FullTableStatementDetector.Match::reason)
+                .containsExactly("Online index build scans the whole table");
+        assertThat(FullTableStatementDetector.detect(
+                "ALTER TABLE orders ADD COLUMN note VARCHAR(20) DEFAULT 'n' NOT NULL, ADD CONSTRAINT fk FOREIGN KEY (c) REFERENCES c(id)"))
+                .hasSize(2);
+        assertThat(FullTableStatementDetector.detect(
+                "ALTER TABLE orders ADD CONSTRAINT fk FOREIGN KEY (c) REFERENCES c(id) NOT VALID")).isEmpty();
+        assertThat(FullTableStatementDetector.detect("ALTER TABLE orders ADD COLUMN note VARCHAR(20)")).isEmpty();
+    }
+
+    @Test
+    void profilesPendingFlywayMigrationsOnClone() throws Exception {
+        Path scripts = Files.createDirectories(tempDir.resolve("migration"));
+        Files.writeString(scripts.resolve("V1__init.sql"), """
+                CREATE TABLE item (id INT PRIMARY KEY, name VARCHAR(50));
+                INSERT INTO item SELECT X, 'item' FROM SYSTEM_RANGE(1, 1000);
+                """);
+        JdbcDataSource target = new JdbcDataSource();
+        target.setURL("jdbc:h2:mem:dry-run-target;DB_CLOSE_DELAY=-1");
+        Flyway.configure().dataSource(target).locations("filesystem:" + scripts).load().migrate();
+        try (Connection connection = target.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("INSERT INTO item SELECT X, 'item' FROM SYSTEM_RANGE(1001, 4000)");
+        }
+        Files.writeString(scripts.resolve("V2__rename.sql"), """
+                UPDATE item SET name = UPPER(name);
+                INSERT INTO item VALUES (0, 'zero');
+                """);
+
+        MigrationProperties properties = new MigrationProperties();
+        properties.setLocations(List.of("filesystem:" + scripts));
+        properties.getDryRun().setReportPath(tempDir.resolve("report.json").toString());
+        FlywayMigrationService service = new FlywayMigrationService();
+        ReflectionTestUtils.setField(service, "dataSource", target);
+        ReflectionTestUtils.setField(service, "properties", properties);
+
+        MigrationDryRunReport report = service.dryRun();
+
+        assertThat(report.error()).isNull();
+        assertThat(report.flaggedStatements()).isEqualTo(1);
+        assertThat(report.scripts()).singleElement().satisfies(script -> {
+            assertThat(script.script()).isEqualTo("V2__rename.sql");
+            assertThat(script.statementCount()).isEqualTo(2);
+            MigrationDryRunReport.StatementReport update = script.statements().get(0);
+            assertThat(update.findings())
+                    .extracting(MigrationDryRunReport.Finding::table, MigrationDryRunReport.Finding::cloneRows,
+                            MigrationDryRunReport.Finding::targetRows)
+                    .containsExactly(tuple("item", 1000L, 4000L));
+            assertThat(update.estimatedMillis()).isCloseTo(update.durationMillis() * 4, org.assertj.core.data.Offset.offset(0.01));
+            assertThat(script.statements().get(1).findings()).isEmpty();
+        });
+        assertThat(tempDir.resolve("report.json")).content().contains("\"flaggedStatements\" : 1");
+
+        // The target itself is left untouched
+        assertThat(Flyway.configure().dataSource(target).locations("filesystem:" + scripts).load().info().pending())
+                .hasSize(1);
+    }
+}
@@ -0,0 +1,54 @@
+package io.github.tky0065.spring_boot_migration_starter.service;
+
+import io.github.tky0065.spring_boot_migration_starter.config.MigrationProperties;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+class MigrationFlightRecorderTests {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void recordsPhasesAndAppliedScripts() throws Exception {
+        Path migrations = Files.createDirectory(directory.resolve("migrations"));
+        Files.writeString(migrations.resolve("V1__init.sql"), "CREATE TABLE customer (id BIGINT PRIMARY KEY);");
+        Files.writeString(migrations.resolve("V2__broken.sql"), "INSERT INTO missing_table VALUES (1);");
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:flight-recorder;DB_CLOSE_DELAY=-1");
+        MigrationProperties properties = new MigrationProperties();
+        properties.setLocations(List.of("filesystem:" + migrations));
+
+        Path output = directory.resolve("migration.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(MigrationFlightRecorder.PHASE_EVENT);
+            recording.enable(MigrationFlightRecorder.SCRIPT_EVENT);
+            recording.start();
+            assertThatThrownBy(() -> new FlywayMigrationService(dataSource, properties).migrate())
+                    .isInstanceOf(RuntimeException.class);
+            recording.stop();
+            recording.dump(output);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(output);
+        assertThat(events.stream().filter(e -> e.getEventType().getName().equals(MigrationFlightRecorder.PHASE_EVENT)))
+                .extracting(e -> e.getString("phase"), e -> e.getString("tool"), e -> e.getBoolean("success"))
+                .contains(tuple("configuration", "flyway", true), tuple("checksum-validation", "flyway", true),
+                        tuple("migrate", "flyway", false));
+        assertThat(events.stream().filter(e -> e.getEventType().getName().equals(MigrationFlightRecorder.SCRIPT_EVENT)))
+                .extracting(e -> e.getString("script"), e -> e.getString("operation"), e -> e.getBoolean("success"))
+                .containsExactly(tuple("V1__init.sql", "MIGRATE", true), tuple("V2__broken.sql", "MIGRATE", false));
+    }
+}
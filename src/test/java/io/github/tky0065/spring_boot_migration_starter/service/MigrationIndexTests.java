@@ -0,0 +1,88 @@
+package io.github.tky0065.spring_boot_migration_starter.service;
+
+import io.github.tky0065.spring_boot_migration_starter.config.MigrationAotProcessor;
+import io.github.tky0065.spring_boot_migration_starter.config.MigrationProperties;
+import org.flywaydb.core.Flyway;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.aot.generate.ClassNameGenerator;
+import org.springframework.aot.generate.DefaultGenerationContext;
+import org.springframework.aot.generate.GeneratedFiles;
+import org.springframework.aot.generate.InMemoryGeneratedFiles;
+import org.springframework.aot.hint.predicate.RuntimeHintsPredicates;
+import org.springframework.beans.factory.aot.BeanFactoryInitializationAotContribution;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.boot.autoconfigure.AutoConfigurationPackages;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.core.io.Resource;
+import org.springframework.javapoet.ClassName;
+
+import java.io.ByteArrayInputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MigrationIndexTests {
+
+    @TempDir
+    Path classpath;
+
+    @Test
+    void migratesFromTheIndexWithoutScanningTheClasspath() throws Exception {
+        Files.createDirectories(classpath.resolve("db/migration/orders"));
+        Files.writeString(classpath.resolve("db/migration/V1__init.sql"), "CREATE TABLE customer (id BIGINT PRIMARY KEY);");
+        Files.writeString(classpath.resolve("db/migration/orders/V2__orders.sql"),
+                "CREATE TABLE purchase_order (id BIGINT PRIMARY KEY, customer_id BIGINT);");
+
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[] {classpath.toUri().toURL()},
+                getClass().getClassLoader())) {
+            MigrationIndex built = MigrationIndex.build(classLoader, List.of(getClass().getPackageName()),
+                    List.of("classpath:db/migration"));
+            MigrationIndex index = MigrationIndex.read(
+                    new ByteArrayInputStream(built.write().getBytes(StandardCharsets.UTF_8)));
+            assertThat(index.getEntityClassNames()).contains(IndexAdvisorTests.Customer.class.getName());
+            assertThat(index.getResources())
+                    .containsExactly("db/migration/V1__init.sql", "db/migration/orders/V2__orders.sql");
+
+            List<Resource> scripts = new MigrationLocations(List.of("classpath:db/migration"), classLoader, index)
+                    .findResources("**/V*__*.sql");
+            assertThat(scripts).extracting(Resource::getFilename).containsExactly("V1__init.sql", "V2__orders.sql");
+
+            JdbcDataSource dataSource = new JdbcDataSource();
+            dataSource.setURL("jdbc:h2:mem:migration-index;DB_CLOSE_DELAY=-1");
+            Flyway flyway = Flyway.configure(classLoader).dataSource(dataSource)
+                    .resourceProvider(new IndexedFlywayResourceProvider(index, List.of("classpath:db/migration"),
+                            classLoader))
+                    .load();
+            assertThat(flyway.migrate().migrationsExecuted).isEqualTo(2);
+        }
+    }
+
+    @Test
+    void generatesTheIndexAndHintsAtBuildTime() throws Exception {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerSingleton("environment", new StandardEnvironment());
+        beanFactory.registerBeanDefinition("migrationProperties", new RootBeanDefinition(MigrationProperties.class));
+        AutoConfigurationPackages.register(beanFactory, getClass().getPackageName());
+
+        BeanFactoryInitializationAotContribution contribution = new MigrationAotProcessor().processAheadOfTime(beanFactory);
+        InMemoryGeneratedFiles generatedFiles = new InMemoryGeneratedFiles();
+        DefaultGenerationContext generationContext = new DefaultGenerationContext(
+                new ClassNameGenerator(ClassName.get("com.example", "Application")), generatedFiles);
+        contribution.applyTo(generationContext, null);
+
+        assertThat(generatedFiles.getGeneratedFileContent(GeneratedFiles.Kind.RESOURCE, MigrationIndex.LOCATION))
+                .contains("entity:" + IndexAdvisorTests.Customer.class.getName());
+        assertThat(RuntimeHintsPredicates.resource().forResource(MigrationIndex.LOCATION))
+                .accepts(generationContext.getRuntimeHints());
+        assertThat(RuntimeHintsPredicates.reflection().onField(IndexAdvisorTests.Customer.class, "id"))
+                .accepts(generationContext.getRuntimeHints());
+    }
+}
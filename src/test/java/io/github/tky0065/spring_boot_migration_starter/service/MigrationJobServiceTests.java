@@ -0,0 +1,121 @@
+package io.github.tky0065.spring_boot_migration_starter.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+class MigrationJobServiceTests {
+
+    @Test
+    void runsOneJobAtATimeAndRecordsScriptProgress() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        BlockingMigrationService migrationService = new BlockingMigrationService(release);
+        MigrationJobService jobService = new MigrationJobService(migrationService);
+        migrationService.jobService = jobService;
+
+        MigrationJob job = jobService.start(MigrationOperation.MIGRATE).orElseThrow();
+        assertThat(jobService.start(MigrationOperation.VALIDATE)).isEmpty();
+
+        release.countDown();
+        await().atMost(Duration.ofSeconds(5))
+                .until(() -> job.snapshot().status() != MigrationJob.Status.RUNNING);
+
+        MigrationJob.Snapshot snapshot = job.snapshot();
+        assertThat(snapshot.status()).isEqualTo(MigrationJob.Status.SUCCEEDED);
+        assertThat(snapshot.scripts()).containsExactly(new MigrationJob.ScriptProgress("V1__init.sql", true, 12L));
+        assertThat(jobService.getRunningJob()).isEmpty();
+        assertThat(jobService.findJob(job.getId())).isPresent();
+    }
+
+    @Test
+    void ignoresProgressFromOtherThreads() {
+        MigrationJobService jobService = new MigrationJobService(new BlockingMigrationService(new CountDownLatch(0)));
+
+        jobService.onScriptStarted(MigrationOperation.MIGRATE, "V1__init.sql");
+
+        assertThat(jobService.getJobs()).isEmpty();
+    }
+
+    @Test
+    void recordsFailures() {
+        MigrationService failing = new BlockingMigrationService(new CountDownLatch(0)) {
+            @Override
+            public void repair() {
+                throw new IllegalStateException("boom");
+            }
+        };
+        MigrationJobService jobService = new MigrationJobService(failing);
+
+        Optional<MigrationJob> job = jobService.start(MigrationOperation.REPAIR);
+
+        await().atMost(Duration.ofSeconds(5))
+                .until(() -> job.orElseThrow().snapshot().status() == MigrationJob.Status.FAILED);
+        assertThat(job.orElseThrow().snapshot().error()).isEqualTo("boom");
+    }
+
+    @Test
+    void recordsErrors() {
+        MigrationService failing = new BlockingMigrationService(new CountDownLatch(0)) {
+            @Override
+            public void validate() {
+                throw new NoClassDefFoundError("liquibase/Liquibase");
+            }
+        };
+        MigrationJobService jobService = new MigrationJobService(failing);
+
+        MigrationJob job = jobService.start(MigrationOperation.VALIDATE).orElseThrow();
+
+        await().atMost(Duration.ofSeconds(5))
+                .until(() -> job.snapshot().status() != MigrationJob.Status.RUNNING);
+        assertThat(job.snapshot().status()).isEqualTo(MigrationJob.Status.FAILED);
+        assertThat(job.snapshot().error()).isEqualTo("liquibase/Liquibase");
+        await().atMost(Duration.ofSeconds(5)).until(() -> jobService.getRunningJob().isEmpty());
+    }
+
+    @Test
+    void failsDryRunsOfServicesWithoutSupport() {
+        MigrationJobService jobService = new MigrationJobService(new BlockingMigrationService(new CountDownLatch(0)));
+
+        MigrationJob job = jobService.start(MigrationOperation.DRY_RUN).orElseThrow();
+
+        await().atMost(Duration.ofSeconds(5))
+                .until(() -> job.snapshot().status() != MigrationJob.Status.RUNNING);
+        assertThat(job.snapshot().status()).isEqualTo(MigrationJob.Status.FAILED);
+        assertThat(job.snapshot().error()).isEqualTo("dry run not supported");
+    }
+
+    private static class BlockingMigrationService implements MigrationService {
+
+        private final CountDownLatch release;
+        private MigrationJobService jobService;
+
+        BlockingMigrationService(CountDownLatch release) {
+            this.release = release;
+        }
+
+        @Override
+        public void migrate() {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            jobService.onScriptStarted(MigrationOperation.MIGRATE, "V1__init.sql");
+            jobService.onScriptCompleted(MigrationOperation.MIGRATE, "V1__init.sql", 12);
+        }
+
+        @Override
+        public void validate() {
+        }
+
+        @Override
+        public void repair() {
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package io.github.tky0065.spring_boot_migration_starter.service;
+
+import io.github.tky0065.spring_boot_migration_starter.config.MigrationProperties;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MigrationPreflightTests {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void abortsWhileATransactionHoldsTheMigratedTable() throws Exception {
+        Path migrations = Files.createDirectory(directory.resolve("migrations"));
+        Files.writeString(migrations.resolve("V1__init.sql"),
+                "CREATE TABLE customer (id BIGINT PRIMARY KEY, name VARCHAR(50));\nINSERT INTO customer VALUES (1, 'a');");
+        JdbcDataSource dataSource = dataSource("preflight");
+        MigrationProperties properties = properties(MigrationProperties.Preflight.Policy.ABORT);
+        properties.setLocations(List.of("filesystem:" + migrations));
+        FlywayMigrationService service = new FlywayMigrationService(dataSource, properties);
+        service.migrate();
+
+        Files.writeString(migrations.resolve("V2__email.sql"), "ALTER TABLE customer ADD COLUMN email VARCHAR(100);");
+        try (Connection holder = dataSource.getConnection()) {
+            holder.setAutoCommit(false);
+            try (Statement statement = holder.createStatement()) {
+                statement.executeUpdate("UPDATE customer SET name = 'b' WHERE id = 1");
+            }
+
+            assertThatThrownBy(service::migrate)
+                    .isInstanceOf(IllegalStateException.class)
+                    .hasMessageContaining("on customer");
+            assertThat(appliedMigrations(dataSource)).isEqualTo(1);
+            holder.commit();
+        }
+
+        service.migrate();
+        assertThat(appliedMigrations(dataSource)).isEqualTo(2);
+    }
+
+    @Test
+    void waitsUntilTheHoldersAreGone() {
+        MigrationProperties properties = properties(MigrationProperties.Preflight.Policy.WAIT);
+        AtomicInteger inspections = new AtomicInteger();
+        LockInspector inspector = inspector(() -> inspections.incrementAndGet() < 3);
+
+        new MigrationPreflight(properties, List.of(inspector)).check(dataSource("preflight-wait"), Set.of("customer"));
+
+        assertThat(inspections).hasValue(3);
+    }
+
+    @Test
+    void abortsOnceTheMaximumWaitIsReachedAndReportsOtherwise() {
+        MigrationProperties properties = properties(MigrationProperties.Preflight.Policy.WAIT);
+        properties.getPreflight().setMaxWait(Duration.ofMillis(50));
+        LockInspector inspector = inspector(() -> true);
+        JdbcDataSource dataSource = dataSource("preflight-timeout");
+
+        assertThatThrownBy(() -> new MigrationPreflight(properties, List.of(inspector)).check(dataSource, Set.of("customer")))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("session 42 holds ROW EXCLUSIVE on customer");
+
+        properties.getPreflight().setPolicy(MigrationProperties.Preflight.Policy.REPORT);
+        new MigrationPreflight(properties, List.of(inspector)).check(dataSource, Set.of("customer"));
+    }
+
+    @Test
+    void filtersMySqlLocksOnTheConfiguredSchema() throws Exception {
+        Connection connection = mock(Connection.class, RETURNS_DEEP_STUBS);
+        PreparedStatement statement = mock(PreparedStatement.class, RETURNS_DEEP_STUBS);
+        when(connection.getMetaData().storesLowerCaseIdentifiers()).thenReturn(true);
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+
+        assertThat(new MySqlLockInspector("Billing").findLockHolders(connection, Set.of("invoice"))).isEmpty();
+        verify(statement).setString(1, "billing");
+
+        // Connector/J reports no schema: the query falls back to DATABASE()
+        new MySqlLockInspector().findLockHolders(connection, Set.of("invoice"));
+        verify(statement).setString(1, null);
+    }
+
+    private static LockInspector inspector(BooleanSupplier holding) {
+        return new LockInspector() {
+            @Override
+            public boolean supports(DatabaseDialect dialect) {
+                return true;
+            }
+
+            @Override
+            public List<LockHolder> findLockHolders(Connection connection, Set<String> tables) {
+                return holding.getAsBoolean()
+                        ? List.of(new LockHolder("42", "customer", "ROW EXCLUSIVE", "idle in transaction", 60_000, "UPDATE customer"))
+                        : List.of();
+            }
+        };
+    }
+
+    private static int appliedMigrations(JdbcDataSource dataSource) throws Exception {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT COUNT(*) FROM \"flyway_schema_history\" WHERE \"type\" = 'SQL' AND \"success\"")) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    private static MigrationProperties properties(MigrationProperties.Preflight.Policy policy) {
+        MigrationProperties properties = new MigrationProperties();
+        properties.getPreflight().setEnabled(true);
+        properties.getPreflight().setPolicy(policy);
+        properties.getPreflight().setMinTransactionAge(Duration.ZERO);
+        properties.getPreflight().setPollInterval(Duration.ofMillis(10));
+        return properties;
+    }
+
+    private static JdbcDataSource dataSource(String name) {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1");
+        return dataSource;
+    }
+}
@@ -0,0 +1,86 @@
+package io.github.tky0065.spring_boot_migration_starter.service;
+
+import io.github.tky0065.spring_boot_migration_starter.config.MigrationProperties;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MigrationRunHistoryTests {
+
+    @Test
+    void recordsPhasesAndScriptsOfARun() {
+        MigrationProperties properties = properties();
+        List<Object> events = new ArrayList<>();
+        MigrationRunHistory history = new MigrationRunHistory(dataSource("run-history"), properties, events::add);
+
+        history.beforeOperation(MigrationOperation.MIGRATE);
+        history.onPhaseCompleted(MigrationOperation.MIGRATE, MigrationRun.CONNECTION, 5);
+        history.onPhaseCompleted(MigrationOperation.MIGRATE, MigrationRun.LOCK_WAIT, 40);
+        history.onScriptCompleted(MigrationOperation.MIGRATE, "V1__init.sql", 100);
+        history.afterOperation(MigrationOperation.MIGRATE, 160);
+
+        List<MigrationRun> runs = history.findRuns(MigrationOperation.MIGRATE, 10);
+        assertThat(runs).singleElement().satisfies(run -> {
+            assertThat(run.node()).isEqualTo("node-1");
+            assertThat(run.tool()).isEqualTo("flyway");
+            assertThat(run.success()).isTrue();
+            assertThat(run.lockWaitMillis()).isEqualTo(40);
+            assertThat(run.phases()).containsExactly(Map.entry(MigrationRun.CONNECTION, 5L),
+                    Map.entry(MigrationRun.LOCK_WAIT, 40L));
+            assertThat(run.scripts()).containsExactly(Map.entry("V1__init.sql", 100L));
+            assertThat(run.overheadMillis()).isEqualTo(60);
+        });
+        assertThat(events).isEmpty();
+    }
+
+    @Test
+    void flagsRunsSlowerThanTheBaseline() throws Exception {
+        MigrationProperties properties = properties();
+        List<Object> events = new ArrayList<>();
+        MigrationRunHistory history = new MigrationRunHistory(dataSource("run-history-regression"), properties, events::add);
+        Instant start = Instant.parse("2026-01-01T00:00:00Z");
+        for (int i = 0; i < 5; i++) {
+            // Script time is excluded from the comparison
+            history.record(run(start.plusSeconds(i), 1000 + i * 5000L, i * 5000L, 100));
+        }
+        history.record(run(start.plusSeconds(10), 4000, 0, 3000));
+
+        List<MigrationRunRegression> regressions = history.findRegressions(MigrationOperation.MIGRATE, 3);
+        assertThat(regressions).singleElement().satisfies(regression -> {
+            assertThat(regression.run().startedAt()).isEqualTo(start.plusSeconds(10));
+            assertThat(regression.baselineMillis()).isEqualTo(1000);
+            assertThat(regression.baselineLockWaitMillis()).isEqualTo(100);
+            assertThat(regression.ratio()).isEqualTo(4.0);
+        });
+
+        history.beforeOperation(MigrationOperation.MIGRATE);
+        history.onPhaseCompleted(MigrationOperation.MIGRATE, MigrationRun.LOCK_WAIT, 2500);
+        history.afterOperation(MigrationOperation.MIGRATE, 3000);
+        assertThat(events).singleElement().isInstanceOf(MigrationRunRegression.class);
+    }
+
+    private static MigrationRun run(Instant startedAt, long durationMillis, long scriptMillis, long lockWaitMillis) {
+        return new MigrationRun(startedAt.toString(), "node-1", "flyway", MigrationOperation.MIGRATE, startedAt,
+                durationMillis, lockWaitMillis, true, Map.of(MigrationRun.LOCK_WAIT, lockWaitMillis),
+                scriptMillis > 0 ? Map.of("V1__init.sql", scriptMillis) : Map.of());
+    }
+
+    private static MigrationProperties properties() {
+        MigrationProperties properties = new MigrationProperties();
+        properties.getRunHistory().setEnabled(true);
+        properties.getRunHistory().setNode("node-1");
+        return properties;
+    }
+
+    private static JdbcDataSource dataSource(String name) {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1");
+        return dataSource;
+    }
+}
@@ -0,0 +1,59 @@
+package io.github.tky0065.spring_boot_migration_starter.service;
+
+import io.github.tky0065.spring_boot_migration_starter.config.MigrationProperties;
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.output.MigrateResult;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PostMigrationStageTests {
+
+    @TempDir
+    Path migrations;
+
+    @Test
+    void findsTheTablesWrittenByTheAppliedMigrations() throws Exception {
+        Files.writeString(migrations.resolve("V1__init.sql"), """
+                CREATE TABLE customer (id BIGINT PRIMARY KEY, name VARCHAR(50));
+                CREATE TABLE purchase_order (id BIGINT PRIMARY KEY, customer_id BIGINT);
+                """);
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:post-migration;DB_CLOSE_DELAY=-1");
+        Flyway flyway = Flyway.configure().dataSource(dataSource)
+                .locations("filesystem:" + migrations).load();
+        flyway.migrate();
+
+        Files.writeString(migrations.resolve("V2__orders.sql"), """
+                -- Backfill
+                /* hint */ INSERT INTO purchase_order (id, customer_id) SELECT id, id FROM customer;
+                CREATE INDEX idx_order_customer ON "PUBLIC".purchase_order (customer_id);
+                """);
+        MigrateResult result = flyway.migrate();
+
+        PostMigrationStage stage = new PostMigrationStage(new MigrationProperties());
+        Set<String> touchedTables = stage.touchedTables(flyway, result);
+        assertThat(touchedTables).containsExactly("purchase_order");
+
+        MigrationProperties properties = new MigrationProperties();
+        properties.getPostMigration().setWarmUpConnections(2);
+        properties.getPostMigration().setWarmUpQueries(List.of("SELECT COUNT(*) FROM purchase_order"));
+        new PostMigrationStage(properties).run(dataSource, touchedTables);
+    }
+
+    @Test
+    void ignoresStatementsThatOnlyRead() {
+        assertThat(PostMigrationStage.touchedTable("update `shop`.`customer` set name = 'x'")).isEqualTo("customer");
+        assertThat(PostMigrationStage.touchedTable("ALTER TABLE IF EXISTS ONLY customer ADD COLUMN age INT"))
+                .isEqualTo("customer");
+        assertThat(PostMigrationStage.touchedTable("SELECT * FROM customer")).isNull();
+        assertThat(PostMigrationStage.touchedTable("DROP VIEW customer_view")).isNull();
+    }
+}
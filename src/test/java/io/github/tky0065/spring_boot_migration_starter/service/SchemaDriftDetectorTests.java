@@ -0,0 +1,83 @@
+package io.github.tky0065.spring_boot_migration_starter.service;
+
+import io.github.tky0065.spring_boot_migration_starter.config.MigrationProperties;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+class SchemaDriftDetectorTests {
+
+    @Test
+    void reportsManualChangesOnceUntilTheNextMigration() throws Exception {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:schema-drift;DB_CLOSE_DELAY=-1");
+        List<SchemaDriftEvent> events = new ArrayList<>();
+        SchemaDriftDetector detector = new SchemaDriftDetector(dataSource, new MigrationProperties(),
+                event -> events.add((SchemaDriftEvent) event));
+
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE customer (id BIGINT PRIMARY KEY, name VARCHAR(50))");
+            assertThat(detector.check()).isEmpty();
+
+            statement.execute("ALTER TABLE customer ADD COLUMN email VARCHAR(120)");
+            statement.execute("ALTER TABLE customer ALTER COLUMN name SET NOT NULL");
+            statement.execute("CREATE INDEX idx_customer_email ON customer (email)");
+            // Created by the starter on the first recorded run
+            statement.execute("CREATE TABLE migration_run_history (id VARCHAR(36) PRIMARY KEY)");
+
+            assertThat(detector.check())
+                    .extracting(SchemaDrift::table, SchemaDrift::kind, SchemaDrift::object)
+                    .containsExactlyInAnyOrder(
+                            tuple("customer", SchemaDrift.Kind.COLUMN_ADDED, "EMAIL"),
+                            tuple("customer", SchemaDrift.Kind.COLUMN_CHANGED, "NAME"),
+                            tuple("customer", SchemaDrift.Kind.INDEX_ADDED, "idx_customer_email"));
+            assertThat(events).singleElement().extracting(SchemaDriftEvent::getTotalDrifts).isEqualTo(3);
+
+            assertThat(detector.check()).isEmpty();
+            assertThat(detector.getDriftCount()).isEqualTo(3);
+
+            detector.afterOperation(MigrationOperation.MIGRATE, 0);
+            detector.check();
+            assertThat(detector.getDrifts()).isEmpty();
+        }
+    }
+
+    @Test
+    void detectsAddedAndDroppedTables() {
+        TableSchema table = new TableSchema("invoice", Map.of(), List.of());
+
+        assertThat(SchemaDriftDetector.diff("invoice", null, table))
+                .extracting(SchemaDrift::kind).containsExactly(SchemaDrift.Kind.TABLE_ADDED);
+        assertThat(SchemaDriftDetector.diff("invoice", table, null))
+                .extracting(SchemaDrift::kind).containsExactly(SchemaDrift.Kind.TABLE_DROPPED);
+        assertThat(SchemaDriftDetector.diff("invoice", table, table)).isEmpty();
+    }
+
+    @Test
+    void eventsAreSerializable() throws Exception {
+        SchemaDriftEvent event = new SchemaDriftEvent(this, List.of(
+                new SchemaDrift("customer", SchemaDrift.Kind.COLUMN_ADDED, "EMAIL", "added VARCHAR(120)")), 1);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(event);
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            SchemaDriftEvent copy = (SchemaDriftEvent) in.readObject();
+            assertThat(copy.getDrifts()).isEqualTo(event.getDrifts());
+            assertThat(copy.getTotalDrifts()).isEqualTo(1);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package io.github.tky0065.spring_boot_migration_starter.service;
+
+import io.github.tky0065.spring_boot_migration_starter.config.MigrationProperties;
+import org.flywaydb.core.Flyway;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SeedDataLoaderTests {
+
+    @TempDir
+    Path seedDir;
+
+    private JdbcDataSource dataSource;
+    private MigrationProperties properties;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:seed-" + System.nanoTime() + ";DB_CLOSE_DELAY=-1");
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE country (code VARCHAR(2) PRIMARY KEY, name VARCHAR(100), population BIGINT)");
+            statement.execute("CREATE TABLE feature_flag (name VARCHAR(50) PRIMARY KEY, enabled BOOLEAN)");
+        }
+
+        properties = new MigrationProperties();
+        properties.getLocations().add("filesystem:" + seedDir);
+        properties.getSeedData().setBatchSize(2);
+    }
+
+    @Test
+    void loadsCsvAndJsonLinesOnce() throws Exception {
+        Files.writeString(seedDir.resolve("S1__country.csv"), """
+                code,name,population
+                FR,France,68000000
+                BF,"Burkina Faso",22000000
+                CI,"Côte d'Ivoire, République",
+                """);
+        Files.writeString(seedDir.resolve("S2__feature_flag.jsonl"), """
+                {"name": "checkout-v2", "enabled": true}
+
+                {"name": "dark-mode", "enabled": false}
+                """);
+
+        SeedDataLoader loader = new SeedDataLoader(properties);
+
+        assertThat(loader.load(dataSource)).isEqualTo(2);
+        assertThat(query("SELECT name FROM country ORDER BY code"))
+                .containsExactly("Burkina Faso", "Côte d'Ivoire, République", "France");
+        assertThat(query("SELECT CAST(population AS VARCHAR) FROM country WHERE code = 'CI'")).containsExactly((String) null);
+        assertThat(query("SELECT name FROM feature_flag WHERE enabled")).containsExactly("checkout-v2");
+
+        // Unchanged files are skipped
+        assertThat(loader.load(dataSource)).isZero();
+    }
+
+    @Test
+    void changedFileRequiresUpsert() throws Exception {
+        Path file = seedDir.resolve("S1__country.csv");
+        Files.writeString(file, "code,name\nFR,France\n");
+        new SeedDataLoader(properties).load(dataSource);
+
+        Files.writeString(file, "code,name\nFR,République française\nDE,Germany\n");
+        assertThatThrownBy(() -> new SeedDataLoader(properties).load(dataSource))
+                .isInstanceOf(IllegalStateException.class);
+
+        properties.getSeedData().setUpsert(true);
+        assertThat(new SeedDataLoader(properties).load(dataSource)).isEqualTo(1);
+        assertThat(query("SELECT name FROM country ORDER BY code")).containsExactly("Germany", "République française");
+    }
+
+    @Test
+    void quotesNamesAndKeepsHistoryInTheConfiguredSchema() throws Exception {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("CREATE SCHEMA ref");
+            statement.execute("CREATE TABLE ref.\"ORDER\" (\"KEY\" VARCHAR(20) PRIMARY KEY, \"VALUE\" VARCHAR(50))");
+        }
+        properties.setSchema("ref");
+        properties.getSeedData().setUpsert(true);
+        Files.writeString(seedDir.resolve("S1__order.csv"), "key,value\nfirst,1\nsecond,2\n");
+
+        assertThat(new SeedDataLoader(properties).load(dataSource)).isEqualTo(1);
+        assertThat(query("SELECT \"VALUE\" FROM ref.\"ORDER\" ORDER BY \"KEY\"")).containsExactly("1", "2");
+        assertThat(query("SELECT file_name FROM ref.seed_data_history")).containsExactly("S1__order.csv");
+        assertThat(query("SELECT table_name FROM information_schema.tables WHERE table_schema = 'PUBLIC'"
+                + " AND table_name = 'SEED_DATA_HISTORY'")).isEmpty();
+    }
+
+    @Test
+    void loadsAfterTheStartupMigration() throws Exception {
+        Files.writeString(seedDir.resolve("V1__currency.sql"), "CREATE TABLE currency (code VARCHAR(3) PRIMARY KEY, name VARCHAR(50));");
+        Files.writeString(seedDir.resolve("S1__currency.csv"), "code,name\nEUR,Euro\nXOF,Franc CFA\n");
+        Flyway flyway = Flyway.configure().dataSource(dataSource).locations("filesystem:" + seedDir)
+                .baselineOnMigrate(true).baselineVersion("0").load();
+
+        new StartupFlywayMigrationStrategy(new ConnectionRetry(properties.getStartup()), null,
+                new PostMigrationStage(properties), new SeedDataLoader(properties)).migrate(flyway);
+
+        assertThat(query("SELECT name FROM currency ORDER BY code")).containsExactly("Euro", "Franc CFA");
+    }
+
+    private List<String> query(String sql) throws Exception {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(sql)) {
+            List<String> values = new ArrayList<>();
+            while (rs.next()) {
+                values.add(rs.getString(1));
+            }
+            return values;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package io.github.tky0065.spring_boot_migration_starter.service;
+
+import io.github.tky0065.spring_boot_migration_starter.config.MigrationProperties;
+import liquibase.Liquibase;
+import liquibase.database.Database;
+import liquibase.database.DatabaseFactory;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.resource.DirectoryResourceAccessor;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ShardedChangelogWriterTests {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void writesChangelogsPerReleaseWithoutRewritingTheMaster() throws Exception {
+        MigrationTemplateGenerator templateGenerator = new MigrationTemplateGenerator(null, new MigrationProperties());
+        new ShardedChangelogWriter(templateGenerator, "1.0").write(directory, "changelog-1.xml", changeSet("a"));
+        new ShardedChangelogWriter(templateGenerator, "1.0").write(directory, "changelog-2.xml", changeSet("b"));
+        String master = Files.readString(directory.resolve("db.changelog-master.xml"));
+        new ShardedChangelogWriter(templateGenerator, "1.1").write(directory, "changelog-3.xml", changeSet("c"));
+
+        assertThat(directory.resolve("db.changelog-master.xml")).content().isEqualTo(master)
+                .contains("changelog/releases/db.changelog-index.yaml");
+        assertThat(directory.resolve("changelog/releases/db.changelog-index.yaml")).content()
+                .containsSubsequence("db.changelog-1.0.yaml", "db.changelog-1.1.yaml");
+        assertThat(directory.resolve("changelog/releases/1.0/changelog-2.xml")).exists();
+        assertThat(ShardedChangelogWriter.releaseChangelogPath("1.1"))
+                .isEqualTo("changelog/releases/db.changelog-1.1.yaml");
+
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:sharded-changelog;DB_CLOSE_DELAY=-1");
+        try (Connection connection = dataSource.getConnection()) {
+            Database database = DatabaseFactory.getInstance()
+                    .findCorrectDatabaseImplementation(new JdbcConnection(connection));
+            new Liquibase("db.changelog-master.xml", new DirectoryResourceAccessor(directory), database).update("");
+
+            try (ResultSet rs = connection.createStatement().executeQuery(
+                    "SELECT COUNT(*) FROM INFORMATION_SCHEMA.TABLES WHERE TABLE_NAME IN ('A', 'B', 'C')")) {
+                rs.next();
+                assertThat(rs.getInt(1)).isEqualTo(3);
+            }
+        }
+    }
+
+    private static String changeSet(String table) {
+        return """
+                <?xml version="1.0" encoding="UTF-8"?>
+                <databaseChangeLog xmlns="http://www.liquibase.org/xml/ns/dbchangelog"
+                        xmlns:xsi="http://www.w3.org/2001/XMLSchema-instance"
+                        xsi:schemaLocation="http://www.liquibase.org/xml/ns/dbchangelog https://www.liquibase.org/xml/ns/dbchangelog/dbchangelog-4.5.xsd">
+                    <changeSet id="%1$s" author="test">
+                        <createTable tableName="%1$s">
+                            <column name="id" type="int"/>
+                        </createTable>
+                    </changeSet>
+                </databaseChangeLog>
+                """.formatted(table);
+    }
+}
@@ -0,0 +1,60 @@
+package io.github.tky0065.spring_boot_migration_starter.service;
+
+import io.github.tky0065.spring_boot_migration_starter.config.MigrationProperties;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class ShardedMigrationServiceTests {
+
+    @Test
+    void retriesOnlyTheShardsThatFailedOrTimedOut() throws Exception {
+        DataSource euSource = mock(DataSource.class);
+        DataSource usSource = mock(DataSource.class);
+        DataSource apacSource = mock(DataSource.class);
+        MigrationService eu = mock(MigrationService.class);
+        MigrationService us = mock(MigrationService.class);
+        MigrationService apac = mock(MigrationService.class);
+
+        doThrow(new IllegalStateException("Lock wait timeout")).doNothing().when(us).migrate();
+        CountDownLatch stuck = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            stuck.await();
+            return null;
+        }).doNothing().when(apac).migrate();
+
+        MigrationProperties properties = new MigrationProperties();
+        properties.getShards().setTimeout(Duration.ofMillis(500));
+        Map<DataSource, MigrationService> services = Map.of(euSource, eu, usSource, us, apacSource, apac);
+        ShardedMigrationService service = new ShardedMigrationService(
+                Map.of("eu", euSource, "us", usSource, "apac", apacSource), properties, services::get);
+
+        ShardMigrationReport report = service.migrate();
+        assertThat(report.isSuccessful()).isFalse();
+        assertThat(report.failedShards()).containsExactly("apac", "us");
+        assertThat(report.shards()).extracting(ShardMigrationReport.ShardResult::status).containsExactly(
+                ShardMigrationReport.Status.TIMED_OUT, ShardMigrationReport.Status.SUCCEEDED,
+                ShardMigrationReport.Status.FAILED);
+        assertThat(report.shards().get(2).error()).isEqualTo("Lock wait timeout");
+
+        report = service.retryFailed();
+        assertThat(report.isSuccessful()).isTrue();
+        assertThat(report.shards()).extracting(ShardMigrationReport.ShardResult::attempts).containsExactly(2, 1, 2);
+        verify(eu, times(1)).migrate();
+        verify(us, times(2)).migrate();
+        verify(apac, times(2)).migrate();
+        verify(eu, never()).validate();
+        stuck.countDown();
+    }
+}
@@ -0,0 +1,219 @@
+package io.github.tky0065.spring_boot_migration_starter.service;
+
+import io.github.tky0065.spring_boot_migration_starter.config.MigrationProperties;
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.configuration.FluentConfiguration;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.StringReader;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StreamingSqlExecutorTests {
+
+    @TempDir
+    Path scriptDir;
+
+    @Test
+    void splitsStatementsIgnoringQuotedAndCommentedSemicolons() throws Exception {
+        String script = """
+                -- leading comment; not a statement
+                INSERT INTO t VALUES ('a;b', 'it''s');
+                /* block; comment */ UPDATE t SET "odd;name" = 1;;
+                CREATE FUNCTION f() RETURNS int AS $body$ BEGIN RETURN 1; END; $body$ LANGUAGE plpgsql;
+                SELECT $1 FROM dual
+                """;
+
+        SqlStatementSplitter splitter = new SqlStatementSplitter(new StringReader(script));
+        List<String> statements = new ArrayList<>();
+        String statement;
+        while ((statement = splitter.nextStatement()) != null) {
+            statements.add(statement);
+        }
+
+        assertThat(statements).containsExactly(
+                "INSERT INTO t VALUES ('a;b', 'it''s')",
+                "/* block; comment */ UPDATE t SET \"odd;name\" = 1",
+                "CREATE FUNCTION f() RETURNS int AS $body$ BEGIN RETURN 1; END; $body$ LANGUAGE plpgsql",
+                "SELECT $1 FROM dual");
+    }
+
+    @Test
+    void handlesMySqlBackslashEscapes() throws Exception {
+        String script = """
+                INSERT INTO t VALUES ('it\\'s; fine', "say \\"hi\\";", 'c:\\\\');
+                SELECT 1
+                """;
+
+        assertThat(split(script, DatabaseDialect.MYSQL)).containsExactly(
+                "INSERT INTO t VALUES ('it\\'s; fine', \"say \\\"hi\\\";\", 'c:\\\\')",
+                "SELECT 1");
+    }
+
+    @Test
+    void dropsMySqlHashComments() throws Exception {
+        String script = """
+                # setup; not a statement
+                INSERT INTO t VALUES (1); # trailing; comment
+                SELECT 2
+                """;
+
+        assertThat(split(script, DatabaseDialect.MARIADB)).containsExactly("INSERT INTO t VALUES (1)", "SELECT 2");
+    }
+
+    @Test
+    void keepsMySqlRoutineBodiesTogether() throws Exception {
+        String trigger = """
+                CREATE TRIGGER audit_item BEFORE UPDATE ON item FOR EACH ROW
+                BEGIN
+                    IF NEW.price < 0 THEN
+                        SET NEW.price = 0;
+                    END IF;
+                    CASE NEW.status WHEN 'x' THEN SET NEW.status = 'y'; ELSE BEGIN END; END CASE;
+                    SET NEW.updated = NOW();
+                END""";
+        String script = trigger + ";\nCREATE PROCEDURE noop() BEGIN SELECT 1; END;\nSELECT 2;\n";
+
+        assertThat(split(script, DatabaseDialect.MYSQL)).containsExactly(
+                trigger, "CREATE PROCEDURE noop() BEGIN SELECT 1; END", "SELECT 2");
+        assertThatThrownBy(() -> split("DELIMITER //\nSELECT 1 //\n", DatabaseDialect.MYSQL))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void executesInBatchesWithPeriodicCommits() throws Exception {
+        StringBuilder script = new StringBuilder("CREATE TABLE item (id INT PRIMARY KEY);\n");
+        for (int i = 0; i < 25; i++) {
+            script.append("INSERT INTO item VALUES (").append(i).append(");\n");
+        }
+
+        try (Connection connection = dataSource("executor").getConnection()) {
+            StreamingSqlExecutor.Result result = new StreamingSqlExecutor(4, 10)
+                    .execute(connection, new StringReader(script.toString()));
+
+            assertThat(result.statements()).isEqualTo(26);
+            assertThat(result.commits()).isEqualTo(3);
+            assertThat(connection.getAutoCommit()).isTrue();
+            assertThat(count(connection, "SELECT COUNT(*) FROM item")).isEqualTo(25);
+        }
+    }
+
+    @Test
+    void runsAsFlywayMigration() throws Exception {
+        Files.writeString(scriptDir.resolve("V2__bulk_fix.bigsql"),
+                "INSERT INTO item VALUES (1);\nINSERT INTO item VALUES (2);\n");
+        Files.writeString(scriptDir.resolve("V1__init.sql"), "CREATE TABLE item (id INT PRIMARY KEY);");
+        JdbcDataSource dataSource = dataSource("flyway");
+
+        StreamingSqlMigration migration = new StreamingSqlMigration(
+                new FileSystemResource(scriptDir.resolve("V2__bulk_fix.bigsql")), ".bigsql", 10, 1);
+        Flyway.configure()
+                .dataSource(dataSource)
+                .locations("filesystem:" + scriptDir)
+                .javaMigrations(migration)
+                .load()
+                .migrate();
+
+        assertThat(migration.getVersion().getVersion()).isEqualTo("2");
+        assertThat(migration.getDescription()).isEqualTo("bulk fix");
+        try (Connection connection = dataSource.getConnection()) {
+            assertThat(count(connection, "SELECT COUNT(*) FROM item")).isEqualTo(2);
+        }
+    }
+
+    @Test
+    void registersStreamedScriptsOnSpringBootFlyway() throws Exception {
+        Files.writeString(scriptDir.resolve("V2__bulk_fix.bigsql"), "INSERT INTO item VALUES (1);\n");
+        Files.writeString(scriptDir.resolve("V1__init.sql"), "CREATE TABLE item (id INT PRIMARY KEY);");
+        JdbcDataSource dataSource = dataSource("boot");
+
+        FluentConfiguration configuration = Flyway.configure()
+                .dataSource(dataSource)
+                .locations("filesystem:" + scriptDir);
+        new StreamingFlywayConfigurationCustomizer(new MigrationProperties()).customize(configuration);
+        configuration.load().migrate();
+
+        try (Connection connection = dataSource.getConnection()) {
+            assertThat(count(connection, "SELECT COUNT(*) FROM item")).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void resolvesStreamedScriptsWithTheGivenClassLoader() throws Exception {
+        Path locationDir = Files.createDirectories(scriptDir.resolve("project/migration"));
+        Files.writeString(locationDir.resolve("V1__init.sql"), "CREATE TABLE item (id INT PRIMARY KEY);");
+        Files.writeString(locationDir.resolve("V2__bulk_fix.bigsql"), "INSERT INTO item VALUES (1);\n");
+        JdbcDataSource dataSource = dataSource("class-loader");
+        MigrationProperties properties = new MigrationProperties();
+        properties.getLocations().add("classpath:project/migration");
+
+        // The location is only visible to the project class loader, as for the Maven plugin
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[]{scriptDir.toUri().toURL()}, null)) {
+            new FlywayMigrationService(dataSource, properties, classLoader).migrate();
+        }
+
+        try (Connection connection = dataSource.getConnection()) {
+            assertThat(count(connection, "SELECT COUNT(*) FROM item")).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void reportsTheFileNameOfStreamedScripts() throws Exception {
+        Files.writeString(scriptDir.resolve("V1__init.sql"), "CREATE TABLE item (id INT PRIMARY KEY);");
+        Files.writeString(scriptDir.resolve("V1_1__bulk_fix.bigsql"), "INSERT INTO item VALUES (1);\n");
+        MigrationProperties properties = new MigrationProperties();
+        properties.getLocations().add("filesystem:" + scriptDir);
+        List<String> scripts = new ArrayList<>();
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerSingleton("listener", new MigrationListener() {
+            @Override
+            public void onScriptCompleted(MigrationOperation operation, String script, long durationMillis) {
+                scripts.add(script);
+            }
+        });
+        FlywayMigrationService service = new FlywayMigrationService(dataSource("script-name"), properties);
+        ReflectionTestUtils.setField(service, "listeners", beanFactory.getBeanProvider(MigrationListener.class));
+
+        service.migrate();
+
+        assertThat(scripts).containsExactly("V1__init.sql", "V1_1__bulk_fix.bigsql");
+    }
+
+    private static List<String> split(String script, DatabaseDialect dialect) throws Exception {
+        SqlStatementSplitter splitter = new SqlStatementSplitter(new StringReader(script), dialect);
+        List<String> statements = new ArrayList<>();
+        String statement;
+        while ((statement = splitter.nextStatement()) != null) {
+            statements.add(statement);
+        }
+        return statements;
+    }
+
+    private static JdbcDataSource dataSource(String name) {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:streaming-" + name + ";DB_CLOSE_DELAY=-1");
+        return dataSource;
+    }
+
+    private static long count(Connection connection, String sql) throws Exception {
+        try (Statement statement = connection.createStatement(); ResultSet rs = statement.executeQuery(sql)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+}